@@ -0,0 +1,151 @@
+package com.dime.api.feature.converter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory quota for unauthenticated conversions, keyed by client IP.
+ * <p>
+ * Each IP gets a sliding-window counter (current and previous window, weighted by overlap) held in a
+ * bounded LRU, so memory stays fixed whatever the traffic. Anonymous conversions never touch Firestore on
+ * the request path; only aggregate counts are flushed periodically to {@code quota_aggregates}.
+ */
+@Slf4j
+@ApplicationScoped
+public class AnonymousQuotaService {
+
+    static final String AGGREGATES_COLLECTION = "quota_aggregates";
+
+    @Inject
+    Firestore firestore;
+
+    @ConfigProperty(name = "quota.anonymous.limit", defaultValue = "3")
+    long limit;
+
+    @ConfigProperty(name = "quota.anonymous.window", defaultValue = "P30D")
+    Duration window;
+
+    @ConfigProperty(name = "quota.anonymous.max-entries", defaultValue = "100000")
+    long maxEntries;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    private Cache<String, SlidingWindowCounter> counters;
+    private final LongAdder conversions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        counters = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(window.multipliedBy(2))
+                .build();
+    }
+
+    public QuotaService.QuotaCheckResult checkQuota(@NonNull String clientIp) {
+        SlidingWindowCounter counter = counters.getIfPresent(clientIp);
+        long used = counter != null ? counter.estimate(clock.getAsLong(), window.toMillis()) : 0;
+        boolean allowed = used < limit;
+        if (!allowed) {
+            rejections.increment();
+        }
+        return new QuotaService.QuotaCheckResult(allowed, Math.max(0, limit - used), limit, PlanType.FREE);
+    }
+
+    public void incrementUsage(@NonNull String clientIp) {
+        counters.get(clientIp, k -> new SlidingWindowCounter(clock.getAsLong()))
+                .increment(clock.getAsLong(), window.toMillis());
+        conversions.increment();
+    }
+
+    /**
+     * Adds the anonymous conversion and rejection counts accumulated since the last flush to the
+     * current month's aggregate document.
+     */
+    @Scheduled(every = "${quota.anonymous.flush-interval:5m}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void flushAggregates() {
+        long converted = conversions.sumThenReset();
+        long rejected = rejections.sumThenReset();
+        if (converted == 0 && rejected == 0) {
+            return;
+        }
+
+        String docId = "anonymous-" + YearMonth.from(Instant.ofEpochMilli(clock.getAsLong()).atZone(ZoneOffset.UTC));
+        try {
+            counters.cleanUp();
+            firestore.collection(AGGREGATES_COLLECTION).document(docId).set(Map.of(
+                    "conversions", FieldValue.increment(converted),
+                    "rejected", FieldValue.increment(rejected),
+                    "trackedIps", counters.estimatedSize(),
+                    "updatedAt", Timestamp.now()), SetOptions.merge()).get();
+            log.info("Flushed anonymous quota aggregates to {}: conversions={}, rejected={}", docId, converted, rejected);
+        } catch (Exception e) {
+            // Put the counts back so the next flush retries them
+            conversions.add(converted);
+            rejections.add(rejected);
+            log.warn("Failed to flush anonymous quota aggregates to {}", docId, e);
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        flushAggregates();
+    }
+
+    /**
+     * Sliding-window approximation: the previous window's count is weighted by how much of it still
+     * overlaps the sliding window, then added to the current window's count.
+     */
+    static final class SlidingWindowCounter {
+        private long windowStart;
+        private long current;
+        private long previous;
+
+        SlidingWindowCounter(long now) {
+            this.windowStart = now;
+        }
+
+        synchronized long increment(long now, long windowMs) {
+            rotate(now, windowMs);
+            current++;
+            return estimate(now, windowMs);
+        }
+
+        synchronized long estimate(long now, long windowMs) {
+            rotate(now, windowMs);
+            double previousWeight = 1.0 - (double) (now - windowStart) / windowMs;
+            return current + (long) Math.ceil(previous * previousWeight);
+        }
+
+        private void rotate(long now, long windowMs) {
+            long elapsed = now - windowStart;
+            if (elapsed < windowMs) {
+                return;
+            }
+            long windows = elapsed / windowMs;
+            previous = windows == 1 ? current : 0;
+            current = 0;
+            windowStart += windows * windowMs;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.dime.api.feature.converter;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transactional outbox for the side effects of a conversion.
+ * <p>
+ * {@link QuotaService#incrementUsage(String, Entry)} writes the quota increment and an
+ * {@code outbox/{id}} document in the same Firestore commit, so the request returns after a single
+ * write and no side effect depends on the instance staying alive. A relay polls for due entries,
+ * claims each one with a lease (so several instances can relay concurrently) and delivers it on a
+ * bounded worker pool:
+ * <ol>
+ * <li>{@code tracking}: the usage event, stored under the outbox ID together with the conversion count,
+ * so a redelivery is a no-op;</li>
+ * <li>{@code notionQuota}: the user's current quota, upserted into the Notion quota database. Within a
+ * relay batch only the newest entry of each user pushes it; its push reads the quota after every older
+ * entry's increment, so the others only record the step as done.</li>
+ * </ol>
+ * Completed steps are recorded on the entry and skipped on retry. Failures are retried with
+ * exponential backoff; after {@code outbox.relay.max-attempts} the entry is parked as {@code FAILED}.
+ */
+@Slf4j
+@ApplicationScoped
+public class ConversionOutbox {
+
+    static final String COLLECTION = "outbox";
+    static final String NEXT_ATTEMPT_FIELD = "nextAttemptAt";
+    static final String STATUS_PENDING = "PENDING";
+    static final String STATUS_FAILED = "FAILED";
+    static final String STEP_TRACKING = "tracking";
+    static final String STEP_NOTION_QUOTA = "notionQuota";
+
+    private static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("outcome");
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(5);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(10);
+
+    /**
+     * A successful conversion whose side effects are still to be delivered; {@code id} doubles as the
+     * idempotency key of every step.
+     */
+    public record Entry(String id, String userId, int fileCount, int eventCount, long duration, String domain,
+            Instant createdAt) {
+
+        public static Entry conversion(String userId, int fileCount, int eventCount, long duration, String domain) {
+            return new Entry(UUID.randomUUID().toString(), userId, fileCount, eventCount, duration, domain,
+                    Instant.now());
+        }
+    }
+
+    @Inject
+    Firestore firestore;
+
+    @Inject
+    TrackingService trackingService;
+
+    @Inject
+    QuotaService quotaService;
+
+    @Inject
+    NotionQuotaService notionQuotaService;
+
+    @Inject
+    OpenTelemetry openTelemetry;
+
+    @ConfigProperty(name = "outbox.relay.workers", defaultValue = "4")
+    int workers;
+
+    @ConfigProperty(name = "outbox.relay.batch-size", defaultValue = "20")
+    int batchSize;
+
+    @ConfigProperty(name = "outbox.relay.lease", defaultValue = "PT1M")
+    Duration lease;
+
+    @ConfigProperty(name = "outbox.relay.max-attempts", defaultValue = "10")
+    int maxAttempts;
+
+    // Shares Cloud Run's 10s termination grace period with the other shutdown flushes
+    @ConfigProperty(name = "outbox.relay.shutdown-timeout", defaultValue = "PT2S")
+    Duration shutdownTimeout;
+
+    final String instanceId = UUID.randomUUID().toString();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private ExecutorService pool;
+    private LongCounter delivered;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threads = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (openTelemetry != null) {
+            delivered = openTelemetry.getMeter("com.dime.api").counterBuilder("outbox.relay.delivered")
+                    .setDescription("Outbox entries processed by the relay")
+                    .build();
+        }
+    }
+
+    /**
+     * Initial document of a new entry, due immediately.
+     */
+    static Map<String, Object> toDocument(Entry entry) {
+        Timestamp now = Timestamp.now();
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("type", "conversion");
+        doc.put("userId", entry.userId());
+        doc.put("fileCount", entry.fileCount());
+        doc.put("eventCount", entry.eventCount());
+        doc.put("duration", entry.duration());
+        doc.put("domain", entry.domain());
+        doc.put("createdAt", toTimestamp(entry.createdAt()));
+        doc.put("status", STATUS_PENDING);
+        doc.put("attempts", 0);
+        doc.put(NEXT_ATTEMPT_FIELD, now);
+        doc.put("done", Map.of(STEP_TRACKING, false, STEP_NOTION_QUOTA, false));
+        return doc;
+    }
+
+    static Entry fromDocument(DocumentSnapshot doc) {
+        Timestamp createdAt = doc.getTimestamp("createdAt");
+        Long fileCount = doc.getLong("fileCount");
+        Long eventCount = doc.getLong("eventCount");
+        Long duration = doc.getLong("duration");
+        return new Entry(doc.getId(), doc.getString("userId"),
+                fileCount != null ? fileCount.intValue() : 0,
+                eventCount != null ? eventCount.intValue() : 0,
+                duration != null ? duration : 0,
+                doc.getString("domain"),
+                createdAt != null ? createdAt.toDate().toInstant() : Instant.now());
+    }
+
+    /**
+     * Claims due entries up to the free worker capacity and hands them to the pool.
+     */
+    @Scheduled(every = "${outbox.relay.interval:5s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void relay() {
+        if (firestore == null) {
+            return;
+        }
+        int capacity = workers - inFlight.get();
+        if (capacity <= 0) {
+            return;
+        }
+        try {
+            // Parked entries have no nextAttemptAt, so this single-field range skips them
+            List<QueryDocumentSnapshot> due = firestore.collection(COLLECTION)
+                    .whereLessThanOrEqualTo(NEXT_ATTEMPT_FIELD, Timestamp.now())
+                    .limit(Math.min(batchSize, capacity))
+                    .get().get().getDocuments();
+            List<DocumentSnapshot> claimed = new ArrayList<>();
+            for (QueryDocumentSnapshot doc : due) {
+                DocumentSnapshot entry = claim(doc.getReference());
+                if (entry != null) {
+                    claimed.add(entry);
+                }
+            }
+            Set<String> quotaPushers = newestPerUser(claimed);
+            for (DocumentSnapshot entry : claimed) {
+                boolean pushQuota = quotaPushers.contains(entry.getId());
+                inFlight.incrementAndGet();
+                pool.execute(() -> {
+                    try {
+                        deliver(entry, pushQuota);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Outbox relay failed to poll (non-blocking)", e);
+        }
+    }
+
+    /**
+     * Leases the entry to this instance if it is still due; returns the claimed snapshot or null when
+     * another relay got there first.
+     */
+    DocumentSnapshot claim(DocumentReference ref) throws Exception {
+        return firestore.runTransaction(transaction -> {
+            DocumentSnapshot doc = transaction.get(ref).get();
+            Timestamp next = doc.exists() ? doc.getTimestamp(NEXT_ATTEMPT_FIELD) : null;
+            Timestamp now = Timestamp.now();
+            if (next == null || next.compareTo(now) > 0) {
+                return null;
+            }
+            transaction.update(ref, Map.of(
+                    NEXT_ATTEMPT_FIELD, toTimestamp(Instant.now().plus(lease)),
+                    "leaseOwner", instanceId,
+                    "attempts", FieldValue.increment(1)));
+            return doc;
+        }).get();
+    }
+
+    /**
+     * IDs of the newest entry of each user among {@code entries}, the only ones pushing the quota.
+     */
+    static Set<String> newestPerUser(List<DocumentSnapshot> entries) {
+        Map<String, Entry> newest = new HashMap<>();
+        for (DocumentSnapshot doc : entries) {
+            newest.merge(String.valueOf(doc.getString("userId")), fromDocument(doc),
+                    (current, next) -> next.createdAt().isAfter(current.createdAt()) ? next : current);
+        }
+        Set<String> ids = new HashSet<>();
+        newest.values().forEach(entry -> ids.add(entry.id()));
+        return ids;
+    }
+
+    /**
+     * Runs the steps of the entry still to do. Without {@code pushQuota} the {@code notionQuota} step is
+     * recorded as done without a Notion write, a newer entry of the same user pushing the quota instead.
+     */
+    void deliver(DocumentSnapshot doc, boolean pushQuota) {
+        DocumentReference ref = doc.getReference();
+        Entry entry = fromDocument(doc);
+        try {
+            if (!isDone(doc, STEP_TRACKING)) {
+                trackingService.deliverConversion(entry);
+                markDone(ref, STEP_TRACKING);
+            }
+            if (!isDone(doc, STEP_NOTION_QUOTA)) {
+                if (pushQuota) {
+                    syncQuota(entry.userId());
+                } else {
+                    log.debug("Quota push of outbox entry {} coalesced into a newer entry of user {}", entry.id(),
+                            entry.userId());
+                }
+                markDone(ref, STEP_NOTION_QUOTA);
+            }
+            ref.delete().get();
+            record("delivered");
+            log.debug("Delivered outbox entry {} for user {}", entry.id(), entry.userId());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Long attempts = doc.getLong("attempts");
+            retryLater(ref, (attempts != null ? attempts : 0) + 1, e);
+        }
+    }
+
+    private void syncQuota(String userId) {
+        // State-based and idempotent: always pushes the current quota, whatever order entries arrive in
+        UserQuota quota = quotaService.getQuotaStatus(userId);
+        if (quota == null) {
+            return;
+        }
+        Instant periodStart = quota.periodStart != null ? quota.periodStart.toDate().toInstant() : Instant.now();
+        notionQuotaService.upsertQuotaPage(userId, quota.quotaUsed, quota.getPlanType(), periodStart);
+    }
+
+    private void retryLater(DocumentReference ref, long attempts, Exception cause) {
+        try {
+            if (attempts >= maxAttempts) {
+                ref.update(Map.of(
+                        "status", STATUS_FAILED,
+                        NEXT_ATTEMPT_FIELD, FieldValue.delete(),
+                        "lastError", String.valueOf(cause.getMessage()))).get();
+                record("failed");
+                log.error("Outbox entry {} failed {} times; parked as {}", ref.getId(), attempts, STATUS_FAILED,
+                        cause);
+                return;
+            }
+            ref.update(Map.of(
+                    NEXT_ATTEMPT_FIELD, toTimestamp(Instant.now().plus(backoff(attempts))),
+                    "lastError", String.valueOf(cause.getMessage()))).get();
+            record("retry");
+            log.warn("Outbox entry {} failed (attempt {}); retrying later", ref.getId(), attempts, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // The lease expires on its own, so the entry is retried anyway
+            log.warn("Failed to reschedule outbox entry {}", ref.getId(), e);
+        }
+    }
+
+    static Duration backoff(long attempts) {
+        long factor = 1L << Math.min(attempts - 1, 20);
+        Duration delay = BASE_BACKOFF.multipliedBy(factor);
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+
+    private static boolean isDone(DocumentSnapshot doc, String step) {
+        return Boolean.TRUE.equals(doc.get("done." + step));
+    }
+
+    private static void markDone(DocumentReference ref, String step) throws Exception {
+        ref.update("done." + step, true).get();
+    }
+
+    private void record(String outcome) {
+        if (delivered != null) {
+            delivered.add(1, Attributes.of(OUTCOME, outcome));
+        }
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        // Entries still leased to this instance are picked up by another relay once the lease expires
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.info("Outbox relay stopped with {} deliveries in flight", inFlight.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.dime.api.feature.converter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-client token-bucket limiter for the converter endpoint.
+ * <p>
+ * Clients are keyed by verified Firebase UID (or IP when unauthenticated). Each key owns a bucket whose
+ * burst and refill rate follow the client's {@link PlanType}, plus a cap on concurrent conversions.
+ * Buckets are updated with CAS loops only, so no lock is held on the request path, and they live in a
+ * bounded Caffeine map that evicts idle clients.
+ */
+@Slf4j
+@ApplicationScoped
+public class ConversionRateLimiter {
+
+    public static final String DECISION_PROPERTY = "converter.rate-limit.decision";
+
+    public enum Reason {
+        RATE, CONCURRENCY
+    }
+
+    /**
+     * Outcome of an acquisition attempt, carrying everything needed for the {@code RateLimit-*} headers.
+     */
+    public record Decision(boolean allowed, Reason reason, long limit, long remaining, long resetSeconds,
+            long perMinute) {
+    }
+
+    record Limits(long burst, long perMinute) {
+        double tokensPerNano() {
+            return perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        }
+    }
+
+    @ConfigProperty(name = "converter.rate-limit.free.burst", defaultValue = "3")
+    long freeBurst;
+
+    @ConfigProperty(name = "converter.rate-limit.free.per-minute", defaultValue = "5")
+    long freePerMinute;
+
+    @ConfigProperty(name = "converter.rate-limit.pro.burst", defaultValue = "10")
+    long proBurst;
+
+    @ConfigProperty(name = "converter.rate-limit.pro.per-minute", defaultValue = "20")
+    long proPerMinute;
+
+    @ConfigProperty(name = "converter.rate-limit.business.burst", defaultValue = "20")
+    long businessBurst;
+
+    @ConfigProperty(name = "converter.rate-limit.business.per-minute", defaultValue = "40")
+    long businessPerMinute;
+
+    @ConfigProperty(name = "converter.rate-limit.unlimited.burst", defaultValue = "50")
+    long unlimitedBurst;
+
+    @ConfigProperty(name = "converter.rate-limit.unlimited.per-minute", defaultValue = "120")
+    long unlimitedPerMinute;
+
+    @ConfigProperty(name = "converter.rate-limit.max-concurrent", defaultValue = "2")
+    int maxConcurrent;
+
+    @ConfigProperty(name = "converter.rate-limit.max-entries", defaultValue = "10000")
+    long maxEntries;
+
+    @ConfigProperty(name = "converter.rate-limit.idle-eviction", defaultValue = "PT10M")
+    Duration idleEviction;
+
+    LongSupplier clock = System::nanoTime;
+
+    private Map<PlanType, Limits> limits;
+    private Cache<String, Bucket> buckets;
+
+    @PostConstruct
+    void init() {
+        EnumMap<PlanType, Limits> configured = new EnumMap<>(PlanType.class);
+        configured.put(PlanType.FREE, new Limits(freeBurst, freePerMinute));
+        configured.put(PlanType.PRO, new Limits(proBurst, proPerMinute));
+        configured.put(PlanType.BUSINESS, new Limits(businessBurst, businessPerMinute));
+        configured.put(PlanType.UNLIMITED, new Limits(unlimitedBurst, unlimitedPerMinute));
+        this.limits = Map.copyOf(configured);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(idleEviction)
+                .build();
+        log.info("Converter rate limits initialized: {} (max concurrent per client: {})", limits, maxConcurrent);
+    }
+
+    /**
+     * Tries to take one token and one concurrency slot for the client. A successful call must be paired
+     * with {@link #release(String)} once the request completes.
+     */
+    public Decision acquire(String key) {
+        Bucket bucket = buckets.get(key, k -> new Bucket(limits.get(PlanType.FREE), clock.getAsLong()));
+        return bucket.tryAcquire(clock.getAsLong(), maxConcurrent);
+    }
+
+    /**
+     * Releases the concurrency slot taken by a successful {@link #acquire(String)}.
+     */
+    public void release(String key) {
+        Bucket bucket = buckets.getIfPresent(key);
+        if (bucket != null) {
+            bucket.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Applies the client's plan once it is known, so later requests use that plan's burst and rate.
+     */
+    public void applyPlan(String key, PlanType plan) {
+        Bucket bucket = buckets.getIfPresent(key);
+        Limits planLimits = limits.get(plan != null ? plan : PlanType.FREE);
+        if (bucket != null && bucket.limits != planLimits) {
+            bucket.limits = planLimits;
+        }
+    }
+
+    long trackedClients() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+
+    static final class Bucket {
+        private record State(double tokens, long refilledAt) {
+        }
+
+        private final AtomicReference<State> state;
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile Limits limits;
+
+        Bucket(Limits limits, long now) {
+            this.limits = limits;
+            this.state = new AtomicReference<>(new State(limits.burst(), now));
+        }
+
+        Decision tryAcquire(long now, int maxConcurrent) {
+            Limits current = limits;
+
+            int active = inFlight.get();
+            while (true) {
+                if (active >= maxConcurrent) {
+                    State snapshot = refill(state.get(), now, current);
+                    return new Decision(false, Reason.CONCURRENCY, current.burst(), (long) snapshot.tokens(),
+                            1, current.perMinute());
+                }
+                if (inFlight.compareAndSet(active, active + 1)) {
+                    break;
+                }
+                active = inFlight.get();
+            }
+
+            while (true) {
+                State previous = state.get();
+                State refilled = refill(previous, now, current);
+                if (refilled.tokens() < 1) {
+                    inFlight.decrementAndGet();
+                    long waitSeconds = secondsFor(1 - refilled.tokens(), current);
+                    return new Decision(false, Reason.RATE, current.burst(), 0, waitSeconds, current.perMinute());
+                }
+                State consumed = new State(refilled.tokens() - 1, refilled.refilledAt());
+                if (state.compareAndSet(previous, consumed)) {
+                    long remaining = (long) consumed.tokens();
+                    long resetSeconds = secondsFor(current.burst() - consumed.tokens(), current);
+                    return new Decision(true, null, current.burst(), remaining, resetSeconds, current.perMinute());
+                }
+            }
+        }
+
+        private static State refill(State previous, long now, Limits limits) {
+            long elapsed = Math.max(0, now - previous.refilledAt());
+            double tokens = Math.min(limits.burst(), previous.tokens() + elapsed * limits.tokensPerNano());
+            return new State(tokens, Math.max(now, previous.refilledAt()));
+        }
+
+        private static long secondsFor(double tokens, Limits limits) {
+            if (tokens <= 0 || limits.perMinute() <= 0) {
+                return 0;
+            }
+            return (long) Math.ceil(tokens * 60.0 / limits.perMinute());
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.dime.api.feature.converter;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-windowed rollups of conversions: volume, errors and latency percentiles per minute, hour and day.
+ * <p>
+ * Each resolution is a fixed-size ring of buckets, and each bucket holds one cell per provider, plan
+ * and domain with counts and a {@link LatencySketch}. Hour and day buckets are persisted to the
+ * {@code statistics_rollups} Firestore collection by adding this instance's deltas with atomic
+ * increments, then read back, so every instance converges on the totals of all instances and the
+ * rings survive restarts. Minute buckets are kept in memory only and cover this instance.
+ * <p>
+ * Conversions are bound by AI calls that take seconds, so the rings are guarded by a single lock.
+ */
+@Slf4j
+@ApplicationScoped
+public class ConversionRollups {
+
+    static final String COLLECTION = "statistics_rollups";
+    static final String OTHER = "other";
+    static final String UNKNOWN = "unknown";
+
+    public enum Resolution {
+        MINUTE(60_000L, 180, false), HOUR(3_600_000L, 72, true), DAY(86_400_000L, 90, true);
+
+        final long widthMs;
+        final int slots;
+        final boolean persisted;
+
+        Resolution(long widthMs, int slots, boolean persisted) {
+            this.widthMs = widthMs;
+            this.slots = slots;
+            this.persisted = persisted;
+        }
+
+        long bucketStart(long epochMs) {
+            return epochMs - Math.floorMod(epochMs, widthMs);
+        }
+    }
+
+    @Schema(description = "Conversions within one time bucket")
+    public record TimeseriesPoint(
+            @Schema(description = "Bucket start (inclusive)") Instant start,
+            @Schema(description = "Conversions attempted, successful or not") long conversions,
+            @Schema(description = "Conversions that failed") long errors,
+            @Schema(description = "Median conversion duration in milliseconds") long p50Ms,
+            @Schema(description = "95th percentile conversion duration in milliseconds") long p95Ms,
+            @Schema(description = "99th percentile conversion duration in milliseconds") long p99Ms) {
+    }
+
+    @Schema(description = "Conversion time series for a range and optional provider/plan/domain filter")
+    public record Timeseries(
+            @Schema(description = "Bucket width") Resolution resolution,
+            @Schema(description = "Range start (inclusive, aligned to the bucket width)") Instant from,
+            @Schema(description = "Range end (exclusive)") Instant to,
+            @Schema(description = "One point per bucket, oldest first; empty buckets are included") List<TimeseriesPoint> points) {
+    }
+
+    record Key(String provider, String plan, String domain) {
+    }
+
+    static final class Cell {
+        long count;
+        long errors;
+        final LatencySketch latency = new LatencySketch();
+
+        void addAll(Cell other) {
+            count += other.count;
+            errors += other.errors;
+            latency.addAll(other.latency);
+        }
+    }
+
+    static final class Bucket {
+        final long start;
+        final Map<Key, Cell> cells = new HashMap<>();
+
+        Bucket(long start) {
+            this.start = start;
+        }
+
+        Cell cell(Key key, int maxCells) {
+            Cell cell = cells.get(key);
+            if (cell != null) {
+                return cell;
+            }
+            // Domains come from request headers, so cap the cardinality per bucket
+            Key bounded = cells.size() < maxCells ? key : new Key(key.provider(), key.plan(), OTHER);
+            return cells.computeIfAbsent(bounded, k -> new Cell());
+        }
+
+        void addAll(Bucket other, int maxCells) {
+            other.cells.forEach((key, cell) -> cell(key, maxCells).addAll(cell));
+        }
+    }
+
+    @Inject
+    Firestore firestore;
+
+    @ConfigProperty(name = "tracking.rollups.max-cells", defaultValue = "200")
+    int maxCells;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    private final Map<Resolution, Bucket[]> rings = new EnumMap<>(Resolution.class);
+
+    // Deltas of persisted resolutions not yet written to Firestore, by document ID
+    private final Map<String, Bucket> pending = new HashMap<>();
+
+    public ConversionRollups() {
+        for (Resolution resolution : Resolution.values()) {
+            rings.put(resolution, new Bucket[resolution.slots]);
+        }
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        load();
+    }
+
+    /**
+     * Records one finished conversion. A {@code null} domain is recorded as {@value #UNKNOWN}.
+     */
+    public synchronized void record(String provider, String plan, String domain, boolean success, long durationMs) {
+        Key key = new Key(provider, plan, domain != null ? domain : UNKNOWN);
+        long now = clock.getAsLong();
+        for (Resolution resolution : Resolution.values()) {
+            long start = resolution.bucketStart(now);
+            add(bucketFor(resolution, start), key, success, durationMs);
+            if (resolution.persisted) {
+                add(pending.computeIfAbsent(documentId(resolution, start), id -> new Bucket(start)), key, success,
+                        durationMs);
+            }
+        }
+    }
+
+    private void add(Bucket bucket, Key key, boolean success, long durationMs) {
+        Cell cell = bucket.cell(key, maxCells);
+        cell.count++;
+        if (!success) {
+            cell.errors++;
+        }
+        cell.latency.record(durationMs);
+    }
+
+    /**
+     * Returns the bucket of the ring slot for {@code start}, replacing whatever older bucket held it.
+     */
+    private Bucket bucketFor(Resolution resolution, long start) {
+        Bucket[] ring = rings.get(resolution);
+        int slot = slot(resolution, start);
+        Bucket bucket = ring[slot];
+        if (bucket == null || bucket.start != start) {
+            bucket = new Bucket(start);
+            ring[slot] = bucket;
+        }
+        return bucket;
+    }
+
+    private static int slot(Resolution resolution, long start) {
+        return (int) Math.floorMod(start / resolution.widthMs, (long) resolution.slots);
+    }
+
+    /**
+     * Answers a range query from the rings. The range is clamped to what the resolution retains;
+     * {@code null} filters match everything.
+     */
+    public synchronized Timeseries query(Resolution resolution, Instant from, Instant to, String provider, String plan,
+            String domain) {
+        long now = clock.getAsLong();
+        long oldest = resolution.bucketStart(now) - (resolution.slots - 1) * resolution.widthMs;
+        long start = Math.max(resolution.bucketStart(from.toEpochMilli()), oldest);
+        long end = Math.min(to.toEpochMilli(), resolution.bucketStart(now) + resolution.widthMs);
+
+        Bucket[] ring = rings.get(resolution);
+        List<TimeseriesPoint> points = new ArrayList<>();
+        for (long bucketStart = start; bucketStart < end; bucketStart += resolution.widthMs) {
+            Bucket bucket = ring[slot(resolution, bucketStart)];
+            Cell total = new Cell();
+            if (bucket != null && bucket.start == bucketStart) {
+                bucket.cells.forEach((key, cell) -> {
+                    if (matches(provider, key.provider()) && matches(plan, key.plan())
+                            && matches(domain, key.domain())) {
+                        total.addAll(cell);
+                    }
+                });
+            }
+            points.add(new TimeseriesPoint(Instant.ofEpochMilli(bucketStart), total.count, total.errors,
+                    total.latency.percentile(0.50), total.latency.percentile(0.95), total.latency.percentile(0.99)));
+        }
+        return new Timeseries(resolution, Instant.ofEpochMilli(start), Instant.ofEpochMilli(Math.max(start, end)),
+                points);
+    }
+
+    private static boolean matches(String filter, String value) {
+        return filter == null || filter.equalsIgnoreCase(value);
+    }
+
+    /**
+     * Adds the pending hour and day deltas to Firestore, then refreshes the current buckets from the
+     * persisted totals so they include other instances.
+     */
+    @Scheduled(every = "${tracking.rollups.flush-interval:1m}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void flush() {
+        if (firestore == null) {
+            return;
+        }
+        Map<String, Bucket> batch;
+        synchronized (this) {
+            batch = new HashMap<>(pending);
+            pending.clear();
+        }
+
+        for (Map.Entry<String, Bucket> entry : batch.entrySet()) {
+            try {
+                firestore.collection(COLLECTION).document(entry.getKey())
+                        .set(toIncrements(entry.getValue()), SetOptions.merge()).get();
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                // Put the deltas back so the next flush retries them
+                synchronized (this) {
+                    pending.computeIfAbsent(entry.getKey(), id -> new Bucket(entry.getValue().start))
+                            .addAll(entry.getValue(), Integer.MAX_VALUE);
+                }
+                log.warn("Failed to flush conversion rollup {}", entry.getKey(), e);
+            }
+        }
+        if (!batch.isEmpty()) {
+            log.debug("Flushed {} conversion rollup buckets", batch.size());
+        }
+
+        long now = clock.getAsLong();
+        List<Long> starts = new ArrayList<>();
+        List<Resolution> resolutions = new ArrayList<>();
+        for (Resolution resolution : Resolution.values()) {
+            if (resolution.persisted) {
+                long current = resolution.bucketStart(now);
+                // The previous bucket may still receive other instances' last flush
+                for (long start : new long[] { current - resolution.widthMs, current }) {
+                    resolutions.add(resolution);
+                    starts.add(start);
+                }
+            }
+        }
+        refresh(resolutions, starts);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        flush();
+    }
+
+    /**
+     * Loads every persisted hour and day bucket the rings can hold.
+     */
+    void load() {
+        if (firestore == null) {
+            return;
+        }
+        long now = clock.getAsLong();
+        List<Resolution> resolutions = new ArrayList<>();
+        List<Long> starts = new ArrayList<>();
+        for (Resolution resolution : Resolution.values()) {
+            if (!resolution.persisted) {
+                continue;
+            }
+            long current = resolution.bucketStart(now);
+            for (int i = resolution.slots - 1; i >= 0; i--) {
+                resolutions.add(resolution);
+                starts.add(current - i * resolution.widthMs);
+            }
+        }
+        int loaded = refresh(resolutions, starts);
+        log.info("Loaded {} persisted conversion rollup buckets", loaded);
+    }
+
+    /**
+     * Replaces the given ring buckets with their persisted totals plus the deltas still pending.
+     * Returns the number of buckets found in Firestore.
+     */
+    private int refresh(List<Resolution> resolutions, List<Long> starts) {
+        DocumentReference[] refs = new DocumentReference[starts.size()];
+        for (int i = 0; i < refs.length; i++) {
+            refs[i] = firestore.collection(COLLECTION).document(documentId(resolutions.get(i), starts.get(i)));
+        }
+
+        List<DocumentSnapshot> docs;
+        try {
+            docs = firestore.getAll(refs).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (Exception e) {
+            log.warn("Failed to read persisted conversion rollups", e);
+            return 0;
+        }
+
+        int found = 0;
+        synchronized (this) {
+            long now = clock.getAsLong();
+            for (int i = 0; i < docs.size(); i++) {
+                DocumentSnapshot doc = docs.get(i);
+                if (!doc.exists()) {
+                    continue;
+                }
+                found++;
+                Resolution resolution = resolutions.get(i);
+                long start = starts.get(i);
+                if (start <= resolution.bucketStart(now) - resolution.slots * resolution.widthMs) {
+                    continue;
+                }
+                Bucket bucket = fromDocument(start, doc);
+                Bucket unflushed = pending.get(doc.getId());
+                if (unflushed != null) {
+                    bucket.addAll(unflushed, Integer.MAX_VALUE);
+                }
+                rings.get(resolution)[slot(resolution, start)] = bucket;
+            }
+        }
+        return found;
+    }
+
+    static String documentId(Resolution resolution, long start) {
+        return resolution.name().toLowerCase() + "-" + Instant.ofEpochMilli(start);
+    }
+
+    private static Map<String, Object> toIncrements(Bucket bucket) {
+        Map<String, Object> cells = new HashMap<>();
+        bucket.cells.forEach((key, cell) -> {
+            Map<String, Object> latency = new HashMap<>();
+            cell.latency.forEach((index, count) -> latency.put(String.valueOf(index), FieldValue.increment(count)));
+
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("provider", key.provider());
+            fields.put("plan", key.plan());
+            fields.put("domain", key.domain());
+            fields.put("count", FieldValue.increment(cell.count));
+            fields.put("errors", FieldValue.increment(cell.errors));
+            fields.put("latency", latency);
+            cells.put(cellId(key), fields);
+        });
+
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("start", Timestamp.ofTimeSecondsAndNanos(bucket.start / 1000, 0));
+        doc.put("updatedAt", Timestamp.now());
+        doc.put("cells", cells);
+        return doc;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Bucket fromDocument(long start, DocumentSnapshot doc) {
+        Bucket bucket = new Bucket(start);
+        Object cells = doc.get("cells");
+        if (!(cells instanceof Map<?, ?> cellMap)) {
+            return bucket;
+        }
+        for (Object value : cellMap.values()) {
+            if (!(value instanceof Map<?, ?> fields)) {
+                continue;
+            }
+            Key key = new Key(String.valueOf(fields.get("provider")), String.valueOf(fields.get("plan")),
+                    String.valueOf(fields.get("domain")));
+            Cell cell = bucket.cell(key, Integer.MAX_VALUE);
+            cell.count += asLong(fields.get("count"));
+            cell.errors += asLong(fields.get("errors"));
+            if (fields.get("latency") instanceof Map<?, ?> latency) {
+                ((Map<String, Object>) latency).forEach(
+                        (index, count) -> cell.latency.add(Integer.parseInt(index), asLong(count)));
+            }
+        }
+        return bucket;
+    }
+
+    private static long asLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+
+    /**
+     * Stable Firestore map key for a cell; domains may contain characters that are awkward in field paths.
+     */
+    static String cellId(Key key) {
+        String fields = key.provider() + "|" + key.plan() + "|" + key.domain();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fields.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
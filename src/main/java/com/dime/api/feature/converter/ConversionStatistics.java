@@ -0,0 +1,253 @@
+package com.dime.api.feature.converter;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.Transaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals of successful conversions.
+ * <p>
+ * Conversions delivered through the {@link ConversionOutbox} are counted in Firestore directly, inside
+ * the transaction that stores their usage event, so a redelivery cannot count them twice and nothing
+ * is held in memory. Those increments are spread over {@code statistics/conversions/shards/{n}}, since
+ * the parent document sustains only about one write per second. Other conversions increment in-memory
+ * adders; a scheduled merge adds the accumulated deltas to the {@code statistics/conversions} Firestore
+ * document with atomic increments and reads back the totals (the document plus its shards), which
+ * include the merges of other instances. Reading the statistics is therefore O(1) and never
+ * touches Notion. The Notion tracking database is only consulted by the occasional reconcile job, whose
+ * corrections are recorded on the document next to the totals.
+ */
+@Slf4j
+@ApplicationScoped
+public class ConversionStatistics {
+
+    static final String COLLECTION = "statistics";
+    static final String DOCUMENT = "conversions";
+    static final String FILE_COUNT_FIELD = "fileCount";
+    static final String EVENT_COUNT_FIELD = "eventCount";
+    static final String CORRECTED_FILES_FIELD = "correctedFileCount";
+    static final String CORRECTED_EVENTS_FIELD = "correctedEventCount";
+    static final String SHARDS_COLLECTION = "shards";
+
+    @Inject
+    Firestore firestore;
+
+    @ConfigProperty(name = "tracking.statistics.shards", defaultValue = "16")
+    int shards;
+
+    // Recorded since the last successful merge
+    private final LongAdder pendingFiles = new LongAdder();
+    private final LongAdder pendingEvents = new LongAdder();
+
+    // Totals as last read from Firestore; guarded by this, together with the pending deltas they absorb
+    private long mergedFiles;
+    private long mergedEvents;
+
+    public void record(int fileCount, int eventCount) {
+        pendingFiles.add(fileCount);
+        pendingEvents.add(eventCount);
+    }
+
+    /**
+     * Adds a conversion to a shard of the Firestore totals within {@code transaction}, chosen by {@code
+     * key} so retries of the same conversion land on the same shard. Call {@link #recordStored} once the
+     * transaction has committed.
+     */
+    void increment(Transaction transaction, String key, int fileCount, int eventCount) {
+        int shard = Math.floorMod(key.hashCode(), Math.max(1, shards));
+        transaction.set(document().collection(SHARDS_COLLECTION).document(String.valueOf(shard)), Map.of(
+                FILE_COUNT_FIELD, FieldValue.increment(fileCount),
+                EVENT_COUNT_FIELD, FieldValue.increment(eventCount),
+                "updatedAt", Timestamp.now()), SetOptions.merge());
+    }
+
+    /**
+     * Reflects a conversion already counted in Firestore by {@link #increment} in this instance's totals
+     * until the next merge reads them back.
+     */
+    synchronized void recordStored(int fileCount, int eventCount) {
+        mergedFiles += fileCount;
+        mergedEvents += eventCount;
+    }
+
+    public synchronized TrackingService.Statistics current() {
+        return new TrackingService.Statistics(mergedFiles + pendingFiles.sum(), mergedEvents + pendingEvents.sum());
+    }
+
+    /**
+     * Loads the persisted totals, e.g. at startup.
+     */
+    public void load() {
+        if (firestore == null) {
+            return;
+        }
+        try {
+            long[] totals = readTotals();
+            synchronized (this) {
+                mergedFiles = totals[0];
+                mergedEvents = totals[1];
+            }
+            log.info("Loaded conversion statistics: fileCount={}, eventCount={}", mergedFiles, mergedEvents);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to load conversion statistics from Firestore", e);
+        }
+    }
+
+    /**
+     * Adds the counts recorded since the last merge to the Firestore aggregate and picks up the totals
+     * merged by other instances.
+     */
+    @Scheduled(every = "${tracking.statistics.merge-interval:30s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void merge() {
+        if (firestore == null) {
+            return;
+        }
+        long files = pendingFiles.sum();
+        long events = pendingEvents.sum();
+        if (files != 0 || events != 0) {
+            try {
+                document().set(Map.of(
+                        FILE_COUNT_FIELD, FieldValue.increment(files),
+                        EVENT_COUNT_FIELD, FieldValue.increment(events),
+                        "updatedAt", Timestamp.now()), SetOptions.merge()).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // The deltas stay pending, so the next merge retries them
+                log.warn("Failed to merge conversion statistics into Firestore", e);
+                return;
+            }
+        }
+
+        long[] totals = null;
+        try {
+            totals = readTotals();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to read merged conversion statistics", e);
+        }
+        synchronized (this) {
+            if (totals != null) {
+                mergedFiles = totals[0];
+                mergedEvents = totals[1];
+            } else {
+                mergedFiles += files;
+                mergedEvents += events;
+            }
+            pendingFiles.add(-files);
+            pendingEvents.add(-events);
+        }
+        if (files != 0 || events != 0) {
+            log.debug("Merged conversion statistics: +{} files, +{} events", files, events);
+        }
+    }
+
+    /**
+     * Adds the shortfall to the Firestore totals when Notion holds more, e.g. conversions tracked before
+     * these counters existed. The caller sums only pages whose counts every instance has merged, so the
+     * shortfall holds no deltas still pending elsewhere. Each correction is added to the running
+     * {@value #CORRECTED_FILES_FIELD} and {@value #CORRECTED_EVENTS_FIELD} fields and kept as {@code
+     * lastCorrection}, so it can be audited or undone. Notion lagging behind is expected while events are
+     * still buffered, so lower Notion totals are only logged.
+     */
+    public void reconcile(long notionFiles, long notionEvents) {
+        if (firestore == null) {
+            return;
+        }
+        merge();
+        try {
+            long[] drift = firestore.runTransaction(transaction -> {
+                DocumentSnapshot doc = transaction.get(document()).get();
+                List<QueryDocumentSnapshot> shardDocs = transaction.get(document().collection(SHARDS_COLLECTION))
+                        .get().getDocuments();
+                long baseFiles = longField(doc, FILE_COUNT_FIELD);
+                long baseEvents = longField(doc, EVENT_COUNT_FIELD);
+                long files = baseFiles + sum(shardDocs, FILE_COUNT_FIELD);
+                long events = baseEvents + sum(shardDocs, EVENT_COUNT_FIELD);
+                long addFiles = Math.max(0, notionFiles - files);
+                long addEvents = Math.max(0, notionEvents - events);
+                Timestamp now = Timestamp.now();
+                Map<String, Object> fields = new HashMap<>();
+                fields.put("reconciledAt", now);
+                if (addFiles > 0 || addEvents > 0) {
+                    // Merges of other instances conflict with this transaction, which then re-reads the totals
+                    fields.put(FILE_COUNT_FIELD, baseFiles + addFiles);
+                    fields.put(EVENT_COUNT_FIELD, baseEvents + addEvents);
+                    fields.put(CORRECTED_FILES_FIELD, longField(doc, CORRECTED_FILES_FIELD) + addFiles);
+                    fields.put(CORRECTED_EVENTS_FIELD, longField(doc, CORRECTED_EVENTS_FIELD) + addEvents);
+                    fields.put("lastCorrection", Map.of(
+                            FILE_COUNT_FIELD, addFiles,
+                            EVENT_COUNT_FIELD, addEvents,
+                            "notionFileCount", notionFiles,
+                            "notionEventCount", notionEvents,
+                            "at", now));
+                }
+                transaction.set(document(), fields, SetOptions.merge());
+                return new long[] { notionFiles - files, notionEvents - events };
+            }).get();
+
+            if (drift[0] > 0 || drift[1] > 0) {
+                log.warn("Reconciled conversion statistics with Notion: fileCount drift={}, eventCount drift={}",
+                        drift[0], drift[1]);
+                load();
+            } else {
+                log.info("Conversion statistics reconciled with Notion (Notion behind by {} files, {} events)",
+                        -drift[0], -drift[1]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to reconcile conversion statistics with Notion", e);
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        merge();
+    }
+
+    private DocumentReference document() {
+        return firestore.collection(COLLECTION).document(DOCUMENT);
+    }
+
+    /**
+     * The persisted totals: the document's own counts plus those of its shards.
+     */
+    private long[] readTotals() throws ExecutionException, InterruptedException {
+        DocumentSnapshot doc = document().get().get();
+        List<QueryDocumentSnapshot> shardDocs = document().collection(SHARDS_COLLECTION).get().get().getDocuments();
+        return new long[] {
+                longField(doc, FILE_COUNT_FIELD) + sum(shardDocs, FILE_COUNT_FIELD),
+                longField(doc, EVENT_COUNT_FIELD) + sum(shardDocs, EVENT_COUNT_FIELD) };
+    }
+
+    private static long sum(List<QueryDocumentSnapshot> docs, String field) {
+        return docs.stream().mapToLong(doc -> longField(doc, field)).sum();
+    }
+
+    private static long longField(DocumentSnapshot doc, String field) {
+        Long value = doc.exists() ? doc.getLong(field) : null;
+        return value != null ? value : 0;
+    }
+}
@@ -1,7 +1,9 @@
 package com.dime.api.feature.converter;
 
+import com.dime.api.feature.shared.ClientIpUtil;
 import com.dime.api.feature.shared.exception.ProcessingException;
 import com.dime.api.feature.shared.exception.QuotaException;
+import com.dime.api.feature.shared.exception.RateLimitExceededException;
 import com.dime.api.feature.shared.exception.ValidationException;
 import com.dime.api.feature.shared.config.FirebaseAuthFilter;
 import jakarta.inject.Inject;
@@ -26,6 +28,9 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import io.smallrye.faulttolerance.api.RateLimit;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.Base64;
 import java.util.List;
@@ -50,24 +55,63 @@ public class ConverterResource {
     @Inject
     TrackingService trackingService;
 
+    @Inject
+    ConversionRateLimiter rateLimiter;
+
+    @Inject
+    AnonymousQuotaService anonymousQuotaService;
+
+    @Inject
+    ConversionRollups conversionRollups;
+
     @ConfigProperty(name = "ai.provider", defaultValue = "claude")
     String aiProvider;
 
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    @RateLimit(value = 10, window = 1, windowUnit = ChronoUnit.MINUTES)
+    // Global backstop across all clients; the per-client buckets below do the fine-grained limiting
+    @RateLimit(value = 120, window = 1, windowUnit = ChronoUnit.MINUTES)
     @Operation(summary = "Convert images to calendar events", description = "Uses AI to extract calendar events from images and convert them to ICS format")
     @APIResponse(responseCode = "200", description = "Conversion successful", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = ConverterResponse.class)))
     @APIResponse(responseCode = "400", description = "Invalid request data")
     @APIResponse(responseCode = "422", description = "Processing error - valid input but conversion failed")
-    @APIResponse(responseCode = "429", description = "Quota exceeded")
+    @APIResponse(responseCode = "429", description = "Quota or rate limit exceeded")
     @APIResponse(responseCode = "500", description = "Internal server error")
     public Response convert(@Valid @NotNull ConverterRequest request, @Context HttpHeaders headers,
             @Context ContainerRequestContext requestContext) {
-        long startTime = System.currentTimeMillis();
         String verifiedUid = (String) requestContext.getProperty(FirebaseAuthFilter.FIREBASE_UID);
-        String userId = verifiedUid != null ? verifiedUid : (request.userId != null ? request.userId : "anonymous");
+        String clientIp = ClientIpUtil.resolve(requestContext);
+
+        // Rate limit per client: verified UID when available, otherwise the caller's IP
+        String rateLimitKey = verifiedUid != null ? "uid:" + verifiedUid : "ip:" + clientIp;
+        ConversionRateLimiter.Decision decision = rateLimiter.acquire(rateLimitKey);
+        requestContext.setProperty(ConversionRateLimiter.DECISION_PROPERTY, decision);
+        if (!decision.allowed()) {
+            throw new RateLimitExceededException(
+                    decision.reason() == ConversionRateLimiter.Reason.CONCURRENCY
+                            ? "Too many conversions in progress. Please wait for the current ones to finish."
+                            : "Too many conversion requests. Please try again in " + decision.resetSeconds() + "s.",
+                    Map.of("limit", decision.limit(), "retryAfter", Math.max(1, decision.resetSeconds())));
+        }
+
+        try {
+            return doConvert(request, headers, verifiedUid, clientIp, rateLimitKey);
+        } finally {
+            rateLimiter.release(rateLimitKey);
+        }
+    }
+
+    private Response doConvert(ConverterRequest request, HttpHeaders headers, String verifiedUid,
+            String clientIp, String rateLimitKey) {
+        long startTime = System.currentTimeMillis();
+        // Without a verified Firebase token the caller is anonymous: a body userId is not trusted to pick
+        // (or drain) a Firestore quota, so anonymous callers are quota'd in memory per client IP
+        boolean anonymous = verifiedUid == null;
+        String userId = anonymous ? "anonymous" : verifiedUid;
+        if (anonymous && request.userId != null) {
+            log.debug("Ignoring unverified userId {} on conversion from {}", request.userId, clientIp);
+        }
         String domain = getDomain(headers);
         int fileCount = request.files != null ? request.files.size() : 0;
 
@@ -92,7 +136,13 @@ public class ConverterResource {
         }
 
         // Check Quota
-        QuotaService.QuotaCheckResult quota = quotaService.checkQuota(userId);
+        QuotaService.QuotaCheckResult quota = anonymous
+                ? anonymousQuotaService.checkQuota(clientIp)
+                : quotaService.checkQuota(userId);
+        if (verifiedUid != null) {
+            // Only verified identities may raise their rate limit to their plan's tier
+            rateLimiter.applyPlan(rateLimitKey, quota.plan());
+        }
         if (!quota.allowed()) {
             trackingService.logQuotaExceeded(userId, (int) (quota.limit() - quota.remaining()), (int) quota.limit(),
                     quota.plan().toString(), domain);
@@ -110,6 +160,7 @@ public class ConverterResource {
             if (icsContent == null || icsContent.isEmpty() || icsContent.equalsIgnoreCase("null")) {
                 trackingService.logConversionError(userId, fileCount, "No events found in images",
                         System.currentTimeMillis() - startTime, domain);
+                recordRollup(quota.plan(), anonymous, domain, false, startTime);
                 throw new ProcessingException("No calendar events found in the provided images. " +
                         "Please ensure the images contain clear calendar information.",
                         Map.of("reason", "no_events_detected", "fileCount", fileCount));
@@ -118,6 +169,7 @@ public class ConverterResource {
             if (!isValidIcs(icsContent)) {
                 trackingService.logConversionError(userId, fileCount, "Generated ICS is invalid",
                         System.currentTimeMillis() - startTime, domain);
+                recordRollup(quota.plan(), anonymous, domain, false, startTime);
                 throw new ProcessingException(
                         "The AI generated invalid calendar data. Please try again with clearer images.",
                         Map.of("reason", "invalid_ics_format", "fileCount", fileCount));
@@ -125,9 +177,16 @@ public class ConverterResource {
 
             // Success
             int eventCount = countEvents(icsContent);
-            quotaService.incrementUsage(userId);
-            trackingService.logConversion(userId, fileCount, domain, eventCount,
-                    System.currentTimeMillis() - startTime);
+            long duration = System.currentTimeMillis() - startTime;
+            if (anonymous) {
+                anonymousQuotaService.incrementUsage(clientIp);
+                trackingService.logConversion(userId, fileCount, domain, eventCount, duration);
+            } else if (!quotaService.incrementUsage(userId,
+                    ConversionOutbox.Entry.conversion(userId, fileCount, eventCount, duration, domain))) {
+                // Nothing was committed, so the outbox relay will not track this conversion
+                trackingService.logConversion(userId, fileCount, domain, eventCount, duration);
+            }
+            recordRollup(quota.plan(), anonymous, domain, true, startTime);
 
             return Response.ok(new ConverterResponse(true, icsContent)).build();
 
@@ -135,6 +194,7 @@ public class ConverterResource {
             log.error("Error processing conversion request for user {}: {}", userId, e.getMessage(), e);
             trackingService.logConversionError(userId, fileCount, e.getMessage(),
                     System.currentTimeMillis() - startTime, domain);
+            recordRollup(quota.plan(), anonymous, domain, false, startTime);
             throw new ProcessingException("Failed to process images for conversion: " + e.getMessage(), e);
         }
     }
@@ -196,6 +256,50 @@ public class ConverterResource {
         return Response.ok(stats).build();
     }
 
+    @GET
+    @Path("/statistics/timeseries")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Get conversion time series", description = "Conversions, errors and duration percentiles per minute, hour or day, optionally filtered by AI provider, plan and domain. Minute buckets cover the last 3 hours, hour buckets 3 days and day buckets 90 days.")
+    @APIResponse(responseCode = "200", description = "Time series retrieved successfully", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = ConversionRollups.Timeseries.class)))
+    @APIResponse(responseCode = "400", description = "Invalid resolution or range")
+    public Response getStatisticsTimeseries(
+            @QueryParam("resolution") @DefaultValue("hour") String resolution,
+            @QueryParam("from") String from,
+            @QueryParam("to") String to,
+            @QueryParam("provider") String provider,
+            @QueryParam("plan") String plan,
+            @QueryParam("domain") String domain) {
+        ConversionRollups.Resolution parsed;
+        try {
+            parsed = ConversionRollups.Resolution.valueOf(resolution.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Unknown resolution '" + resolution + "'. Use minute, hour or day.");
+        }
+        Instant end = parseInstant("to", to, Instant.now());
+        Instant start = parseInstant("from", from, end.minus(Duration.ofMillis(parsed.widthMs * 24)));
+        if (!start.isBefore(end)) {
+            throw new ValidationException("'from' must be before 'to'.");
+        }
+        return Response.ok(conversionRollups.query(parsed, start, end, provider, plan, domain)).build();
+    }
+
+    private static Instant parseInstant(String name, String value, Instant defaultValue) {
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Instant.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new ValidationException("'" + name + "' must be an ISO-8601 instant, e.g. 2026-01-01T00:00:00Z.");
+        }
+    }
+
+    private void recordRollup(PlanType plan, boolean anonymous, String domain, boolean success, long startTime) {
+        String provider = "gemini".equalsIgnoreCase(aiProvider) ? "gemini" : "claude";
+        conversionRollups.record(provider, anonymous ? "ANONYMOUS" : plan.name(), domain, success,
+                System.currentTimeMillis() - startTime);
+    }
+
     private String getDomain(HttpHeaders headers) {
         String origin = headers.getHeaderString("Origin");
         if (origin == null) {
@@ -0,0 +1,96 @@
+package com.dime.api.feature.converter;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram, with 3 significant bits.
+ * <p>
+ * Values below 16 ms get one bucket each. Above that, every power of two is split into 8 linear
+ * sub-buckets, so a percentile is accurate to within about 6% while the whole range up to hours of
+ * latency fits in a few hundred buckets. Bucket indexes are stable, so sketches from different
+ * instances and time windows merge by adding counts.
+ */
+final class LatencySketch {
+
+    private static final int LINEAR_LIMIT = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int FIRST_EXPONENT = 4;
+
+    private long[] counts = new long[0];
+    private long total;
+
+    static int indexOf(long value) {
+        long v = Math.max(0, value);
+        if (v < LINEAR_LIMIT) {
+            return (int) v;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) ((v >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return LINEAR_LIMIT + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + FIRST_EXPONENT;
+        int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    void record(long value) {
+        add(indexOf(value), 1);
+    }
+
+    void add(int index, long count) {
+        if (count <= 0) {
+            return;
+        }
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+        }
+        counts[index] += count;
+        total += count;
+    }
+
+    void addAll(LatencySketch other) {
+        other.forEach(this::add);
+    }
+
+    long count() {
+        return total;
+    }
+
+    /**
+     * Returns the value at quantile {@code q} (0..1) as the midpoint of its bucket, or 0 when empty.
+     */
+    long percentile(double q) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long lower = lowerBound(i);
+                long upper = lowerBound(i + 1) - 1;
+                return lower + (upper - lower) / 2;
+            }
+        }
+        return lowerBound(counts.length - 1);
+    }
+
+    /**
+     * Visits the non-empty buckets as (index, count) pairs.
+     */
+    void forEach(BiConsumer<Integer, Long> action) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                action.accept(i, counts[i]);
+            }
+        }
+    }
+}
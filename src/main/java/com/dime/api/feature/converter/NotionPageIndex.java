@@ -0,0 +1,328 @@
+package com.dime.api.feature.converter;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * userId → Notion page ID index for the quota database.
+ * <p>
+ * Entries are kept in memory and persisted to the {@code notion_quota_pages} Firestore collection, so
+ * a steady-state sync is a single {@code updatePage} call instead of a lookup query followed by a
+ * write. A memory miss always falls back to Firestore, where other instances record the pages they
+ * create.
+ * <p>
+ * Page creation is serialised per user: locally by striped locks, and across instances by a creation
+ * claim on the user's index document, taken in a Firestore transaction before the page is created. An
+ * instance that finds another instance's claim does not create a page; its sync fails and is retried.
+ * Index writes run on a small bounded executor of their own.
+ */
+@Slf4j
+@ApplicationScoped
+public class NotionPageIndex {
+
+    static final String COLLECTION_NAME = "notion_quota_pages";
+    static final String PAGE_ID_FIELD = "pageId";
+    static final String HASH_FIELD = "syncedHash";
+    static final String CLAIMED_AT_FIELD = "creationClaimedAt";
+
+    private static final int LOCK_STRIPES = 64;
+    private static final int WRITE_QUEUE = 1024;
+
+    // A claim older than this is from an instance that died while creating the page
+    static final Duration CLAIM_TTL = Duration.ofMinutes(1);
+
+    /**
+     * Outcome of {@link #claimCreation}: either the page ID another instance already recorded, or whether
+     * this instance may create the page.
+     */
+    public record Claim(String pageId, boolean acquired) {
+    }
+
+    @Inject
+    Firestore firestore;
+
+    final Map<String, String> pageIds = new ConcurrentHashMap<>();
+
+    // Hash of the quota fields last written to (or read from) each user's page
+    final Map<String, String> syncedHashes = new ConcurrentHashMap<>();
+
+    private final ReentrantLock[] creationLocks = new ReentrantLock[LOCK_STRIPES];
+
+    private final ThreadPoolExecutor writer;
+
+    // Set once a full scan of the Notion database has been indexed; a miss in both memory and Firestore
+    // then means "no page yet"
+    private volatile boolean complete;
+
+    public NotionPageIndex() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            creationLocks[i] = new ReentrantLock();
+        }
+        writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(WRITE_QUEUE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "notion-page-index-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Returns the indexed page ID of the user, falling back to the persisted index on a memory miss, so
+     * pages created by other instances are found.
+     */
+    public String get(String userId) {
+        String pageId = pageIds.get(userId);
+        if (pageId != null || firestore == null) {
+            return pageId;
+        }
+        try {
+            DocumentSnapshot doc = firestore.collection(COLLECTION_NAME).document(userId).get().get();
+            pageId = doc.exists() ? doc.getString(PAGE_ID_FIELD) : null;
+            if (pageId != null) {
+                pageIds.put(userId, pageId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to read Notion page index for user {}", userId, e);
+        }
+        return pageId;
+    }
+
+    /**
+     * Whether the whole Notion database has been indexed, so a miss can skip the Notion lookup query.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void put(String userId, String pageId) {
+        if (pageId == null || pageId.equals(pageIds.put(userId, pageId))) {
+            return;
+        }
+        persist(userId, Map.of(PAGE_ID_FIELD, pageId, "updatedAt", Timestamp.now()));
+    }
+
+    /**
+     * Returns the hash of the quota state both stores held after the last sync, or null when unknown.
+     */
+    public String syncedHash(String userId) {
+        return syncedHashes.get(userId);
+    }
+
+    public void recordSyncedHash(String userId, String hash) {
+        if (hash.equals(syncedHashes.put(userId, hash))) {
+            return;
+        }
+        persist(userId, Map.of(HASH_FIELD, hash, "updatedAt", Timestamp.now()));
+    }
+
+    /**
+     * Drops the user's entry because {@code pageId} no longer exists in Notion. The persisted entry is
+     * only deleted while it still points at that page, so a page recreated meanwhile stays indexed.
+     */
+    public void evict(String userId, String pageId) {
+        syncedHashes.remove(userId);
+        pageIds.remove(userId, pageId);
+        if (firestore == null) {
+            return;
+        }
+        submit(userId, "evict", () -> {
+            DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(userId);
+            firestore.runTransaction(transaction -> {
+                DocumentSnapshot doc = transaction.get(docRef).get();
+                if (doc.exists() && Objects.equals(pageId, doc.getString(PAGE_ID_FIELD))) {
+                    transaction.delete(docRef);
+                }
+                return null;
+            }).get();
+        });
+    }
+
+    /**
+     * Claims the creation of the user's page across instances. Returns the page ID when another instance
+     * has recorded one meanwhile (other than {@code gonePageId}, which is known to be deleted), otherwise
+     * whether the claim was taken: it is refused while another instance's claim is younger than
+     * {@link #CLAIM_TTL}. Call {@link #completeCreation} or {@link #releaseClaim} afterwards.
+     */
+    public Claim claimCreation(String userId, String gonePageId) throws ExecutionException, InterruptedException {
+        if (firestore == null) {
+            return new Claim(null, true);
+        }
+        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(userId);
+        Claim claim = firestore.runTransaction(transaction -> {
+            DocumentSnapshot doc = transaction.get(docRef).get();
+            String pageId = doc.exists() ? doc.getString(PAGE_ID_FIELD) : null;
+            if (pageId != null && !pageId.equals(gonePageId)) {
+                return new Claim(pageId, false);
+            }
+            Timestamp claimedAt = doc.exists() ? doc.getTimestamp(CLAIMED_AT_FIELD) : null;
+            Timestamp now = Timestamp.now();
+            if (claimedAt != null
+                    && claimedAt.toDate().toInstant().plus(CLAIM_TTL).isAfter(now.toDate().toInstant())) {
+                return new Claim(null, false);
+            }
+            Map<String, Object> fields = new HashMap<>();
+            fields.put(CLAIMED_AT_FIELD, now);
+            fields.put(PAGE_ID_FIELD, FieldValue.delete());
+            fields.put("updatedAt", now);
+            transaction.set(docRef, fields, SetOptions.merge());
+            return new Claim(null, true);
+        }).get();
+        if (claim.pageId() != null) {
+            pageIds.put(userId, claim.pageId());
+        }
+        return claim;
+    }
+
+    /**
+     * Records the page created under a claim and releases the claim, synchronously so that other
+     * instances find the page before they could claim again.
+     */
+    public void completeCreation(String userId, String pageId) throws ExecutionException, InterruptedException {
+        pageIds.put(userId, pageId);
+        if (firestore == null) {
+            return;
+        }
+        firestore.collection(COLLECTION_NAME).document(userId).set(Map.of(
+                PAGE_ID_FIELD, pageId,
+                CLAIMED_AT_FIELD, FieldValue.delete(),
+                "updatedAt", Timestamp.now()), SetOptions.merge()).get();
+    }
+
+    /**
+     * Releases a claim whose page creation failed, so the retry does not wait for {@link #CLAIM_TTL}.
+     */
+    public void releaseClaim(String userId) {
+        if (firestore == null) {
+            return;
+        }
+        submit(userId, "release claim", () -> firestore.collection(COLLECTION_NAME).document(userId)
+                .set(Map.of(CLAIMED_AT_FIELD, FieldValue.delete()), SetOptions.merge()).get());
+    }
+
+    /**
+     * Loads the persisted index into memory, so the Notion scan only has to write new entries.
+     */
+    public void loadPersisted() {
+        if (firestore == null) {
+            return;
+        }
+        try {
+            for (DocumentSnapshot doc : firestore.collection(COLLECTION_NAME).get().get().getDocuments()) {
+                String pageId = doc.getString(PAGE_ID_FIELD);
+                if (pageId != null) {
+                    pageIds.putIfAbsent(doc.getId(), pageId);
+                }
+                String hash = doc.getString(HASH_FIELD);
+                if (hash != null) {
+                    syncedHashes.putIfAbsent(doc.getId(), hash);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to load persisted Notion page index", e);
+        }
+    }
+
+    /**
+     * Merges a full scan of the Notion database into the index and marks it complete.
+     */
+    public void load(Map<String, String> scanned) {
+        scanned.forEach(this::put);
+        complete = true;
+        log.info("Notion page index loaded ({} users)", pageIds.size());
+    }
+
+    /**
+     * Runs {@code action} while holding the creation lock of the user's stripe.
+     */
+    public <T> T withCreationLock(String userId, Supplier<T> action) {
+        ReentrantLock lock = creationLocks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hash of the quota fields shared by Firestore and Notion. The period start is compared at second
+     * precision, since Notion does not round-trip sub-second date values.
+     */
+    public static String quotaHash(long quotaUsed, PlanType plan, Instant periodStart) {
+        String fields = quotaUsed + "|" + plan.name() + "|" + (periodStart != null ? periodStart.getEpochSecond() : 0);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fields.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public int size() {
+        return pageIds.size();
+    }
+
+    private void persist(String userId, Map<String, Object> fields) {
+        if (firestore == null) {
+            return;
+        }
+        submit(userId, "persist", () -> firestore.collection(COLLECTION_NAME).document(userId)
+                .set(fields, SetOptions.merge()).get());
+    }
+
+    private interface IndexWrite {
+        void run() throws Exception;
+    }
+
+    private void submit(String userId, String operation, IndexWrite write) {
+        try {
+            writer.execute(() -> {
+                try {
+                    write.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.warn("Failed to {} Notion page index entry for user {}", operation, userId, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Created pages are recorded synchronously; a skipped write here costs at most an extra lookup
+            log.warn("Notion page index write queue full; skipped {} for user {}", operation, userId);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        writer.shutdown();
+    }
+}
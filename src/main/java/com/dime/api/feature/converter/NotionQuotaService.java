@@ -5,17 +5,29 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.dime.api.feature.notion.NotionClient;
+import com.dime.api.feature.notion.NotionDatabaseReader;
 import com.dime.api.feature.shared.BearerTokenUtil;
+import io.quarkus.runtime.StartupEvent;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
 
 /**
  * Background Notion sync service for quota data.
@@ -24,6 +36,9 @@ import java.util.Optional;
 @ApplicationScoped
 public class NotionQuotaService {
 
+    // Keeps compound filters well under Notion's per-request filter limits
+    static final int MAX_IDS_PER_QUERY = 50;
+
     @Inject
     @RestClient
     NotionClient notionClient;
@@ -40,30 +55,68 @@ public class NotionQuotaService {
     @Inject
     ObjectMapper objectMapper;
 
+    @Inject
+    NotionPageIndex pageIndex;
+
+    @Inject
+    NotionDatabaseReader notionDatabaseReader;
+
     private boolean isEnabled() {
         return quotaDbId.isPresent() && !quotaDbId.get().trim().isEmpty();
     }
 
-    private String getPageId(String userId) {
-        if (!isEnabled())
-            return null;
+    void onStart(@Observes StartupEvent event) {
+        if (isEnabled()) {
+            CompletableFuture.runAsync(this::loadPageIndex);
+        }
+    }
 
+    /**
+     * Fills the page index from Firestore, then from one paginated scan of the quota database.
+     */
+    void loadPageIndex() {
         try {
-            ObjectNode query = objectMapper.createObjectNode();
-            ObjectNode filter = query.putObject("filter");
-            filter.put("property", "User ID");
-            filter.putObject("title").put("equals", userId);
+            pageIndex.loadPersisted();
+            pageIndex.load(scanPageIds());
+        } catch (Exception e) {
+            log.warn("Failed to load Notion page index; falling back to per-user lookups", e);
+        }
+    }
 
-            JsonNode response = notionClient.queryDatabase(BearerTokenUtil.ensureBearer(token), version, quotaDbId.get(), query);
+    Map<String, String> scanPageIds() {
+        Map<String, String> scanned = new HashMap<>();
+        try (Stream<JsonNode> pages = notionDatabaseReader.query(BearerTokenUtil.ensureBearer(token), version,
+                quotaDbId.get(), objectMapper.createObjectNode())) {
+            pages.forEach(page -> {
+                String userId = getTitleContent(page.path("properties").get("User ID"));
+                if (userId != null && !userId.isEmpty()) {
+                    scanned.putIfAbsent(userId, page.get("id").asText());
+                }
+            });
+        }
+        return scanned;
+    }
 
-            if (response.has("results") && response.get("results").isArray() && response.get("results").size() > 0) {
-                return response.get("results").get(0).get("id").asText();
-            }
-            return null;
-        } catch (Exception e) {
-            log.warn("Failed to get Notion page ID for user {} (non-blocking)", userId, e);
-            return null;
+    /**
+     * Resolves the user's page from the index, querying Notion only while the index is incomplete.
+     */
+    private String resolvePageId(String userId) {
+        String pageId = pageIndex.get(userId);
+        if (pageId == null && !pageIndex.isComplete()) {
+            pageId = getPageId(userId);
+            pageIndex.put(userId, pageId);
+        }
+        return pageId;
+    }
+
+    private String getPageId(String userId) {
+        JsonNode response = notionClient.queryDatabase(BearerTokenUtil.ensureBearer(token), version, quotaDbId.get(),
+                buildUserIdFilter(List.of(userId)));
+
+        if (response.has("results") && response.get("results").isArray() && response.get("results").size() > 0) {
+            return response.get("results").get(0).get("id").asText();
         }
+        return null;
     }
 
     public void syncToNotion(String userId, long quotaUsed, PlanType plan, Instant periodStart) {
@@ -71,67 +124,252 @@ public class NotionQuotaService {
             return;
 
         try {
-            String pageId = getPageId(userId);
-            ObjectNode properties = objectMapper.createObjectNode();
-
-            addTitleProperty(properties, "User ID", userId);
-            addNumberProperty(properties, "Usage Count", quotaUsed);
-            addDateProperty(properties, "Last Reset", periodStart.toString());
-            addSelectProperty(properties, "Plan", plan.name());
-
-            String authToken = BearerTokenUtil.ensureBearer(token);
-
-            if (pageId != null) {
-                ObjectNode updatePayload = objectMapper.createObjectNode();
-                updatePayload.set("properties", properties);
-                notionClient.updatePage(authToken, version, pageId, updatePayload);
-                log.info("Synced quota to Notion (updated) for user {}", userId);
-            } else {
-                ObjectNode createPayload = objectMapper.createObjectNode();
-                createPayload.putObject("parent").put("database_id", quotaDbId.get());
-                createPayload.set("properties", properties);
-                notionClient.createPage(authToken, version, createPayload);
-                log.info("Synced quota to Notion (created) for user {}", userId);
-            }
+            upsertQuotaPage(userId, quotaUsed, plan, periodStart);
         } catch (Exception e) {
             log.warn("Failed to sync to Notion for user {} (non-blocking)", userId, e);
         }
     }
 
+    /**
+     * Creates or updates the user's quota page, propagating failures to the caller.
+     */
+    void upsertQuotaPage(String userId, long quotaUsed, PlanType plan, Instant periodStart) {
+        if (!isEnabled())
+            return;
+
+        ObjectNode properties = objectMapper.createObjectNode();
+
+        addTitleProperty(properties, "User ID", userId);
+        addNumberProperty(properties, "Usage Count", quotaUsed);
+        addDateProperty(properties, "Last Reset", periodStart.toString());
+        addSelectProperty(properties, "Plan", plan.name());
+
+        String authToken = BearerTokenUtil.ensureBearer(token);
+
+        // Steady state: the page is indexed and the sync is a single update
+        String pageId = pageIndex.get(userId);
+        if (pageId == null || !updateQuotaPage(authToken, userId, pageId, properties)) {
+            // Serialised per user (locally, then across instances) so concurrent first syncs cannot create
+            // duplicate pages
+            pageIndex.withCreationLock(userId, () -> {
+                String existing = resolvePageId(userId);
+                if (existing != null && updateQuotaPage(authToken, userId, existing, properties)) {
+                    return null;
+                }
+                createQuotaPage(authToken, userId, existing, properties);
+                return null;
+            });
+        }
+        pageIndex.recordSyncedHash(userId, NotionPageIndex.quotaHash(quotaUsed, plan, periodStart));
+    }
+
+    /**
+     * Creates the user's page under a cross-instance creation claim. {@code gonePageId} is a page just found
+     * deleted, if any. Fails when another instance is creating the page, so the caller retries later.
+     */
+    private void createQuotaPage(String authToken, String userId, String gonePageId, ObjectNode properties) {
+        NotionPageIndex.Claim claim;
+        try {
+            claim = pageIndex.claimCreation(userId, gonePageId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while claiming Notion page creation for " + userId, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to claim Notion page creation for " + userId, e);
+        }
+        if (claim.pageId() != null && updateQuotaPage(authToken, userId, claim.pageId(), properties)) {
+            return;
+        }
+        if (!claim.acquired()) {
+            throw new IllegalStateException("Notion quota page for " + userId + " is being created by another instance");
+        }
+
+        JsonNode created;
+        try {
+            ObjectNode createPayload = objectMapper.createObjectNode();
+            createPayload.putObject("parent").put("database_id", quotaDbId.get());
+            createPayload.set("properties", properties);
+            created = notionClient.createPage(authToken, version, createPayload);
+        } catch (RuntimeException e) {
+            pageIndex.releaseClaim(userId);
+            throw e;
+        }
+        if (created == null || !created.hasNonNull("id")) {
+            pageIndex.releaseClaim(userId);
+            return;
+        }
+        try {
+            pageIndex.completeCreation(userId, created.get("id").asText());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The claim expires and the page is found by the next Notion lookup or scan
+            log.warn("Failed to record created Notion page for user {}", userId, e);
+        }
+        log.info("Synced quota to Notion (created) for user {}", userId);
+    }
+
+    /**
+     * Updates an indexed page. Returns {@code false} when the page no longer exists, after evicting it.
+     */
+    private boolean updateQuotaPage(String authToken, String userId, String pageId, ObjectNode properties) {
+        ObjectNode updatePayload = objectMapper.createObjectNode();
+        updatePayload.set("properties", properties);
+        try {
+            notionClient.updatePage(authToken, version, pageId, updatePayload);
+            log.info("Synced quota to Notion (updated) for user {}", userId);
+            return true;
+        } catch (WebApplicationException e) {
+            if (!isGone(e)) {
+                throw e;
+            }
+            log.info("Indexed Notion page {} for user {} is gone; recreating", pageId, userId);
+            pageIndex.evict(userId, pageId);
+            return false;
+        }
+    }
+
+    /**
+     * Whether a page update failed because the page no longer exists: Notion answers 404 for a deleted
+     * page, but 400 for one that was archived (deleted from the UI).
+     */
+    static boolean isGone(WebApplicationException e) {
+        if (e.getResponse() == null) {
+            return false;
+        }
+        int status = e.getResponse().getStatus();
+        if (status == 404) {
+            return true;
+        }
+        if (status != 400) {
+            return false;
+        }
+        String body;
+        try {
+            body = e.getResponse().readEntity(String.class);
+        } catch (Exception readEx) {
+            // Not an inbound response (or already consumed); use the entity it was built with, if any
+            body = e.getResponse().getEntity() instanceof String text ? text : null;
+        }
+        return body != null && body.contains("archived");
+    }
+
     public List<QuotaData> fetchAllFromNotion() {
         if (!isEnabled())
             return List.of();
 
         List<QuotaData> results = new ArrayList<>();
-        try {
-            ObjectNode query = objectMapper.createObjectNode();
-            JsonNode response = notionClient.queryDatabase(BearerTokenUtil.ensureBearer(token), version, quotaDbId.get(), query);
-
-            if (response.has("results") && response.get("results").isArray()) {
-                for (JsonNode page : response.get("results")) {
-                    JsonNode props = page.get("properties");
-                    if (props != null) {
-                        String userId = getTitleContent(props.get("User ID"));
-                        long usageCount = getNumberContent(props.get("Usage Count"));
-                        String planStr = getSelectContent(props.get("Plan"));
-                        String lastResetStr = getDateContent(props.get("Last Reset"));
-
-                        if (userId != null && !userId.isEmpty()) {
-                            results.add(new QuotaData(
-                                    userId,
-                                    usageCount,
-                                    lastResetStr != null ? Instant.parse(lastResetStr) : Instant.now(),
-                                    PlanType.fromString(planStr)));
-                        }
-                    }
-                }
-            }
+        try (Stream<JsonNode> pages = notionDatabaseReader.query(BearerTokenUtil.ensureBearer(token), version,
+                quotaDbId.get(), objectMapper.createObjectNode())) {
+            pages.forEach(page -> collectQuotaData(page, results));
         } catch (Exception e) {
             log.warn("Failed to fetch all from Notion (non-blocking)", e);
         }
         return results;
     }
 
+    /**
+     * Fetches the quota rows edited at or after {@code since}, or every row when {@code since} is null.
+     * Failures propagate, so an incremental sync does not advance its watermark past unread rows.
+     */
+    public List<QuotaData> fetchEditedSince(Instant since) {
+        if (!isEnabled())
+            return List.of();
+
+        ObjectNode query = objectMapper.createObjectNode();
+        if (since != null) {
+            ObjectNode filter = query.putObject("filter");
+            filter.put("timestamp", "last_edited_time");
+            filter.putObject("last_edited_time").put("on_or_after", since.toString());
+        }
+        List<QuotaData> results = new ArrayList<>();
+        try (Stream<JsonNode> pages = notionDatabaseReader.query(BearerTokenUtil.ensureBearer(token), version,
+                quotaDbId.get(), query)) {
+            pages.forEach(page -> collectQuotaData(page, results));
+        }
+        return results;
+    }
+
+    /**
+     * Fetches the quota rows of the given users only, using one filtered query per
+     * {@value #MAX_IDS_PER_QUERY} IDs instead of scanning the whole database.
+     */
+    public List<QuotaData> fetchFromNotion(Collection<String> userIds) {
+        return fetchFromNotion(userIds, false);
+    }
+
+    /**
+     * Same as {@link #fetchFromNotion(Collection)}, but a failed query propagates instead of leaving its
+     * users out, so callers can tell "no row" from "not read".
+     */
+    List<QuotaData> fetchFromNotionOrFail(Collection<String> userIds) {
+        return fetchFromNotion(userIds, true);
+    }
+
+    private List<QuotaData> fetchFromNotion(Collection<String> userIds, boolean propagate) {
+        if (!isEnabled() || userIds == null || userIds.isEmpty())
+            return List.of();
+
+        Set<String> wanted = new HashSet<>(userIds);
+        List<String> ids = new ArrayList<>(wanted);
+        List<QuotaData> results = new ArrayList<>();
+        String authToken = BearerTokenUtil.ensureBearer(token);
+
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+            List<String> chunk = ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size()));
+            try (Stream<JsonNode> pages = notionDatabaseReader.query(authToken, version, quotaDbId.get(),
+                    buildUserIdFilter(chunk))) {
+                pages.forEach(page -> collectQuotaData(page, results));
+            } catch (RuntimeException e) {
+                if (propagate) {
+                    throw e;
+                }
+                log.warn("Failed to fetch {} users from Notion (non-blocking)", chunk.size(), e);
+            }
+        }
+        return results.stream()
+                .filter(data -> wanted.contains(data.userId()))
+                .toList();
+    }
+
+    ObjectNode buildUserIdFilter(List<String> userIds) {
+        ObjectNode query = objectMapper.createObjectNode();
+        if (userIds.size() == 1) {
+            ObjectNode filter = query.putObject("filter");
+            filter.put("property", "User ID");
+            filter.putObject("title").put("equals", userIds.get(0));
+            return query;
+        }
+        ArrayNode or = query.putObject("filter").putArray("or");
+        for (String userId : userIds) {
+            ObjectNode condition = or.addObject();
+            condition.put("property", "User ID");
+            condition.putObject("title").put("equals", userId);
+        }
+        return query;
+    }
+
+    private void collectQuotaData(JsonNode page, List<QuotaData> results) {
+        JsonNode props = page.get("properties");
+        if (props == null) {
+            return;
+        }
+        String userId = getTitleContent(props.get("User ID"));
+        long usageCount = getNumberContent(props.get("Usage Count"));
+        String planStr = getSelectContent(props.get("Plan"));
+        String lastResetStr = getDateContent(props.get("Last Reset"));
+        String lastEditedStr = page.path("last_edited_time").asText(null);
+
+        if (userId != null && !userId.isEmpty()) {
+            results.add(new QuotaData(
+                    userId,
+                    usageCount,
+                    lastResetStr != null ? Instant.parse(lastResetStr) : Instant.now(),
+                    PlanType.fromString(planStr),
+                    lastEditedStr != null ? Instant.parse(lastEditedStr) : null));
+        }
+    }
+
     String getTitleContent(JsonNode property) {
         if (property != null && property.has("title") && property.get("title").isArray()
                 && property.get("title").size() > 0) {
@@ -166,15 +404,33 @@ public class NotionQuotaService {
             return;
 
         try {
-            String pageId = getPageId(userId);
-            if (pageId != null) {
-                ObjectNode properties = objectMapper.createObjectNode();
-                properties.put("archived", true);
+            archiveQuotaPage(userId);
+        } catch (Exception e) {
+            log.warn("Failed to delete from Notion for user {} (non-blocking)", userId, e);
+        }
+    }
+
+    /**
+     * Archives the user's quota page, propagating failures to the caller.
+     */
+    void archiveQuotaPage(String userId) {
+        if (!isEnabled())
+            return;
+
+        String pageId = resolvePageId(userId);
+        if (pageId != null) {
+            ObjectNode properties = objectMapper.createObjectNode();
+            properties.put("archived", true);
+            try {
                 notionClient.updatePage(BearerTokenUtil.ensureBearer(token), version, pageId, properties);
                 log.info("Archived quota page in Notion for user {}", userId);
+            } catch (WebApplicationException e) {
+                if (!isGone(e)) {
+                    throw e;
+                }
+                log.info("Notion quota page {} for user {} was already gone", pageId, userId);
             }
-        } catch (Exception e) {
-            log.warn("Failed to delete from Notion for user {} (non-blocking)", userId, e);
+            pageIndex.evict(userId, pageId);
         }
     }
 
@@ -196,6 +452,6 @@ public class NotionQuotaService {
         properties.putObject(name).putObject("select").put("name", option);
     }
 
-    public record QuotaData(String userId, long usageCount, Instant lastReset, PlanType plan) {
+    public record QuotaData(String userId, long usageCount, Instant lastReset, PlanType plan, Instant lastEditedTime) {
     }
 }
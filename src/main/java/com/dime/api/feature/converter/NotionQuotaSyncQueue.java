@@ -0,0 +1,269 @@
+package com.dime.api.feature.converter;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.quarkus.runtime.ShutdownEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Write-behind queue between quota updates and the Notion quota database.
+ * <p>
+ * Only the latest state per user is kept (last write wins), so a burst of conversions for one user
+ * results in a single Notion write. A background thread drains the queue at background priority, so
+ * the shared {@code NotionRateLimiter} paces it and lets user-facing Notion reads go first. Pending
+ * entries are flushed on shutdown.
+ * <p>
+ * A failed write is re-queued with exponential backoff, up to {@code notion.quota.sync.max-attempts}
+ * attempts, unless a newer state was queued for the user in the meantime: that one is written instead.
+ */
+@Slf4j
+@ApplicationScoped
+public class NotionQuotaSyncQueue {
+
+    private static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("outcome");
+
+    enum Operation {
+        UPSERT, ARCHIVE
+    }
+
+    record PendingSync(String userId, Operation operation, long quotaUsed, PlanType plan, Instant periodStart,
+            long firstEnqueuedAt, int attempts, long notBefore) {
+    }
+
+    @Inject
+    NotionQuotaService notionQuotaService;
+
+    @Inject
+    OpenTelemetry openTelemetry;
+
+    // Idle poll interval; while entries are pending the drainer runs back to back under the rate limiter
+    @ConfigProperty(name = "notion.quota.sync.interval", defaultValue = "PT1S")
+    Duration drainInterval;
+
+    // Shares Cloud Run's 10s termination grace period with the other shutdown flushes
+    @ConfigProperty(name = "notion.quota.sync.shutdown-timeout", defaultValue = "PT2S")
+    Duration shutdownTimeout;
+
+    // Delay before the first retry of a failed write; doubled on each further failure, capped at MAX_BACKOFF
+    @ConfigProperty(name = "notion.quota.sync.retry-backoff", defaultValue = "PT2S")
+    Duration retryBackoff;
+
+    @ConfigProperty(name = "notion.quota.sync.max-attempts", defaultValue = "8")
+    int maxAttempts;
+
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    final Map<String, PendingSync> pending = new ConcurrentHashMap<>();
+    final ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<>();
+
+    private ScheduledExecutorService drainer;
+    private LongCounter processed;
+
+    @PostConstruct
+    void start() {
+        drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notion-quota-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        drainer.scheduleWithFixedDelay(this::drainSafely, drainInterval.toMillis(), drainInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        registerMetrics();
+    }
+
+    private void registerMetrics() {
+        if (openTelemetry == null)
+            return;
+        Meter meter = openTelemetry.getMeter("com.dime.api");
+        meter.gaugeBuilder("notion.quota.sync.queue.depth")
+                .setDescription("Users with a pending Notion quota sync")
+                .ofLongs()
+                .buildWithCallback(measurement -> measurement.record(pending.size()));
+        meter.gaugeBuilder("notion.quota.sync.queue.lag")
+                .setDescription("Age of the oldest pending Notion quota sync")
+                .setUnit("ms")
+                .ofLongs()
+                .buildWithCallback(measurement -> measurement.record(lagMillis()));
+        processed = meter.counterBuilder("notion.quota.sync.processed")
+                .setDescription("Notion quota syncs drained from the write-behind queue")
+                .build();
+    }
+
+    /**
+     * Queues the latest quota state of a user, replacing any state still waiting for that user.
+     */
+    public void enqueue(@NonNull String userId, long quotaUsed, @NonNull PlanType plan, @NonNull Instant periodStart) {
+        submit(new PendingSync(userId, Operation.UPSERT, quotaUsed, plan, periodStart, clock.getAsLong(), 0, 0));
+    }
+
+    /**
+     * Queues the archival of a user's Notion page, superseding any pending update for that user.
+     */
+    public void enqueueArchive(@NonNull String userId) {
+        submit(new PendingSync(userId, Operation.ARCHIVE, 0, PlanType.FREE, Instant.now(), clock.getAsLong(), 0,
+                0));
+    }
+
+    private void submit(PendingSync sync) {
+        boolean[] added = new boolean[1];
+        pending.compute(sync.userId(), (userId, previous) -> {
+            added[0] = previous == null;
+            // Coalesce: keep the newest state but the oldest enqueue time, so lag reflects real staleness.
+            // A newer state is written without waiting for the backoff of a failed one
+            return previous == null ? sync
+                    : new PendingSync(userId, sync.operation(), sync.quotaUsed(), sync.plan(), sync.periodStart(),
+                            previous.firstEnqueuedAt(), 0, 0);
+        });
+        if (added[0]) {
+            order.add(sync.userId());
+        }
+    }
+
+    public int depth() {
+        return pending.size();
+    }
+
+    long lagMillis() {
+        long now = clock.getAsLong();
+        return pending.values().stream()
+                .mapToLong(sync -> now - sync.firstEnqueuedAt())
+                .max()
+                .orElse(0);
+    }
+
+    private void drainSafely() {
+        try {
+            while (drainOne()) {
+                // Paced by the shared Notion rate limiter
+            }
+        } catch (Exception e) {
+            log.warn("Notion quota sync drainer failed (non-blocking)", e);
+        }
+    }
+
+    /**
+     * Pushes the oldest pending entry that is not waiting for a retry backoff to Notion. Returns
+     * {@code false} when no entry is due.
+     */
+    boolean drainOne() {
+        long now = clock.getAsLong();
+        for (int remaining = order.size(); remaining > 0; remaining--) {
+            String userId = order.poll();
+            if (userId == null) {
+                return false;
+            }
+            PendingSync sync = pending.get(userId);
+            if (sync != null && sync.notBefore() > now) {
+                // Still backing off; move it to the back so due entries go first
+                order.add(userId);
+                continue;
+            }
+            // A state queued since the get() replaced the retry and is due immediately
+            sync = pending.remove(userId);
+            if (sync != null) {
+                push(sync);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void push(PendingSync sync) {
+        try {
+            if (sync.operation() == Operation.ARCHIVE) {
+                notionQuotaService.archiveQuotaPage(sync.userId());
+            } else {
+                notionQuotaService.upsertQuotaPage(sync.userId(), sync.quotaUsed(), sync.plan(), sync.periodStart());
+            }
+            record("success");
+        } catch (Exception e) {
+            retry(sync, e);
+        }
+    }
+
+    private void retry(PendingSync sync, Exception cause) {
+        int attempts = sync.attempts() + 1;
+        if (attempts >= maxAttempts) {
+            record("dropped");
+            log.error("Giving up syncing quota to Notion for user {} after {} attempts", sync.userId(), attempts,
+                    cause);
+            return;
+        }
+        record("failure");
+        long backoff = Math.min(retryBackoff.toMillis() << Math.min(attempts - 1, 20), MAX_BACKOFF.toMillis());
+        boolean[] requeued = new boolean[1];
+        pending.compute(sync.userId(), (userId, newer) -> {
+            if (newer != null) {
+                // A newer state was queued while this one was in flight; it supersedes the failed one
+                return newer;
+            }
+            requeued[0] = true;
+            return new PendingSync(userId, sync.operation(), sync.quotaUsed(), sync.plan(), sync.periodStart(),
+                    sync.firstEnqueuedAt(), attempts, clock.getAsLong() + backoff);
+        });
+        if (requeued[0]) {
+            order.add(sync.userId());
+        }
+        log.warn("Failed to sync quota to Notion for user {} (attempt {}, {})", sync.userId(), attempts,
+                requeued[0] ? "retrying in " + backoff + " ms" : "superseded by a newer update", cause);
+    }
+
+    private void record(String outcome) {
+        if (processed != null) {
+            processed.add(1, Attributes.of(OUTCOME, outcome));
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        flush(shutdownTimeout);
+    }
+
+    /**
+     * Drains pending entries synchronously until no entry is due or the timeout elapses. Entries waiting
+     * for a retry backoff stay pending.
+     */
+    public void flush(Duration timeout) {
+        if (pending.isEmpty())
+            return;
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        int before = pending.size();
+        while (System.nanoTime() < deadline && drainOne()) {
+            // drainOne() does the work; keep going until empty or out of time
+        }
+        if (!pending.isEmpty()) {
+            log.warn("Shutdown flush left {} Notion quota syncs pending (of {})", pending.size(), before);
+        } else {
+            log.info("Flushed {} pending Notion quota syncs", before);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (drainer != null) {
+            drainer.shutdownNow();
+        }
+    }
+}
@@ -12,10 +12,15 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
@@ -56,6 +61,12 @@ public class QuotaService {
     @Inject
     NotionQuotaService notionQuotaService;
 
+    @Inject
+    ShardedQuotaCounter shardedQuotaCounter;
+
+    @Inject
+    NotionQuotaSyncQueue notionQuotaSyncQueue;
+
     public record QuotaCheckResult(boolean allowed, long remaining, long limit, PlanType plan) {
     }
 
@@ -82,7 +93,8 @@ public class QuotaService {
 
     public QuotaCheckResult checkQuota(@NonNull String userId) {
         try {
-            DocumentSnapshot document = firestore.collection(COLLECTION_NAME).document(userId).get().get();
+            DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(userId);
+            DocumentSnapshot document = docRef.get().get();
 
             if (!document.exists()) {
                 UserQuota newUser = createUser(userId);
@@ -95,10 +107,14 @@ public class QuotaService {
                 return new QuotaCheckResult(true, 0, 0, DEFAULT_PLAN);
             }
 
+            shardedQuotaCounter.remember(userId, userQuota.shardCount);
+
             // Check for new month
             if (isNewMonth(userQuota.periodStart)) {
-                resetQuota(userId);
+                resetQuota(docRef, userQuota.shardCount);
                 userQuota.quotaUsed = 0;
+            } else {
+                userQuota.quotaUsed = totalUsage(docRef, userQuota);
             }
 
             long limit = quotaLimits.getOrDefault(userQuota.getPlanType(), 10L);
@@ -114,46 +130,53 @@ public class QuotaService {
         }
     }
 
-    public void incrementUsage(@NonNull String userId) {
+    /**
+     * Increments the user's usage and stores {@code outboxEntry} in the same Firestore commit, so the
+     * conversion's side effects are delivered by {@link ConversionOutbox} if and only if the quota was
+     * charged. Returns {@code false} when nothing was written.
+     */
+    public boolean incrementUsage(@NonNull String userId, @NonNull ConversionOutbox.Entry outboxEntry) {
         try {
             DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(userId);
 
-            firestore.runTransaction(transaction -> {
-                DocumentSnapshot snapshot = transaction.get(docRef).get();
-
-                if (!snapshot.exists()) {
-                    createUserInTransaction(transaction, docRef);
-                } else {
+            int shards = shardedQuotaCounter.knownShardCount(userId);
+            if (shards > 0) {
+                // Hot user: spread the write over shard subdocuments instead of contending on the user doc
+                WriteBatch batch = firestore.batch();
+                batch.create(outboxReference(outboxEntry), ConversionOutbox.toDocument(outboxEntry));
+                shardedQuotaCounter.increment(docRef, shards, batch);
+            } else {
+                firestore.runTransaction(transaction -> {
+                    DocumentSnapshot snapshot = transaction.get(docRef).get();
+                    transaction.create(outboxReference(outboxEntry), ConversionOutbox.toDocument(outboxEntry));
+
+                    if (!snapshot.exists()) {
+                        return createUserInTransaction(transaction, docRef);
+                    }
                     transaction.update(docRef, "quotaUsed", FieldValue.increment(1));
                     transaction.update(docRef, "updatedAt", Timestamp.now());
-                }
-                return null;
-            }).get();
-
-            log.info("Incremented usage for user {}", userId);
+                    return null;
+                }).get();
 
-            // Async sync to Notion (non-blocking)
-            try {
-                DocumentSnapshot snapshot = docRef.get().get();
-                if (snapshot.exists()) {
-                    UserQuota quota = snapshot.toObject(UserQuota.class);
-                    if (quota != null) {
-                        notionQuotaService.syncToNotion(
-                                userId,
-                                quota.quotaUsed,
-                                quota.getPlanType(),
-                                quota.periodStart.toDate().toInstant());
-                    }
+                if (shardedQuotaCounter.recordWrite(userId)) {
+                    enableSharding(docRef);
                 }
-            } catch (Exception e) {
-                log.warn("Failed to sync to Notion for user {} (non-blocking)", userId, e);
             }
 
+            // The outbox relay syncs the new usage to Notion; the request never waits on the Notion API
+            log.info("Incremented usage for user {}", userId);
+            return true;
+
         } catch (Exception e) {
             log.error("Error incrementing usage for user {}", userId, e);
+            return false;
         }
     }
 
+    private DocumentReference outboxReference(@NonNull ConversionOutbox.Entry entry) {
+        return firestore.collection(ConversionOutbox.COLLECTION).document(entry.id());
+    }
+
     public UserQuota getQuotaStatus(@NonNull String userId) {
         try {
             DocumentSnapshot document = firestore.collection(COLLECTION_NAME).document(userId).get().get();
@@ -161,6 +184,8 @@ public class QuotaService {
                 UserQuota userQuota = document.toObject(UserQuota.class);
                 if (userQuota != null && isNewMonth(userQuota.periodStart)) {
                     userQuota.quotaUsed = 0; // Virtual reset for display
+                } else if (userQuota != null) {
+                    userQuota.quotaUsed = totalUsage(document.getReference(), userQuota);
                 }
                 return userQuota;
             }
@@ -184,7 +209,7 @@ public class QuotaService {
         return newUser;
     }
 
-    private void createUserInTransaction(@NonNull Transaction transaction, @NonNull DocumentReference docRef) {
+    private UserQuota createUserInTransaction(@NonNull Transaction transaction, @NonNull DocumentReference docRef) {
         Timestamp now = Timestamp.now();
         UserQuota newUser = new UserQuota(
                 DEFAULT_PLAN,
@@ -194,15 +219,73 @@ public class QuotaService {
                 now,
                 now);
         transaction.set(docRef, newUser);
+        return newUser;
     }
 
-    private void resetQuota(@NonNull String userId) {
-        Timestamp now = Timestamp.now();
-        firestore.collection(COLLECTION_NAME).document(userId).update(
-                "quotaUsed", 0,
-                "periodStart", now,
-                "updatedAt", now);
-        log.info("Reset quota for user {}", userId);
+    /**
+     * Starts a new quota period: the base counter and every shard are zeroed in one transaction, which
+     * re-checks the period so that concurrent checks reset it only once.
+     */
+    private void resetQuota(@NonNull DocumentReference docRef, int shards)
+            throws ExecutionException, InterruptedException {
+        boolean reset = firestore.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(docRef).get();
+            if (!snapshot.exists() || !isNewMonth(snapshot.getTimestamp("periodStart"))) {
+                return false;
+            }
+            if (shards > 0) {
+                shardedQuotaCounter.reset(transaction, docRef, shards);
+            }
+            Timestamp now = Timestamp.now();
+            transaction.update(docRef,
+                    "quotaUsed", 0,
+                    "periodStart", now,
+                    "updatedAt", now);
+            return true;
+        }).get();
+        if (reset) {
+            if (shards > 0) {
+                shardedQuotaCounter.afterReset(docRef, shards);
+            }
+            log.info("Reset quota for user {}", docRef.getId());
+        }
+    }
+
+    /**
+     * Promotes a hot user to the sharded counter layout. Existing usage stays on the user document
+     * as the base value; later increments go to the shards.
+     */
+    private void enableSharding(@NonNull DocumentReference docRef) {
+        int shards = shardedQuotaCounter.configuredShardCount();
+        try {
+            docRef.update("shardCount", shards).get();
+            shardedQuotaCounter.remember(docRef.getId(), shards);
+            log.info("Enabled sharded quota counter for user {} ({} shards)", docRef.getId(), shards);
+        } catch (Exception e) {
+            log.warn("Failed to enable sharded quota counter for user {}", docRef.getId(), e);
+        }
+    }
+
+    /**
+     * Effective usage of a user: the base counter plus, for sharded users, the sum of all shards.
+     */
+    private long totalUsage(@NonNull DocumentReference docRef, @NonNull UserQuota quota) {
+        if (quota.shardCount <= 0) {
+            return quota.quotaUsed;
+        }
+        return quota.quotaUsed + shardedQuotaCounter.sum(docRef);
+    }
+
+    private Instant periodStartOf(@NonNull UserQuota quota) {
+        return quota.periodStart != null ? quota.periodStart.toDate().toInstant() : Instant.now();
+    }
+
+    private UserQuotaWrapper toWrapper(@NonNull DocumentSnapshot doc) {
+        UserQuota quota = doc.toObject(UserQuota.class);
+        if (quota != null) {
+            quota.quotaUsed = totalUsage(doc.getReference(), quota);
+        }
+        return new UserQuotaWrapper(doc.getId(), quota);
     }
 
     private boolean isNewMonth(Timestamp periodStart) {
@@ -219,7 +302,7 @@ public class QuotaService {
         try {
             return firestore.collection(COLLECTION_NAME).get().get().getDocuments()
                     .stream()
-                    .map(doc -> new UserQuotaWrapper(doc.getId(), doc.toObject(UserQuota.class)))
+                    .map(this::toWrapper)
                     .collect(Collectors.toList());
         } catch (Exception e) {
             log.error("Error fetching all user quotas", e);
@@ -227,22 +310,77 @@ public class QuotaService {
         }
     }
 
+    /**
+     * Fetches the quota documents of the given users in a single batched read.
+     * Unknown users are skipped, so the result may be smaller than the input.
+     */
+    public List<UserQuotaWrapper> findByIds(Collection<String> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return List.of();
+        }
+        try {
+            CollectionReference users = firestore.collection(COLLECTION_NAME);
+            DocumentReference[] refs = userIds.stream()
+                    .map(users::document)
+                    .toArray(DocumentReference[]::new);
+            return firestore.getAll(refs).get()
+                    .stream()
+                    .filter(DocumentSnapshot::exists)
+                    .map(this::toWrapper)
+                    .toList();
+        } catch (Exception e) {
+            log.error("Error fetching quotas for {} users", userIds.size(), e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Fetches users whose document changed after {@code since}. Sharded users whose shards were
+     * incremented since are found through a collection-group query on the shards, because shard
+     * increments do not touch the user document.
+     */
+    public List<UserQuotaWrapper> findUpdatedSince(@NonNull Timestamp since)
+            throws ExecutionException, InterruptedException {
+        CollectionReference users = firestore.collection(COLLECTION_NAME);
+        Map<String, UserQuotaWrapper> changed = new LinkedHashMap<>();
+        for (DocumentSnapshot doc : users.whereGreaterThan("updatedAt", since).get().get().getDocuments()) {
+            changed.put(doc.getId(), toWrapper(doc));
+        }
+        Set<String> shardedIds = new LinkedHashSet<>();
+        for (DocumentSnapshot shard : firestore.collectionGroup(ShardedQuotaCounter.SHARDS_COLLECTION)
+                .whereGreaterThan(ShardedQuotaCounter.UPDATED_AT_FIELD, since).get().get().getDocuments()) {
+            DocumentReference userDoc = shard.getReference().getParent().getParent();
+            if (userDoc != null && userDoc.getParent().getId().equals(COLLECTION_NAME)
+                    && !changed.containsKey(userDoc.getId())) {
+                shardedIds.add(userDoc.getId());
+            }
+        }
+        findByIds(shardedIds).forEach(user -> changed.put(user.userId(), user));
+        return List.copyOf(changed.values());
+    }
+
     public void updateQuota(@NonNull String userId, UserQuota quota) {
         try {
-            quota.updatedAt = Timestamp.now();
-            firestore.collection(COLLECTION_NAME).document(userId).set(quota, SetOptions.merge()).get();
-            log.info("Updated quota for user {}", userId);
+            DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(userId);
+            firestore.runTransaction(transaction -> {
+                DocumentSnapshot current = transaction.get(docRef).get();
+                Long shards = current.exists() ? current.getLong("shardCount") : null;
 
-            // Sync to Notion after update
-            try {
-                notionQuotaService.syncToNotion(
-                        userId,
-                        quota.quotaUsed,
-                        quota.getPlanType(),
-                        quota.periodStart != null ? quota.periodStart.toDate().toInstant() : Instant.now());
-            } catch (Exception e) {
-                log.warn("Failed to sync to Notion for user {} after update (non-blocking)", userId, e);
+                // Keep the shard layout; the submitted usage becomes the new absolute base value
+                quota.shardCount = shards != null ? shards.intValue() : 0;
+                if (quota.shardCount > 0) {
+                    shardedQuotaCounter.reset(transaction, docRef, quota.shardCount);
+                }
+                quota.updatedAt = Timestamp.now();
+                transaction.set(docRef, quota, SetOptions.merge());
+                return null;
+            }).get();
+            if (quota.shardCount > 0) {
+                shardedQuotaCounter.afterReset(docRef, quota.shardCount);
             }
+            log.info("Updated quota for user {}", userId);
+
+            notionQuotaSyncQueue.enqueue(userId, quota.quotaUsed, quota.getPlanType(), periodStartOf(quota));
 
         } catch (Exception e) {
             log.error("Error updating quota for user {}", userId, e);
@@ -259,36 +397,25 @@ public class QuotaService {
             Timestamp now = Timestamp.now();
 
             DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(userId);
-            firestore.runTransaction(transaction -> {
+            UserQuota updated = firestore.runTransaction(transaction -> {
                 DocumentSnapshot snapshot = transaction.get(docRef).get();
                 if (!snapshot.exists()) {
                     // Create user if not exists (e.g., paid before first free use)
                     UserQuota newUser = new UserQuota(plan, 0, newLimit, now, now, now);
                     transaction.set(docRef, newUser);
-                } else {
-                    transaction.update(docRef,
-                            "plan", plan.name(),
-                            "quotaLimit", newLimit,
-                            "updatedAt", now);
+                    return newUser;
                 }
-                return null;
+                transaction.update(docRef,
+                        "plan", plan.name(),
+                        "quotaLimit", newLimit,
+                        "updatedAt", now);
+                return snapshot.toObject(UserQuota.class);
             }).get();
 
             log.info("Updated plan for user {} → {} (limit={})", userId, plan, newLimit);
 
-            // Async sync to Notion (non-blocking)
-            try {
-                DocumentSnapshot snapshot = docRef.get().get();
-                if (snapshot.exists()) {
-                    UserQuota quota = snapshot.toObject(UserQuota.class);
-                    if (quota != null) {
-                        notionQuotaService.syncToNotion(userId, quota.quotaUsed, plan,
-                                quota.periodStart != null ? quota.periodStart.toDate().toInstant()
-                                        : java.time.Instant.now());
-                    }
-                }
-            } catch (Exception e) {
-                log.warn("Failed to sync plan update to Notion for user {} (non-blocking)", userId, e);
+            if (updated != null) {
+                notionQuotaSyncQueue.enqueue(userId, totalUsage(docRef, updated), plan, periodStartOf(updated));
             }
 
         } catch (Exception e) {
@@ -301,12 +428,8 @@ public class QuotaService {
             firestore.collection(COLLECTION_NAME).document(userId).delete().get();
             log.info("Deleted quota for user {}", userId);
 
-            // Delete from Notion after deletion
-            try {
-                notionQuotaService.deleteFromNotion(userId);
-            } catch (Exception e) {
-                log.warn("Failed to delete from Notion for user {} (non-blocking)", userId, e);
-            }
+            // Archival supersedes any update still queued for this user
+            notionQuotaSyncQueue.enqueueArchive(userId);
 
         } catch (Exception e) {
             log.error("Error deleting quota for user {}", userId, e);
@@ -314,49 +437,38 @@ public class QuotaService {
     }
 
     public void syncToNotion(List<String> userIds) {
+        Set<String> targets = toTargetSet(userIds);
         log.info("Starting targeted quota sync TO Notion for {} users",
-                userIds == null || userIds.isEmpty() ? "all" : userIds.size());
-
-        List<UserQuotaWrapper> allQuotas = findAll();
+                targets == null ? "all" : targets.size());
 
-        if (userIds != null && !userIds.isEmpty()) {
-            allQuotas = allQuotas.stream()
-                    .filter(wrapper -> userIds.contains(wrapper.userId()))
-                    .toList();
-        }
+        // Targeted syncs read only the requested documents instead of scanning the collection
+        List<UserQuotaWrapper> quotas = targets == null ? findAll() : findByIds(targets);
 
-        for (UserQuotaWrapper wrapper : allQuotas) {
+        for (UserQuotaWrapper wrapper : quotas) {
             if (wrapper.quota() != null) {
-                try {
-                    notionQuotaService.syncToNotion(
-                            wrapper.userId(),
-                            wrapper.quota().quotaUsed,
-                            wrapper.quota().getPlanType(),
-                            wrapper.quota().periodStart != null ? wrapper.quota().periodStart.toDate().toInstant()
-                                    : Instant.now());
-                } catch (Exception e) {
-                    log.warn("Failed to sync user {} to Notion during sync", wrapper.userId(), e);
-                }
+                notionQuotaSyncQueue.enqueue(
+                        wrapper.userId(),
+                        wrapper.quota().quotaUsed,
+                        wrapper.quota().getPlanType(),
+                        periodStartOf(wrapper.quota()));
             }
         }
-        log.info("Completed quota sync TO Notion for {} users", allQuotas.size());
+        log.info("Queued quota sync TO Notion for {} users", quotas.size());
     }
 
     public void syncFromNotion(List<String> userIds) {
+        Set<String> targets = toTargetSet(userIds);
         log.info("Starting targeted quota sync FROM Notion to Firestore for {} users",
-                userIds == null || userIds.isEmpty() ? "all" : userIds.size());
-
-        List<NotionQuotaService.QuotaData> notionData = notionQuotaService.fetchAllFromNotion();
+                targets == null ? "all" : targets.size());
 
-        if (userIds != null && !userIds.isEmpty()) {
-            notionData = notionData.stream()
-                    .filter(data -> userIds.contains(data.userId()))
-                    .toList();
-        }
+        // Targeted syncs query Notion with a filter on the requested user IDs only
+        List<NotionQuotaService.QuotaData> notionData = targets == null
+                ? notionQuotaService.fetchAllFromNotion()
+                : notionQuotaService.fetchFromNotion(targets);
 
         for (NotionQuotaService.QuotaData data : notionData) {
             try {
-                updateQuotaFromNotion(data);
+                applyFromNotion(data);
             } catch (Exception e) {
                 log.warn("Failed to sync user {} from Notion", data.userId(), e);
             }
@@ -364,40 +476,64 @@ public class QuotaService {
         log.info("Completed quota sync FROM Notion for {} records", notionData.size());
     }
 
-    private void updateQuotaFromNotion(@NonNull NotionQuotaService.QuotaData data) {
-        try {
-            DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(data.userId());
-            Timestamp periodStart = Timestamp.ofTimeSecondsAndNanos(data.lastReset().getEpochSecond(),
-                    data.lastReset().getNano());
+    /**
+     * Normalises the requested user IDs, or returns {@code null} when every user should be synced.
+     */
+    private Set<String> toTargetSet(List<String> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return null;
+        }
+        Set<String> targets = new LinkedHashSet<>();
+        userIds.stream()
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .forEach(targets::add);
+        return targets;
+    }
 
-            long limit = quotaLimits.getOrDefault(data.plan(), 10L);
+    /**
+     * Overwrites the user's quota with a Notion row. Failures propagate to the caller.
+     */
+    void applyFromNotion(@NonNull NotionQuotaService.QuotaData data) throws ExecutionException, InterruptedException {
+        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(data.userId());
+        Timestamp periodStart = Timestamp.ofTimeSecondsAndNanos(data.lastReset().getEpochSecond(),
+                data.lastReset().getNano());
+
+        long limit = quotaLimits.getOrDefault(data.plan(), 10L);
+
+        Long shards = firestore.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(docRef).get();
+            Long shardCount = snapshot.exists() ? snapshot.getLong("shardCount") : null;
+            // Notion holds the absolute usage, so any shard increments are folded into it
+            if (shardCount != null && shardCount > 0) {
+                shardedQuotaCounter.reset(transaction, docRef, shardCount.intValue());
+            }
+            Timestamp now = Timestamp.now();
 
-            firestore.runTransaction(transaction -> {
-                DocumentSnapshot snapshot = transaction.get(docRef).get();
-                Timestamp now = Timestamp.now();
+            if (!snapshot.exists()) {
+                UserQuota newUser = new UserQuota(
+                        data.plan(),
+                        data.usageCount(),
+                        limit,
+                        periodStart,
+                        now,
+                        now);
+                transaction.set(docRef, newUser);
+            } else {
+                transaction.update(docRef,
+                        "plan", data.plan().name(),
+                        "quotaUsed", data.usageCount(),
+                        "quotaLimit", limit,
+                        "periodStart", periodStart,
+                        "updatedAt", now);
+            }
+            return shardCount;
+        }).get();
 
-                if (!snapshot.exists()) {
-                    UserQuota newUser = new UserQuota(
-                            data.plan(),
-                            data.usageCount(),
-                            limit,
-                            periodStart,
-                            now,
-                            now);
-                    transaction.set(docRef, newUser);
-                } else {
-                    transaction.update(docRef,
-                            "plan", data.plan().name(),
-                            "quotaUsed", data.usageCount(),
-                            "quotaLimit", limit,
-                            "periodStart", periodStart,
-                            "updatedAt", now);
-                }
-                return null;
-            }).get();
-            log.info("Synced user {} from Notion to Firestore", data.userId());
-        } catch (InterruptedException | ExecutionException e) {
-            log.error("Error updating user {} from Notion data", data.userId(), e);
+        if (shards != null && shards > 0) {
+            shardedQuotaCounter.afterReset(docRef, shards.intValue());
         }
+        log.info("Synced user {} from Notion to Firestore", data.userId());
     }
 }
@@ -0,0 +1,346 @@
+package com.dime.api.feature.converter;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Incremental, watermark-based quota sync between Firestore and Notion.
+ * <p>
+ * Each direction remembers when its last clean run started ({@code sync_state/{direction}}) and only
+ * looks at records changed since then: Firestore users by {@code updatedAt}, Notion rows by
+ * {@code last_edited_time}. Records whose quota fields hash to the last synced state are skipped, and
+ * when both sides changed the more recent edit wins, in both directions. Notion only reports
+ * {@code last_edited_time} to the minute, so Firestore is only considered newer once its update is at
+ * least a minute after the reported Notion edit. Work runs on a bounded executor; Notion calls are
+ * paced by the shared {@code NotionRateLimiter} at background priority. The admin endpoints start runs
+ * in the background; {@link #lastReports()} holds the outcome of the latest run per direction.
+ */
+@Slf4j
+@ApplicationScoped
+public class QuotaSyncService {
+
+    static final String STATE_COLLECTION = "sync_state";
+    static final String WATERMARK_FIELD = "watermark";
+
+    public enum Direction {
+        TO_NOTION("quota-to-notion"), FROM_NOTION("quota-from-notion");
+
+        final String stateDocument;
+
+        Direction(String stateDocument) {
+            this.stateDocument = stateDocument;
+        }
+    }
+
+    @Schema(description = "Outcome of a quota sync run")
+    public record SyncReport(
+            @Schema(description = "Sync direction") Direction direction,
+            @Schema(description = "Whether every record was considered, ignoring the watermark") boolean full,
+            @Schema(description = "Records written to the target store") int changed,
+            @Schema(description = "Records already in sync, or where the target held the newer edit") int skipped,
+            @Schema(description = "Records that failed and will be retried by the next run") int failed,
+            @Schema(description = "Run duration in milliseconds") long durationMs,
+            @Schema(description = "Watermark stored for the next incremental run (unchanged when records failed)") Instant watermark) {
+    }
+
+    @Inject
+    Firestore firestore;
+
+    @Inject
+    QuotaService quotaService;
+
+    @Inject
+    NotionQuotaService notionQuotaService;
+
+    @Inject
+    NotionPageIndex pageIndex;
+
+    @ConfigProperty(name = "quota.sync.parallelism", defaultValue = "4")
+    int parallelism;
+
+    // Notion only stores last_edited_time to the minute, so incremental runs re-read a safety margin
+    @ConfigProperty(name = "quota.sync.watermark-overlap", defaultValue = "PT2M")
+    Duration watermarkOverlap;
+
+    // Precision of Notion's last_edited_time
+    static final Duration NOTION_EDIT_PRECISION = Duration.ofMinutes(1);
+
+    private ExecutorService executor;
+    private ExecutorService runner;
+
+    private final Map<Direction, SyncReport> lastReports = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "quota-sync-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Separate from the worker pool, so a running sync never waits for a worker held by another run
+        runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "quota-sync-runner");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (runner != null) {
+            runner.shutdownNow();
+        }
+    }
+
+    /**
+     * Starts a sync in the background. Runs are queued, so at most one runs at a time.
+     */
+    public CompletableFuture<SyncReport> start(Direction direction, boolean full) {
+        return CompletableFuture.supplyAsync(
+                () -> direction == Direction.TO_NOTION ? syncToNotion(full) : syncFromNotion(full), runner);
+    }
+
+    /**
+     * The report of the latest completed run per direction.
+     */
+    public Map<Direction, SyncReport> lastReports() {
+        return Map.copyOf(lastReports);
+    }
+
+    /**
+     * Pushes Firestore quota changes to Notion.
+     */
+    public synchronized SyncReport syncToNotion(boolean full) {
+        long started = System.nanoTime();
+        Instant runStart = Instant.now();
+        Instant since = full ? null : readWatermark(Direction.TO_NOTION);
+
+        List<QuotaService.UserQuotaWrapper> candidates;
+        try {
+            candidates = since == null ? quotaService.findAll()
+                    : quotaService.findUpdatedSince(toTimestamp(since.minus(watermarkOverlap)));
+        } catch (Exception e) {
+            log.error("Failed to read changed quotas from Firestore", e);
+            return report(Direction.TO_NOTION, full, 0, 0, 1, started, since);
+        }
+
+        Counters counters = new Counters();
+        List<QuotaService.UserQuotaWrapper> pushes = candidates.stream()
+                .filter(wrapper -> {
+                    boolean unchanged = wrapper.quota() == null
+                            || hashOf(wrapper.quota()).equals(pageIndex.syncedHash(wrapper.userId()));
+                    if (unchanged) {
+                        counters.skipped.incrementAndGet();
+                    }
+                    return !unchanged;
+                })
+                .toList();
+
+        // The current Notion rows, to avoid overwriting an edit made in Notion after the Firestore update
+        Map<String, NotionQuotaService.QuotaData> rows;
+        try {
+            List<NotionQuotaService.QuotaData> read = pushes.isEmpty() ? List.of()
+                    : full ? notionQuotaService.fetchEditedSince(null)
+                    : notionQuotaService.fetchFromNotionOrFail(
+                            pushes.stream().map(QuotaService.UserQuotaWrapper::userId).toList());
+            rows = read.stream().collect(Collectors.toMap(NotionQuotaService.QuotaData::userId,
+                    Function.identity(), (first, second) -> first));
+        } catch (Exception e) {
+            log.error("Failed to read current quota rows from Notion", e);
+            return report(Direction.TO_NOTION, full, 0, counters.skipped.get(), pushes.size(), started, since);
+        }
+
+        runAll(pushes, wrapper -> () -> {
+            UserQuota quota = wrapper.quota();
+            Instant periodStart = quota.periodStart != null ? quota.periodStart.toDate().toInstant() : Instant.now();
+            String hash = hashOf(quota);
+            NotionQuotaService.QuotaData row = rows.get(wrapper.userId());
+            if (row != null) {
+                String notionHash = NotionPageIndex.quotaHash(row.usageCount(), row.plan(), row.lastReset());
+                if (notionHash.equals(hash)) {
+                    pageIndex.recordSyncedHash(wrapper.userId(), hash);
+                    counters.skipped.incrementAndGet();
+                    return;
+                }
+                // Notion was edited since the last sync and the edit is not older than the Firestore update
+                if (!notionHash.equals(pageIndex.syncedHash(wrapper.userId())) && row.lastEditedTime() != null
+                        && quota.updatedAt != null && !isFirestoreNewer(quota, row)) {
+                    log.debug("Skipping push of user {}: Notion holds the newer edit", wrapper.userId());
+                    counters.skipped.incrementAndGet();
+                    return;
+                }
+            }
+            try {
+                notionQuotaService.upsertQuotaPage(wrapper.userId(), quota.quotaUsed, quota.getPlanType(),
+                        periodStart);
+                counters.changed.incrementAndGet();
+            } catch (Exception e) {
+                counters.failed.incrementAndGet();
+                log.warn("Failed to push quota of user {} to Notion", wrapper.userId(), e);
+            }
+        });
+
+        return finish(Direction.TO_NOTION, full, counters, started, since, runStart);
+    }
+
+    /**
+     * Pulls Notion quota edits into Firestore. A Notion row only wins when it was edited after the
+     * Firestore document was last updated.
+     */
+    public synchronized SyncReport syncFromNotion(boolean full) {
+        long started = System.nanoTime();
+        Instant runStart = Instant.now();
+        Instant since = full ? null : readWatermark(Direction.FROM_NOTION);
+
+        List<NotionQuotaService.QuotaData> rows;
+        Map<String, QuotaService.UserQuotaWrapper> current;
+        try {
+            rows = notionQuotaService.fetchEditedSince(since == null ? null : since.minus(watermarkOverlap));
+            current = quotaService.findByIds(rows.stream().map(NotionQuotaService.QuotaData::userId).toList())
+                    .stream()
+                    .collect(Collectors.toMap(QuotaService.UserQuotaWrapper::userId, Function.identity(),
+                            (first, second) -> first));
+        } catch (Exception e) {
+            log.error("Failed to read edited quotas from Notion", e);
+            return report(Direction.FROM_NOTION, full, 0, 0, 1, started, since);
+        }
+
+        Counters counters = new Counters();
+        runAll(rows, row -> () -> {
+            String hash = NotionPageIndex.quotaHash(row.usageCount(), row.plan(), row.lastReset());
+            QuotaService.UserQuotaWrapper wrapper = current.get(row.userId());
+            UserQuota quota = wrapper != null ? wrapper.quota() : null;
+
+            if (quota != null) {
+                Instant periodStart = quota.periodStart != null ? quota.periodStart.toDate().toInstant() : null;
+                if (hash.equals(NotionPageIndex.quotaHash(quota.quotaUsed, quota.getPlanType(), periodStart))) {
+                    pageIndex.recordSyncedHash(row.userId(), hash);
+                    counters.skipped.incrementAndGet();
+                    return;
+                }
+                if (isFirestoreNewer(quota, row)) {
+                    log.debug("Skipping Notion row of user {}: Firestore holds the newer edit", row.userId());
+                    counters.skipped.incrementAndGet();
+                    return;
+                }
+            }
+            try {
+                quotaService.applyFromNotion(row);
+                pageIndex.recordSyncedHash(row.userId(), hash);
+                counters.changed.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                counters.failed.incrementAndGet();
+            } catch (Exception e) {
+                counters.failed.incrementAndGet();
+                log.warn("Failed to pull quota of user {} from Notion", row.userId(), e);
+            }
+        });
+
+        return finish(Direction.FROM_NOTION, full, counters, started, since, runStart);
+    }
+
+    /**
+     * Whether the Firestore update is newer than the Notion edit. Notion truncates {@code last_edited_time}
+     * to the minute, so the edit may have happened up to a minute after the reported time.
+     */
+    static boolean isFirestoreNewer(UserQuota quota, NotionQuotaService.QuotaData row) {
+        if (quota.updatedAt == null || row.lastEditedTime() == null) {
+            return false;
+        }
+        return !quota.updatedAt.toDate().toInstant().isBefore(row.lastEditedTime().plus(NOTION_EDIT_PRECISION));
+    }
+
+    private static String hashOf(UserQuota quota) {
+        Instant periodStart = quota.periodStart != null ? quota.periodStart.toDate().toInstant() : Instant.now();
+        return NotionPageIndex.quotaHash(quota.quotaUsed, quota.getPlanType(), periodStart);
+    }
+
+    private <T> void runAll(List<T> items, Function<T, Runnable> task) {
+        CompletableFuture<?>[] futures = items.stream()
+                .map(item -> CompletableFuture.runAsync(task.apply(item), executor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+    }
+
+    private SyncReport finish(Direction direction, boolean full, Counters counters, long started, Instant since,
+            Instant runStart) {
+        // Failed records must be seen again, so the watermark only moves after a clean run
+        Instant watermark = since;
+        if (counters.failed.get() == 0) {
+            writeWatermark(direction, runStart);
+            watermark = runStart;
+        }
+        return report(direction, full, counters.changed.get(), counters.skipped.get(), counters.failed.get(),
+                started, watermark);
+    }
+
+    private SyncReport report(Direction direction, boolean full, int changed, int skipped, int failed, long started,
+            Instant watermark) {
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        log.info("Quota sync {} ({}): changed={}, skipped={}, failed={} in {} ms", direction,
+                full ? "full" : "incremental", changed, skipped, failed, durationMs);
+        SyncReport report = new SyncReport(direction, full, changed, skipped, failed, durationMs, watermark);
+        lastReports.put(direction, report);
+        return report;
+    }
+
+    Instant readWatermark(Direction direction) {
+        try {
+            DocumentSnapshot doc = firestore.collection(STATE_COLLECTION).document(direction.stateDocument).get().get();
+            Timestamp watermark = doc.exists() ? doc.getTimestamp(WATERMARK_FIELD) : null;
+            return watermark != null ? watermark.toDate().toInstant() : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to read {} watermark; running a full sync", direction, e);
+        }
+        return null;
+    }
+
+    private void writeWatermark(Direction direction, Instant watermark) {
+        try {
+            firestore.collection(STATE_COLLECTION).document(direction.stateDocument)
+                    .set(Map.of(WATERMARK_FIELD, toTimestamp(watermark), "updatedAt", Timestamp.now())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to store {} watermark", direction, e);
+        }
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+    }
+
+    private static final class Counters {
+        final AtomicInteger changed = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+    }
+}
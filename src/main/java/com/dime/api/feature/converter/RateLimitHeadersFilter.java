@@ -0,0 +1,32 @@
+package com.dime.api.feature.converter;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Adds {@code RateLimit-*} headers (IETF draft) to every response whose request went through the
+ * {@link ConversionRateLimiter}, including error responses produced by exception mappers.
+ */
+@Provider
+public class RateLimitHeadersFilter implements ContainerResponseFilter {
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Object property = requestContext.getProperty(ConversionRateLimiter.DECISION_PROPERTY);
+        if (!(property instanceof ConversionRateLimiter.Decision decision)) {
+            return;
+        }
+
+        MultivaluedMap<String, Object> headers = responseContext.getHeaders();
+        headers.putSingle("RateLimit-Limit", decision.limit());
+        headers.putSingle("RateLimit-Remaining", decision.remaining());
+        headers.putSingle("RateLimit-Reset", decision.resetSeconds());
+        headers.putSingle("RateLimit-Policy", decision.perMinute() + ";w=60;burst=" + decision.limit());
+        if (!decision.allowed()) {
+            headers.putSingle("Retry-After", Math.max(1, decision.resetSeconds()));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.dime.api.feature.converter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.Transaction;
+import com.google.cloud.firestore.WriteBatch;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Distributed counter for quota documents that receive more writes than Firestore sustains on a
+ * single document (about one per second).
+ * <p>
+ * A sharded user keeps its base usage in {@code users/{id}.quotaUsed} and spreads further increments
+ * over {@code users/{id}/shards/{n}}. The effective usage is the base plus the sum of all shards; that
+ * sum is cached per instance so quota checks do not fan out to every shard on each request.
+ * <p>
+ * Each increment stamps its shard's {@code updatedAt}, so incremental syncs find users whose usage
+ * changed through a collection-group query on the shards without writing the hot user document.
+ * Resets run inside the caller's transaction, which reads the shards first: increments racing a reset
+ * then land either before it (and are zeroed with the old period) or after it.
+ */
+@Slf4j
+@ApplicationScoped
+public class ShardedQuotaCounter {
+
+    static final String SHARDS_COLLECTION = "shards";
+    static final String COUNT_FIELD = "count";
+    static final String UPDATED_AT_FIELD = "updatedAt";
+
+    private static final long RATE_WINDOW_MS = 60_000;
+
+    @Inject
+    Firestore firestore;
+
+    @ConfigProperty(name = "quota.shards.count", defaultValue = "10")
+    int shardCount;
+
+    @ConfigProperty(name = "quota.shards.threshold-per-minute", defaultValue = "30")
+    int thresholdPerMinute;
+
+    @ConfigProperty(name = "quota.shards.aggregate-ttl", defaultValue = "PT10S")
+    Duration aggregateTtl;
+
+    // Cached shard sums, adjusted locally on every increment made by this instance
+    Cache<String, AtomicLong> aggregates;
+
+    // Shard layout learned from user documents read by this instance (0 = not sharded)
+    Cache<String, Integer> shardCounts;
+
+    // Per-user write rate over fixed one-minute windows, used to detect hot documents
+    Cache<String, WriteRate> writeRates;
+
+    @PostConstruct
+    void init() {
+        aggregates = Caffeine.newBuilder()
+                .expireAfterWrite(aggregateTtl)
+                .maximumSize(10_000)
+                .build();
+        shardCounts = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofHours(1))
+                .maximumSize(10_000)
+                .build();
+        writeRates = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(5))
+                .maximumSize(10_000)
+                .build();
+    }
+
+    /**
+     * Shard count to use when a user is promoted to the sharded layout.
+     */
+    public int configuredShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Records the shard layout found on a freshly read user document.
+     */
+    public void remember(String userId, int shards) {
+        shardCounts.put(userId, Math.max(0, shards));
+    }
+
+    /**
+     * Returns the shard count last seen for the user, or 0 when unknown or not sharded.
+     */
+    public int knownShardCount(String userId) {
+        Integer shards = shardCounts.getIfPresent(userId);
+        return shards != null ? shards : 0;
+    }
+
+    /**
+     * Registers one write for the user and returns {@code true} once the user's write rate crosses
+     * the configured threshold within the current one-minute window.
+     */
+    public boolean recordWrite(String userId) {
+        WriteRate rate = writeRates.get(userId, k -> new WriteRate());
+        return rate.increment(System.currentTimeMillis()) > thresholdPerMinute;
+    }
+
+    /**
+     * Adds one to a randomly chosen shard as part of {@code batch}, which is committed here so other
+     * writes can share the shard increment's commit. No transaction is needed: shard writes are spread
+     * across {@code shards} documents and {@link FieldValue#increment(long)} is applied atomically
+     * server-side.
+     */
+    public void increment(DocumentReference userDoc, int shards, WriteBatch batch)
+            throws ExecutionException, InterruptedException {
+        int shard = ThreadLocalRandom.current().nextInt(shards);
+        batch.set(userDoc.collection(SHARDS_COLLECTION).document(String.valueOf(shard)),
+                incrementFields(), SetOptions.merge());
+        batch.commit().get();
+
+        AtomicLong cached = aggregates.getIfPresent(userDoc.getId());
+        if (cached != null) {
+            cached.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the sum of all shards, served from the per-instance aggregate while it is fresh.
+     */
+    public long sum(DocumentReference userDoc) {
+        return aggregates.get(userDoc.getId(), id -> new AtomicLong(sumShards(userDoc))).get();
+    }
+
+    /**
+     * Zeroes every shard within {@code transaction}, together with the caller's write of the new base
+     * usage. The shards are read first so that concurrent increments serialize with the reset; call it
+     * after the transaction's other reads and before its writes, then {@link #afterReset} once committed.
+     */
+    public void reset(Transaction transaction, DocumentReference userDoc, int shards)
+            throws ExecutionException, InterruptedException {
+        List<DocumentReference> refs = IntStream.range(0, shards)
+                .mapToObj(shard -> userDoc.collection(SHARDS_COLLECTION).document(String.valueOf(shard)))
+                .toList();
+        transaction.getAll(refs.toArray(DocumentReference[]::new)).get();
+        for (DocumentReference ref : refs) {
+            transaction.set(ref, Map.of(COUNT_FIELD, 0L, UPDATED_AT_FIELD, FieldValue.serverTimestamp()));
+        }
+    }
+
+    /**
+     * Drops the cached shard sum once a {@link #reset} has been committed.
+     */
+    public void afterReset(DocumentReference userDoc, int shards) {
+        aggregates.invalidate(userDoc.getId());
+        log.info("Reset {} quota shards for user {}", shards, userDoc.getId());
+    }
+
+    private static Map<String, Object> incrementFields() {
+        return Map.of(COUNT_FIELD, FieldValue.increment(1), UPDATED_AT_FIELD, FieldValue.serverTimestamp());
+    }
+
+    private long sumShards(DocumentReference userDoc) {
+        try {
+            long total = 0;
+            for (DocumentSnapshot shard : userDoc.collection(SHARDS_COLLECTION).get().get().getDocuments()) {
+                Long count = shard.getLong(COUNT_FIELD);
+                total += count != null ? count : 0;
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while summing quota shards for " + userDoc.getId(), e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to sum quota shards for " + userDoc.getId(), e);
+        }
+    }
+
+    static final class WriteRate {
+        private final AtomicLong windowStart = new AtomicLong();
+        private final AtomicInteger count = new AtomicInteger();
+
+        int increment(long now) {
+            long start = windowStart.get();
+            if (now - start >= RATE_WINDOW_MS && windowStart.compareAndSet(start, now)) {
+                count.set(0);
+            }
+            return count.incrementAndGet();
+        }
+    }
+}
@@ -2,35 +2,78 @@ package com.dime.api.feature.converter;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.benmanes.caffeine.cache.LoadingCache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.dime.api.feature.notion.NotionClient;
+import com.dime.api.feature.notion.NotionDatabaseReader;
 import com.dime.api.feature.shared.BearerTokenUtil;
-import com.dime.api.feature.shared.FirestoreCacheService;
+import com.dime.api.feature.shared.cache.TieredCacheManager;
+import com.google.cloud.firestore.DocumentReference;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
-
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Usage tracking.
+ * <p>
+ * Events are captured on the request path into a bounded {@link UsageEventBuffer}. A background drainer
+ * stores them in Firestore ({@link UsageEventStore}, the store of record), and a scheduled exporter
+ * mirrors stored events to the Notion tracking database for the human dashboard. Without Firestore the
+ * drainer writes to Notion directly and puts events Notion failed to take back into the buffer. Every
+ * page carries the ID of its event (or summary) as an idempotency key. The
+ * buffer is flushed on shutdown; with the {@code spill} overflow policy, whatever does not make it in
+ * time is written straight to Firestore, or to a local file without Firestore.
+ * <p>
+ * With {@code tracking.notion.mode=aggregated}, Notion receives one summary page per user, action,
+ * status and domain per {@code tracking.notion.aggregation-window} instead of one page per event.
+ * <p>
+ * Conversion statistics are kept as running counters in {@link ConversionStatistics}; the tracking
+ * database is only re-summed by the periodic reconcile job.
+ */
 @Slf4j
 @ApplicationScoped
 public class TrackingService {
 
     private static final int MAX_ERROR_MESSAGE_LENGTH = 2000;
+    private static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("outcome");
+    private static final Duration WINDOW_GRACE = Duration.ofMinutes(1);
 
     @Inject
     @RestClient
     NotionClient notionClient;
 
+    @Inject
+    NotionDatabaseReader notionDatabaseReader;
+
     @Inject
     ObjectMapper objectMapper;
 
@@ -47,26 +90,164 @@ public class TrackingService {
     Optional<String> assignedUserId;
 
     @Inject
-    FirestoreCacheService firestoreCacheService;
+    ConversionStatistics conversionStatistics;
+
+    @Inject
+    UsageEventStore usageEventStore;
+
+    @Inject
+    OpenTelemetry openTelemetry;
+
+    @Inject
+    TieredCacheManager cacheManager;
+
+    @ConfigProperty(name = "tracking.buffer.capacity", defaultValue = "1000")
+    int bufferCapacity;
+
+    // drop-oldest or spill
+    @ConfigProperty(name = "tracking.buffer.overflow", defaultValue = "drop-oldest")
+    String bufferOverflow;
+
+    @ConfigProperty(name = "tracking.buffer.spill-file", defaultValue = "tracking-events.spill.jsonl")
+    String spillFile;
+
+    @ConfigProperty(name = "tracking.buffer.batch-size", defaultValue = "25")
+    int batchSize;
+
+    @ConfigProperty(name = "tracking.buffer.interval", defaultValue = "PT2S")
+    Duration drainInterval;
+
+    // Shares Cloud Run's 10s termination grace period with the other shutdown flushes
+    @ConfigProperty(name = "tracking.buffer.shutdown-timeout", defaultValue = "PT3S")
+    Duration shutdownTimeout;
+
+    @ConfigProperty(name = "tracking.export.batch-size", defaultValue = "50")
+    int exportBatchSize;
+
+    // How long an exporter's claim keeps other exporters off the events, e.g. across a lease handover
+    @ConfigProperty(name = "tracking.export.claim-lease", defaultValue = "PT2M")
+    Duration exportClaimLease;
+
+    // per-event or aggregated
+    @ConfigProperty(name = "tracking.notion.mode", defaultValue = "per-event")
+    String notionMode;
+
+    @ConfigProperty(name = "tracking.notion.aggregation-window", defaultValue = "PT5M")
+    Duration aggregationWindow;
 
-    LoadingCache<String, Statistics> statisticsCache;
+    // Open summaries held in memory without Firestore; further users and domains fold into "other"
+    @ConfigProperty(name = "tracking.notion.max-buckets", defaultValue = "500")
+    int maxBuckets;
+
+    // Pages created more recently are left out of the reconcile, so every instance has merged their counts
+    @ConfigProperty(name = "tracking.statistics.reconcile-settle", defaultValue = "PT5M")
+    Duration reconcileSettle;
+
+    UsageEventBuffer eventBuffer;
+
+    // Only set in aggregated mode
+    UsageEventAggregator aggregator;
+
+    private ScheduledExecutorService drainer;
+    private LongCounter written;
+    private LongCounter parked;
 
     @PostConstruct
-    void initCaches() {
-        statisticsCache = Caffeine.newBuilder()
-                .refreshAfterWrite(Duration.ofMinutes(5))
-                .expireAfterWrite(Duration.ofHours(1))
-                .build(key -> fetchStatistics());
+    void init() {
+        initBuffer();
+        drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tracking-drainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        drainer.scheduleWithFixedDelay(this::drainSafely, drainInterval.toMillis(), drainInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        registerMetrics();
+    }
+
+    void initBuffer() {
+        UsageEventBuffer.OverflowPolicy policy = UsageEventBuffer.OverflowPolicy
+                .valueOf(bufferOverflow.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        // Spilled events go straight to the store of record, which outlives the instance
+        UsageEventBuffer.Spill spill = isStoreAvailable()
+                ? events -> usageEventStore.write(List.copyOf(events)).isEmpty()
+                : new UsageEventBuffer.FileSpill(Path.of(spillFile), objectMapper);
+        eventBuffer = new UsageEventBuffer(bufferCapacity, policy, spill);
+        aggregator = "aggregated".equalsIgnoreCase(notionMode)
+                ? new UsageEventAggregator(aggregationWindow, maxBuckets)
+                : null;
+        log.info("Tracking buffer initialized: capacity {}, overflow {}, batch size {}, Notion mode {}",
+                bufferCapacity, policy, batchSize, aggregator != null ? "aggregated" : "per-event");
+    }
+
+    private void registerMetrics() {
+        if (openTelemetry == null)
+            return;
+        Meter meter = openTelemetry.getMeter("com.dime.api");
+        meter.gaugeBuilder("tracking.buffer.depth")
+                .setDescription("Usage events waiting to be written to Notion")
+                .ofLongs()
+                .buildWithCallback(measurement -> measurement.record(eventBuffer.size()));
+        meter.counterBuilder("tracking.buffer.dropped")
+                .setDescription("Usage events discarded because the tracking buffer was full")
+                .buildWithCallback(measurement -> measurement.record(eventBuffer.dropped()));
+        meter.gaugeBuilder("tracking.buffer.spilled")
+                .setDescription("Usage events currently spilled to the local overflow file and not replayed yet")
+                .ofLongs()
+                .buildWithCallback(measurement -> measurement.record(eventBuffer.spilled()));
+        written = meter.counterBuilder("tracking.events.written")
+                .setDescription("Usage events written to the Notion tracking database")
+                .build();
+        parked = meter.counterBuilder("tracking.events.parked")
+                .setDescription("Stored usage events taken out of the Notion export because Notion rejected their page")
+                .build();
     }
 
     private boolean isEnabled() {
         return notionToken.isPresent() && trackingDbId.isPresent();
     }
 
+    private boolean isStoreAvailable() {
+        return usageEventStore != null && usageEventStore.isAvailable();
+    }
+
     public void logConversion(String userId, int fileCount, String domain, int eventCount, long duration) {
+        conversionStatistics.record(fileCount, eventCount);
         logEvent("conversion", userId, "Success", fileCount, eventCount, duration, null, domain);
     }
 
+    /**
+     * Delivers a conversion recorded in the {@link ConversionOutbox}. The usage event is stored under
+     * the outbox entry ID and the conversion is counted in the same transaction, only when the event is
+     * new, so redelivering the same entry neither duplicates the event nor counts it twice. Failures
+     * propagate so the relay retries.
+     */
+    void deliverConversion(ConversionOutbox.Entry entry) {
+        UsageEventBuffer.UsageEvent event = new UsageEventBuffer.UsageEvent(entry.id(), "conversion",
+                entry.userId(), "Success", entry.fileCount(), entry.eventCount(), entry.duration(), null,
+                entry.domain(), entry.createdAt().toString());
+        if (!isStoreAvailable()) {
+            if (isEnabled()) {
+                eventBuffer.offer(event);
+            }
+            conversionStatistics.record(entry.fileCount(), entry.eventCount());
+            return;
+        }
+        boolean created;
+        try {
+            created = usageEventStore.createOnce(event, transaction -> conversionStatistics.increment(transaction,
+                    entry.id(), entry.fileCount(), entry.eventCount()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while storing usage event " + entry.id(), e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to store usage event " + entry.id(), e.getCause());
+        }
+        if (created) {
+            conversionStatistics.recordStored(entry.fileCount(), entry.eventCount());
+        }
+    }
+
     public void logConversionError(String userId, int fileCount, String errorMessage, long duration, String domain) {
         logEvent("conversion", userId, "Error", fileCount, 0, duration, errorMessage, domain);
     }
@@ -78,28 +259,353 @@ public class TrackingService {
 
     private void logEvent(String action, String userId, String status, int fileCount, int eventCount, long duration,
             String errorMessage, String domain) {
-        if (!isEnabled()) {
+        if (!isEnabled() && !isStoreAvailable()) {
             log.debug("Tracking disabled: Notion token or DB ID missing");
             return;
         }
+        eventBuffer.offer(new UsageEventBuffer.UsageEvent(UUID.randomUUID().toString(), action, userId, status, fileCount, eventCount, duration,
+                errorMessage, domain, Instant.now().toString()));
+    }
+
+    private void drainSafely() {
+        try {
+            while (drainBatch() > 0) {
+                // Paced by the shared Notion rate limiter at background priority
+            }
+            if (aggregator != null && !isStoreAvailable()) {
+                writeSummaries(aggregator.drainClosed(System.currentTimeMillis()));
+            }
+        } catch (Exception e) {
+            log.warn("Tracking drainer failed (non-blocking)", e);
+        }
+    }
+
+    /**
+     * Stores up to one batch of buffered events and returns the number of events taken. Returns 0 when
+     * Firestore or Notion failed to take events, which go back into the buffer for the next pass.
+     */
+    int drainBatch() {
+        return drainBatch(batchSize);
+    }
+
+    private int drainBatch(int max) {
+        List<UsageEventBuffer.UsageEvent> batch = eventBuffer.drain(max);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        if (isStoreAvailable()) {
+            return storeBatch(batch);
+        }
+        if (aggregator != null) {
+            // Written as summaries once their window has closed
+            batch.forEach(aggregator::add);
+            return batch.size();
+        }
+        int written = 0;
+        int rejected = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            PageWrite result = writeEvent(batch.get(i));
+            if (result == PageWrite.FAILED) {
+                // Notion is unavailable: keep the rest for the next pass rather than failing each event
+                batch.subList(i, batch.size()).forEach(eventBuffer::offer);
+                log.info("Logged {} usage events to Notion ({} rejected, {} to retry)", written, rejected,
+                        batch.size() - i);
+                return 0;
+            }
+            if (result == PageWrite.WRITTEN) {
+                written++;
+            } else {
+                rejected++;
+            }
+        }
+        log.info("Logged {} usage events to Notion ({} rejected)", written, rejected);
+        return batch.size();
+    }
+
+    private int storeBatch(List<UsageEventBuffer.UsageEvent> batch) {
+        List<UsageEventBuffer.UsageEvent> failed;
+        try {
+            failed = usageEventStore.write(batch);
+        } catch (Exception e) {
+            log.warn("Failed to store {} usage events in Firestore", batch.size(), e);
+            failed = batch;
+        }
+        failed.forEach(eventBuffer::offer);
+        log.debug("Stored {} usage events ({} to retry)", batch.size() - failed.size(), failed.size());
+        return failed.isEmpty() ? batch.size() : 0;
+    }
+
+    /**
+     * Mirrors stored events to the Notion tracking database. Stops at the first failed write, so a
+     * Notion outage costs one attempt per run; the events stay pending in Firestore. An event whose page
+     * Notion rejects is parked with an {@code exportError} and the export goes on with the next one.
+     * <p>
+     * Only the holder of the cache refresh lease exports, and it claims the events in Firestore first,
+     * so an instance taking over the lease does not export them again. An event claimed before may
+     * already have its page, when marking it exported failed; its page is looked up by event ID
+     * before a new one is created.
+     */
+    @Scheduled(every = "${tracking.export.interval:30s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void exportToNotion() {
+        if (!isEnabled() || !isStoreAvailable() || (cacheManager != null && !cacheManager.isRefreshLeader())) {
+            return;
+        }
+        if (aggregator != null) {
+            exportSummaries();
+            return;
+        }
+
+        List<UsageEventStore.PendingExport> pending;
+        try {
+            pending = usageEventStore.claimForExport(usageEventStore.pendingExport(exportBatchSize),
+                    exportClaimLease);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            log.warn("Failed to read usage events pending export", e);
+            return;
+        }
+
+        int exported = 0;
+        int rejected = 0;
+        for (UsageEventStore.PendingExport export : pending) {
+            PageWrite result = exportPage(export.event(), null, export.attempted());
+            if (result == PageWrite.FAILED) {
+                break;
+            }
+            try {
+                if (result == PageWrite.WRITTEN) {
+                    usageEventStore.markExported(export.reference());
+                    exported++;
+                } else {
+                    park(List.of(export.reference()));
+                    rejected++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                // The event stays pending and is looked up again on the next run
+                log.warn("Failed to mark usage event {} as exported", export.event().id(), e);
+            }
+        }
+        if (exported > 0 || rejected > 0) {
+            log.info("Exported {} usage events to Notion ({} rejected, {} pending)", exported, rejected,
+                    pending.size() - exported - rejected);
+        }
+    }
+
+    /**
+     * Takes events whose page Notion rejected out of the export, so they do not hold back the ones after.
+     */
+    private void park(List<DocumentReference> references) throws ExecutionException, InterruptedException {
+        usageEventStore.markRejected(references, "Rejected by Notion");
+        if (parked != null) {
+            parked.add(references.size());
+        }
+        log.warn("Parked {} usage events rejected by Notion (exportError set in Firestore)", references.size());
+    }
+
+    /**
+     * Exports closed windows oldest first, each as a whole: every pending event of the window is read
+     * and folded, so a bucket becomes a single page. Stops after {@code tracking.export.batch-size} pages,
+     * at the first failed write, or at a window that has not closed yet; a rejected bucket is parked and
+     * the export goes on.
+     */
+    private void exportSummaries() {
+        int pages = 0;
+        int events = 0;
+        int rejected = 0;
+        try {
+            // Rejected buckets count towards the batch too, each having cost a Notion call
+            while (pages + rejected < exportBatchSize) {
+                List<UsageEventStore.PendingExport> oldest = usageEventStore.pendingExport(1);
+                if (oldest.isEmpty()) {
+                    break;
+                }
+                long windowStart = aggregator.windowStart(Instant.parse(oldest.get(0).event().timestamp())
+                        .toEpochMilli());
+                Instant windowEnd = Instant.ofEpochMilli(aggregator.windowEnd(windowStart));
+                // Leaves time for events of the window still being stored by another instance's drainer
+                if (windowEnd.plus(WINDOW_GRACE).isAfter(Instant.now())) {
+                    break;
+                }
+                List<UsageEventStore.PendingExport> window = usageEventStore.claimForExport(
+                        usageEventStore.pendingExport(Instant.ofEpochMilli(windowStart), windowEnd), exportClaimLease);
+                if (window.isEmpty()) {
+                    // Claimed by another exporter
+                    break;
+                }
+                int[] written = exportWindow(window);
+                pages += written[0];
+                events += written[1];
+                rejected += written[2];
+                if (written[1] < window.size()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to read usage events pending export", e);
+        }
+        if (pages > 0 || rejected > 0) {
+            log.info("Exported usage events to Notion as {} summary pages, {} rejected ({} events)", pages, rejected,
+                    events);
+        }
+    }
+
+    /**
+     * Writes one summary page per bucket of {@code window} and marks the folded events as exported; the
+     * events of a bucket whose page Notion rejects are parked. Returns the pages written, the events
+     * marked or parked and the buckets rejected.
+     */
+    private int[] exportWindow(List<UsageEventStore.PendingExport> window) {
+        int[] written = new int[3];
+        for (UsageEventAggregator.Summary<UsageEventStore.PendingExport> summary : aggregator.fold(window,
+                UsageEventStore.PendingExport::event)) {
+            String id = summaryId(summary);
+            boolean attempted = summary.members.stream().anyMatch(UsageEventStore.PendingExport::attempted);
+            PageWrite result = exportPage(summary.toEvent(id), summary.occurrences, attempted);
+            if (result == PageWrite.FAILED) {
+                break;
+            }
+            List<DocumentReference> members = summary.members.stream()
+                    .map(UsageEventStore.PendingExport::reference)
+                    .toList();
+            try {
+                if (result == PageWrite.WRITTEN) {
+                    usageEventStore.markExported(members);
+                    written[0]++;
+                } else {
+                    park(members);
+                    written[2]++;
+                }
+                written[1] += members.size();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.warn("Failed to mark {} usage events as exported", summary.members.size(), e);
+                break;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Writes summaries until Notion fails; the failed summary and the ones after it go back to the
+     * aggregator for the next run. Returns the number of summaries not written.
+     */
+    private int writeSummaries(List<UsageEventAggregator.Summary<Void>> summaries) {
+        int written = 0;
+        for (int i = 0; i < summaries.size(); i++) {
+            if (writeSummary(summaries.get(i)) == PageWrite.FAILED) {
+                summaries.subList(i, summaries.size()).forEach(aggregator::restore);
+                log.info("Logged {} usage summaries to Notion ({} to retry)", written, summaries.size() - i);
+                return summaries.size() - i;
+            }
+            written++;
+        }
+        if (!summaries.isEmpty()) {
+            log.info("Logged {} usage summaries to Notion", written);
+        }
+        return 0;
+    }
+
+    private PageWrite writeSummary(UsageEventAggregator.Summary<?> summary) {
+        return writePage(summary.toEvent(null), summary.occurrences);
+    }
+
+    /**
+     * Idempotency key of an exported summary, derived from the events folded into it.
+     */
+    private static String summaryId(UsageEventAggregator.Summary<UsageEventStore.PendingExport> summary) {
+        String members = summary.members.stream().map(export -> export.event().id()).sorted()
+                .collect(Collectors.joining(","));
+        return UUID.nameUUIDFromBytes(members.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Writes the page of an exported event, unless an earlier attempt already created it: the page is
+     * then looked up by event ID first. A lookup Notion refuses for good (an {@code Event ID} property
+     * missing from the tracking database) rejects the page like a refused write.
+     */
+    private PageWrite exportPage(UsageEventBuffer.UsageEvent event, Long occurrences, boolean attempted) {
+        if (attempted) {
+            try {
+                if (pageExists(event.id())) {
+                    return PageWrite.WRITTEN;
+                }
+            } catch (WebApplicationException e) {
+                int status = e.getResponse().getStatus();
+                log.warn("Failed to look up tracking page of event {} (HTTP {})", event.id(), status, e);
+                return isRetryable(status) ? PageWrite.FAILED : PageWrite.REJECTED;
+            } catch (Exception e) {
+                log.warn("Failed to look up tracking page of event {}", event.id(), e);
+                return PageWrite.FAILED;
+            }
+        }
+        return writePage(event, occurrences);
+    }
+
+    /**
+     * Whether the tracking database has a page with {@code eventId}.
+     */
+    private boolean pageExists(String eventId) {
+        ObjectNode query = objectMapper.createObjectNode();
+        ObjectNode filter = query.putObject("filter");
+        filter.put("property", "Event ID");
+        filter.putObject("rich_text").put("equals", eventId);
+        query.put("page_size", 1);
+        JsonNode result = notionClient.queryDatabase(BearerTokenUtil.ensureBearer(notionToken.get()),
+                notionVersion, trackingDbId.get(), query);
+        return result != null && result.path("results").size() > 0;
+    }
 
+    private static boolean isRetryable(int status) {
+        return status >= 500 || status == 408 || status == 409 || status == 429;
+    }
+
+    private PageWrite writeEvent(UsageEventBuffer.UsageEvent event) {
+        return writePage(event, null);
+    }
+
+    /**
+     * Outcome of a page write. {@code REJECTED} pages were refused for their content and would be
+     * refused again, so they are not retried.
+     */
+    enum PageWrite {
+        WRITTEN, REJECTED, FAILED
+    }
+
+    /**
+     * Creates one tracking page; {@code occurrences} is only set for aggregated summaries.
+     */
+    private PageWrite writePage(UsageEventBuffer.UsageEvent event, Long occurrences) {
         try {
             ObjectNode parent = objectMapper.createObjectNode();
             parent.put("type", "database_id");
             parent.put("database_id", trackingDbId.get());
 
             ObjectNode properties = objectMapper.createObjectNode();
-            addTitleProperty(properties, "Action", action);
-            addRichTextProperty(properties, "User ID", userId);
-            addDateProperty(properties, "Timestamp", Instant.now().toString());
-            addSelectProperty(properties, "Status", status);
-
-            if (domain != null)
-                addRichTextProperty(properties, "Domain", domain);
-            addNumberProperty(properties, "File Count", fileCount);
-            addNumberProperty(properties, "Event Count", eventCount);
-            addNumberProperty(properties, "Duration (ms)", duration);
-
+            addTitleProperty(properties, "Action", event.action());
+            if (event.id() != null)
+                addRichTextProperty(properties, "Event ID", event.id());
+            addRichTextProperty(properties, "User ID", event.userId());
+            addDateProperty(properties, "Timestamp", event.timestamp());
+            addSelectProperty(properties, "Status", event.status());
+
+            if (event.domain() != null)
+                addRichTextProperty(properties, "Domain", event.domain());
+            addNumberProperty(properties, "File Count", event.fileCount());
+            addNumberProperty(properties, "Event Count", event.eventCount());
+            addNumberProperty(properties, "Duration (ms)", event.duration());
+            if (occurrences != null)
+                addNumberProperty(properties, "Occurrences", occurrences);
+
+            String errorMessage = event.errorMessage();
             if (errorMessage != null) {
                 String truncatedError = errorMessage.length() > MAX_ERROR_MESSAGE_LENGTH
                         ? errorMessage.substring(0, MAX_ERROR_MESSAGE_LENGTH)
@@ -117,26 +623,104 @@ public class TrackingService {
             page.set("properties", properties);
 
             notionClient.createPage(BearerTokenUtil.ensureBearer(notionToken.get()), notionVersion, page);
-            log.info("Logged usage event: {} for user {}", action, userId);
-
+            log.debug("Logged usage event: {} for user {}", event.action(), event.userId());
+            record("success");
+            return PageWrite.WRITTEN;
+
+        } catch (WebApplicationException e) {
+            int status = e.getResponse().getStatus();
+            boolean retryable = isRetryable(status);
+            log.error("Failed to log usage event to Notion (HTTP {}): {}", status, e.getMessage(), e);
+            record(retryable ? "failure" : "rejected");
+            return retryable ? PageWrite.FAILED : PageWrite.REJECTED;
         } catch (Exception e) {
             log.error("Failed to log usage event to Notion: {}", e.getMessage(), e);
+            record("failure");
+            return PageWrite.FAILED;
+        }
+    }
+
+    private void record(String outcome) {
+        if (written != null) {
+            written.add(1, Attributes.of(OUTCOME, outcome));
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        flush(shutdownTimeout);
+    }
+
+    /**
+     * Writes buffered events synchronously until the buffer is empty or the timeout elapses. Events left
+     * over are spilled when the overflow policy allows it.
+     */
+    public void flush(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        // Notion writes are paced at a few per second, so check the deadline after each one
+        int max = isStoreAvailable() ? batchSize : 1;
+        int flushed = 0;
+        int taken;
+        while (System.nanoTime() < deadline && (taken = drainBatch(max)) > 0) {
+            flushed += taken;
+        }
+        int lost = 0;
+        if (aggregator != null && !isStoreAvailable()) {
+            // Summaries cannot be spilled as events without losing their occurrences
+            lost += writeSummaries(aggregator.drainAll());
+        }
+        lost += eventBuffer.spillRemaining();
+        if (lost > 0) {
+            log.warn("Tracking flush dropped {} usage events or summaries", lost);
+        } else if (flushed > 0) {
+            log.info("Flushed {} buffered usage events", flushed);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (drainer != null) {
+            drainer.shutdownNow();
         }
     }
 
     public Statistics getStatistics() {
-        return statisticsCache.get("default");
+        return conversionStatistics.current();
     }
 
     public void warmFromFirestore() {
-        if (firestoreCacheService == null) return;
-        firestoreCacheService.read("statistics", Statistics.class)
-                .ifPresent(stats -> statisticsCache.put("default", stats));
+        conversionStatistics.load();
+    }
+
+    /**
+     * Re-sums the tracking database and lets {@link ConversionStatistics} correct its totals. This is the
+     * only full read of the tracking database, so it runs rarely and only on the holder of the cache
+     * refresh lease.
+     * <p>
+     * A conversion is counted before its page is created, so pages created {@code
+     * tracking.statistics.reconcile-settle} ago have had their counts merged by every instance. Summing
+     * only those pages keeps conversions still held as deltas by another instance from being counted
+     * twice.
+     */
+    @Scheduled(every = "${tracking.statistics.reconcile-interval:24h}", delayed = "${tracking.statistics.reconcile-delay:10m}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void reconcileStatistics() {
+        if (cacheManager != null && !cacheManager.isRefreshLeader()) {
+            return;
+        }
+        sumFromNotion(Instant.now().minus(reconcileSettle))
+                .ifPresent(stats -> conversionStatistics.reconcile(stats.fileCount(), stats.eventCount()));
+    }
+
+    Optional<Statistics> sumFromNotion() {
+        return sumFromNotion(null);
     }
 
-    private Statistics fetchStatistics() {
+    /**
+     * Sums successful conversions over the pages created at or before {@code createdBefore}, or over all
+     * pages when it is null.
+     */
+    Optional<Statistics> sumFromNotion(Instant createdBefore) {
         if (!isEnabled()) {
-            return new Statistics(0, 0);
+            return Optional.empty();
         }
 
         try {
@@ -151,43 +735,43 @@ public class TrackingService {
             statusFilter.put("property", "Status");
             statusFilter.putObject("select").put("equals", "Success");
 
-            JsonNode response = notionClient.queryDatabase(BearerTokenUtil.ensureBearer(notionToken.get()), notionVersion,
-                    trackingDbId.get(), filter);
-
-            int totalFileCount = 0;
-            int totalEventCount = 0;
+            if (createdBefore != null) {
+                ObjectNode createdFilter = and.addObject();
+                createdFilter.put("timestamp", "created_time");
+                createdFilter.putObject("created_time").put("on_or_before", createdBefore.toString());
+            }
 
-            if (response.has("results")) {
-                for (JsonNode page : response.get("results")) {
+            // Aggregated page by page, so only one page of results is held in memory at a time
+            long[] totals = new long[2];
+            try (Stream<JsonNode> pages = notionDatabaseReader.query(BearerTokenUtil.ensureBearer(notionToken.get()),
+                    notionVersion, trackingDbId.get(), filter)) {
+                pages.forEach(page -> {
                     JsonNode props = page.get("properties");
                     if (props != null) {
                         if (props.has("File Count")) {
-                            totalFileCount += props.get("File Count").get("number").asInt(0);
+                            totals[0] += props.get("File Count").get("number").asLong(0);
                         }
                         if (props.has("Event Count")) {
-                            totalEventCount += props.get("Event Count").get("number").asInt(0);
+                            totals[1] += props.get("Event Count").get("number").asLong(0);
                         }
                     }
-                }
+                });
             }
 
-            log.info("Fetched statistics from Notion: fileCount={}, eventCount={}", totalFileCount, totalEventCount);
-            Statistics stats = new Statistics(totalFileCount, totalEventCount);
-            if (firestoreCacheService != null) firestoreCacheService.write("statistics", stats);
-            return stats;
+            log.info("Summed statistics from Notion: fileCount={}, eventCount={}", totals[0], totals[1]);
+            return Optional.of(new Statistics(totals[0], totals[1]));
 
         } catch (Exception e) {
-            log.error("Failed to fetch statistics from Notion", e);
-            return new Statistics(0, 0);
+            log.error("Failed to sum statistics from Notion", e);
+            return Optional.empty();
         }
     }
 
-    @Schema(description = "Global conversion statistics aggregated from Notion tracking database")
+    @Schema(description = "Global conversion statistics, kept as running totals of successful conversions")
     public record Statistics(
-            @Schema(description = "Total number of image files processed in successful conversions") int fileCount,
-            @Schema(description = "Total number of calendar events generated in successful conversions") int eventCount) {
+            @Schema(description = "Total number of image files processed in successful conversions") long fileCount,
+            @Schema(description = "Total number of calendar events generated in successful conversions") long eventCount) {
     }
-
     void addTitleProperty(ObjectNode properties, String name, String content) {
         ObjectNode title = properties.putObject(name).putArray("title").addObject();
         title.putObject("text").put("content", content);
@@ -0,0 +1,170 @@
+package com.dime.api.feature.converter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Folds usage events into one summary per user, action, status and domain per time window, so the
+ * number of Notion pages follows distinct activity rather than request volume.
+ * <p>
+ * The open buckets kept in memory are capped: user IDs and domains come from requests, so once the cap
+ * is reached, events of new users or domains are counted under {@value #OTHER}.
+ */
+final class UsageEventAggregator {
+
+    static final int MAX_SAMPLE_ERRORS = 3;
+    static final String OTHER = "other";
+
+    record BucketKey(String userId, String action, String status, String domain, long windowStart) {
+    }
+
+    /**
+     * Totals of one bucket; {@code members} holds whatever the caller needs to acknowledge the folded
+     * events (e.g. their Firestore references).
+     */
+    static final class Summary<T> {
+        final BucketKey key;
+        long occurrences;
+        long fileCount;
+        long eventCount;
+        long durationSum;
+        final List<String> sampleErrors = new ArrayList<>();
+        final List<T> members = new ArrayList<>();
+
+        Summary(BucketKey key) {
+            this.key = key;
+        }
+
+        void add(UsageEventBuffer.UsageEvent event, T member) {
+            occurrences++;
+            fileCount += event.fileCount();
+            eventCount += event.eventCount();
+            durationSum += event.duration();
+            String error = event.errorMessage();
+            if (error != null && sampleErrors.size() < MAX_SAMPLE_ERRORS && !sampleErrors.contains(error)) {
+                sampleErrors.add(error);
+            }
+            if (member != null) {
+                members.add(member);
+            }
+        }
+
+        Summary<T> merge(Summary<T> other) {
+            occurrences += other.occurrences;
+            fileCount += other.fileCount;
+            eventCount += other.eventCount;
+            durationSum += other.durationSum;
+            for (String error : other.sampleErrors) {
+                if (sampleErrors.size() < MAX_SAMPLE_ERRORS && !sampleErrors.contains(error)) {
+                    sampleErrors.add(error);
+                }
+            }
+            members.addAll(other.members);
+            return this;
+        }
+
+        /**
+         * The summary as a single event stamped with the window start, for the Notion page; {@code id}
+         * becomes the page's idempotency key.
+         */
+        UsageEventBuffer.UsageEvent toEvent(String id) {
+            String errors = sampleErrors.isEmpty() ? null : String.join("\n", sampleErrors);
+            return new UsageEventBuffer.UsageEvent(id, key.action(), key.userId(), key.status(),
+                    (int) Math.min(Integer.MAX_VALUE, fileCount), (int) Math.min(Integer.MAX_VALUE, eventCount),
+                    durationSum, errors, key.domain(), Instant.ofEpochMilli(key.windowStart()).toString());
+        }
+    }
+
+    private final long windowMs;
+    private final int maxBuckets;
+    private final Map<BucketKey, Summary<Void>> open = new LinkedHashMap<>();
+
+    UsageEventAggregator(Duration window, int maxBuckets) {
+        this.windowMs = window.toMillis();
+        this.maxBuckets = maxBuckets;
+    }
+
+    long windowStart(long epochMs) {
+        return epochMs - Math.floorMod(epochMs, windowMs);
+    }
+
+    long windowEnd(long epochMs) {
+        return windowStart(epochMs) + windowMs;
+    }
+
+    /**
+     * Folds {@code items} into buckets, in order of first appearance.
+     */
+    <T> List<Summary<T>> fold(Collection<T> items, Function<T, UsageEventBuffer.UsageEvent> eventOf) {
+        Map<BucketKey, Summary<T>> buckets = new LinkedHashMap<>();
+        for (T item : items) {
+            UsageEventBuffer.UsageEvent event = eventOf.apply(item);
+            buckets.computeIfAbsent(keyOf(event), Summary::new).add(event, item);
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    /**
+     * Adds an event to the open bucket of its window.
+     */
+    synchronized void add(UsageEventBuffer.UsageEvent event) {
+        open.computeIfAbsent(bounded(keyOf(event)), Summary::new).add(event, null);
+    }
+
+    /**
+     * Puts back a drained summary that could not be written, merged with whatever its bucket received
+     * since.
+     */
+    synchronized void restore(Summary<Void> summary) {
+        BucketKey key = bounded(summary.key);
+        open.computeIfAbsent(key, Summary::new).merge(summary);
+    }
+
+    /**
+     * Removes and returns the buckets whose window ended at or before {@code nowMs}.
+     */
+    synchronized List<Summary<Void>> drainClosed(long nowMs) {
+        List<Summary<Void>> closed = new ArrayList<>();
+        Iterator<Summary<Void>> it = open.values().iterator();
+        while (it.hasNext()) {
+            Summary<Void> summary = it.next();
+            if (summary.key.windowStart() + windowMs <= nowMs) {
+                closed.add(summary);
+                it.remove();
+            }
+        }
+        return closed;
+    }
+
+    synchronized List<Summary<Void>> drainAll() {
+        List<Summary<Void>> all = new ArrayList<>(open.values());
+        open.clear();
+        return all;
+    }
+
+    synchronized int openBuckets() {
+        return open.size();
+    }
+
+    /**
+     * {@code key}, or its {@value #OTHER} bucket when it is new and the open buckets are at the cap.
+     */
+    private BucketKey bounded(BucketKey key) {
+        if (open.size() < maxBuckets || open.containsKey(key)) {
+            return key;
+        }
+        return new BucketKey(OTHER, key.action(), key.status(), OTHER, key.windowStart());
+    }
+
+    private BucketKey keyOf(UsageEventBuffer.UsageEvent event) {
+        long timestamp = Instant.parse(event.timestamp()).toEpochMilli();
+        return new BucketKey(event.userId(), event.action(), event.status(), event.domain(), windowStart(timestamp));
+    }
+}
@@ -0,0 +1,257 @@
+package com.dime.api.feature.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Bounded in-memory buffer of usage events waiting to be stored.
+ * <p>
+ * When the buffer is full, {@link OverflowPolicy#DROP_OLDEST} discards the oldest event, while
+ * {@link OverflowPolicy#SPILL} hands the new event to a {@link Spill}. Events a spill keeps locally are
+ * read back into the buffer once it has drained.
+ */
+@Slf4j
+class UsageEventBuffer {
+
+    enum OverflowPolicy {
+        DROP_OLDEST, SPILL
+    }
+
+    /**
+     * A usage event as captured on the request path; {@code id} is assigned once and used as the
+     * document ID in {@code usage_events}, and {@code timestamp} is the ISO-8601 event time.
+     */
+    record UsageEvent(String id, String action, String userId, String status, int fileCount, int eventCount, long duration,
+            String errorMessage, String domain, String timestamp) {
+    }
+
+    /**
+     * Where events go when the buffer cannot hold them. A spill that writes straight to durable storage
+     * has nothing to hand back, so {@link #take} defaults to nothing.
+     */
+    interface Spill {
+
+        /**
+         * Keeps {@code events}; returns false when they could not be kept.
+         */
+        boolean append(Collection<UsageEvent> events);
+
+        /**
+         * Removes and returns up to {@code max} kept events, oldest first.
+         */
+        default List<UsageEvent> take(int max) {
+            return List.of();
+        }
+
+        /**
+         * Events kept and not taken back yet.
+         */
+        default long pending() {
+            return 0;
+        }
+    }
+
+    private final BlockingQueue<UsageEvent> queue;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Spill spill;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    UsageEventBuffer(int capacity, OverflowPolicy overflowPolicy, Spill spill) {
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.spill = spill;
+    }
+
+    /**
+     * Adds an event without blocking, applying the overflow policy when the buffer is full.
+     */
+    void offer(UsageEvent event) {
+        if (queue.offer(event)) {
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.SPILL && spill.append(List.of(event))) {
+            return;
+        }
+        while (!queue.offer(event)) {
+            if (queue.poll() != null) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes up to {@code max} events in arrival order, refilling from the spill when possible.
+     */
+    List<UsageEvent> drain(int max) {
+        List<UsageEvent> batch = new ArrayList<>(Math.min(max, capacity));
+        queue.drainTo(batch, max);
+        if (batch.size() < max) {
+            replaySpill();
+            queue.drainTo(batch, max - batch.size());
+        }
+        return batch;
+    }
+
+    /**
+     * Moves everything still buffered to the spill, e.g. when shutdown flushing runs out of time.
+     * Returns the number of events that could not be kept.
+     */
+    int spillRemaining() {
+        List<UsageEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (remaining.isEmpty() || (overflowPolicy == OverflowPolicy.SPILL && spill.append(remaining))) {
+            return 0;
+        }
+        dropped.addAndGet(remaining.size());
+        return remaining.size();
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Events held by the spill and not yet replayed.
+     */
+    long spilled() {
+        return spill.pending();
+    }
+
+    private void replaySpill() {
+        int room = queue.remainingCapacity();
+        if (room == 0 || spill.pending() == 0) {
+            return;
+        }
+        List<UsageEvent> replayed = spill.take(room);
+        List<UsageEvent> overflow = new ArrayList<>();
+        for (UsageEvent event : replayed) {
+            if (!queue.offer(event)) {
+                overflow.add(event);
+            }
+        }
+        if (!overflow.isEmpty() && !spill.append(overflow)) {
+            dropped.addAndGet(overflow.size());
+        }
+        log.info("Replayed {} spilled usage events ({} still spilled)", replayed.size() - overflow.size(),
+                spill.pending());
+    }
+
+    /**
+     * Spill to a local JSON-lines file. Only durable across restarts when the file is on persistent
+     * storage, which Cloud Run's in-memory file system is not.
+     */
+    static final class FileSpill implements Spill {
+
+        private final Path file;
+        private final ObjectMapper objectMapper;
+        private final Object lock = new Object();
+        private final AtomicLong pending;
+
+        FileSpill(Path file, ObjectMapper objectMapper) {
+            this.file = file;
+            this.objectMapper = objectMapper;
+            // A file left by a previous process is replayed like events spilled by this one
+            this.pending = new AtomicLong(countLines(file));
+        }
+
+        @Override
+        public boolean append(Collection<UsageEvent> events) {
+            synchronized (lock) {
+                try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (UsageEvent event : events) {
+                        writer.write(objectMapper.writeValueAsString(event));
+                        writer.newLine();
+                    }
+                    pending.addAndGet(events.size());
+                    return true;
+                } catch (IOException e) {
+                    log.warn("Failed to spill {} usage events to {}", events.size(), file, e);
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * Reads the whole file back; events beyond {@code max} are written to it again.
+         */
+        @Override
+        public List<UsageEvent> take(int max) {
+            synchronized (lock) {
+                if (!Files.exists(file)) {
+                    pending.set(0);
+                    return List.of();
+                }
+                Path replay = file.resolveSibling(file.getFileName() + ".replay");
+                List<String> lines;
+                try {
+                    Files.move(file, replay, StandardCopyOption.REPLACE_EXISTING);
+                    lines = Files.readAllLines(replay, StandardCharsets.UTF_8);
+                    Files.deleteIfExists(replay);
+                } catch (IOException e) {
+                    log.warn("Failed to replay spilled usage events from {}", file, e);
+                    return List.of();
+                }
+                pending.set(0);
+
+                List<UsageEvent> taken = new ArrayList<>();
+                List<UsageEvent> rest = new ArrayList<>();
+                for (String line : lines) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        UsageEvent event = objectMapper.readValue(line, UsageEvent.class);
+                        (taken.size() < max ? taken : rest).add(event);
+                    } catch (IOException e) {
+                        log.warn("Skipping unreadable spilled usage event: {}", line, e);
+                    }
+                }
+                if (!rest.isEmpty() && !append(rest)) {
+                    log.warn("Lost {} spilled usage events that could not be spilled again", rest.size());
+                }
+                return taken;
+            }
+        }
+
+        @Override
+        public long pending() {
+            return pending.get();
+        }
+
+        private static long countLines(Path file) {
+            if (!Files.exists(file)) {
+                return 0;
+            }
+            try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+                return lines.filter(line -> !line.isBlank()).count();
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Failed to read spilled usage events from {}", file, e);
+                return 0;
+            }
+        }
+    }
+}
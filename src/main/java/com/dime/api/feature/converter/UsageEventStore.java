@@ -0,0 +1,303 @@
+package com.dime.api.feature.converter;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.BulkWriterException;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.Transaction;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import io.grpc.Status;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Firestore store of record for usage events.
+ * <p>
+ * Events are written with a {@link BulkWriter} to {@code usage_events/{yyyy-MM-dd}/events/{eventId}},
+ * one partition per UTC day, so a day can be read, exported or deleted on its own. Writes are
+ * {@code create}s keyed by the event ID, so a retried batch never duplicates an event. Each event
+ * carries an {@code exported} flag for the Notion exporter and an {@code expireAt} timestamp for a
+ * Firestore TTL policy. The exporter claims events before writing their pages by setting {@code
+ * exportClaimedAt}, which also tells a later attempt that a page may already exist.
+ */
+@Slf4j
+@ApplicationScoped
+public class UsageEventStore {
+
+    static final String COLLECTION = "usage_events";
+    static final String EVENTS = "events";
+    static final String EXPORTED_FIELD = "exported";
+    static final String EXPORT_CLAIMED_FIELD = "exportClaimedAt";
+    static final String EXPORT_ERROR_FIELD = "exportError";
+    static final String TIMESTAMP_FIELD = "timestamp";
+
+    // Firestore's limit on writes per batch
+    private static final int MAX_BATCH_WRITES = 500;
+
+    /**
+     * An event still waiting to be mirrored to Notion; {@code attempted} is set when an earlier claim may
+     * have created its page before failing to mark it exported.
+     */
+    public record PendingExport(DocumentReference reference, UsageEventBuffer.UsageEvent event, boolean attempted) {
+
+        public PendingExport(DocumentReference reference, UsageEventBuffer.UsageEvent event) {
+            this(reference, event, false);
+        }
+    }
+
+    @Inject
+    Firestore firestore;
+
+    @ConfigProperty(name = "tracking.events.retention", defaultValue = "P400D")
+    Duration retention;
+
+    public boolean isAvailable() {
+        return firestore != null;
+    }
+
+    /**
+     * Writes a batch of events and returns the ones that could not be stored, so the caller can retry
+     * them. Events that already exist count as stored.
+     */
+    public List<UsageEventBuffer.UsageEvent> write(List<UsageEventBuffer.UsageEvent> events) {
+        List<ApiFuture<WriteResult>> results = new ArrayList<>(events.size());
+        BulkWriter writer = firestore.bulkWriter();
+        try {
+            for (UsageEventBuffer.UsageEvent event : events) {
+                results.add(writer.create(reference(event), toDocument(event)));
+            }
+        } finally {
+            // Flushes the batch and waits for every write, including BulkWriter's own retries
+            writer.close();
+        }
+
+        List<UsageEventBuffer.UsageEvent> failed = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                results.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.addAll(events.subList(i, events.size()));
+                break;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof BulkWriterException bulk
+                        && bulk.getStatus().getCode() == Status.Code.ALREADY_EXISTS) {
+                    continue;
+                }
+                failed.add(events.get(i));
+                log.warn("Failed to store usage event {}", events.get(i).id(), e.getCause());
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Stores {@code event} unless it already exists, running {@code onCreate} in the same transaction so
+     * that writes tied to the event apply exactly once. Returns whether the event was new.
+     */
+    public boolean createOnce(UsageEventBuffer.UsageEvent event, Consumer<Transaction> onCreate)
+            throws ExecutionException, InterruptedException {
+        DocumentReference ref = reference(event);
+        return firestore.runTransaction(transaction -> {
+            if (transaction.get(ref).get().exists()) {
+                return false;
+            }
+            onCreate.accept(transaction);
+            transaction.create(ref, toDocument(event));
+            return true;
+        }).get();
+    }
+
+    /**
+     * Returns up to {@code limit} events not yet exported, oldest first, from every partition, so a
+     * backlog is exported however old it gets.
+     */
+    public List<PendingExport> pendingExport(int limit) throws ExecutionException, InterruptedException {
+        return toPending(unexported().limit(limit).get().get().getDocuments());
+    }
+
+    /**
+     * Returns every event not yet exported with a timestamp in {@code [from, to)}, read in pages.
+     */
+    public List<PendingExport> pendingExport(Instant from, Instant to) throws ExecutionException, InterruptedException {
+        Query query = firestore.collectionGroup(EVENTS)
+                .whereEqualTo(EXPORTED_FIELD, false)
+                .whereGreaterThanOrEqualTo(TIMESTAMP_FIELD, toTimestamp(from))
+                .whereLessThan(TIMESTAMP_FIELD, toTimestamp(to))
+                .orderBy(TIMESTAMP_FIELD);
+        List<PendingExport> pending = new ArrayList<>();
+        QueryDocumentSnapshot last = null;
+        while (true) {
+            List<QueryDocumentSnapshot> docs = (last == null ? query : query.startAfter(last))
+                    .limit(MAX_BATCH_WRITES).get().get().getDocuments();
+            pending.addAll(toPending(docs));
+            if (docs.size() < MAX_BATCH_WRITES) {
+                return pending;
+            }
+            last = docs.get(docs.size() - 1);
+        }
+    }
+
+    private Query unexported() {
+        // Needs a collection-group index on (exported, timestamp); see docs/deployment.md
+        return firestore.collectionGroup(EVENTS).whereEqualTo(EXPORTED_FIELD, false).orderBy(TIMESTAMP_FIELD);
+    }
+
+    private static List<PendingExport> toPending(List<QueryDocumentSnapshot> docs) {
+        List<PendingExport> pending = new ArrayList<>(docs.size());
+        for (QueryDocumentSnapshot doc : docs) {
+            pending.add(new PendingExport(doc.getReference(), fromDocument(doc)));
+        }
+        return pending;
+    }
+
+    /**
+     * Claims {@code pending} events for export, one transaction per {@value #MAX_BATCH_WRITES}, and
+     * returns the ones claimed. Events exported meanwhile, or claimed by another exporter less than
+     * {@code lease} ago, are left out.
+     */
+    public List<PendingExport> claimForExport(List<PendingExport> pending, Duration lease)
+            throws ExecutionException, InterruptedException {
+        List<PendingExport> claimed = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += MAX_BATCH_WRITES) {
+            claimed.addAll(claim(pending.subList(from, Math.min(pending.size(), from + MAX_BATCH_WRITES)), lease));
+        }
+        return claimed;
+    }
+
+    private List<PendingExport> claim(List<PendingExport> pending, Duration lease)
+            throws ExecutionException, InterruptedException {
+        DocumentReference[] references = pending.stream().map(PendingExport::reference)
+                .toArray(DocumentReference[]::new);
+        return firestore.runTransaction(transaction -> {
+            List<DocumentSnapshot> docs = transaction.getAll(references).get();
+            Timestamp now = Timestamp.now();
+            Instant expired = Instant.now().minus(lease);
+            List<PendingExport> claimed = new ArrayList<>();
+            for (int i = 0; i < docs.size(); i++) {
+                DocumentSnapshot doc = docs.get(i);
+                if (!doc.exists() || Boolean.TRUE.equals(doc.getBoolean(EXPORTED_FIELD))) {
+                    continue;
+                }
+                Timestamp claimedAt = doc.getTimestamp(EXPORT_CLAIMED_FIELD);
+                if (claimedAt != null && claimedAt.toDate().toInstant().isAfter(expired)) {
+                    continue;
+                }
+                transaction.update(doc.getReference(), EXPORT_CLAIMED_FIELD, now);
+                claimed.add(new PendingExport(doc.getReference(), pending.get(i).event(), claimedAt != null));
+            }
+            return claimed;
+        }).get();
+    }
+
+    public void markExported(DocumentReference reference) throws ExecutionException, InterruptedException {
+        reference.update(EXPORTED_FIELD, true, "exportedAt", Timestamp.now()).get();
+    }
+
+    /**
+     * Marks several events as exported in batched writes.
+     */
+    public void markExported(List<DocumentReference> references) throws ExecutionException, InterruptedException {
+        Timestamp now = Timestamp.now();
+        for (int from = 0; from < references.size(); from += MAX_BATCH_WRITES) {
+            WriteBatch batch = firestore.batch();
+            for (DocumentReference reference : references.subList(from,
+                    Math.min(references.size(), from + MAX_BATCH_WRITES))) {
+                batch.update(reference, EXPORTED_FIELD, true, "exportedAt", now);
+            }
+            batch.commit().get();
+        }
+    }
+
+    /**
+     * Parks events whose page Notion refused for good: they leave the export queue like exported events,
+     * with {@code error} recorded in {@value #EXPORT_ERROR_FIELD}.
+     */
+    public void markRejected(List<DocumentReference> references, String error)
+            throws ExecutionException, InterruptedException {
+        Timestamp now = Timestamp.now();
+        for (int from = 0; from < references.size(); from += MAX_BATCH_WRITES) {
+            WriteBatch batch = firestore.batch();
+            for (DocumentReference reference : references.subList(from,
+                    Math.min(references.size(), from + MAX_BATCH_WRITES))) {
+                batch.update(reference, EXPORTED_FIELD, true, "exportedAt", now, EXPORT_ERROR_FIELD, error);
+            }
+            batch.commit().get();
+        }
+    }
+
+    private CollectionReference partition(LocalDate day) {
+        return firestore.collection(COLLECTION).document(day.toString()).collection(EVENTS);
+    }
+
+    private DocumentReference reference(UsageEventBuffer.UsageEvent event) {
+        String id = event.id() != null ? event.id() : UUID.randomUUID().toString();
+        return partition(partitionOf(event)).document(id);
+    }
+
+    static LocalDate partitionOf(UsageEventBuffer.UsageEvent event) {
+        return Instant.parse(event.timestamp()).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+
+    Map<String, Object> toDocument(UsageEventBuffer.UsageEvent event) {
+        Instant timestamp = Instant.parse(event.timestamp());
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("action", event.action());
+        doc.put("userId", event.userId());
+        doc.put("status", event.status());
+        doc.put("fileCount", event.fileCount());
+        doc.put("eventCount", event.eventCount());
+        doc.put("duration", event.duration());
+        doc.put("errorMessage", event.errorMessage());
+        doc.put("domain", event.domain());
+        doc.put(TIMESTAMP_FIELD, toTimestamp(timestamp));
+        doc.put("expireAt", toTimestamp(timestamp.plus(retention)));
+        doc.put(EXPORTED_FIELD, false);
+        return doc;
+    }
+
+    static UsageEventBuffer.UsageEvent fromDocument(DocumentSnapshot doc) {
+        Timestamp timestamp = doc.getTimestamp(TIMESTAMP_FIELD);
+        return new UsageEventBuffer.UsageEvent(
+                doc.getId(),
+                doc.getString("action"),
+                doc.getString("userId"),
+                doc.getString("status"),
+                intField(doc, "fileCount"),
+                intField(doc, "eventCount"),
+                doc.getLong("duration") != null ? doc.getLong("duration") : 0,
+                doc.getString("errorMessage"),
+                doc.getString("domain"),
+                timestamp != null ? timestamp.toDate().toInstant().toString() : Instant.now().toString());
+    }
+
+    private static int intField(DocumentSnapshot doc, String field) {
+        Long value = doc.getLong(field);
+        return value != null ? value.intValue() : 0;
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return Timestamp.ofTimeSecondsAndNanos(instant.getEpochSecond(), instant.getNano());
+    }
+}
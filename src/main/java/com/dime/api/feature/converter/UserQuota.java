@@ -20,6 +20,9 @@ public class UserQuota {
     public Timestamp createdAt;
     public Timestamp updatedAt;
 
+    // Number of counter shards under users/{id}/shards (0 = usage kept on quotaUsed only)
+    public int shardCount;
+
     // Stripe subscription tracking
     public String stripeCustomerId;
     public String stripeSubscriptionId;
@@ -15,6 +15,7 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Path("/users")
@@ -27,6 +28,9 @@ public class UserQuotaResource {
     @Inject
     QuotaService quotaService;
 
+    @Inject
+    QuotaSyncService quotaSyncService;
+
     @GET
     @Operation(summary = "List all user quotas", description = "Retrieves a list of all users and their current quota status")
     @APIResponse(responseCode = "200", description = "List of user quotas", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = QuotaService.UserQuotaWrapper.class, type = SchemaType.ARRAY)))
@@ -94,24 +98,32 @@ public class UserQuotaResource {
 
     @POST
     @Path("/sync-notion")
-    @Operation(summary = "Sync all to Notion", description = "Triggers a full synchronization of all user quotas from Firestore to Notion.")
+    @Operation(summary = "Sync to Notion", description = "Starts pushing user quotas changed since the last sync from Firestore to Notion. Use full=true to consider every user. The report is available from GET /users/sync-status.")
     @APIResponse(responseCode = "202", description = "Synchronization started")
-    public Response syncToNotion() {
-        log.info("POST /users/sync-notion called (full sync)");
-        quotaService.syncToNotion(null);
+    public Response syncToNotion(@QueryParam("full") @DefaultValue("false") boolean full) {
+        log.info("POST /users/sync-notion called (full={})", full);
+        quotaSyncService.start(QuotaSyncService.Direction.TO_NOTION, full);
         return Response.accepted().build();
     }
 
     @POST
     @Path("/sync-firebase")
-    @Operation(summary = "Sync all from Notion", description = "Triggers a full synchronization of user quotas from Notion back to Firestore.")
+    @Operation(summary = "Sync from Notion", description = "Starts pulling quota rows edited in Notion since the last sync back to Firestore. Use full=true to consider every row. The report is available from GET /users/sync-status.")
     @APIResponse(responseCode = "202", description = "Synchronization started")
-    public Response syncFromNotion() {
-        log.info("POST /users/sync-firebase called (full sync)");
-        quotaService.syncFromNotion(null);
+    public Response syncFromNotion(@QueryParam("full") @DefaultValue("false") boolean full) {
+        log.info("POST /users/sync-firebase called (full={})", full);
+        quotaSyncService.start(QuotaSyncService.Direction.FROM_NOTION, full);
         return Response.accepted().build();
     }
 
+    @GET
+    @Path("/sync-status")
+    @Operation(summary = "Last sync reports", description = "Report of the latest completed quota sync per direction, on this instance")
+    @APIResponse(responseCode = "200", description = "Synchronization reports by direction", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(type = SchemaType.OBJECT, description = "SyncReport by direction (TO_NOTION, FROM_NOTION)")))
+    public Map<QuotaSyncService.Direction, QuotaSyncService.SyncReport> syncStatus() {
+        return quotaSyncService.lastReports();
+    }
+
     @POST
     @Path("/sync-notion-single")
     @Operation(summary = "Push single user to Notion", description = "Triggers a synchronization of a specific user's quota from Firestore to Notion")
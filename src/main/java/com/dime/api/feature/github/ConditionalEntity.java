@@ -0,0 +1,10 @@
+package com.dime.api.feature.github;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A GitHub response body cached with its validators, so the next refresh can be a conditional request.
+ * {@code entity} is required so that values cached before the validators existed are not restored.
+ */
+public record ConditionalEntity<T>(@JsonProperty(required = true) T entity, String etag, String lastModified) {
+}
@@ -0,0 +1,128 @@
+package com.dime.api.feature.github;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Daily GitHub contribution counts as one primitive array indexed by day from {@code startEpochDay}.
+ * Any date range is served as an O(1) view over the array, and range totals come from prefix sums.
+ */
+public final class ContributionCalendar {
+
+    /**
+     * One day of the calendar, as served by {@code /github/commits}: {@code date} is the day's UTC
+     * midnight in epoch milliseconds.
+     */
+    public record Day(long date, int value) {
+    }
+
+    private final long startEpochDay;
+    private final int[] counts;
+    // prefix[i] is the sum of counts[0..i)
+    private final long[] prefix;
+
+    @JsonCreator
+    public ContributionCalendar(@JsonProperty("startEpochDay") long startEpochDay,
+            @JsonProperty("counts") int[] counts) {
+        this.startEpochDay = startEpochDay;
+        this.counts = Objects.requireNonNull(counts, "counts");
+        this.prefix = new long[counts.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            prefix[i + 1] = prefix[i] + counts[i];
+        }
+    }
+
+    public static ContributionCalendar empty(LocalDate day) {
+        return new ContributionCalendar(day.toEpochDay(), new int[0]);
+    }
+
+    /**
+     * Combines {@code parts} into one calendar from {@code from} to {@code to}; days not covered by any
+     * part count zero.
+     */
+    public static ContributionCalendar merge(LocalDate from, LocalDate to, List<ContributionCalendar> parts) {
+        int[] counts = new int[(int) Math.max(0, to.toEpochDay() - from.toEpochDay() + 1)];
+        for (ContributionCalendar part : parts) {
+            for (int i = 0; i < part.counts.length; i++) {
+                long index = part.startEpochDay + i - from.toEpochDay();
+                if (index >= 0 && index < counts.length) {
+                    counts[(int) index] = part.counts[i];
+                }
+            }
+        }
+        return new ContributionCalendar(from.toEpochDay(), counts);
+    }
+
+    @JsonProperty("startEpochDay")
+    public long startEpochDay() {
+        return startEpochDay;
+    }
+
+    @JsonProperty("counts")
+    int[] counts() {
+        return counts;
+    }
+
+    @JsonIgnore
+    public LocalDate start() {
+        return LocalDate.ofEpochDay(startEpochDay);
+    }
+
+    /**
+     * Last day covered (inclusive).
+     */
+    @JsonIgnore
+    public LocalDate end() {
+        return LocalDate.ofEpochDay(startEpochDay + counts.length - 1);
+    }
+
+    /**
+     * Days from {@code from} to {@code to} inclusive, clamped to the calendar.
+     */
+    public List<Day> days(LocalDate from, LocalDate to) {
+        int first = index(from);
+        int count = Math.max(0, index(to.plusDays(1)) - first);
+        return new AbstractList<>() {
+            @Override
+            public Day get(int i) {
+                Objects.checkIndex(i, count);
+                long epochDay = startEpochDay + first + i;
+                return new Day(epochDay * 86_400_000L, counts[first + i]);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Total contributions from {@code from} to {@code to} inclusive, clamped to the calendar.
+     */
+    public long total(LocalDate from, LocalDate to) {
+        int first = index(from);
+        int last = Math.max(first, index(to.plusDays(1)));
+        return prefix[last] - prefix[first];
+    }
+
+    /**
+     * The last {@code months} periods of 30 days up to the end of the calendar.
+     */
+    public List<Day> lastMonths(int months) {
+        LocalDate end = counts.length > 0 ? end() : LocalDate.now(ZoneOffset.UTC);
+        return days(end.minusDays(months * 30L - 1), end);
+    }
+
+    private int index(LocalDate day) {
+        long offset = day.toEpochDay() - startEpochDay;
+        return (int) Math.max(0, Math.min(counts.length, offset));
+    }
+}
@@ -0,0 +1,55 @@
+package com.dime.api.feature.github;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.extensions.Extension;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import java.util.List;
+
+@Path("/admin/github")
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "admin", description = "GitHub rate-limit budget and refresh schedule")
+@Extension(name = "x-smallrye-profile-admin", value = "")
+public class GitHubAdminResource {
+
+    @Inject
+    GitHubRateBudget rateBudget;
+
+    @Inject
+    GitHubRefreshScheduler refreshScheduler;
+
+    @Inject
+    GitHubService gitHubService;
+
+    public record RateLimitStatus(List<GitHubRateBudget.Window> budget, GitHubRefreshScheduler.Schedule schedule) {
+    }
+
+    @GET
+    @Path("/rate-limit")
+    @Operation(summary = "GitHub rate-limit budget", description = "Last reported budget per GitHub resource and the resulting background refresh schedule")
+    @APIResponse(responseCode = "200", description = "Budget and schedule", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = RateLimitStatus.class)))
+    @APIResponse(responseCode = "401", description = "Unauthorized - admin login required")
+    public RateLimitStatus rateLimit() {
+        return new RateLimitStatus(rateBudget.windows(), refreshScheduler.schedule());
+    }
+
+    @POST
+    @Path("/refresh")
+    @Operation(summary = "Forced refresh of GitHub data", description = "Fetches the GitHub snapshot now, outside the schedule and regardless of the rate-limit reserve")
+    @APIResponse(responseCode = "200", description = "Snapshot refreshed; budget and schedule after the refresh", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = RateLimitStatus.class)))
+    @APIResponse(responseCode = "502", description = "Failed to fetch data from the GitHub API")
+    @APIResponse(responseCode = "401", description = "Unauthorized - admin login required")
+    public RateLimitStatus refresh() {
+        gitHubService.refreshSnapshot();
+        return rateLimit();
+    }
+}
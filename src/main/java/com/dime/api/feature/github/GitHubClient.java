@@ -7,13 +7,21 @@ import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.faulttolerance.Retry;
 import org.eclipse.microprofile.faulttolerance.Timeout;
+import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import com.fasterxml.jackson.databind.JsonNode;
 import java.time.temporal.ChronoUnit;
 
+/**
+ * GitHub REST and GraphQL API. The profile and release calls are conditional: a {@code 304 Not Modified}
+ * answer to {@code If-None-Match}/{@code If-Modified-Since} is returned as is and is not counted
+ * against the rate limit. Every response's rate-limit headers are recorded by {@link GitHubRateLimitFilter}.
+ */
 @RegisterRestClient(configKey = "com.dime.api.feature.github.GitHubClient")
+@RegisterProvider(GitHubRateLimitFilter.class)
 public interface GitHubClient {
 
     @GET
@@ -21,26 +29,32 @@ public interface GitHubClient {
     @Produces(MediaType.APPLICATION_JSON)
     @Retry(maxRetries = 3, delay = 200)
     @Timeout(2000)
-    GitHubUser getUser(@HeaderParam("Authorization") String token, @PathParam("username") String username);
+    Response getUser(@HeaderParam("Authorization") String token, @PathParam("username") String username,
+                     @HeaderParam("If-None-Match") String ifNoneMatch,
+                     @HeaderParam("If-Modified-Since") String ifModifiedSince);
 
     @GET
     @Path("/users/{username}/social_accounts")
     @Produces(MediaType.APPLICATION_JSON)
-    JsonNode getSocialAccounts(@HeaderParam("Authorization") String token, @PathParam("username") String username);
+    Response getSocialAccounts(@HeaderParam("Authorization") String token, @PathParam("username") String username,
+                               @HeaderParam("If-None-Match") String ifNoneMatch,
+                               @HeaderParam("If-Modified-Since") String ifModifiedSince);
 
     @POST
     @Path("/graphql")
     @Produces(MediaType.APPLICATION_JSON)
-    JsonNode postGraphql(@HeaderParam("Authorization") String token, Object query);
+    Response postGraphql(@HeaderParam("Authorization") String token, Object query);
 
     @GET
     @Path("/repos/{owner}/{repo}/releases/latest")
     @Produces(MediaType.APPLICATION_JSON)
     @Retry(maxRetries = 3, delay = 200)
     @Timeout(value = 5, unit = ChronoUnit.SECONDS)
-    JsonNode getLatestRelease(@HeaderParam("Authorization") String token,
+    Response getLatestRelease(@HeaderParam("Authorization") String token,
                               @PathParam("owner") String owner,
-                              @PathParam("repo") String repo);
+                              @PathParam("repo") String repo,
+                              @HeaderParam("If-None-Match") String ifNoneMatch,
+                              @HeaderParam("If-Modified-Since") String ifModifiedSince);
 
     @GET
     @Path("/rate_limit")
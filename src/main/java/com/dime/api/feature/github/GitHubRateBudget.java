@@ -0,0 +1,135 @@
+package com.dime.api.feature.github;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * GitHub rate-limit budget per resource ({@code core} for the REST API, {@code graphql}), as last
+ * reported by GitHub.
+ * <p>
+ * {@link GitHubRateLimitFilter} records the {@code X-RateLimit-*} headers of every {@link GitHubClient}
+ * response, and {@code GitHubHealthCheck} records the {@code /rate_limit} body, which also covers
+ * resources not called yet. A share of each limit, {@code github.rate-limit.reserve}, is kept for forced
+ * refreshes: {@link GitHubRefreshScheduler} only starts background refreshes above it.
+ */
+@Slf4j
+@ApplicationScoped
+public class GitHubRateBudget {
+
+    private static final AttributeKey<String> RESOURCE = AttributeKey.stringKey("resource");
+
+    // GitHub rate-limit windows last one hour
+    static final Duration WINDOW = Duration.ofHours(1);
+
+    /**
+     * The budget of one resource in its current window.
+     */
+    public record Window(String resource, int limit, int remaining, Instant reset, Instant observedAt) {
+    }
+
+    @ConfigProperty(name = "github.rate-limit.reserve", defaultValue = "0.2")
+    double reserveRatio;
+
+    @Inject
+    OpenTelemetry openTelemetry;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void registerMetrics() {
+        if (openTelemetry == null) {
+            return;
+        }
+        openTelemetry.getMeter("com.dime.api")
+                .gaugeBuilder("github.rate_limit.remaining")
+                .setDescription("Requests (or GraphQL points) left in the current GitHub rate-limit window")
+                .ofLongs()
+                .buildWithCallback(measurement -> windows().forEach(window -> measurement
+                        .record(window.remaining(), Attributes.of(RESOURCE, window.resource()))));
+    }
+
+    /**
+     * Records {@code X-RateLimit-*} header values; ignores them when one is missing or malformed.
+     */
+    public void record(String resource, String limit, String remaining, String reset) {
+        try {
+            record(resource, Integer.parseInt(limit.trim()), Integer.parseInt(remaining.trim()),
+                    Long.parseLong(reset.trim()));
+        } catch (NullPointerException | NumberFormatException e) {
+            log.debug("Ignoring incomplete GitHub rate-limit headers for {}: limit={}, remaining={}, reset={}",
+                    resource, limit, remaining, reset);
+        }
+    }
+
+    /**
+     * Records every resource of a {@code /rate_limit} response.
+     */
+    public void record(JsonNode rateLimit) {
+        rateLimit.path("resources").fields().forEachRemaining(resource -> {
+            JsonNode window = resource.getValue();
+            if (window.hasNonNull("limit") && window.hasNonNull("remaining") && window.hasNonNull("reset")) {
+                record(resource.getKey(), window.get("limit").asInt(), window.get("remaining").asInt(),
+                        window.get("reset").asLong());
+            }
+        });
+    }
+
+    void record(String resource, int limit, int remaining, long resetEpochSecond) {
+        Window latest = new Window(resource, limit, remaining, Instant.ofEpochSecond(resetEpochSecond),
+                Instant.ofEpochMilli(clock.getAsLong()));
+        // Responses can arrive out of order: within a window the lowest count is the latest
+        windows.merge(resource, latest, (previous, next) -> {
+            int order = next.reset().compareTo(previous.reset());
+            return order < 0 || (order == 0 && next.remaining() > previous.remaining()) ? previous : next;
+        });
+    }
+
+    /**
+     * The current window of {@code resource}; a window whose reset time has passed is reported as full.
+     */
+    public Optional<Window> window(String resource) {
+        Window window = windows.get(resource);
+        if (window == null) {
+            return Optional.empty();
+        }
+        Instant now = Instant.ofEpochMilli(clock.getAsLong());
+        if (!now.isBefore(window.reset())) {
+            return Optional.of(new Window(resource, window.limit(), window.limit(), window.reset().plus(WINDOW),
+                    window.observedAt()));
+        }
+        return Optional.of(window);
+    }
+
+    public List<Window> windows() {
+        return windows.keySet().stream()
+                .map(this::window)
+                .flatMap(Optional::stream)
+                .sorted(Comparator.comparing(Window::resource))
+                .toList();
+    }
+
+    /**
+     * Part of {@code window}'s limit that background refreshes leave to forced ones.
+     */
+    public int reserve(Window window) {
+        return (int) Math.ceil(window.limit() * reserveRatio);
+    }
+}
@@ -0,0 +1,30 @@
+package com.dime.api.feature.github;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientResponseContext;
+import jakarta.ws.rs.client.ClientResponseFilter;
+
+/**
+ * Records the {@code X-RateLimit-*} headers of every {@code GitHubClient} response in the
+ * {@link GitHubRateBudget}.
+ */
+@ApplicationScoped
+public class GitHubRateLimitFilter implements ClientResponseFilter {
+
+    @Inject
+    GitHubRateBudget rateBudget;
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+        String remaining = responseContext.getHeaderString("X-RateLimit-Remaining");
+        if (remaining == null) {
+            return;
+        }
+        String resource = responseContext.getHeaderString("X-RateLimit-Resource");
+        rateBudget.record(resource != null ? resource : "core",
+                responseContext.getHeaderString("X-RateLimit-Limit"), remaining,
+                responseContext.getHeaderString("X-RateLimit-Reset"));
+    }
+}
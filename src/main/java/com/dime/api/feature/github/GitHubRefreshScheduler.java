@@ -0,0 +1,175 @@
+package com.dime.api.feature.github;
+
+import com.dime.api.feature.shared.cache.TieredCacheManager;
+import io.opentelemetry.api.OpenTelemetry;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Starts the background refreshes of the GitHub snapshot at an interval paced by the
+ * {@link GitHubRateBudget}.
+ * <p>
+ * The base interval is {@code github.refresh.interval}, or {@code github.webhook.refresh-interval} when
+ * webhooks push changes. Once GitHub has reported the budget of the resource refreshes use
+ * ({@code graphql} with a token, {@code core} without), the interval spreads {@code
+ * github.rate-limit.target-usage} of the budget above the reserve evenly until the window resets:
+ * abundant budget compresses it, down to the base divided by {@code github.refresh.max-compression},
+ * and a short budget stretches it. The cost of a refresh is measured from the budget consumed by the
+ * previous ones. At or below the reserve, background refreshes wait for the reset, leaving the reserve
+ * to forced refreshes (admin and webhook), which never wait on this schedule.
+ * <p>
+ * Only the holder of the cache refresh lease refreshes; the other instances copy its Firestore writes.
+ */
+@Slf4j
+@ApplicationScoped
+public class GitHubRefreshScheduler {
+
+    // Weight of the latest measurement in the refresh cost average
+    private static final double COST_SMOOTHING = 0.3;
+
+    /**
+     * The current refresh plan. {@code costPerRefresh} is in requests, or GraphQL points.
+     */
+    public record Schedule(String resource, long baseIntervalSeconds, long intervalSeconds, Instant loadedAt,
+            Instant nextRefreshAt, double costPerRefresh, boolean costMeasured, Integer reserve, boolean leader,
+            boolean refreshing, String reason) {
+    }
+
+    @Inject
+    GitHubService gitHubService;
+
+    @Inject
+    GitHubRateBudget rateBudget;
+
+    @Inject
+    TieredCacheManager cacheManager;
+
+    @Inject
+    OpenTelemetry openTelemetry;
+
+    @ConfigProperty(name = "github.refresh.interval", defaultValue = "PT15M")
+    Duration refreshInterval;
+
+    @ConfigProperty(name = "github.webhook.refresh-interval", defaultValue = "PT6H")
+    Duration webhookRefreshInterval;
+
+    @ConfigProperty(name = "github.webhook.secret")
+    Optional<String> webhookSecret;
+
+    @ConfigProperty(name = "github.refresh.max-compression", defaultValue = "3")
+    double maxCompression;
+
+    @ConfigProperty(name = "github.rate-limit.target-usage", defaultValue = "0.5")
+    double targetUsage;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile double measuredCost = -1;
+
+    @PostConstruct
+    void registerMetrics() {
+        if (openTelemetry == null) {
+            return;
+        }
+        openTelemetry.getMeter("com.dime.api")
+                .gaugeBuilder("github.refresh.interval")
+                .setDescription("Current interval between background GitHub refreshes")
+                .setUnit("s")
+                .ofLongs()
+                .buildWithCallback(measurement -> measurement.record(schedule().intervalSeconds()));
+    }
+
+    @Scheduled(every = "${github.refresh.tick:30s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void tick() {
+        Schedule schedule = schedule();
+        if (!schedule.leader() || clock.getAsLong() < schedule.nextRefreshAt().toEpochMilli()
+                || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        String resource = schedule.resource();
+        Optional<GitHubRateBudget.Window> before = rateBudget.window(resource);
+        log.debug("Refreshing GitHub snapshot in the background ({})", schedule.reason());
+        try {
+            gitHubService.refreshInBackground().whenComplete((snapshot, error) -> {
+                before.ifPresent(window -> measureCost(window, rateBudget.window(resource).orElse(null)));
+                refreshing.set(false);
+            });
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            log.warn("Failed to start GitHub background refresh: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Computes when the next background refresh is due and why.
+     */
+    public Schedule schedule() {
+        long now = clock.getAsLong();
+        String resource = gitHubService.usesGraphql() ? "graphql" : "core";
+        Duration base = baseInterval();
+        boolean measured = measuredCost >= 0;
+        double cost = measured ? measuredCost : gitHubService.usesGraphql() ? 1 : gitHubService.restCallsPerRefresh();
+        Instant loadedAt = gitHubService.snapshotLoadedAt().orElse(null);
+        Optional<GitHubRateBudget.Window> window = rateBudget.window(resource);
+
+        Duration interval;
+        Instant next;
+        Integer reserve = null;
+        String reason;
+        if (window.isEmpty()) {
+            interval = base;
+            next = loadedAt != null ? loadedAt.plus(interval) : Instant.ofEpochMilli(now);
+            reason = "No rate-limit budget reported yet; base interval";
+        } else {
+            GitHubRateBudget.Window budget = window.get();
+            reserve = rateBudget.reserve(budget);
+            int spare = budget.remaining() - reserve;
+            long untilReset = Math.max(1000, budget.reset().toEpochMilli() - now);
+            if (spare < Math.max(cost, 1)) {
+                interval = Duration.ofMillis(untilReset);
+                next = budget.reset();
+                reason = "Budget at reserve (%d of %d left); waiting for the reset".formatted(budget.remaining(),
+                        budget.limit());
+            } else {
+                Duration floor = Duration.ofMillis((long) (base.toMillis() / maxCompression));
+                Duration paced = Duration.ofMillis((long) (untilReset * cost / (spare * targetUsage)));
+                interval = paced.compareTo(floor) > 0 ? paced : floor;
+                next = loadedAt != null ? loadedAt.plus(interval) : Instant.ofEpochMilli(now);
+                reason = interval.compareTo(base) < 0
+                        ? "Compressed: %d spare until reset".formatted(spare)
+                        : interval.equals(base) ? "Base interval"
+                        : "Stretched: %d spare until reset".formatted(spare);
+            }
+        }
+        return new Schedule(resource, base.toSeconds(), interval.toSeconds(), loadedAt, next, cost, measured,
+                reserve, cacheManager.isRefreshLeader(), refreshing.get(), reason);
+    }
+
+    private Duration baseInterval() {
+        // Webhooks push changes as they happen, so polling only has to catch missed deliveries
+        return webhookSecret.filter(secret -> !secret.isBlank()).isPresent() ? webhookRefreshInterval : refreshInterval;
+    }
+
+    /**
+     * Updates the average refresh cost from the budget consumed between {@code before} and {@code after},
+     * when both are in the same window.
+     */
+    void measureCost(GitHubRateBudget.Window before, GitHubRateBudget.Window after) {
+        if (after == null || !after.reset().equals(before.reset()) || !after.observedAt().isAfter(before.observedAt())) {
+            return;
+        }
+        double cost = Math.max(0, before.remaining() - after.remaining());
+        measuredCost = measuredCost < 0 ? cost : measuredCost + COST_SMOOTHING * (cost - measuredCost);
+    }
+}
@@ -13,6 +13,8 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.ws.rs.QueryParam;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
@@ -57,13 +59,14 @@ public class GitHubResource {
     @GET
     @Path("/release")
     @Produces(MediaType.APPLICATION_JSON)
-    @Operation(summary = "Get latest GitHub release", description = "Retrieves the latest release information for the repository")
+    @Operation(summary = "Get latest GitHub release", description = "Retrieves the latest release information for a configured repository (the first one by default)")
     @APIResponse(responseCode = "200", description = "Release information retrieved successfully")
+    @APIResponse(responseCode = "400", description = "Repository is not configured")
     @APIResponse(responseCode = "502", description = "Failed to fetch release from GitHub API")
     @APIResponse(responseCode = "500", description = "Internal server error")
-    public Response getLatestRelease() {
-        log.info("GET /github/release endpoint called");
-        return Response.ok(gitHubService.getLatestRelease())
+    public Response getLatestRelease(@QueryParam("repo") String repo) {
+        log.info("GET /github/release endpoint called with repo={}", repo);
+        return Response.ok(repo != null ? gitHubService.getLatestRelease(repo) : gitHubService.getLatestRelease())
                 .header("Cache-Control", "public, max-age=86400")
                 .build();
     }
@@ -71,27 +74,84 @@ public class GitHubResource {
     @GET
     @Path("/commits")
     @Produces(MediaType.APPLICATION_JSON)
-    @Operation(summary = "Get GitHub commit statistics", description = "Retrieves the authenticated GitHub user's commit statistics over a period")
+    @Operation(summary = "Get GitHub commit statistics", description = "Retrieves the authenticated GitHub user's daily contributions over the last months, or between two dates (ISO yyyy-MM-dd, inclusive)")
     @APIResponse(responseCode = "200", description = "Commit statistics retrieved successfully")
-    @APIResponse(responseCode = "400", description = "Invalid months parameter")
+    @APIResponse(responseCode = "400", description = "Invalid months or date range parameters")
     @APIResponse(responseCode = "502", description = "Failed to fetch commits from GitHub API")
     @APIResponse(responseCode = "500", description = "Internal server error")
-    public Response getCommits(@QueryParam("months") String monthsStr) {
-        log.info("GET /github/commits endpoint called with months={}", monthsStr);
+    public Response getCommits(@QueryParam("months") String monthsStr,
+                               @QueryParam("from") String fromStr,
+                               @QueryParam("to") String toStr) {
+        log.info("GET /github/commits endpoint called with months={}, from={}, to={}", monthsStr, fromStr, toStr);
 
+        List<ContributionCalendar.Day> days;
+        if (fromStr != null || toStr != null) {
+            LocalDate[] range = parseRange(fromStr, toStr);
+            days = gitHubService.getContributions().days(range[0], range[1]);
+        } else {
+            days = gitHubService.getCommits(parseMonths(monthsStr));
+        }
+        return Response.ok(days)
+                .header("Cache-Control", "public, max-age=3600")
+                .build();
+    }
+
+    @GET
+    @Path("/commits/total")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Get GitHub contribution total", description = "Sums the authenticated GitHub user's contributions over the last months, or between two dates (ISO yyyy-MM-dd, inclusive)")
+    @APIResponse(responseCode = "200", description = "Total computed successfully")
+    @APIResponse(responseCode = "400", description = "Invalid months or date range parameters")
+    @APIResponse(responseCode = "502", description = "Failed to fetch commits from GitHub API")
+    public Response getCommitsTotal(@QueryParam("months") String monthsStr,
+                                    @QueryParam("from") String fromStr,
+                                    @QueryParam("to") String toStr) {
+        log.info("GET /github/commits/total endpoint called with months={}, from={}, to={}", monthsStr, fromStr, toStr);
+
+        ContributionCalendar calendar = gitHubService.getContributions();
+        LocalDate from;
+        LocalDate to;
+        if (fromStr != null || toStr != null) {
+            LocalDate[] range = parseRange(fromStr, toStr);
+            from = range[0];
+            to = range[1];
+        } else {
+            to = calendar.end();
+            from = to.minusDays(parseMonths(monthsStr) * 30L - 1);
+        }
+        return Response.ok(Map.of("from", from.toString(), "to", to.toString(), "total", calendar.total(from, to)))
+                .header("Cache-Control", "public, max-age=3600")
+                .build();
+    }
+
+    private static int parseMonths(String monthsStr) {
         int months = 12; // default
         if (monthsStr != null) {
             try {
                 months = Integer.parseInt(monthsStr);
-                if (months < 1 || months > 60) {
+                if (months < 1 || months > GitHubService.MAX_MONTHS) {
                     throw new ValidationException("Invalid months parameter. Must be between 1 and 60.");
                 }
             } catch (NumberFormatException e) {
                 throw new ValidationException("Invalid months parameter. Must be a valid integer.");
             }
         }
-        return Response.ok(gitHubService.getCommits(months))
-                .header("Cache-Control", "public, max-age=3600")
-                .build();
+        return months;
+    }
+
+    private static LocalDate[] parseRange(String fromStr, String toStr) {
+        if (fromStr == null || toStr == null) {
+            throw new ValidationException("Both from and to parameters are required for a date range.");
+        }
+        try {
+            LocalDate from = LocalDate.parse(fromStr);
+            LocalDate to = LocalDate.parse(toStr);
+            if (to.isBefore(from)) {
+                throw new ValidationException("Invalid date range. 'to' must not be before 'from'.");
+            }
+            return new LocalDate[] { from, to };
+        } catch (DateTimeParseException e) {
+            throw new ValidationException("Invalid date parameter. Must be an ISO date (yyyy-MM-dd).");
+        }
     }
 }
@@ -1,14 +1,24 @@
 package com.dime.api.feature.github;
 
 import com.dime.api.feature.shared.FirestoreCacheService;
+import com.dime.api.feature.shared.cache.CacheSpec;
+import com.dime.api.feature.shared.cache.TieredCache;
+import com.dime.api.feature.shared.cache.TieredCacheManager;
 import com.dime.api.feature.shared.exception.ExternalServiceException;
+import com.dime.api.feature.shared.exception.ValidationException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.github.benmanes.caffeine.cache.LoadingCache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.quarkus.runtime.Startup;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -16,18 +26,62 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.InputStream;
 import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+/**
+ * GitHub profile, social accounts, latest releases and contribution data, fetched together into one
+ * {@link GitHubSnapshot} held in a single {@link TieredCache}, so every endpoint serves the same refresh.
+ * <p>
+ * With a token, a refresh is one aliased GraphQL query (profile, social accounts, one
+ * {@code contributionsCollection} per year of the window and one {@code repository} per configured
+ * release repo), read in a streaming pass by {@link GitHubSnapshotReader}. Between full queries, every
+ * {@code github.refresh.full-interval}, revalidations only query the latest year of contributions.
+ * GraphQL requires a token, so without one the profile, social accounts and releases come from the REST
+ * API as conditional requests using the ETag and Last-Modified cached with each part; a {@code 304}
+ * keeps the cached part and costs no rate limit.
+ * <p>
+ * {@link GitHubWebhookResource} reports changes pushed by GitHub ({@link #profileChanged()},
+ * {@link #releaseChanged(String, String)}, {@link #contributionsChanged()}). They are applied in the
+ * background on one thread, changes arriving meanwhile coalescing into the next pass, and the updated
+ * snapshot is stored in both cache tiers.
+ * <p>
+ * Periodic refreshes are started by {@link GitHubRefreshScheduler}, paced by the rate-limit budget,
+ * rather than by a fixed Caffeine refresh interval.
+ */
 @Slf4j
+@Startup
 @ApplicationScoped
 public class GitHubService {
 
+  private static final String DEFAULT_KEY = "default";
+  static final int MAX_MONTHS = 60;
+  // Assets listed per release; the REST API lists them all, release pages rarely have more
+  static final int MAX_RELEASE_ASSETS = 100;
+  // Firestore copies of the per-resource caches the snapshot replaced
+  static final List<String> LEGACY_KEYS = List.of("github-user", "github-social", "github-release",
+      "github-contributions");
+  private static final AttributeKey<String> RESOURCE = AttributeKey.stringKey("resource");
+
   @Inject
   @RestClient
   GitHubClient gitHubClient;
@@ -38,198 +92,474 @@ public class GitHubService {
   @ConfigProperty(name = "github.token")
   Optional<String> token;
 
+  @ConfigProperty(name = "github.releases.repos", defaultValue = "3dime-angular")
+  List<String> releaseRepos;
+
+  @ConfigProperty(name = "github.refresh.full-interval", defaultValue = "PT24H")
+  Duration fullRefreshInterval;
+
   @Inject
   ObjectMapper objectMapper;
 
+  @Inject
+  TieredCacheManager cacheManager;
+
   @Inject
   FirestoreCacheService firestoreCacheService;
 
-  LoadingCache<String, GitHubUser> userCache;
-  LoadingCache<String, JsonNode> socialCache;
-  LoadingCache<Integer, List<Map<String, Object>>> commitsCache;
-  LoadingCache<String, JsonNode> releaseCache;
+  @Inject
+  OpenTelemetry openTelemetry;
 
-  @PostConstruct
-  void initCaches() {
-    userCache = Caffeine.newBuilder()
-        .refreshAfterWrite(Duration.ofHours(1))
-        .expireAfterWrite(Duration.ofHours(24))
-        .build(key -> fetchUser());
+  TieredCache<String, GitHubSnapshot> snapshotCache;
+
+  private GitHubSnapshotReader snapshotReader;
+  private LongCounter notModified;
 
-    socialCache = Caffeine.newBuilder()
-        .refreshAfterWrite(Duration.ofHours(1))
-        .expireAfterWrite(Duration.ofHours(24))
-        .build(key -> fetchSocial());
+  // Changes reported by webhooks and not applied yet
+  private final AtomicBoolean profileChanged = new AtomicBoolean();
+  private final AtomicBoolean contributionsChanged = new AtomicBoolean();
+  private final Set<String> releasesChanged = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean updateQueued = new AtomicBoolean();
+  Executor updater;
 
-    commitsCache = Caffeine.newBuilder()
-        .refreshAfterWrite(Duration.ofHours(1))
-        .expireAfterWrite(Duration.ofHours(24))
-        .build(this::fetchCommits);
+  // Last snapshot query covering the whole contribution window
+  private volatile Instant fullQueryAt;
+  private final AtomicBoolean legacyKeysDeleted = new AtomicBoolean();
+
+  @PostConstruct
+  void initCaches() {
+    snapshotReader = new GitHubSnapshotReader(objectMapper);
+    if (openTelemetry != null) {
+      notModified = openTelemetry.getMeter("com.dime.api")
+          .counterBuilder("github.requests.saved")
+          .setDescription("Conditional GitHub requests answered 304 Not Modified (free of rate limit)")
+          .build();
+    }
 
-    releaseCache = Caffeine.newBuilder()
-        .refreshAfterWrite(Duration.ofHours(6))
-        .expireAfterWrite(Duration.ofHours(24))
-        .build(key -> fetchLatestRelease());
+    updater = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "github-webhook-updater");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    snapshotCache = cacheManager.register(
+        CacheSpec.<String, GitHubSnapshot>of("github", key -> fetchSnapshot(null))
+            .revalidate((key, current) -> fetchSnapshot(current))
+            .expireAfterWrite(Duration.ofHours(24))
+            .persistent(key -> "github-snapshot", new TypeReference<>() {})
+            .warm(10, List.of(DEFAULT_KEY))
+            .critical());
   }
 
   public GitHubUser getUserInfo() {
-    return userCache.get("default");
+    return snapshot().user().entity();
   }
 
   public JsonNode getSocialAccounts() {
-    return socialCache.get("default");
+    return snapshot().social().entity();
   }
 
+  /**
+   * Latest release of the first configured repository.
+   */
   public JsonNode getLatestRelease() {
-    return releaseCache.get("default");
+    return getLatestRelease(releaseRepos.get(0));
+  }
+
+  public JsonNode getLatestRelease(String repo) {
+    if (!releaseRepos.contains(repo)) {
+      throw new ValidationException("Unknown repository. Must be one of: " + String.join(", ", releaseRepos));
+    }
+    ConditionalEntity<JsonNode> release = snapshot().releases().get(repo);
+    if (release == null) {
+      throw new ExternalServiceException("GitHub", "No release found on GitHub for repository " + repo);
+    }
+    return release.entity();
   }
 
-  public List<Map<String, Object>> getCommits(int months) {
-    if (months < 1 || months > 60) {
+  public List<ContributionCalendar.Day> getCommits(int months) {
+    if (months < 1 || months > MAX_MONTHS) {
       throw new IllegalArgumentException("Months parameter must be between 1 and 60");
     }
-    return commitsCache.get(months);
+    return snapshot().contributions().lastMonths(months);
   }
 
-  public void warmFromFirestore() {
-    if (firestoreCacheService == null) return;
-    firestoreCacheService.read("github-user", GitHubUser.class)
-        .ifPresent(user -> userCache.put("default", user));
-    firestoreCacheService.read("github-social", JsonNode.class)
-        .ifPresent(social -> socialCache.put("default", social));
-    firestoreCacheService.read("github-commits-12", new TypeReference<List<Map<String, Object>>>() {})
-        .ifPresent(commits -> commitsCache.put(12, commits));
-    firestoreCacheService.read("github-release", JsonNode.class)
-        .ifPresent(release -> releaseCache.put("default", release));
+  /**
+   * The contribution calendar covering the last {@value #MAX_MONTHS} periods of 30 days.
+   */
+  public ContributionCalendar getContributions() {
+    return snapshot().contributions();
   }
 
-  private Optional<String> getAuthHeader() {
-    return token.filter(t -> !t.trim().isEmpty())
-        .map(t -> t.startsWith("Bearer ") ? t : "Bearer " + t);
+  private GitHubSnapshot snapshot() {
+    return snapshotCache.get(DEFAULT_KEY);
   }
 
-  private GitHubUser fetchUser() {
-    log.info("Fetching GitHub user info for: {}", username);
-    try {
-      GitHubUser user = gitHubClient.getUser(getAuthHeader().orElse(null), username);
-      log.info("Successfully fetched user info for: {}", username);
-      if (firestoreCacheService != null) firestoreCacheService.write("github-user", user);
-      return user;
-    } catch (WebApplicationException e) {
-      log.error("Failed to fetch GitHub user info for: {}", username, e);
-      throw new ExternalServiceException("GitHub",
-          "Failed to fetch user information from GitHub API. Status: " + e.getResponse().getStatus(), e);
-    } catch (Exception e) {
-      log.error("Unexpected error fetching GitHub user info for: {}", username, e);
-      throw new ExternalServiceException("GitHub",
-          "Unexpected error occurred while calling GitHub API: " + e.getMessage(), e);
+  /**
+   * Whether refreshes use the GraphQL API (and its rate limit) rather than the REST API.
+   */
+  public boolean usesGraphql() {
+    return getAuthHeader().isPresent();
+  }
+
+  /**
+   * Upper bound of the REST calls made by one refresh without a token.
+   */
+  public int restCallsPerRefresh() {
+    return 2 + releaseRepos.size();
+  }
+
+  public Optional<Instant> snapshotLoadedAt() {
+    return snapshotCache.loadedAt(DEFAULT_KEY);
+  }
+
+  /**
+   * Revalidates the snapshot in the background, serving the current one meanwhile.
+   */
+  public CompletableFuture<GitHubSnapshot> refreshInBackground() {
+    return snapshotCache.refresh(DEFAULT_KEY);
+  }
+
+  /**
+   * Fetches the whole snapshot now, whatever the schedule and the rate-limit reserve.
+   */
+  public GitHubSnapshot refreshSnapshot() {
+    log.info("Forcing refresh of GitHub snapshot from API...");
+    return snapshotCache.reload(DEFAULT_KEY);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (updater instanceof ExecutorService executor) {
+      executor.shutdownNow();
     }
   }
 
-  private JsonNode fetchSocial() {
-    log.info("Fetching GitHub social accounts for: {}", username);
+  /**
+   * The profile or its public repository count changed.
+   */
+  public void profileChanged() {
+    profileChanged.set(true);
+    scheduleUpdate();
+  }
+
+  /**
+   * A release of {@code owner}/{@code repo} was published, edited or deleted. Returns {@code false},
+   * without updating anything, unless it is one of the configured release repositories.
+   */
+  public boolean releaseChanged(String owner, String repo) {
+    if (!username.equalsIgnoreCase(owner) || !releaseRepos.contains(repo)) {
+      return false;
+    }
+    releasesChanged.add(repo);
+    scheduleUpdate();
+    return true;
+  }
+
+  /**
+   * Commits were pushed, which may change the contribution calendar.
+   */
+  public void contributionsChanged() {
+    contributionsChanged.set(true);
+    scheduleUpdate();
+  }
+
+  private void scheduleUpdate() {
+    if (updateQueued.compareAndSet(false, true)) {
+      try {
+        updater.execute(this::applyChanges);
+      } catch (RejectedExecutionException e) {
+        updateQueued.set(false);
+        log.warn("GitHub webhook updater stopped; change left to the next refresh");
+      }
+    }
+  }
+
+  /**
+   * Fetches the parts reported as changed and stores the updated snapshot. With a token the single
+   * snapshot query already covers every part; without one only the changed REST resources are fetched.
+   */
+  void applyChanges() {
+    // Changes reported from here on queue another pass
+    updateQueued.set(false);
+    boolean profile = profileChanged.getAndSet(false);
+    boolean contributions = contributionsChanged.getAndSet(false);
+    Set<String> releases = new HashSet<>(releasesChanged);
+    releasesChanged.removeAll(releases);
+    if (!profile && !contributions && releases.isEmpty()) {
+      return;
+    }
     try {
-      JsonNode social = gitHubClient.getSocialAccounts(getAuthHeader().orElse(null), username);
-      if (firestoreCacheService != null) firestoreCacheService.write("github-social", social);
-      return social;
-    } catch (WebApplicationException e) {
-      log.error("Failed to fetch GitHub social accounts for: {}", username, e);
-      throw new ExternalServiceException("GitHub",
-          "Failed to fetch social accounts from GitHub API. Status: " + e.getResponse().getStatus(), e);
-    } catch (Exception e) {
-      log.error("Unexpected error fetching GitHub social accounts for: {}", username, e);
-      throw new ExternalServiceException("GitHub",
-          "Unexpected error occurred while calling GitHub social accounts API: " + e.getMessage(), e);
+      GitHubSnapshot current = snapshotCache.getIfPresent(DEFAULT_KEY).orElse(null);
+      Optional<String> authHeader = getAuthHeader();
+      GitHubSnapshot updated;
+      if (authHeader.isPresent() || current == null) {
+        updated = fetchSnapshot(current);
+      } else if (profile || !releases.isEmpty()) {
+        updated = updateRestSnapshot(current, profile, releases);
+      } else {
+        // The REST API has no contribution data
+        return;
+      }
+      snapshotCache.put(DEFAULT_KEY, updated);
+      log.info("Applied GitHub webhook changes (profile: {}, releases: {}, contributions: {})",
+          profile, releases, contributions);
+    } catch (RuntimeException e) {
+      log.warn("Failed to apply GitHub webhook changes; left to the next refresh: {}", e.getMessage());
     }
   }
 
-  private List<Map<String, Object>> fetchCommits(int months) {
-    log.info("Fetching GitHub commits for: {} (months: {})", username, months);
+  private Optional<String> getAuthHeader() {
+    return token.filter(t -> !t.trim().isEmpty())
+        .map(t -> t.startsWith("Bearer ") ? t : "Bearer " + t);
+  }
+
+  private GitHubSnapshot fetchSnapshot(GitHubSnapshot current) {
+    Optional<String> authHeader = getAuthHeader();
+    GitHubSnapshot snapshot = authHeader.isPresent()
+        ? fetchGraphqlSnapshot(authHeader.get(), current)
+        : fetchRestSnapshot(current);
+    deleteLegacyKeys();
+    return snapshot;
+  }
+
+  /**
+   * Deletes, once per instance, the Firestore copies of the per-resource caches the snapshot replaced.
+   */
+  private void deleteLegacyKeys() {
+    if (firestoreCacheService != null && legacyKeysDeleted.compareAndSet(false, true)) {
+      LEGACY_KEYS.forEach(firestoreCacheService::delete);
+    }
+  }
 
-    String query = """
-        query {
-          user(login: "%s") {
-            contributionsCollection {
-              contributionCalendar {
-                weeks {
-                  contributionDays {
-                    contributionCount
-                    date
+  /**
+   * The snapshot query: profile fields, social accounts, one aliased {@code contributionsCollection}
+   * ({@code y0}, {@code y1}, ...) per year of the window, since one spans at most a year, and one aliased
+   * {@code repository} ({@code r0}, {@code r1}, ...) per release repository.
+   */
+  static String snapshotQuery(int years, int repos) {
+    StringBuilder params = new StringBuilder("$login: String!");
+    StringBuilder contributions = new StringBuilder();
+    for (int i = 0; i < years; i++) {
+      params.append(", $y%1$dFrom: DateTime!, $y%1$dTo: DateTime!".formatted(i));
+      contributions.append("""
+              y%1$d: contributionsCollection(from: $y%1$dFrom, to: $y%1$dTo) {
+                contributionCalendar { weeks { contributionDays { contributionCount date } } }
+              }
+          """.formatted(i));
+    }
+    StringBuilder releases = new StringBuilder();
+    for (int i = 0; i < repos; i++) {
+      params.append(", $r%d: String!".formatted(i));
+      releases.append("""
+            r%1$d: repository(owner: $login, name: $r%1$d) {
+              latestRelease {
+                id databaseId tagName name url publishedAt createdAt description isDraft isPrerelease
+                author { id databaseId login avatarUrl url }
+                releaseAssets(first: %2$d) {
+                  nodes {
+                    id name contentType size downloadCount downloadUrl createdAt updatedAt
+                    uploadedBy { id databaseId login avatarUrl url }
                   }
                 }
               }
             }
+          """.formatted(i, MAX_RELEASE_ASSETS));
+    }
+    return """
+        query(%s) {
+          user(login: $login) {
+            login databaseId name email bio location websiteUrl avatarUrl url createdAt updatedAt
+            repositories(privacy: PUBLIC, ownerAffiliations: OWNER) { totalCount }
+            gists(privacy: PUBLIC) { totalCount }
+            followers { totalCount }
+            following { totalCount }
+            socialAccounts(first: 20) { nodes { provider url } }
+        %s  }
+        %s}
+        """.formatted(params, contributions, releases);
+  }
+
+  /**
+   * Revalidating {@code current} within {@code github.refresh.full-interval} of the last full query only
+   * queries the latest year of contributions, keeping the older days of {@code current}: GraphQL has no
+   * conditional requests, and those days rarely change.
+   */
+  private GitHubSnapshot fetchGraphqlSnapshot(String authToken, GitHubSnapshot current) {
+    LocalDate to = LocalDate.now(ZoneOffset.UTC);
+    LocalDate from = to.minusDays(MAX_MONTHS * 30L - 1);
+    Instant lastFull = fullQueryAt;
+    boolean partial = current != null && lastFull != null
+        && Instant.now().isBefore(lastFull.plus(fullRefreshInterval))
+        && !current.contributions().start().isAfter(from);
+    log.info("Fetching GitHub snapshot for: {} (contributions {} to {}{}, releases {})", username, from, to,
+        partial ? ", latest year only" : "", releaseRepos);
+
+    ObjectNode variables = objectMapper.createObjectNode().put("login", username);
+    int years = 0;
+    for (LocalDate end = to; !end.isBefore(from) && !(partial && years == 1);
+        end = end.minusYears(1), years++) {
+      LocalDate start = Collections.max(List.of(from, end.minusYears(1).plusDays(1)));
+      variables.put("y" + years + "From", start.atStartOfDay(ZoneOffset.UTC).toString());
+      variables.put("y" + years + "To", end.plusDays(1).atStartOfDay(ZoneOffset.UTC).minusSeconds(1).toString());
+    }
+    for (int i = 0; i < releaseRepos.size(); i++) {
+      variables.put("r" + i, releaseRepos.get(i));
+    }
+    ObjectNode body = objectMapper.createObjectNode();
+    body.put("query", snapshotQuery(years, releaseRepos.size()));
+    body.set("variables", variables);
+
+    try (Response response = gitHubClient.postGraphql(authToken, body)) {
+      GitHubSnapshotReader.Result result = snapshotReader.read(response.readEntity(InputStream.class));
+
+      if (result.errors() != null) {
+        for (JsonNode error : result.errors()) {
+          // A missing release repository only drops that release
+          if (!error.path("path").path(0).asText().startsWith("r")) {
+            log.error("GitHub GraphQL error: {}", result.errors());
+            throw new ExternalServiceException("GitHub", "GitHub GraphQL API returned errors: " + result.errors());
           }
+          log.warn("GitHub GraphQL error for release repository: {}", error);
         }
-        """.formatted(username);
+      }
+      if (result.user() == null) {
+        throw new ExternalServiceException("GitHub", "GitHub GraphQL API returned no user for " + username);
+      }
 
-    ObjectNode body = objectMapper.createObjectNode();
-    body.put("query", query);
+      Map<String, ConditionalEntity<JsonNode>> releases = new LinkedHashMap<>();
+      result.releases().forEach((alias, release) ->
+          releases.put(releaseRepos.get(alias), new ConditionalEntity<>(release, null, null)));
+      List<ContributionCalendar> contributions = new ArrayList<>();
+      if (partial) {
+        // Older days first, so the days just queried override them
+        contributions.add(current.contributions());
+      } else {
+        fullQueryAt = Instant.now();
+      }
+      contributions.addAll(result.contributions());
+      log.info("Successfully fetched GitHub snapshot for: {}", username);
+      return new GitHubSnapshot(new ConditionalEntity<>(result.user(), null, null),
+          new ConditionalEntity<>(result.social(), null, null), releases,
+          ContributionCalendar.merge(from, to, contributions));
 
-    if (token.isEmpty() || token.get().trim().isEmpty()) {
-      log.warn("GitHub token not configured. Skipping commit statistics fetch.");
-      return new ArrayList<>();
+    } catch (WebApplicationException e) {
+      log.error("Failed to fetch GitHub snapshot for: {}", username, e);
+      throw new ExternalServiceException("GitHub",
+          "Failed to fetch data from GitHub GraphQL API. Status: " + e.getResponse().getStatus(), e);
+    } catch (ExternalServiceException e) {
+      throw e;
+    } catch (Exception e) {
+      log.error("Unexpected error fetching GitHub snapshot for: {}", username, e);
+      throw new ExternalServiceException("GitHub",
+          "Unexpected error occurred while calling GitHub GraphQL API: " + e.getMessage(), e);
     }
+  }
 
-    try {
-      String effectiveToken = token.get();
-      String authToken = effectiveToken.startsWith("Bearer ") ? effectiveToken : "Bearer " + effectiveToken;
-
-      JsonNode response = gitHubClient.postGraphql(authToken, body);
+  private GitHubSnapshot fetchRestSnapshot(GitHubSnapshot current) {
+    log.warn("GitHub token not configured. Using the REST API and skipping commit statistics fetch.");
+    Map<String, ConditionalEntity<JsonNode>> releases = new LinkedHashMap<>();
+    for (String repo : releaseRepos) {
+      ConditionalEntity<JsonNode> release = fetchLatestRelease(repo,
+          current != null ? current.releases().get(repo) : null);
+      if (release != null) {
+        releases.put(repo, release);
+      }
+    }
+    return new GitHubSnapshot(
+        fetchUser(current != null ? current.user() : null),
+        fetchSocial(current != null ? current.social() : null),
+        releases,
+        ContributionCalendar.empty(LocalDate.now(ZoneOffset.UTC)));
+  }
 
-      if (response.has("errors")) {
-        String errorMsg = response.get("errors").toString();
-        log.error("GitHub GraphQL error: {}", errorMsg);
-        throw new ExternalServiceException("GitHub", "GitHub GraphQL API returned errors: " + errorMsg);
+  private GitHubSnapshot updateRestSnapshot(GitHubSnapshot current, boolean profile, Set<String> changed) {
+    Map<String, ConditionalEntity<JsonNode>> releases = new LinkedHashMap<>();
+    for (String repo : releaseRepos) {
+      ConditionalEntity<JsonNode> release = changed.contains(repo)
+          ? fetchLatestRelease(repo, current.releases().get(repo))
+          : current.releases().get(repo);
+      if (release != null) {
+        releases.put(repo, release);
       }
+    }
+    return new GitHubSnapshot(
+        profile ? fetchUser(current.user()) : current.user(),
+        profile ? fetchSocial(current.social()) : current.social(),
+        releases,
+        current.contributions());
+  }
 
-      List<Map<String, Object>> commits = new ArrayList<>();
-      Instant cutoff = Instant.now().minus(months * 30L, ChronoUnit.DAYS);
-
-      JsonNode weeks = response.at("/data/user/contributionsCollection/contributionCalendar/weeks");
-      if (weeks.isArray()) {
-        for (JsonNode week : weeks) {
-          JsonNode days = week.get("contributionDays");
-          if (days.isArray()) {
-            for (JsonNode day : days) {
-              String dateStr = day.get("date").asText();
-              Instant date = Instant.parse(dateStr + "T00:00:00Z");
-
-              if (date.isAfter(cutoff)) {
-                commits.add(Map.of(
-                    "date", date.toEpochMilli(),
-                    "value", day.get("contributionCount").asInt()));
-              }
-            }
-          }
+  /**
+   * Sends {@code call} with the validators of {@code current}, if any, and returns {@code current} itself
+   * on {@code 304 Not Modified}.
+   */
+  private <T> ConditionalEntity<T> conditional(String resource, ConditionalEntity<T> current, Class<T> type,
+      BiFunction<String, String, Response> call) {
+    try (Response response = current != null
+        ? call.apply(current.etag(), current.lastModified())
+        : call.apply(null, null)) {
+      if (current != null && response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+        log.debug("GitHub {} not modified", resource);
+        if (notModified != null) {
+          notModified.add(1, Attributes.of(RESOURCE, resource));
         }
+        return current;
       }
+      return new ConditionalEntity<>(response.readEntity(type), response.getHeaderString(HttpHeaders.ETAG),
+          response.getHeaderString(HttpHeaders.LAST_MODIFIED));
+    }
+  }
 
-      if (firestoreCacheService != null) firestoreCacheService.write("github-commits-" + months, commits);
-      return commits;
+  private ConditionalEntity<GitHubUser> fetchUser(ConditionalEntity<GitHubUser> current) {
+    log.info("Fetching GitHub user info for: {}", username);
+    try {
+      ConditionalEntity<GitHubUser> user = conditional("user", current, GitHubUser.class,
+          (etag, modified) -> gitHubClient.getUser(null, username, etag, modified));
+      log.info("Successfully fetched user info for: {}", username);
+      return user;
+    } catch (WebApplicationException e) {
+      log.error("Failed to fetch GitHub user info for: {}", username, e);
+      throw new ExternalServiceException("GitHub",
+          "Failed to fetch user information from GitHub API. Status: " + e.getResponse().getStatus(), e);
+    } catch (Exception e) {
+      log.error("Unexpected error fetching GitHub user info for: {}", username, e);
+      throw new ExternalServiceException("GitHub",
+          "Unexpected error occurred while calling GitHub API: " + e.getMessage(), e);
+    }
+  }
 
+  private ConditionalEntity<JsonNode> fetchSocial(ConditionalEntity<JsonNode> current) {
+    log.info("Fetching GitHub social accounts for: {}", username);
+    try {
+      return conditional("social", current, JsonNode.class, (etag, modified) ->
+          gitHubClient.getSocialAccounts(null, username, etag, modified));
     } catch (WebApplicationException e) {
-      log.error("Failed to fetch GitHub commits for: {}", username, e);
+      log.error("Failed to fetch GitHub social accounts for: {}", username, e);
       throw new ExternalServiceException("GitHub",
-          "Failed to fetch commit statistics from GitHub GraphQL API. Status: " + e.getResponse().getStatus(), e);
+          "Failed to fetch social accounts from GitHub API. Status: " + e.getResponse().getStatus(), e);
     } catch (Exception e) {
-      if (e instanceof ExternalServiceException) {
-        throw e;
-      }
-      log.error("Unexpected error fetching GitHub commits for: {}", username, e);
+      log.error("Unexpected error fetching GitHub social accounts for: {}", username, e);
       throw new ExternalServiceException("GitHub",
-          "Unexpected error occurred while calling GitHub GraphQL API: " + e.getMessage(), e);
+          "Unexpected error occurred while calling GitHub social accounts API: " + e.getMessage(), e);
     }
   }
 
-  private JsonNode fetchLatestRelease() {
-    log.info("Fetching latest GitHub release for: {}/{}", username, "3dime-angular");
+  /**
+   * Returns {@code null} when the repository has no release.
+   */
+  private ConditionalEntity<JsonNode> fetchLatestRelease(String repo, ConditionalEntity<JsonNode> current) {
+    log.info("Fetching latest GitHub release for: {}/{}", username, repo);
     try {
-      JsonNode release = gitHubClient.getLatestRelease(getAuthHeader().orElse(null), username, "3dime-angular");
+      ConditionalEntity<JsonNode> release = conditional("release", current, JsonNode.class, (etag, modified) ->
+          gitHubClient.getLatestRelease(null, username, repo, etag, modified));
       log.info("Successfully fetched latest release");
-      if (firestoreCacheService != null) firestoreCacheService.write("github-release", release);
       return release;
     } catch (WebApplicationException e) {
+      if (e.getResponse().getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
+        log.warn("No release found for: {}/{}", username, repo);
+        return null;
+      }
       log.error("Failed to fetch latest release", e);
       throw new ExternalServiceException("GitHub",
           "Failed to fetch latest release from GitHub API. Status: " + e.getResponse().getStatus(), e);
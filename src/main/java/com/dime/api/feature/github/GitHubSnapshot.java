@@ -0,0 +1,17 @@
+package com.dime.api.feature.github;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Map;
+
+/**
+ * Everything served from GitHub, fetched and cached together: the profile, social accounts, the latest
+ * release of each configured repository (absent when a repository has none) and the contribution
+ * calendar. Social accounts and releases keep the REST API's JSON shape.
+ */
+public record GitHubSnapshot(@JsonProperty(required = true) ConditionalEntity<GitHubUser> user,
+        ConditionalEntity<JsonNode> social,
+        Map<String, ConditionalEntity<JsonNode>> releases,
+        ContributionCalendar contributions) {
+}
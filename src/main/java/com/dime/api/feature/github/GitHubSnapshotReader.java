@@ -0,0 +1,229 @@
+package com.dime.api.feature.github;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the response of {@link GitHubService}'s snapshot query in one streaming pass, dispatching on
+ * the JSON pointer of each value. Only the small subtrees (social accounts, releases, errors) become
+ * trees; profile fields are read as scalars and contribution days straight into an {@code int[]}.
+ */
+final class GitHubSnapshotReader {
+
+    private static final String USER = "/data/user/";
+    private static final String SOCIAL = "/data/user/socialAccounts/nodes";
+    private static final String RELEASE_PREFIX = "/data/r";
+    private static final String RELEASE_SUFFIX = "/latestRelease";
+    private static final String WEEKS_SUFFIX = "/contributionCalendar/weeks";
+    private static final String API_URL = "https://api.github.com";
+    private static final String UPLOADS_URL = "https://uploads.github.com";
+
+    /**
+     * Values read from the response; {@code releases} is keyed by alias index and {@code errors} is
+     * {@code null} when the response has none.
+     */
+    record Result(GitHubUser user, JsonNode social, Map<Integer, JsonNode> releases,
+            List<ContributionCalendar> contributions, JsonNode errors) {
+    }
+
+    private final ObjectMapper objectMapper;
+
+    GitHubSnapshotReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    Result read(InputStream body) throws IOException {
+        Map<String, String> profile = new HashMap<>();
+        JsonNode social = objectMapper.createArrayNode();
+        Map<Integer, JsonNode> releases = new LinkedHashMap<>();
+        List<ContributionCalendar> contributions = new ArrayList<>();
+        JsonNode errors = null;
+
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            for (JsonToken token = parser.nextToken(); token != null; token = parser.nextToken()) {
+                if (token == JsonToken.FIELD_NAME || token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY
+                        || token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                String pointer = parser.getParsingContext().pathAsPointer().toString();
+                if (pointer.equals("/errors")) {
+                    errors = parser.readValueAsTree();
+                } else if (pointer.equals(SOCIAL)) {
+                    social = toRestSocial(parser.readValueAsTree());
+                } else if (pointer.startsWith(RELEASE_PREFIX) && pointer.endsWith(RELEASE_SUFFIX)) {
+                    int alias = Integer.parseInt(pointer.substring(RELEASE_PREFIX.length(),
+                            pointer.length() - RELEASE_SUFFIX.length()));
+                    releases.put(alias, toRestRelease(parser.readValueAsTree()));
+                } else if (pointer.startsWith(USER) && pointer.endsWith(WEEKS_SUFFIX)) {
+                    ContributionCalendar calendar = readWeeks(parser);
+                    if (calendar != null) {
+                        contributions.add(calendar);
+                    }
+                } else if (token.isScalarValue() && pointer.startsWith(USER)) {
+                    profile.put(pointer.substring(USER.length()), parser.getText());
+                }
+            }
+        }
+        return new Result(profile.isEmpty() ? null : toUser(profile), social, releases, contributions, errors);
+    }
+
+    /**
+     * Reads a {@code weeks} array as consecutive days, parsing only the first date.
+     */
+    private static ContributionCalendar readWeeks(JsonParser parser) throws IOException {
+        int[] counts = new int[372];
+        int size = 0;
+        LocalDate first = null;
+        for (int depth = 1; depth > 0; ) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new IOException("Truncated contribution calendar");
+            }
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            } else if (token == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                if ("contributionCount".equals(name)) {
+                    parser.nextToken();
+                    if (size == counts.length) {
+                        counts = Arrays.copyOf(counts, size * 2);
+                    }
+                    counts[size++] = parser.getIntValue();
+                } else if (first == null && "date".equals(name)) {
+                    parser.nextToken();
+                    first = LocalDate.parse(parser.getText());
+                }
+            }
+        }
+        return first != null ? new ContributionCalendar(first.toEpochDay(), Arrays.copyOf(counts, size)) : null;
+    }
+
+    private static GitHubUser toUser(Map<String, String> profile) {
+        GitHubUser user = new GitHubUser();
+        user.setLogin(profile.get("login"));
+        user.setId(parseLong(profile.get("databaseId")));
+        user.setName(profile.get("name"));
+        user.setEmail(profile.get("email"));
+        user.setBio(profile.get("bio"));
+        user.setLocation(profile.get("location"));
+        user.setBlog(profile.get("websiteUrl"));
+        user.setAvatarUrl(profile.get("avatarUrl"));
+        user.setHtmlUrl(profile.get("url"));
+        user.setPublicRepos(parseInt(profile.get("repositories/totalCount")));
+        user.setPublicGists(parseInt(profile.get("gists/totalCount")));
+        user.setFollowers(parseInt(profile.get("followers/totalCount")));
+        user.setFollowing(parseInt(profile.get("following/totalCount")));
+        user.setCreatedAt(profile.get("createdAt"));
+        user.setUpdatedAt(profile.get("updatedAt"));
+        return user;
+    }
+
+    private ArrayNode toRestSocial(JsonNode nodes) {
+        ArrayNode accounts = objectMapper.createArrayNode();
+        for (JsonNode node : nodes) {
+            accounts.addObject()
+                    .put("provider", node.path("provider").asText().toLowerCase(Locale.ROOT))
+                    .put("url", node.path("url").asText());
+        }
+        return accounts;
+    }
+
+    /**
+     * Rebuilds the REST {@code /releases/latest} body. The API URLs are derived from the repository in
+     * {@code url} and the release id; {@code target_commitish}, the asset {@code id}, {@code url},
+     * {@code label} and {@code state}, and the API URLs of the author and uploader have no GraphQL
+     * counterpart and are left out.
+     */
+    private ObjectNode toRestRelease(JsonNode release) {
+        String htmlUrl = release.path("url").asText(null);
+        String tag = release.path("tagName").asText(null);
+        String id = release.path("databaseId").asText(null);
+        String repository = repositoryOf(htmlUrl);
+
+        ObjectNode rest = objectMapper.createObjectNode();
+        if (repository != null && id != null) {
+            rest.put("url", API_URL + "/repos/" + repository + "/releases/" + id);
+            rest.put("assets_url", API_URL + "/repos/" + repository + "/releases/" + id + "/assets");
+            rest.put("upload_url", UPLOADS_URL + "/repos/" + repository + "/releases/" + id + "/assets{?name,label}");
+        }
+        rest.put("html_url", htmlUrl);
+        rest.put("id", parseLong(id));
+        rest.set("author", toRestAccount(release.path("author")));
+        rest.put("node_id", release.path("id").asText(null));
+        rest.put("tag_name", tag);
+        rest.put("name", release.path("name").asText(null));
+        rest.put("draft", release.path("isDraft").asBoolean());
+        rest.put("prerelease", release.path("isPrerelease").asBoolean());
+        rest.put("created_at", release.path("createdAt").asText(null));
+        rest.put("published_at", release.path("publishedAt").asText(null));
+        ArrayNode assets = rest.putArray("assets");
+        for (JsonNode asset : release.path("releaseAssets").path("nodes")) {
+            assets.addObject()
+                    .put("node_id", asset.path("id").asText(null))
+                    .put("name", asset.path("name").asText(null))
+                    .put("content_type", asset.path("contentType").asText(null))
+                    .put("size", asset.path("size").asLong())
+                    .put("download_count", asset.path("downloadCount").asLong())
+                    .put("created_at", asset.path("createdAt").asText(null))
+                    .put("updated_at", asset.path("updatedAt").asText(null))
+                    .put("browser_download_url", asset.path("downloadUrl").asText(null))
+                    .set("uploader", toRestAccount(asset.path("uploadedBy")));
+        }
+        if (repository != null && tag != null) {
+            rest.put("tarball_url", API_URL + "/repos/" + repository + "/tarball/" + tag);
+            rest.put("zipball_url", API_URL + "/repos/" + repository + "/zipball/" + tag);
+        }
+        rest.put("body", release.path("description").asText(null));
+        return rest;
+    }
+
+    private JsonNode toRestAccount(JsonNode account) {
+        if (!account.isObject()) {
+            return NullNode.getInstance();
+        }
+        return objectMapper.createObjectNode()
+                .put("login", account.path("login").asText(null))
+                .put("id", parseLong(account.path("databaseId").asText(null)))
+                .put("node_id", account.path("id").asText(null))
+                .put("avatar_url", account.path("avatarUrl").asText(null))
+                .put("html_url", account.path("url").asText(null));
+    }
+
+    /**
+     * {@code owner/repo} of a release page URL ({@code https://github.com/owner/repo/releases/tag/...}).
+     */
+    static String repositoryOf(String htmlUrl) {
+        if (htmlUrl == null) {
+            return null;
+        }
+        String[] segments = URI.create(htmlUrl).getPath().split("/");
+        return segments.length > 2 ? segments[1] + "/" + segments[2] : null;
+    }
+
+    private static Integer parseInt(String value) {
+        return value != null ? Integer.valueOf(value) : null;
+    }
+
+    private static Long parseLong(String value) {
+        return value != null ? Long.valueOf(value) : null;
+    }
+}
@@ -0,0 +1,128 @@
+package com.dime.api.feature.github;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.extensions.Extension;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Handles incoming GitHub webhook events and updates the cached GitHub data they change.
+ * Intentionally NOT protected by Firebase auth — GitHub signs the payload with the shared secret.
+ */
+@Slf4j
+@Path("/webhooks/github")
+@Tag(name = "webhooks", description = "GitHub event webhooks")
+@Extension(name = "x-smallrye-profile-public", value = "")
+public class GitHubWebhookResource {
+
+    private static final String SIGNATURE_PREFIX = "sha256=";
+
+    @Inject
+    GitHubService gitHubService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "github.webhook.secret")
+    Optional<String> webhookSecret;
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Receive GitHub webhook events",
+               description = "Validates the X-Hub-Signature-256 header and refreshes the GitHub data changed by release, push and public events")
+    public Response handleWebhook(byte[] payload,
+            @HeaderParam("X-Hub-Signature-256") String signature,
+            @HeaderParam("X-GitHub-Event") String event,
+            @HeaderParam("X-GitHub-Delivery") String delivery) {
+
+        Optional<String> secret = webhookSecret.filter(s -> !s.isBlank());
+        if (secret.isEmpty()) {
+            log.warn("Received GitHub webhook but github.webhook.secret is not configured");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(Map.of("error", "GitHub webhook secret not configured"))
+                    .build();
+        }
+        if (signature == null || signature.isBlank()) {
+            log.warn("Received webhook request without X-Hub-Signature-256 header");
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", "Missing X-Hub-Signature-256 header"))
+                    .build();
+        }
+        if (!signatureMatches(secret.get(), payload, signature)) {
+            log.warn("Invalid GitHub webhook signature (delivery={})", delivery);
+            return Response.status(Response.Status.UNAUTHORIZED)
+                    .entity(Map.of("error", "Invalid webhook signature"))
+                    .build();
+        }
+
+        JsonNode body;
+        try {
+            body = objectMapper.readTree(payload);
+        } catch (IOException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", "Invalid JSON payload"))
+                    .build();
+        }
+
+        log.info("Received GitHub event: {} ({})", event, delivery);
+
+        JsonNode repository = body.path("repository");
+        switch (event == null ? "" : event) {
+            case "release" -> {
+                String owner = repository.path("owner").path("login").asText();
+                String repo = repository.path("name").asText();
+                if (!gitHubService.releaseChanged(owner, repo)) {
+                    log.debug("Ignoring release event for untracked repository {}/{}", owner, repo);
+                }
+            }
+            case "push" -> gitHubService.contributionsChanged();
+            case "public" -> gitHubService.profileChanged();
+            case "ping" -> log.info("GitHub webhook ping: {}", body.path("zen").asText());
+            default -> log.debug("Unhandled GitHub event type: {}", event);
+        }
+
+        // Always return 200 to acknowledge receipt — updates are applied in the background
+        return Response.ok(Map.of("received", true)).build();
+    }
+
+    /**
+     * Whether {@code header} is {@code sha256=} followed by the hex HMAC-SHA256 of {@code payload} keyed
+     * with {@code secret}, compared in constant time.
+     */
+    static boolean signatureMatches(String secret, byte[] payload, String header) {
+        if (!header.startsWith(SIGNATURE_PREFIX)) {
+            return false;
+        }
+        byte[] expected;
+        try {
+            expected = HexFormat.of().parseHex(header.substring(SIGNATURE_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return MessageDigest.isEqual(mac.doFinal(payload), expected);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+}
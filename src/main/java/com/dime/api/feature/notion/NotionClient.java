@@ -8,13 +8,18 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.faulttolerance.Retry;
 import org.eclipse.microprofile.faulttolerance.Timeout;
+import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import com.fasterxml.jackson.databind.JsonNode;
 import java.time.temporal.ChronoUnit;
 
 @Path("/v1")
 @RegisterRestClient(configKey = "notion-api")
+@RegisterProvider(NotionRateLimitFilter.class)
+@RegisterProvider(NotionThrottledExceptionMapper.class)
+@Retry(retryOn = NotionThrottledException.class, maxRetries = 3, delay = 1, delayUnit = ChronoUnit.SECONDS, jitter = 500)
 public interface NotionClient {
 
         @POST
@@ -0,0 +1,168 @@
+package com.dime.api.feature.notion;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Cursor-paginated reader for Notion database queries.
+ * <p>
+ * {@link #query} returns a lazy stream of result rows that follows {@code has_more}/{@code next_cursor}
+ * until the database is exhausted. While the rows of one page are consumed, the next page is fetched
+ * in the background; at most one page is prefetched per stream, so a slow consumer holds back the
+ * reader instead of buffering the whole database. Prefetches keep the caller's
+ * {@link NotionRateLimiter.Priority}, and pacing is left to the shared limiter.
+ */
+@Slf4j
+@ApplicationScoped
+public class NotionDatabaseReader {
+
+    static final int PAGE_SIZE = 100;
+
+    @Inject
+    @RestClient
+    NotionClient notionClient;
+
+    @Inject
+    NotionRateLimiter rateLimiter;
+
+    // At most one prefetch per open stream; unbounded so an interactive read never queues behind a
+    // background prefetch that is waiting for the rate limiter
+    private final ExecutorService prefetcher = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "notion-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public NotionDatabaseReader() {
+    }
+
+    /**
+     * Creates a reader outside of CDI, without rate limiting.
+     */
+    public NotionDatabaseReader(NotionClient notionClient) {
+        this.notionClient = notionClient;
+    }
+
+    /**
+     * Streams every row matching {@code query}. The stream must be closed (e.g. try-with-resources) when
+     * abandoned early, so that an in-flight prefetch is cancelled. Request failures are rethrown from the
+     * terminal operation.
+     */
+    public Stream<JsonNode> query(String authToken, String version, String databaseId, ObjectNode query) {
+        NotionRateLimiter.Priority priority = rateLimiter != null ? rateLimiter.currentPriority()
+                : NotionRateLimiter.Priority.BACKGROUND;
+        RowSpliterator rows = new RowSpliterator(authToken, version, databaseId, query, priority);
+        return StreamSupport.stream(rows, false).onClose(rows::cancel);
+    }
+
+    private JsonNode fetchPage(String authToken, String version, String databaseId, ObjectNode query,
+            String cursor, NotionRateLimiter.Priority priority) {
+        ObjectNode page = query.deepCopy();
+        page.put("page_size", PAGE_SIZE);
+        if (cursor != null) {
+            page.put("start_cursor", cursor);
+        }
+        if (rateLimiter == null) {
+            return notionClient.queryDatabase(authToken, version, databaseId, page);
+        }
+        return rateLimiter.call(priority, () -> notionClient.queryDatabase(authToken, version, databaseId, page));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        prefetcher.shutdownNow();
+    }
+
+    private final class RowSpliterator extends Spliterators.AbstractSpliterator<JsonNode> {
+
+        private final String authToken;
+        private final String version;
+        private final String databaseId;
+        private final ObjectNode query;
+        private final NotionRateLimiter.Priority priority;
+
+        private Iterator<JsonNode> rows = Collections.emptyIterator();
+        private Future<JsonNode> pending;
+        private boolean started;
+        private int pagesRead;
+
+        RowSpliterator(String authToken, String version, String databaseId, ObjectNode query,
+                NotionRateLimiter.Priority priority) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.authToken = authToken;
+            this.version = version;
+            this.databaseId = databaseId;
+            this.query = query;
+            this.priority = priority;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super JsonNode> action) {
+            while (!rows.hasNext()) {
+                if (pending == null) {
+                    if (started) {
+                        return false;
+                    }
+                    started = true;
+                    pending = submit(null);
+                }
+                JsonNode page = await(pending);
+                pending = null;
+                pagesRead++;
+
+                // Prefetch the next page while the caller works through this one
+                String cursor = page.path("has_more").asBoolean(false) ? page.path("next_cursor").asText(null) : null;
+                if (cursor != null) {
+                    pending = submit(cursor);
+                } else {
+                    log.debug("Read {} pages from Notion database {}", pagesRead, databaseId);
+                }
+                rows = page.path("results").elements();
+            }
+            action.accept(rows.next());
+            return true;
+        }
+
+        private Future<JsonNode> submit(String cursor) {
+            return prefetcher.submit(() -> fetchPage(authToken, version, databaseId, query, cursor, priority));
+        }
+
+        private JsonNode await(Future<JsonNode> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while reading Notion database " + databaseId, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new IllegalStateException("Failed to read Notion database " + databaseId, e.getCause());
+            }
+        }
+
+        void cancel() {
+            if (pending != null) {
+                pending.cancel(true);
+                pending = null;
+            }
+        }
+    }
+}
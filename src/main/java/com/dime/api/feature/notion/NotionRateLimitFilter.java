@@ -0,0 +1,57 @@
+package com.dime.api.feature.notion;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.client.ClientResponseContext;
+import jakarta.ws.rs.client.ClientResponseFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+
+/**
+ * Enforces the shared {@link NotionRateLimiter} on every {@code notion-api} request and pauses the
+ * limiter when Notion answers 429.
+ */
+@ApplicationScoped
+public class NotionRateLimitFilter implements ClientRequestFilter, ClientResponseFilter {
+
+    static final int TOO_MANY_REQUESTS = 429;
+
+    @Inject
+    NotionRateLimiter rateLimiter;
+
+    @Override
+    public void filter(ClientRequestContext requestContext) throws IOException {
+        try {
+            rateLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the Notion rate limiter");
+        }
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+        if (responseContext.getStatus() == TOO_MANY_REQUESTS) {
+            rateLimiter.pause(retryAfter(responseContext.getHeaderString(HttpHeaders.RETRY_AFTER)));
+        }
+    }
+
+    /**
+     * Parses a {@code Retry-After} value in seconds, defaulting to one second when absent or malformed.
+     */
+    static Duration retryAfter(String header) {
+        if (header != null) {
+            try {
+                return Duration.ofSeconds(Math.max(0, Long.parseLong(header.trim())));
+            } catch (NumberFormatException ignored) {
+                // Notion sends delta-seconds; anything else falls back to the default
+            }
+        }
+        return Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,220 @@
+package com.dime.api.feature.notion;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.LongHistogram;
+import io.opentelemetry.api.metrics.Meter;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Client-side token bucket shared by every caller of {@link NotionClient}.
+ * <p>
+ * Notion allows an average of three requests per second per integration. All calls take a token in
+ * {@link NotionRateLimitFilter} before they are sent. {@link Priority#INTERACTIVE} callers
+ * (user-facing reads) may use the whole bucket, while {@link Priority#BACKGROUND} callers (syncs,
+ * tracking) leave a reserve and yield whenever an interactive caller is waiting. A 429 response
+ * pauses the bucket for the {@code Retry-After} period plus jitter.
+ * <p>
+ * The priority is carried in a thread-local set by {@link #call(Priority, Supplier)}. Without one, a
+ * call is treated as background.
+ */
+@Slf4j
+@ApplicationScoped
+public class NotionRateLimiter {
+
+    public enum Priority {
+        INTERACTIVE, BACKGROUND
+    }
+
+    private static final AttributeKey<String> PRIORITY = AttributeKey.stringKey("priority");
+    private static final long MAX_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAX_JITTER_MS = 250;
+
+    private static final ThreadLocal<Priority> CURRENT = ThreadLocal.withInitial(() -> Priority.BACKGROUND);
+
+    @ConfigProperty(name = "notion.rate-limit.requests-per-second", defaultValue = "3")
+    double requestsPerSecond;
+
+    @ConfigProperty(name = "notion.rate-limit.burst", defaultValue = "3")
+    int burst;
+
+    @ConfigProperty(name = "notion.rate-limit.interactive-reserve", defaultValue = "1")
+    int interactiveReserve;
+
+    @Inject
+    OpenTelemetry openTelemetry;
+
+    LongSupplier clock = System::nanoTime;
+
+    private final Map<Priority, AtomicInteger> waiting = new EnumMap<>(Priority.class);
+
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil;
+
+    private LongHistogram waitTime;
+    private LongCounter throttled;
+
+    public NotionRateLimiter() {
+        for (Priority priority : Priority.values()) {
+            waiting.put(priority, new AtomicInteger());
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        synchronized (this) {
+            tokens = burst;
+            refilledAt = clock.getAsLong();
+            pausedUntil = refilledAt;
+        }
+        registerMetrics();
+        log.info("Notion rate limiter initialized: {} req/s, burst {}, interactive reserve {}",
+                requestsPerSecond, burst, interactiveReserve);
+    }
+
+    private void registerMetrics() {
+        if (openTelemetry == null)
+            return;
+        Meter meter = openTelemetry.getMeter("com.dime.api");
+        meter.gaugeBuilder("notion.rate_limiter.available_tokens")
+                .setDescription("Tokens currently available in the shared Notion bucket")
+                .buildWithCallback(measurement -> measurement.record(availableTokens()));
+        meter.gaugeBuilder("notion.rate_limiter.waiting")
+                .setDescription("Notion calls waiting for a token")
+                .ofLongs()
+                .buildWithCallback(measurement -> waiting.forEach((priority, count) -> measurement
+                        .record(count.get(), Attributes.of(PRIORITY, priority.name().toLowerCase()))));
+        waitTime = meter.histogramBuilder("notion.rate_limiter.wait")
+                .setDescription("Time spent waiting for a Notion token")
+                .setUnit("ms")
+                .ofLongs()
+                .build();
+        throttled = meter.counterBuilder("notion.rate_limiter.throttled")
+                .setDescription("429 responses received from Notion")
+                .build();
+    }
+
+    /**
+     * Runs {@code action} with the given priority for every Notion call it makes on this thread.
+     */
+    public <T> T call(Priority priority, Supplier<T> action) {
+        Priority previous = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            return action.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    public Priority currentPriority() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Blocks until a token is available for the current thread's priority.
+     */
+    public void acquire() throws InterruptedException {
+        Priority priority = currentPriority();
+        AtomicInteger waiters = waiting.get(priority);
+        long started = clock.getAsLong();
+        waiters.incrementAndGet();
+        try {
+            long waitNanos;
+            while ((waitNanos = tryAcquire(priority)) > 0) {
+                TimeUnit.NANOSECONDS.sleep(Math.min(waitNanos, MAX_SLEEP_NANOS));
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+        if (waitTime != null) {
+            waitTime.record(TimeUnit.NANOSECONDS.toMillis(clock.getAsLong() - started),
+                    Attributes.of(PRIORITY, priority.name().toLowerCase()));
+        }
+    }
+
+    /**
+     * Takes a token if one is available to {@code priority}; otherwise returns the nanoseconds to wait
+     * before trying again.
+     */
+    synchronized long tryAcquire(Priority priority) {
+        long now = clock.getAsLong();
+        refill(now);
+        if (now < pausedUntil) {
+            return pausedUntil - now;
+        }
+
+        double needed = 1;
+        if (priority == Priority.BACKGROUND) {
+            if (waiting.get(Priority.INTERACTIVE).get() > 0) {
+                return nanosFor(1);
+            }
+            needed += interactiveReserve;
+        }
+        if (tokens >= needed) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, nanosFor(needed - tokens));
+    }
+
+    /**
+     * Pauses every caller after Notion answered 429, for {@code retryAfter} plus random jitter.
+     */
+    public void pause(Duration retryAfter) {
+        long jitter = TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(MAX_JITTER_MS + 1));
+        synchronized (this) {
+            long until = clock.getAsLong() + retryAfter.toNanos() + jitter;
+            if (until > pausedUntil) {
+                pausedUntil = until;
+                tokens = 0;
+            }
+        }
+        if (throttled != null) {
+            throttled.add(1);
+        }
+        log.warn("Notion rate limit hit; pausing all Notion calls for {} ms", retryAfter.toMillis());
+    }
+
+    /**
+     * Time left before Notion calls resume after a 429; zero when the bucket is not paused.
+     */
+    public synchronized Duration pausedFor() {
+        return Duration.ofNanos(Math.max(0, pausedUntil - clock.getAsLong()));
+    }
+
+    synchronized double availableTokens() {
+        refill(clock.getAsLong());
+        return tokens;
+    }
+
+    int waiting(Priority priority) {
+        return waiting.get(priority).get();
+    }
+
+    private void refill(long now) {
+        long elapsed = Math.max(0, now - Math.max(refilledAt, pausedUntil));
+        tokens = Math.min(burst, tokens + elapsed * requestsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        refilledAt = Math.max(refilledAt, now);
+    }
+
+    private long nanosFor(double missingTokens) {
+        return (long) Math.ceil(missingTokens * TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+    }
+}
@@ -1,20 +1,20 @@
 package com.dime.api.feature.notion;
 
 import com.dime.api.feature.shared.BearerTokenUtil;
-import com.dime.api.feature.shared.FirestoreCacheService;
+import com.dime.api.feature.shared.cache.CacheSpec;
+import com.dime.api.feature.shared.cache.TieredCache;
+import com.dime.api.feature.shared.cache.TieredCacheManager;
 import com.dime.api.feature.shared.exception.ExternalServiceException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.github.benmanes.caffeine.cache.LoadingCache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.quarkus.runtime.Startup;
 import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Duration;
@@ -22,14 +22,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 @Slf4j
+@Startup
 @ApplicationScoped
 public class NotionService {
 
-    @Inject
-    @RestClient
-    NotionClient notionClient;
+    private static final String DEFAULT_KEY = "default";
 
     @ConfigProperty(name = "notion.token")
     String token;
@@ -40,37 +40,38 @@ public class NotionService {
     @ConfigProperty(name = "notion.version")
     String version;
 
+    @Inject
+    NotionDatabaseReader notionDatabaseReader;
+
+    @Inject
+    NotionRateLimiter rateLimiter;
+
     @Inject
     ObjectMapper objectMapper;
 
     @Inject
-    FirestoreCacheService firestoreCacheService;
+    TieredCacheManager cacheManager;
 
-    LoadingCache<String, Map<String, List<CmsItem>>> cmsCache;
+    TieredCache<String, Map<String, List<CmsItem>>> cmsCache;
 
     @PostConstruct
     void initCaches() {
-        cmsCache = Caffeine.newBuilder()
-                .refreshAfterWrite(Duration.ofHours(2))
-                .expireAfterWrite(Duration.ofHours(24))
-                .build(key -> fetchCmsContent());
+        cmsCache = cacheManager.register(
+                CacheSpec.<String, Map<String, List<CmsItem>>>of("notion-cms", key -> fetchCmsContent())
+                        .refreshAfterWrite(Duration.ofHours(2))
+                        .expireAfterWrite(Duration.ofHours(24))
+                        .persistent(key -> "notion-cms", new TypeReference<>() {})
+                        .warm(10, List.of(DEFAULT_KEY))
+                        .critical());
     }
 
     public Map<String, List<CmsItem>> getCmsContent() {
-        return cmsCache.get("default");
+        return cmsCache.get(DEFAULT_KEY);
     }
 
     public Map<String, List<CmsItem>> refreshCmsContent() {
         log.info("Forcing refresh of Notion CMS content from API...");
-        Map<String, List<CmsItem>> content = fetchCmsContent();
-        cmsCache.put("default", content);
-        return content;
-    }
-
-    public void warmFromFirestore() {
-        if (firestoreCacheService == null) return;
-        firestoreCacheService.read("notion-cms", new TypeReference<Map<String, List<CmsItem>>>() {})
-                .ifPresent(cms -> cmsCache.put("default", cms));
+        return cmsCache.reload(DEFAULT_KEY);
     }
 
     private Map<String, List<CmsItem>> fetchCmsContent() {
@@ -94,16 +95,15 @@ public class NotionService {
             sort.put("direction", "ascending");
 
             String authToken = BearerTokenUtil.ensureBearer(token);
-            JsonNode response = notionClient.queryDatabase(authToken, version, databaseId, query);
-
             Map<String, List<CmsItem>> groupedContent = new HashMap<>();
 
-            if (response.has("results") && response.get("results").isArray()) {
-                log.info("Parsing {} results from Notion", response.get("results").size());
-                for (JsonNode page : response.get("results")) {
+            // CMS content is user-facing, so it goes ahead of background Notion syncs
+            try (Stream<JsonNode> pages = rateLimiter.call(NotionRateLimiter.Priority.INTERACTIVE,
+                    () -> notionDatabaseReader.query(authToken, version, databaseId, query))) {
+                pages.forEach(page -> {
                     JsonNode props = page.get("properties");
                     if (props == null)
-                        continue;
+                        return;
 
                     String name = getTextContent(props.get("Name"));
                     String url = getUrlContent(props.get("URL"));
@@ -113,13 +113,12 @@ public class NotionService {
 
                     CmsItem item = new CmsItem(name, url, description, rank, category);
                     groupedContent.computeIfAbsent(category, k -> new ArrayList<>()).add(item);
-                }
+                });
             }
 
             int totalItems = groupedContent.values().stream().mapToInt(List::size).sum();
             log.info("Fetch complete. Found {} items in {} categories.", totalItems, groupedContent.size());
 
-            if (firestoreCacheService != null) firestoreCacheService.write("notion-cms", groupedContent);
             return groupedContent;
 
         } catch (org.jboss.resteasy.reactive.ClientWebApplicationException e) {
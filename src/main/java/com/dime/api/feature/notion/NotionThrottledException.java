@@ -0,0 +1,12 @@
+package com.dime.api.feature.notion;
+
+/**
+ * Raised by {@link NotionClient} calls answered with 429, so that they can be retried once the
+ * shared {@link NotionRateLimiter} pause has elapsed.
+ */
+public class NotionThrottledException extends RuntimeException {
+
+    public NotionThrottledException(String message) {
+        super(message);
+    }
+}
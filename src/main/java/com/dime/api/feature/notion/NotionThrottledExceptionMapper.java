@@ -0,0 +1,22 @@
+package com.dime.api.feature.notion;
+
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.rest.client.ext.ResponseExceptionMapper;
+
+/**
+ * Maps Notion 429 responses to {@link NotionThrottledException}; other errors keep the default mapping.
+ */
+public class NotionThrottledExceptionMapper implements ResponseExceptionMapper<NotionThrottledException> {
+
+    @Override
+    public boolean handles(int status, MultivaluedMap<String, Object> headers) {
+        return status == NotionRateLimitFilter.TOO_MANY_REQUESTS;
+    }
+
+    @Override
+    public NotionThrottledException toThrowable(Response response) {
+        return new NotionThrottledException("Notion API rate limit exceeded (Retry-After: "
+                + response.getHeaderString("Retry-After") + ")");
+    }
+}
@@ -1,83 +1,73 @@
 package com.dime.api.feature.shared;
 
 import com.dime.api.feature.converter.TrackingService;
-import com.dime.api.feature.github.GitHubService;
-import com.dime.api.feature.notion.NotionService;
+import com.dime.api.feature.shared.cache.TieredCacheManager;
 import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.Priority;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.spi.ObserverMethod;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
-import java.util.concurrent.CompletableFuture;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Two-phase cache warm-up. Phase 1 restores every cache from Firestore in one batched read, bounded by
+ * {@code cache.warmup.firestore-timeout}, before the instance starts serving. Phase 2 refreshes the
+ * caches from their upstream APIs in parallel in the background; {@code CacheReadinessCheck} keeps the
+ * instance out of rotation until the critical caches are populated.
+ */
 @Slf4j
 @ApplicationScoped
 public class CacheWarmup {
 
     @Inject
-    GitHubService gitHubService;
-
-    @Inject
-    NotionService notionService;
+    TieredCacheManager cacheManager;
 
     @Inject
     TrackingService trackingService;
 
-    void onStart(@Observes StartupEvent event) {
+    @ConfigProperty(name = "cache.warmup.firestore-timeout", defaultValue = "PT3S")
+    Duration firestoreTimeout;
+
+    @ConfigProperty(name = "cache.warmup.parallelism", defaultValue = "4")
+    int parallelism;
+
+    // After the @Startup services have registered their caches
+    void onStart(@Observes @Priority(ObserverMethod.DEFAULT_PRIORITY + 1) StartupEvent event) {
         log.info("Starting cache warmup...");
         warmFromFirestore();
-        CompletableFuture.runAsync(this::warmFromApis);
+        warmFromApis();
     }
 
     private void warmFromFirestore() {
+        long start = System.currentTimeMillis();
         try {
-            gitHubService.warmFromFirestore();
-            notionService.warmFromFirestore();
+            cacheManager.warmFromL2(firestoreTimeout);
             trackingService.warmFromFirestore();
-            log.info("Phase 1: Firestore cache warmup completed (instant data available)");
+            log.info("Phase 1: Firestore cache warmup completed in {} ms (instant data available)",
+                    System.currentTimeMillis() - start);
         } catch (Exception e) {
             log.warn("Firestore cache warmup failed: {}", e.getMessage());
         }
     }
 
     private void warmFromApis() {
-        try {
-            gitHubService.getUserInfo();
-            log.info("GitHub user cache refreshed from API");
-        } catch (Exception e) {
-            log.warn("Failed to warm GitHub user cache: {}", e.getMessage());
-        }
-        try {
-            gitHubService.getSocialAccounts();
-            log.info("GitHub social cache refreshed from API");
-        } catch (Exception e) {
-            log.warn("Failed to warm GitHub social cache: {}", e.getMessage());
-        }
-        try {
-            gitHubService.getCommits(12);
-            log.info("GitHub commits cache refreshed from API");
-        } catch (Exception e) {
-            log.warn("Failed to warm GitHub commits cache: {}", e.getMessage());
-        }
-        try {
-            gitHubService.getLatestRelease();
-            log.info("GitHub release cache refreshed from API");
-        } catch (Exception e) {
-            log.warn("Failed to warm GitHub release cache: {}", e.getMessage());
-        }
-        try {
-            notionService.refreshCmsContent();
-            log.info("Notion CMS cache refreshed from API");
-        } catch (Exception e) {
-            log.warn("Failed to warm Notion CMS cache: {}", e.getMessage());
-        }
-        try {
-            trackingService.getStatistics();
-            log.info("Statistics cache refreshed from API");
-        } catch (Exception e) {
-            log.warn("Failed to warm statistics cache: {}", e.getMessage());
-        }
-        log.info("Phase 2: API cache warmup completed");
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmup-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.currentTimeMillis();
+        cacheManager.warmAll(executor).whenComplete((ignored, error) -> {
+            executor.shutdown();
+            log.info("Phase 2: API cache warmup completed in {} ms", System.currentTimeMillis() - start);
+        });
     }
 }
@@ -0,0 +1,63 @@
+package com.dime.api.feature.shared;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.InstanceHandle;
+import io.quarkus.vertx.http.runtime.CurrentVertxRequest;
+import io.vertx.core.net.SocketAddress;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * Shared utility for resolving the client IP of a request behind the Cloud Run proxy.
+ * <p>
+ * Clients can send their own {@code X-Forwarded-For}, to which each proxy appends the address it saw.
+ * Only the entries appended by trusted proxies can be relied on, so the client IP is the entry
+ * {@code http.trusted-proxy-hops} positions from the right (1 on Cloud Run, whose front end appends the
+ * connecting address; 2 behind an external load balancer).
+ */
+public final class ClientIpUtil {
+
+    public static final String UNKNOWN = "unknown";
+
+    static final String TRUSTED_PROXY_HOPS = "http.trusted-proxy-hops";
+
+    private ClientIpUtil() {
+    }
+
+    /**
+     * Extracts the client IP from the {@code X-Forwarded-For} entry appended by the outermost trusted proxy,
+     * falling back to the connection's remote address when the request did not pass through a proxy.
+     *
+     * @param requestContext current request
+     * @return best-effort client identifier, or {@value #UNKNOWN} if none is available
+     */
+    public static String resolve(ContainerRequestContext requestContext) {
+        int trustedHops = ConfigProvider.getConfig().getOptionalValue(TRUSTED_PROXY_HOPS, Integer.class).orElse(1);
+        return resolve(requestContext.getHeaderString("X-Forwarded-For"), remoteAddress(), trustedHops);
+    }
+
+    static String resolve(String forwardedFor, String remoteAddress, int trustedHops) {
+        if (forwardedFor != null && !forwardedFor.isBlank()) {
+            String[] hops = forwardedFor.split(",");
+            // With fewer entries than trusted proxies the header was not built by them; use the leftmost
+            String hop = hops[Math.max(0, hops.length - Math.max(1, trustedHops))].trim();
+            if (!hop.isEmpty()) {
+                return hop;
+            }
+        }
+        return remoteAddress != null && !remoteAddress.isEmpty() ? remoteAddress : UNKNOWN;
+    }
+
+    private static String remoteAddress() {
+        if (Arc.container() == null || !Arc.container().requestContext().isActive()) {
+            return null;
+        }
+        try (InstanceHandle<CurrentVertxRequest> request = Arc.container().instance(CurrentVertxRequest.class)) {
+            if (!request.isAvailable() || request.get().getCurrent() == null) {
+                return null;
+            }
+            SocketAddress address = request.get().getCurrent().request().remoteAddress();
+            return address != null ? address.hostAddress() : null;
+        }
+    }
+}
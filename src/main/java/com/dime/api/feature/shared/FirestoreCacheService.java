@@ -1,23 +1,82 @@
 package com.dime.api.feature.shared;
 
+import com.dime.api.feature.shared.cache.CacheCodec;
+import com.dime.api.feature.shared.cache.JsonCodec;
+import com.dime.api.feature.shared.cache.SmileGzipCodec;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Blob;
+import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldMask;
 import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Firestore copy of cached values in the {@code cache} collection.
+ * <p>
+ * Each value is stored as a versioned envelope: the codec name, a SHA-256 hash of the encoded bytes,
+ * the size and the bytes as a {@code payload} Blob. Values too large for one document are split into
+ * {@code cache/{key}/chunks/{n}} subdocuments, written in the same batch as the envelope. A write whose
+ * hash matches the stored one is skipped. Writes run on a small bounded executor; when its queue is
+ * full the write is dropped, as the value will be written again on the next refresh. Documents from
+ * before the envelope (a JSON {@code data} string) remain readable.
+ */
 @Slf4j
 @ApplicationScoped
 public class FirestoreCacheService {
 
     private static final String COLLECTION = "cache";
+    private static final String CHUNKS = "chunks";
+    private static final String LEGACY_DATA_FIELD = "data";
+    static final String PAYLOAD_FIELD = "payload";
+    static final String HASH_FIELD = "hash";
+    static final String CHUNKS_FIELD = "chunks";
+    private static final int ENVELOPE_VERSION = 2;
+
+    // Firestore documents are limited to 1 MiB and commits to 10 MiB
+    static final int MAX_INLINE_BYTES = 900_000;
+    static final int CHUNK_BYTES = 900_000;
+    static final int MAX_CHUNKS = 8;
+
+    /**
+     * Encoded value as read from Firestore.
+     */
+    public record Payload(String codec, byte[] bytes) {
+    }
+
+    private record Stored(String hash, int chunks) {
+    }
 
     @Inject
     Firestore firestore;
@@ -25,14 +84,53 @@ public class FirestoreCacheService {
     @Inject
     ObjectMapper objectMapper;
 
+    @ConfigProperty(name = "cache.firestore.codec", defaultValue = SmileGzipCodec.NAME)
+    String codecName;
+
+    @ConfigProperty(name = "cache.firestore.write-threads", defaultValue = "2")
+    int writeThreads;
+
+    @ConfigProperty(name = "cache.firestore.write-queue", defaultValue = "64")
+    int writeQueue;
+
+    private final Map<String, CacheCodec> codecs = new HashMap<>();
+    private CacheCodec codec;
+    private ExecutorService writer;
+
+    // Hash and chunk count last seen per key, so unchanged values are skipped without a read
+    private final Map<String, Stored> stored = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        List.of(new SmileGzipCodec(objectMapper), new JsonCodec(objectMapper))
+                .forEach(c -> codecs.put(c.name(), c));
+        codec = codecs.get(codecName);
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown cache.firestore.codec: " + codecName);
+        }
+        AtomicInteger threads = new AtomicInteger();
+        writer = new ThreadPoolExecutor(writeThreads, writeThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(writeQueue), runnable -> {
+                    Thread thread = new Thread(runnable, "cache-writer-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
     public <T> Optional<T> read(String key, Class<T> type) {
+        return read(key, objectMapper.getTypeFactory().constructType(type));
+    }
+
+    public <T> Optional<T> read(String key, TypeReference<T> type) {
+        return read(key, objectMapper.getTypeFactory().constructType(type));
+    }
+
+    private <T> Optional<T> read(String key, JavaType type) {
         try {
-            DocumentSnapshot doc = firestore.collection(COLLECTION).document(key).get().get();
-            if (doc.exists()) {
-                String json = doc.getString("data");
-                if (json != null) {
-                    return Optional.of(objectMapper.readValue(json, type));
-                }
+            DocumentSnapshot doc = document(key).get().get();
+            Optional<Payload> payload = payloadOf(doc, Duration.ofSeconds(10));
+            if (payload.isPresent()) {
+                return decode(key, payload.get(), type);
             }
         } catch (Exception e) {
             log.warn("Failed to read cache from Firestore for key: {}", key, e);
@@ -40,31 +138,240 @@ public class FirestoreCacheService {
         return Optional.empty();
     }
 
-    public <T> Optional<T> read(String key, TypeReference<T> type) {
+    /**
+     * Reads several cache documents in one round trip and returns the payload of each key found.
+     * Returns nothing if Firestore does not answer within {@code timeout}.
+     */
+    public Map<String, Payload> readAll(Collection<String> keys, Duration timeout) {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
         try {
-            DocumentSnapshot doc = firestore.collection(COLLECTION).document(key).get().get();
-            if (doc.exists()) {
-                String json = doc.getString("data");
-                if (json != null) {
-                    return Optional.of(objectMapper.readValue(json, type));
-                }
+            DocumentReference[] refs = keys.stream().map(this::document).toArray(DocumentReference[]::new);
+            Map<String, Payload> found = new HashMap<>();
+            for (DocumentSnapshot doc : firestore.getAll(refs).get(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                payloadOf(doc, timeout).ifPresent(payload -> found.put(doc.getId(), payload));
             }
+            return found;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            log.warn("Failed to read cache from Firestore for key: {}", key, e);
+            log.warn("Failed to read {} cache documents from Firestore", keys.size(), e);
         }
-        return Optional.empty();
+        return Map.of();
+    }
+
+    /**
+     * Reads {@code key} only if its stored hash differs from the last one this instance wrote or read,
+     * i.e. another instance has written a new value since. The hash is read on its own first, so an
+     * unchanged value costs no payload transfer.
+     */
+    public <T> Optional<T> readIfChanged(String key, TypeReference<T> type) {
+        try {
+            DocumentSnapshot head = document(key).get(FieldMask.of(HASH_FIELD)).get();
+            Stored known = stored.get(key);
+            String hash = head.exists() ? head.getString(HASH_FIELD) : null;
+            if (hash == null || (known != null && hash.equals(known.hash()))) {
+                return Optional.empty();
+            }
+        } catch (Exception e) {
+            log.warn("Failed to read cache hash from Firestore for key: {}", key, e);
+            return Optional.empty();
+        }
+        return read(key, type);
+    }
+
+    public <T> Optional<T> parse(String key, Payload payload, TypeReference<T> type) {
+        return decode(key, payload, objectMapper.getTypeFactory().constructType(type));
     }
 
+    /**
+     * Queues {@code data} to be written under {@code key}; never blocks the caller.
+     */
     public void write(String key, Object data) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                String json = objectMapper.writeValueAsString(data);
-                firestore.collection(COLLECTION).document(key)
-                        .set(Map.of("data", json, "updatedAt", Timestamp.now())).get();
-                log.debug("Written cache to Firestore for key: {}", key);
-            } catch (Exception e) {
-                log.warn("Failed to write cache to Firestore for key: {}", key, e);
+        try {
+            writer.execute(() -> {
+                try {
+                    store(key, data);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.warn("Failed to write cache to Firestore for key: {}", key, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Cache write queue full; dropping Firestore write for key: {}", key);
+        }
+    }
+
+    /**
+     * Writes {@code data} under {@code key} unless the stored value has the same hash.
+     */
+    void store(String key, Object data) throws Exception {
+        byte[] bytes = codec.encode(data);
+        String hash = sha256(bytes);
+        DocumentReference ref = document(key);
+
+        Stored previous = stored.get(key);
+        if (previous == null) {
+            DocumentSnapshot current = ref.get().get();
+            Long chunks = current.exists() ? current.getLong(CHUNKS_FIELD) : null;
+            previous = new Stored(current.exists() ? current.getString(HASH_FIELD) : null,
+                    chunks != null ? chunks.intValue() : 0);
+        }
+        if (hash.equals(previous.hash())) {
+            stored.put(key, previous);
+            log.debug("Cache value unchanged for key: {}; skipping Firestore write", key);
+            return;
+        }
+
+        int chunks = bytes.length <= MAX_INLINE_BYTES ? 0 : (bytes.length + CHUNK_BYTES - 1) / CHUNK_BYTES;
+        if (chunks > MAX_CHUNKS) {
+            log.warn("Cache value for key {} is {} bytes encoded, above the Firestore limit; not written",
+                    key, bytes.length);
+            return;
+        }
+
+        Map<String, Object> envelope = new HashMap<>();
+        envelope.put("v", ENVELOPE_VERSION);
+        envelope.put("codec", codec.name());
+        envelope.put(HASH_FIELD, hash);
+        envelope.put("size", bytes.length);
+        envelope.put(CHUNKS_FIELD, chunks);
+        envelope.put("updatedAt", Timestamp.now());
+
+        WriteBatch batch = firestore.batch();
+        if (chunks == 0) {
+            envelope.put(PAYLOAD_FIELD, Blob.fromBytes(bytes));
+        }
+        for (int i = 0; i < chunks; i++) {
+            byte[] chunk = Arrays.copyOfRange(bytes, i * CHUNK_BYTES, Math.min(bytes.length, (i + 1) * CHUNK_BYTES));
+            batch.set(ref.collection(CHUNKS).document(String.valueOf(i)), Map.of(PAYLOAD_FIELD, Blob.fromBytes(chunk)));
+        }
+        for (int i = chunks; i < previous.chunks(); i++) {
+            batch.delete(ref.collection(CHUNKS).document(String.valueOf(i)));
+        }
+        // Replaces the whole document, including a legacy "data" field
+        batch.set(ref, envelope);
+        batch.commit().get();
+
+        stored.put(key, new Stored(hash, chunks));
+        log.debug("Written cache to Firestore for key: {} ({} bytes, {} chunks)", key, bytes.length, chunks);
+    }
+
+    /**
+     * Queues the deletion of the value under {@code key} and its chunks, for keys no cache uses any more;
+     * never blocks the caller.
+     */
+    public void delete(String key) {
+        try {
+            writer.execute(() -> {
+                try {
+                    remove(key);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.warn("Failed to delete cache from Firestore for key: {}", key, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Cache write queue full; dropping Firestore deletion for key: {}", key);
+        }
+    }
+
+    void remove(String key) throws Exception {
+        DocumentReference ref = document(key);
+        WriteBatch batch = firestore.batch();
+        // Deleting a missing document is a no-op, so every possible chunk is listed
+        for (int i = 0; i < MAX_CHUNKS; i++) {
+            batch.delete(ref.collection(CHUNKS).document(String.valueOf(i)));
+        }
+        batch.delete(ref);
+        batch.commit().get();
+        stored.remove(key);
+        log.debug("Deleted cache from Firestore for key: {}", key);
+    }
+
+    private Optional<Payload> payloadOf(DocumentSnapshot doc, Duration timeout) throws Exception {
+        if (!doc.exists()) {
+            return Optional.empty();
+        }
+        String codecName = doc.getString("codec");
+        if (codecName == null) {
+            String json = doc.getString(LEGACY_DATA_FIELD);
+            return json != null
+                    ? Optional.of(new Payload(JsonCodec.NAME, json.getBytes(StandardCharsets.UTF_8)))
+                    : Optional.empty();
+        }
+        Long chunkCount = doc.getLong(CHUNKS_FIELD);
+        int chunks = chunkCount != null ? chunkCount.intValue() : 0;
+        stored.put(doc.getId(), new Stored(doc.getString(HASH_FIELD), chunks));
+        if (chunks == 0) {
+            Blob payload = doc.getBlob(PAYLOAD_FIELD);
+            return payload != null ? Optional.of(new Payload(codecName, payload.toBytes())) : Optional.empty();
+        }
+        return Optional.of(new Payload(codecName, readChunks(doc.getReference(), chunks, timeout)));
+    }
+
+    private byte[] readChunks(DocumentReference ref, int chunks, Duration timeout) throws Exception {
+        List<QueryDocumentSnapshot> docs = new ArrayList<>(ref.collection(CHUNKS).get()
+                .get(timeout.toMillis(), TimeUnit.MILLISECONDS).getDocuments());
+        docs.sort(Comparator.comparingInt(chunk -> Integer.parseInt(chunk.getId())));
+        if (docs.size() < chunks) {
+            throw new IllegalStateException("Expected " + chunks + " chunks for " + ref.getId() + ", found " + docs.size());
+        }
+        int size = 0;
+        List<byte[]> parts = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            byte[] part = docs.get(i).getBlob(PAYLOAD_FIELD).toBytes();
+            parts.add(part);
+            size += part.length;
+        }
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, bytes, offset, part.length);
+            offset += part.length;
+        }
+        return bytes;
+    }
+
+    private <T> Optional<T> decode(String key, Payload payload, JavaType type) {
+        CacheCodec decoder = codecs.get(payload.codec());
+        if (decoder == null) {
+            log.warn("Unknown codec {} for cache key: {}", payload.codec(), key);
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(decoder.decode(payload.bytes(), type));
+        } catch (Exception e) {
+            log.warn("Failed to parse cached value for key: {}", key, e);
+            return Optional.empty();
+        }
+    }
+
+    private DocumentReference document(String key) {
+        return firestore.collection(COLLECTION).document(key);
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Lets queued writes finish so the next instance starts from the latest values
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                writer.shutdownNow();
             }
-        });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
@@ -0,0 +1,72 @@
+package com.dime.api.feature.shared.cache;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
+import org.eclipse.microprofile.openapi.annotations.extensions.Extension;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import java.util.List;
+
+@Slf4j
+@Path("/admin/caches")
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "admin", description = "Cache inspection and invalidation")
+@Extension(name = "x-smallrye-profile-admin", value = "")
+public class CacheAdminResource {
+
+    @Inject
+    TieredCacheManager cacheManager;
+
+    public record CacheDetails(TieredCache.Stats stats, List<String> keys) {
+    }
+
+    @GET
+    @Operation(summary = "List caches", description = "Statistics of every registered cache, in warm-up order")
+    @APIResponse(responseCode = "200", description = "Cache statistics", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = TieredCache.Stats.class, type = SchemaType.ARRAY)))
+    public List<TieredCache.Stats> list() {
+        return cacheManager.caches().stream().map(TieredCache::stats).toList();
+    }
+
+    @GET
+    @Path("/{name}")
+    @Operation(summary = "Inspect a cache", description = "Statistics and in-memory keys of one cache")
+    @APIResponse(responseCode = "200", description = "Cache found", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = CacheDetails.class)))
+    @APIResponse(responseCode = "404", description = "Cache not found")
+    public Response inspect(@PathParam("name") String name) {
+        return cacheManager.find(name)
+                .map(cache -> Response.ok(new CacheDetails(cache.stats(), cache.keys())).build())
+                .orElseGet(() -> Response.status(Response.Status.NOT_FOUND).build());
+    }
+
+    @DELETE
+    @Path("/{name}")
+    @Operation(summary = "Invalidate a cache", description = "Drops one key, or every key when none is given, from memory. The next read reloads from the source.")
+    @APIResponse(responseCode = "204", description = "Invalidated")
+    @APIResponse(responseCode = "404", description = "Cache or key not found")
+    public Response invalidate(@PathParam("name") String name, @QueryParam("key") String key) {
+        TieredCache<?, ?> cache = cacheManager.find(name).orElse(null);
+        if (cache == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        if (key == null) {
+            cache.invalidateAll();
+        } else if (!cache.invalidateKey(key)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        log.info("Invalidated cache {}{}", name, key != null ? " key " + key : "");
+        return Response.noContent().build();
+    }
+}
@@ -0,0 +1,18 @@
+package com.dime.api.feature.shared.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+
+import java.io.IOException;
+
+/**
+ * Binary encoding of cached values in Firestore. The codec name is stored with each value, so values
+ * written with another codec stay readable after a switch.
+ */
+public interface CacheCodec {
+
+    String name();
+
+    byte[] encode(Object value) throws IOException;
+
+    <T> T decode(byte[] bytes, JavaType type) throws IOException;
+}
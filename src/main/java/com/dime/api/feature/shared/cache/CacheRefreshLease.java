@@ -0,0 +1,137 @@
+package com.dime.api.feature.shared.cache;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import io.opentelemetry.api.OpenTelemetry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Cluster-wide lease on upstream cache refreshes, held in {@code leases/cache-refresh}.
+ * <p>
+ * Only the holder loads cached data from GitHub and Notion and writes the Firestore copy; every other
+ * instance reads that copy. The holder renews the lease every {@code cache.lease.renew-interval}.
+ * When it stops renewing (crash, scale-in), any instance takes over once {@code cache.lease.ttl}
+ * has passed. Without Firestore the instance always considers itself the holder.
+ */
+@Slf4j
+@ApplicationScoped
+public class CacheRefreshLease {
+
+    static final String COLLECTION = "leases";
+    static final String DOCUMENT = "cache-refresh";
+
+    @Inject
+    Firestore firestore;
+
+    @Inject
+    OpenTelemetry openTelemetry;
+
+    @ConfigProperty(name = "cache.lease.ttl", defaultValue = "PT30S")
+    Duration ttl;
+
+    final String instanceId = UUID.randomUUID().toString();
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    // Local view of the lease expiry; computed before the write, so it ends before the stored expiry
+    private volatile long heldUntil;
+
+    @PostConstruct
+    void registerMetrics() {
+        if (openTelemetry == null) {
+            return;
+        }
+        openTelemetry.getMeter("com.dime.api").gaugeBuilder("cache.lease.leader")
+                .setDescription("1 while this instance holds the cache refresh lease")
+                .ofLongs()
+                .buildWithCallback(measurement -> measurement.record(isLeader() ? 1 : 0));
+    }
+
+    public boolean isLeader() {
+        return firestore == null || clock.getAsLong() < heldUntil;
+    }
+
+    // Before CacheWarmup, so the first warm-up already knows whether to call upstream
+    void onStart(@Observes StartupEvent event) {
+        renew();
+    }
+
+    /**
+     * Acquires the lease if it is free or expired, or extends it if this instance holds it.
+     */
+    @Scheduled(every = "${cache.lease.renew-interval:10s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void renew() {
+        if (firestore == null) {
+            return;
+        }
+        boolean wasLeader = isLeader();
+        long now = clock.getAsLong();
+        long expiresAt = now + ttl.toMillis();
+        DocumentReference ref = firestore.collection(COLLECTION).document(DOCUMENT);
+        try {
+            boolean acquired = firestore.runTransaction(transaction -> {
+                DocumentSnapshot doc = transaction.get(ref).get();
+                if (doc.exists() && !instanceId.equals(doc.getString("holder"))) {
+                    Timestamp expires = doc.getTimestamp("expiresAt");
+                    if (expires != null && expires.toDate().getTime() > now) {
+                        return false;
+                    }
+                }
+                transaction.set(ref, Map.of(
+                        "holder", instanceId,
+                        "expiresAt", Timestamp.ofTimeMicroseconds(expiresAt * 1000),
+                        "renewedAt", Timestamp.now()));
+                return true;
+            }).get();
+            heldUntil = acquired ? expiresAt : 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Keep the current view; a held lease simply runs out if renewals keep failing
+            log.warn("Failed to renew cache refresh lease: {}", e.getMessage());
+        }
+        if (wasLeader != isLeader()) {
+            log.info("Instance {} {} the cache refresh lease", instanceId, isLeader() ? "acquired" : "lost");
+        }
+    }
+
+    /**
+     * Releases the lease on shutdown so another instance takes over without waiting for the TTL.
+     */
+    void onStop(@Observes ShutdownEvent event) {
+        if (firestore == null || !isLeader()) {
+            return;
+        }
+        heldUntil = 0;
+        DocumentReference ref = firestore.collection(COLLECTION).document(DOCUMENT);
+        try {
+            firestore.runTransaction(transaction -> {
+                DocumentSnapshot doc = transaction.get(ref).get();
+                if (doc.exists() && instanceId.equals(doc.getString("holder"))) {
+                    transaction.delete(ref);
+                }
+                return null;
+            }).get();
+            log.info("Released cache refresh lease");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to release cache refresh lease: {}", e.getMessage());
+        }
+    }
+}
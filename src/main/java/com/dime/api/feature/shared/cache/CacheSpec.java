@@ -0,0 +1,106 @@
+package com.dime.api.feature.shared.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Declaration of a named cache for {@link TieredCacheManager#register(CacheSpec)}: its loader, the
+ * in-memory (L1) policy, optional Firestore (L2) persistence and the keys to warm at startup.
+ */
+public final class CacheSpec<K, V> {
+
+    final String name;
+    final Function<K, V> loader;
+    BiFunction<K, V, V> revalidator;
+    Duration refreshAfterWrite;
+    Duration expireAfterWrite;
+    long maximumSize = 100;
+    Function<K, String> persistKey;
+    TypeReference<V> persistType;
+    List<K> warmKeys = List.of();
+    int warmPriority = 100;
+    boolean critical;
+    Duration retryInitial = Duration.ofSeconds(30);
+    Duration retryMax = Duration.ofMinutes(15);
+
+    private CacheSpec(String name, Function<K, V> loader) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.loader = Objects.requireNonNull(loader, "loader");
+    }
+
+    public static <K, V> CacheSpec<K, V> of(String name, Function<K, V> loader) {
+        return new CacheSpec<>(name, loader);
+    }
+
+    /**
+     * Reloads an entry in the background on the first read after {@code duration}, serving the old value
+     * meanwhile.
+     */
+    public CacheSpec<K, V> refreshAfterWrite(Duration duration) {
+        this.refreshAfterWrite = duration;
+        return this;
+    }
+
+    /**
+     * Refreshes an entry from its current value instead of calling the loader, typically with a
+     * conditional request. Returning the current instance means unchanged: the entry's freshness is
+     * extended without writing to Firestore.
+     */
+    public CacheSpec<K, V> revalidate(BiFunction<K, V, V> revalidator) {
+        this.revalidator = Objects.requireNonNull(revalidator, "revalidator");
+        return this;
+    }
+
+    public CacheSpec<K, V> expireAfterWrite(Duration duration) {
+        this.expireAfterWrite = duration;
+        return this;
+    }
+
+    public CacheSpec<K, V> maximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    /**
+     * Persists every loaded value to the Firestore {@code cache} collection under {@code key}, serialised
+     * as {@code type}, and restores it from there on startup.
+     */
+    public CacheSpec<K, V> persistent(Function<K, String> key, TypeReference<V> type) {
+        this.persistKey = Objects.requireNonNull(key, "key");
+        this.persistType = Objects.requireNonNull(type, "type");
+        return this;
+    }
+
+    /**
+     * Keys loaded at startup; caches with a lower {@code priority} are warmed first.
+     */
+    public CacheSpec<K, V> warm(int priority, List<K> keys) {
+        this.warmPriority = priority;
+        this.warmKeys = List.copyOf(keys);
+        return this;
+    }
+
+    /**
+     * Delay before retrying a key whose load failed, doubling per consecutive failure up to {@code max}.
+     * Until then the last known value is served, or the failure is rethrown without calling the source.
+     */
+    public CacheSpec<K, V> retryBackoff(Duration initial, Duration max) {
+        this.retryInitial = Objects.requireNonNull(initial, "initial");
+        this.retryMax = Objects.requireNonNull(max, "max");
+        return this;
+    }
+
+    /**
+     * Keeps the instance out of rotation until the warm-up keys are cached (see
+     * {@code CacheReadinessCheck}).
+     */
+    public CacheSpec<K, V> critical() {
+        this.critical = true;
+        return this;
+    }
+}
@@ -0,0 +1,35 @@
+package com.dime.api.feature.shared.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * Plain UTF-8 JSON; also decodes values stored before the binary envelope existed.
+ */
+public final class JsonCodec implements CacheCodec {
+
+    public static final String NAME = "json";
+
+    private final ObjectMapper objectMapper;
+
+    public JsonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        return objectMapper.writeValueAsBytes(value);
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, JavaType type) throws IOException {
+        return objectMapper.readValue(bytes, type);
+    }
+}
@@ -0,0 +1,33 @@
+package com.dime.api.feature.shared.cache;
+
+import jakarta.enterprise.context.RequestScoped;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Records the stale cache values read while handling the current request, for
+ * {@link StaleResponseFilter}.
+ */
+@RequestScoped
+public class StaleResponse {
+
+    private TieredCache.Staleness oldest;
+
+    void record(TieredCache.Staleness staleness) {
+        if (oldest == null || loadedAt(staleness).isBefore(loadedAt(oldest))) {
+            oldest = staleness;
+        }
+    }
+
+    /**
+     * The stalest value served, if any; a value of unknown age counts as the stalest.
+     */
+    public Optional<TieredCache.Staleness> oldest() {
+        return Optional.ofNullable(oldest);
+    }
+
+    private static Instant loadedAt(TieredCache.Staleness staleness) {
+        return staleness.loadedAt() != null ? staleness.loadedAt() : Instant.MIN;
+    }
+}
@@ -0,0 +1,40 @@
+package com.dime.api.feature.shared.cache;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.Provider;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Marks successful responses built from a stale cache value: {@code Warning: 111} (revalidation
+ * failed), {@code Age} when the value's load time is known, and a short {@code Cache-Control} so
+ * shared caches pick up the fresh value soon after the source recovers.
+ */
+@Provider
+public class StaleResponseFilter implements ContainerResponseFilter {
+
+    static final String STALE_CACHE_CONTROL = "public, max-age=60";
+
+    @Inject
+    StaleResponse staleResponse;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (responseContext.getStatus() >= 300) {
+            return;
+        }
+        staleResponse.oldest().ifPresent(staleness -> {
+            MultivaluedMap<String, Object> headers = responseContext.getHeaders();
+            headers.putSingle("Warning", "111 - \"Revalidation Failed\"");
+            if (staleness.loadedAt() != null) {
+                headers.putSingle("Age", Math.max(0, Duration.between(staleness.loadedAt(), Instant.now()).toSeconds()));
+            }
+            headers.putSingle("Cache-Control", STALE_CACHE_CONTROL);
+        });
+    }
+}
@@ -0,0 +1,371 @@
+package com.dime.api.feature.shared.cache;
+
+import com.dime.api.feature.shared.FirestoreCacheService;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * A Caffeine cache (L1) backed by the Firestore {@code cache} collection (L2).
+ * <p>
+ * Reads go through L1 and call the loader on a miss or refresh. Every loaded value is written behind
+ * to L2, so a restarted instance can serve the last known value before its first API call.
+ * <p>
+ * Persistent caches only call the loader on the instance holding the {@link CacheRefreshLease}. Other
+ * instances load from L2 instead and fall back to the loader only when L2 has no copy yet.
+ * <p>
+ * A failed load does not fail the read while a previous value exists: the cache keeps serving the value
+ * it held (or the L2 copy once L1 has expired) and reports it as stale. The failing key is not retried
+ * before a backoff that doubles per consecutive failure ({@link CacheSpec#retryBackoff}); without any
+ * previous value the failure is rethrown, also without calling the source again until the backoff ends.
+ */
+@Slf4j
+public final class TieredCache<K, V> {
+
+    /**
+     * L1 statistics since startup.
+     */
+    public record Stats(String name, long size, double hitRate, long hits, long misses, long loadSuccesses,
+            long loadFailures, double averageLoadMillis, long evictions, boolean persistent, int warmPriority,
+            int failingKeys, long staleServed) {
+    }
+
+    /**
+     * A value served while its source is failing. {@code loadedAt} is when this instance last loaded it
+     * from the source, or {@code null} if it came from L2 and its age is unknown.
+     */
+    public record Staleness(String cache, Instant loadedAt, Instant failingSince) {
+    }
+
+    private record Failure(int attempts, long since, long retryAt, RuntimeException error) {
+    }
+
+    private final CacheSpec<K, V> spec;
+    private final FirestoreCacheService l2;
+    private final LoadingCache<K, V> l1;
+    private final BooleanSupplier upstreamAllowed;
+    private final Consumer<Staleness> staleListener;
+    private final Map<K, Long> loadedAt = new ConcurrentHashMap<>();
+    private final Map<K, Failure> failures = new ConcurrentHashMap<>();
+    private final Set<K> retrying = ConcurrentHashMap.newKeySet();
+    private final LongAdder staleServed = new LongAdder();
+    LongSupplier clock = System::currentTimeMillis;
+
+    TieredCache(CacheSpec<K, V> spec, FirestoreCacheService l2, BooleanSupplier upstreamAllowed,
+            Consumer<Staleness> staleListener) {
+        this.spec = spec;
+        this.l2 = spec.persistKey != null ? l2 : null;
+        this.upstreamAllowed = upstreamAllowed;
+        this.staleListener = staleListener;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(spec.maximumSize)
+                .recordStats();
+        if (spec.refreshAfterWrite != null) {
+            builder.refreshAfterWrite(spec.refreshAfterWrite);
+        }
+        if (spec.expireAfterWrite != null) {
+            builder.expireAfterWrite(spec.expireAfterWrite);
+        }
+        this.l1 = builder.build(new CacheLoader<>() {
+            @Override
+            public V load(K key) {
+                return TieredCache.this.load(key, null);
+            }
+
+            @Override
+            public V reload(K key, V oldValue) {
+                return TieredCache.this.load(key, oldValue);
+            }
+        });
+    }
+
+    public String name() {
+        return spec.name;
+    }
+
+    int warmPriority() {
+        return spec.warmPriority;
+    }
+
+    public V get(K key) {
+        V value = l1.get(key);
+        Failure failure = failures.get(key);
+        if (failure != null) {
+            retryWhenDue(key, failure);
+            staleServed.increment();
+            Long loaded = loadedAt.get(key);
+            staleListener.accept(new Staleness(spec.name, loaded != null ? Instant.ofEpochMilli(loaded) : null,
+                    Instant.ofEpochMilli(failure.since())));
+        }
+        return value;
+    }
+
+    /**
+     * Whether the last load of {@code key} failed, so reads return a stale value.
+     */
+    public boolean isStale(K key) {
+        return failures.containsKey(key);
+    }
+
+    /**
+     * Loads {@code key} from the source now, bypassing both tiers and the refresh lease, and stores the
+     * result in both tiers.
+     */
+    public V reload(K key) {
+        V value = loadFromSource(key, null);
+        l1.put(key, value);
+        loadedAt.put(key, clock.getAsLong());
+        failures.remove(key);
+        return value;
+    }
+
+    /**
+     * Refreshes {@code key} in the background (revalidating it when the spec allows), serving the current
+     * value meanwhile.
+     */
+    public CompletableFuture<V> refresh(K key) {
+        return l1.refresh(key);
+    }
+
+    /**
+     * When this instance last loaded {@code key} from the source or took it from L2, if it has.
+     */
+    public Optional<Instant> loadedAt(K key) {
+        return Optional.ofNullable(loadedAt.get(key)).map(Instant::ofEpochMilli);
+    }
+
+    /**
+     * Present value of {@code key} in memory, without loading it.
+     */
+    public Optional<V> getIfPresent(K key) {
+        return Optional.ofNullable(l1.getIfPresent(key));
+    }
+
+    /**
+     * Stores a value obtained from the source outside the loader, in both tiers.
+     */
+    public void put(K key, V value) {
+        l1.put(key, value);
+        loadedAt.put(key, clock.getAsLong());
+        failures.remove(key);
+        persist(key, value);
+    }
+
+    public void invalidate(K key) {
+        l1.invalidate(key);
+        failures.remove(key);
+    }
+
+    /**
+     * Invalidates the entry whose key renders as {@code key}; returns {@code false} when there is none.
+     */
+    public boolean invalidateKey(String key) {
+        Optional<K> match = l1.asMap().keySet().stream()
+                .filter(k -> String.valueOf(k).equals(key))
+                .findFirst();
+        match.ifPresent(this::invalidate);
+        return match.isPresent();
+    }
+
+    public void invalidateAll() {
+        l1.invalidateAll();
+        failures.clear();
+    }
+
+    public List<String> keys() {
+        return l1.asMap().keySet().stream().map(String::valueOf).sorted().toList();
+    }
+
+    /**
+     * Firestore keys of the warm-up entries, or none if the cache is not persistent.
+     */
+    Map<String, K> warmL2Keys() {
+        Map<String, K> keys = new LinkedHashMap<>();
+        if (l2 != null) {
+            spec.warmKeys.forEach(key -> keys.put(spec.persistKey.apply(key), key));
+        }
+        return keys;
+    }
+
+    /**
+     * Copies the warm-up entries found in {@code documents} (keyed by Firestore key) into L1 and returns
+     * how many were restored.
+     */
+    int restore(Map<String, FirestoreCacheService.Payload> documents) {
+        int restored = 0;
+        for (Map.Entry<String, K> key : warmL2Keys().entrySet()) {
+            FirestoreCacheService.Payload payload = documents.get(key.getKey());
+            Optional<V> value = payload != null
+                    ? l2.parse(key.getKey(), payload, spec.persistType)
+                    : Optional.empty();
+            if (value.isPresent()) {
+                l1.put(key.getValue(), value.get());
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    boolean isCritical() {
+        return spec.critical;
+    }
+
+    /**
+     * Whether every warm-up key is in L1.
+     */
+    boolean isPopulated() {
+        return spec.warmKeys.stream().allMatch(l1.asMap()::containsKey);
+    }
+
+    /**
+     * Loads the warm-up keys that are not in L1 yet.
+     */
+    void warm() {
+        spec.warmKeys.forEach(l1::get);
+    }
+
+    /**
+     * Replaces the L1 values of cached and warm-up keys with the L2 copies that another instance has
+     * written since this one last wrote or read them: refreshes on the instances that do not call the
+     * source, and webhook-driven updates received by any instance.
+     */
+    void syncFromL2() {
+        if (l2 == null) {
+            return;
+        }
+        Set<K> keys = new LinkedHashSet<>(spec.warmKeys);
+        keys.addAll(l1.asMap().keySet());
+        for (K key : keys) {
+            l2.readIfChanged(spec.persistKey.apply(key), spec.persistType).ifPresent(value -> {
+                l1.put(key, value);
+                loadedAt.put(key, clock.getAsLong());
+                failures.remove(key);
+            });
+        }
+    }
+
+    /**
+     * Reads the warm-up keys, which makes Caffeine reload those due for refresh, and retries failing keys
+     * whose backoff has ended.
+     */
+    void touchWarmKeys() {
+        spec.warmKeys.forEach(key -> l1.getIfPresent(key));
+        failures.forEach(this::retryWhenDue);
+    }
+
+    CacheStats l1Stats() {
+        return l1.stats();
+    }
+
+    public Stats stats() {
+        CacheStats stats = l1.stats();
+        return new Stats(spec.name, l1.estimatedSize(), stats.hitRate(), stats.hitCount(), stats.missCount(),
+                stats.loadSuccessCount(), stats.loadFailureCount(),
+                stats.averageLoadPenalty() / 1_000_000.0,
+                stats.evictionCount(), l2 != null, spec.warmPriority, failures.size(), staleServed.sum());
+    }
+
+    long staleServed() {
+        return staleServed.sum();
+    }
+
+    int failingKeys() {
+        return failures.size();
+    }
+
+    /**
+     * Loads {@code key}; on failure returns {@code current}, or the L2 copy when there is no current value,
+     * and only rethrows when neither exists.
+     */
+    private V load(K key, V current) {
+        Failure failure = failures.get(key);
+        if (failure == null || clock.getAsLong() >= failure.retryAt()) {
+            try {
+                V value = fetch(key, current);
+                loadedAt.put(key, clock.getAsLong());
+                if (failures.remove(key) != null) {
+                    log.info("Cache {} key {} recovered", spec.name, key);
+                }
+                return value;
+            } catch (RuntimeException e) {
+                failure = recordFailure(key, failure, e);
+            }
+        }
+        if (current != null) {
+            return current;
+        }
+        if (l2 != null) {
+            Optional<V> copy = l2.read(spec.persistKey.apply(key), spec.persistType);
+            if (copy.isPresent()) {
+                return copy.get();
+            }
+        }
+        throw failure.error();
+    }
+
+    private Failure recordFailure(K key, Failure previous, RuntimeException error) {
+        long now = clock.getAsLong();
+        int attempts = previous != null ? previous.attempts() + 1 : 1;
+        long delay = Math.min(spec.retryMax.toMillis(),
+                spec.retryInitial.toMillis() << Math.min(attempts - 1, 20));
+        Failure failure = new Failure(attempts, previous != null ? previous.since() : now, now + delay, error);
+        failures.put(key, failure);
+        log.warn("Cache {} failed to load key {} (attempt {}); retrying in {}: {}",
+                spec.name, key, attempts, Duration.ofMillis(delay), error.getMessage());
+        return failure;
+    }
+
+    private void retryWhenDue(K key, Failure failure) {
+        if (clock.getAsLong() >= failure.retryAt() && retrying.add(key)) {
+            l1.refresh(key).whenComplete((value, error) -> retrying.remove(key));
+        }
+    }
+
+    private V fetch(K key, V current) {
+        if (l2 != null && !upstreamAllowed.getAsBoolean()) {
+            Optional<V> shared = l2.read(spec.persistKey.apply(key), spec.persistType);
+            if (shared.isPresent()) {
+                return shared.get();
+            }
+            log.debug("No shared copy of {} key {} yet; loading from source", spec.name, key);
+        }
+        return loadFromSource(key, current);
+    }
+
+    private V loadFromSource(K key, V current) {
+        if (current != null && spec.revalidator != null) {
+            V value = spec.revalidator.apply(key, current);
+            if (value != current) {
+                persist(key, value);
+            }
+            return value;
+        }
+        V value = spec.loader.apply(key);
+        persist(key, value);
+        return value;
+    }
+
+    private void persist(K key, V value) {
+        if (l2 != null && value != null) {
+            // Asynchronous: the caller never waits on Firestore
+            l2.write(spec.persistKey.apply(key), value);
+        }
+    }
+}
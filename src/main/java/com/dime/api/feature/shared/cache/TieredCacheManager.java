@@ -0,0 +1,221 @@
+package com.dime.api.feature.shared.cache;
+
+import com.dime.api.feature.shared.FirestoreCacheService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.quarkus.arc.Arc;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Registry of the application's {@link TieredCache}s.
+ * <p>
+ * Services declare their caches once with a {@link CacheSpec}; the manager builds them, warms them at
+ * startup (from Firestore first, then from the source APIs, in {@code warmPriority} order) and exports
+ * their statistics as {@code cache.*} metrics tagged with the cache name.
+ * <p>
+ * Every {@code cache.refresh.interval} the holder of the {@link CacheRefreshLease} reads the warm-up
+ * keys so that due entries refresh from the source even without traffic, and every instance copies
+ * the Firestore values another instance has written since (the holder's refreshes, or an update pushed
+ * by a webhook to whichever instance received it).
+ * <p>
+ * Stale values served while a source is failing are recorded in the request's {@link StaleResponse}
+ * and counted in {@code cache.stale.served}.
+ */
+@Slf4j
+@ApplicationScoped
+public class TieredCacheManager {
+
+    private static final AttributeKey<String> CACHE = AttributeKey.stringKey("cache");
+    private static final AttributeKey<String> RESULT = AttributeKey.stringKey("result");
+
+    @Inject
+    FirestoreCacheService firestoreCacheService;
+
+    @Inject
+    CacheRefreshLease refreshLease;
+
+    @Inject
+    OpenTelemetry openTelemetry;
+
+    @Inject
+    Instance<StaleResponse> staleResponse;
+
+    private final Map<String, TieredCache<?, ?>> caches = new ConcurrentHashMap<>();
+    private volatile boolean warmupCompleted;
+
+    @PostConstruct
+    void registerMetrics() {
+        if (openTelemetry == null) {
+            return;
+        }
+        Meter meter = openTelemetry.getMeter("com.dime.api");
+        meter.gaugeBuilder("cache.size")
+                .setDescription("Entries held in memory per cache")
+                .ofLongs()
+                .buildWithCallback(measurement -> caches.values().forEach(cache -> measurement
+                        .record(cache.stats().size(), Attributes.of(CACHE, cache.name()))));
+        meter.counterBuilder("cache.requests")
+                .setDescription("Cache reads by result")
+                .buildWithCallback(measurement -> caches.values().forEach(cache -> {
+                    CacheStats stats = cache.l1Stats();
+                    measurement.record(stats.hitCount(), Attributes.of(CACHE, cache.name(), RESULT, "hit"));
+                    measurement.record(stats.missCount(), Attributes.of(CACHE, cache.name(), RESULT, "miss"));
+                }));
+        meter.counterBuilder("cache.loads")
+                .setDescription("Loader calls by result")
+                .buildWithCallback(measurement -> caches.values().forEach(cache -> {
+                    CacheStats stats = cache.l1Stats();
+                    measurement.record(stats.loadSuccessCount(),
+                            Attributes.of(CACHE, cache.name(), RESULT, "success"));
+                    measurement.record(stats.loadFailureCount(),
+                            Attributes.of(CACHE, cache.name(), RESULT, "failure"));
+                }));
+        meter.counterBuilder("cache.load.duration")
+                .setDescription("Total time spent in loaders")
+                .setUnit("ms")
+                .buildWithCallback(measurement -> caches.values().forEach(cache -> measurement
+                        .record(cache.l1Stats().totalLoadTime() / 1_000_000, Attributes.of(CACHE, cache.name()))));
+        meter.counterBuilder("cache.evictions")
+                .setDescription("Entries evicted by size or expiry")
+                .buildWithCallback(measurement -> caches.values().forEach(cache -> measurement
+                        .record(cache.l1Stats().evictionCount(), Attributes.of(CACHE, cache.name()))));
+        meter.counterBuilder("cache.stale.served")
+                .setDescription("Reads answered with a stale value because the source is failing")
+                .buildWithCallback(measurement -> caches.values().forEach(cache -> measurement
+                        .record(cache.staleServed(), Attributes.of(CACHE, cache.name()))));
+        meter.gaugeBuilder("cache.failing_keys")
+                .setDescription("Keys whose last load failed and are retried with backoff")
+                .ofLongs()
+                .buildWithCallback(measurement -> caches.values().forEach(cache -> measurement
+                        .record(cache.failingKeys(), Attributes.of(CACHE, cache.name()))));
+    }
+
+    /**
+     * Builds and registers the cache declared by {@code spec}. Names must be unique.
+     */
+    public <K, V> TieredCache<K, V> register(CacheSpec<K, V> spec) {
+        TieredCache<K, V> cache = new TieredCache<>(spec, firestoreCacheService, this::isRefreshLeader,
+                this::servedStale);
+        if (caches.putIfAbsent(spec.name, cache) != null) {
+            throw new IllegalStateException("Cache already registered: " + spec.name);
+        }
+        log.debug("Registered cache {}", spec.name);
+        return cache;
+    }
+
+    /**
+     * Whether this instance refreshes from the source APIs, the other instances copying its Firestore writes.
+     */
+    public boolean isRefreshLeader() {
+        return refreshLease == null || refreshLease.isLeader();
+    }
+
+    private void servedStale(TieredCache.Staleness staleness) {
+        // Background refreshes and warm-up run outside of any request
+        if (staleResponse != null && Arc.container() != null && Arc.container().requestContext().isActive()) {
+            staleResponse.get().record(staleness);
+        }
+    }
+
+    @Scheduled(every = "${cache.refresh.interval:1m}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void refreshTick() {
+        boolean leader = isRefreshLeader();
+        for (TieredCache<?, ?> cache : caches()) {
+            try {
+                if (leader) {
+                    cache.touchWarmKeys();
+                }
+                cache.syncFromL2();
+            } catch (Exception e) {
+                log.warn("Failed to refresh cache {}: {}", cache.name(), e.getMessage());
+            }
+        }
+    }
+
+    public Optional<TieredCache<?, ?>> find(String name) {
+        return Optional.ofNullable(caches.get(name));
+    }
+
+    /**
+     * All caches in warm-up order.
+     */
+    public List<TieredCache<?, ?>> caches() {
+        return caches.values().stream()
+                .sorted(Comparator.<TieredCache<?, ?>>comparingInt(TieredCache::warmPriority)
+                        .thenComparing(TieredCache::name))
+                .toList();
+    }
+
+    /**
+     * Restores every cache's warm-up keys from Firestore in a single batched read, waiting at most
+     * {@code timeout}.
+     */
+    public void warmFromL2(Duration timeout) {
+        if (firestoreCacheService == null) {
+            return;
+        }
+        List<TieredCache<?, ?>> all = caches();
+        Set<String> keys = new LinkedHashSet<>();
+        all.forEach(cache -> keys.addAll(cache.warmL2Keys().keySet()));
+        Map<String, FirestoreCacheService.Payload> documents = firestoreCacheService.readAll(keys, timeout);
+        int restored = 0;
+        for (TieredCache<?, ?> cache : all) {
+            restored += cache.restore(documents);
+        }
+        log.info("Restored {} of {} cache entries from Firestore", restored, keys.size());
+    }
+
+    /**
+     * Loads every cache's missing warm-up keys through its loader, caches running in parallel on
+     * {@code executor} (submitted in warm-up order). The returned future completes once all have finished.
+     */
+    public CompletableFuture<Void> warmAll(Executor executor) {
+        CompletableFuture<?>[] warmups = caches().stream()
+                .map(cache -> CompletableFuture.runAsync(() -> warm(cache), executor))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(warmups).whenComplete((ignored, error) -> warmupCompleted = true);
+    }
+
+    private void warm(TieredCache<?, ?> cache) {
+        long start = System.currentTimeMillis();
+        try {
+            cache.warm();
+            log.info("Cache {} warmed in {} ms", cache.name(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("Failed to warm cache {}: {}", cache.name(), e.getMessage());
+        }
+    }
+
+    public boolean isWarmupCompleted() {
+        return warmupCompleted;
+    }
+
+    /**
+     * Names of the critical caches still missing a warm-up key.
+     */
+    public List<String> unpopulatedCriticalCaches() {
+        return caches().stream()
+                .filter(cache -> cache.isCritical() && !cache.isPopulated())
+                .map(TieredCache::name)
+                .toList();
+    }
+}
@@ -1,5 +1,6 @@
 package com.dime.api.feature.shared.config;
 
+import com.dime.api.feature.shared.ClientIpUtil;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ContainerRequestFilter;
 import jakarta.ws.rs.core.Response;
@@ -39,7 +40,7 @@ public class LoginRateLimitFilter implements ContainerRequestFilter {
             return;
         }
 
-        String clientIp = getClientIp(requestContext);
+        String clientIp = ClientIpUtil.resolve(requestContext);
         long now = System.currentTimeMillis();
 
         // Get or create attempt queue for this IP
@@ -70,25 +71,4 @@ public class LoginRateLimitFilter implements ContainerRequestFilter {
         attempts.add(now);
         log.debug("Login attempt recorded for IP: {} (attempt count: {})", clientIp, attempts.size());
     }
-
-    /**
-     * Extract client IP from request, checking for X-Forwarded-For header (Cloud Run proxy).
-     */
-    private String getClientIp(ContainerRequestContext requestContext) {
-        String forwardedFor = requestContext.getHeaderString("X-Forwarded-For");
-        if (forwardedFor != null && !forwardedFor.isEmpty()) {
-            // X-Forwarded-For can contain multiple IPs; take the first one
-            return forwardedFor.split(",")[0].trim();
-        }
-
-        String realIp = requestContext.getHeaderString("X-Real-IP");
-        if (realIp != null && !realIp.isEmpty()) {
-            return realIp;
-        }
-
-        // Fallback to direct connection IP
-        return requestContext.getSecurityContext().getUserPrincipal() != null
-                ? requestContext.getSecurityContext().getUserPrincipal().getName()
-                : "unknown";
-    }
 }
@@ -0,0 +1,18 @@
+package com.dime.api.feature.shared.exception;
+
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Exception for per-client request rate limits (429 Too Many Requests)
+ */
+public class RateLimitExceededException extends BusinessException {
+
+    public RateLimitExceededException(String message, Object details) {
+        super("RATE_LIMIT_EXCEEDED", message, details);
+    }
+
+    @Override
+    public int getHttpStatusCode() {
+        return Response.Status.TOO_MANY_REQUESTS.getStatusCode();
+    }
+}
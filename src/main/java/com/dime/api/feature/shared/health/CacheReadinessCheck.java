@@ -0,0 +1,39 @@
+package com.dime.api.feature.shared.health;
+
+import com.dime.api.feature.shared.cache.TieredCacheManager;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+
+import java.util.List;
+
+/**
+ * Reports {@code DOWN} while a critical cache is still empty during startup warm-up, so Cloud Run does
+ * not route requests that would block on an upstream load. Once warm-up has finished the check stays
+ * {@code UP} even if a cache could not be filled (upstream outage with no Firestore copy): that cache
+ * loads on its first request, which is better than keeping the instance out of rotation.
+ */
+@Readiness
+@ApplicationScoped
+public class CacheReadinessCheck implements HealthCheck {
+
+    private static final String CHECK_NAME = "caches";
+
+    @Inject
+    TieredCacheManager cacheManager;
+
+    @Override
+    public HealthCheckResponse call() {
+        List<String> missing = cacheManager.unpopulatedCriticalCaches();
+        boolean warmupCompleted = cacheManager.isWarmupCompleted();
+        HealthCheckResponseBuilder response = HealthCheckResponse.named(CHECK_NAME)
+                .withData("warmupCompleted", warmupCompleted);
+        if (!missing.isEmpty()) {
+            response.withData("missing", String.join(",", missing));
+        }
+        return response.status(missing.isEmpty() || warmupCompleted).build();
+    }
+}
@@ -1,6 +1,8 @@
 package com.dime.api.feature.shared.health;
 
 import com.dime.api.feature.github.GitHubClient;
+import com.dime.api.feature.github.GitHubRateBudget;
+import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +26,9 @@ public class GitHubHealthCheck implements HealthCheck {
     @RestClient
     GitHubClient gitHubClient;
 
+    @Inject
+    GitHubRateBudget rateBudget;
+
     @ConfigProperty(name = "github.token")
     Optional<String> token;
 
@@ -47,8 +52,12 @@ public class GitHubHealthCheck implements HealthCheck {
             String authHeader = token.filter(t -> !t.trim().isEmpty())
                     .map(t -> t.startsWith("Bearer ") ? t : "Bearer " + t)
                     .orElse(null);
-            gitHubClient.getRateLimit(authHeader);
+            JsonNode rateLimit = gitHubClient.getRateLimit(authHeader);
             long latencyMs = System.currentTimeMillis() - start;
+            if (rateBudget != null && rateLimit != null) {
+                // Free of rate limit, and covers resources no refresh has called yet
+                rateBudget.record(rateLimit);
+            }
             return HealthCheckResponse.named(CHECK_NAME)
                     .up()
                     .withData("latencyMs", latencyMs)
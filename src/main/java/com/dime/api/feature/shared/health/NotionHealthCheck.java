@@ -1,6 +1,7 @@
 package com.dime.api.feature.shared.health;
 
 import com.dime.api.feature.notion.NotionClient;
+import com.dime.api.feature.notion.NotionRateLimiter;
 import com.dime.api.feature.shared.BearerTokenUtil;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -11,6 +12,8 @@ import org.eclipse.microprofile.health.HealthCheckResponse;
 import org.eclipse.microprofile.health.Readiness;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 
+import java.time.Duration;
+
 @Readiness
 @ApplicationScoped
 @Slf4j
@@ -23,6 +26,9 @@ public class NotionHealthCheck implements HealthCheck {
     @RestClient
     NotionClient notionClient;
 
+    @Inject
+    NotionRateLimiter rateLimiter;
+
     @ConfigProperty(name = "notion.token")
     String token;
 
@@ -44,9 +50,20 @@ public class NotionHealthCheck implements HealthCheck {
     }
 
     HealthCheckResponse doCheck() {
+        Duration paused = rateLimiter.pausedFor();
+        if (!paused.isZero()) {
+            // Probing would only queue behind the pause; report it instead
+            return HealthCheckResponse.named(CHECK_NAME)
+                    .up()
+                    .withData("status", "THROTTLED")
+                    .withData("retryAfterMs", paused.toMillis())
+                    .build();
+        }
         long start = System.currentTimeMillis();
         try {
-            notionClient.getMe(BearerTokenUtil.ensureBearer(token), version);
+            // No user is waiting on a probe, so it leaves the interactive reserve alone
+            rateLimiter.call(NotionRateLimiter.Priority.BACKGROUND,
+                    () -> notionClient.getMe(BearerTokenUtil.ensureBearer(token), version));
             long latencyMs = System.currentTimeMillis() - start;
             return HealthCheckResponse.named(CHECK_NAME)
                     .up()
@@ -0,0 +1,70 @@
+package com.dime.api.feature.converter;
+
+import com.google.cloud.firestore.Firestore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AnonymousQuotaServiceTest {
+
+    AnonymousQuotaService service;
+    Firestore firestoreMock;
+    long now = 1_000_000L;
+
+    @BeforeEach
+    void setup() {
+        service = new AnonymousQuotaService();
+        firestoreMock = mock(Firestore.class);
+        service.firestore = firestoreMock;
+        service.limit = 2;
+        service.window = Duration.ofDays(30);
+        service.maxEntries = 1000;
+        service.clock = () -> now;
+        service.init();
+    }
+
+    @Test
+    void limitIsEnforcedPerIp() {
+        service.incrementUsage("1.1.1.1");
+        service.incrementUsage("1.1.1.1");
+
+        QuotaService.QuotaCheckResult exhausted = service.checkQuota("1.1.1.1");
+        assertFalse(exhausted.allowed());
+        assertEquals(0, exhausted.remaining());
+        assertEquals(PlanType.FREE, exhausted.plan());
+
+        QuotaService.QuotaCheckResult other = service.checkQuota("2.2.2.2");
+        assertTrue(other.allowed());
+        assertEquals(2, other.remaining());
+    }
+
+    @Test
+    void usageSlidesOutOfTheWindow() {
+        service.incrementUsage("1.1.1.1");
+        service.incrementUsage("1.1.1.1");
+
+        now += Duration.ofDays(45).toMillis();
+        assertTrue(service.checkQuota("1.1.1.1").allowed());
+
+        now += Duration.ofDays(30).toMillis();
+        assertEquals(2, service.checkQuota("1.1.1.1").remaining());
+    }
+
+    @Test
+    void requestPathNeverTouchesFirestore() {
+        service.checkQuota("1.1.1.1");
+        service.incrementUsage("1.1.1.1");
+        verify(firestoreMock, never()).collection(any());
+    }
+
+    @Test
+    void flushAggregates_withNothingToFlush_skipsFirestore() {
+        service.flushAggregates();
+        verify(firestoreMock, never()).collection(any());
+    }
+}
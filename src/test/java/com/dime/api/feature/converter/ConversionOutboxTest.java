@@ -0,0 +1,179 @@
+package com.dime.api.feature.converter;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ConversionOutboxTest {
+
+    private ConversionOutbox outbox;
+    private DocumentReference ref;
+
+    @BeforeEach
+    void setup() {
+        outbox = new ConversionOutbox();
+        outbox.trackingService = mock(TrackingService.class);
+        outbox.quotaService = mock(QuotaService.class);
+        outbox.notionQuotaService = mock(NotionQuotaService.class);
+        outbox.maxAttempts = 3;
+        ref = mock(DocumentReference.class);
+        when(ref.getId()).thenReturn("entry-1");
+        when(ref.update(anyString(), any())).thenReturn(ApiFutures.immediateFuture(null));
+        when(ref.update(anyMap())).thenReturn(ApiFutures.immediateFuture(null));
+        when(ref.delete()).thenReturn(ApiFutures.immediateFuture(null));
+    }
+
+    private DocumentSnapshot entry(long attempts, boolean trackingDone) {
+        DocumentSnapshot doc = mock(DocumentSnapshot.class);
+        when(doc.getReference()).thenReturn(ref);
+        when(doc.getId()).thenReturn("entry-1");
+        when(doc.getString("userId")).thenReturn("user1");
+        when(doc.getString("domain")).thenReturn("test.com");
+        when(doc.getLong("fileCount")).thenReturn(2L);
+        when(doc.getLong("eventCount")).thenReturn(3L);
+        when(doc.getLong("duration")).thenReturn(500L);
+        when(doc.getLong("attempts")).thenReturn(attempts);
+        when(doc.getTimestamp("createdAt")).thenReturn(Timestamp.parseTimestamp("2026-01-01T00:00:00Z"));
+        when(doc.get("done." + ConversionOutbox.STEP_TRACKING)).thenReturn(trackingDone);
+        when(doc.get("done." + ConversionOutbox.STEP_NOTION_QUOTA)).thenReturn(false);
+        return doc;
+    }
+
+    @Test
+    void deliver_runsEveryStepThenDeletesEntry() {
+        UserQuota quota = new UserQuota(PlanType.PRO, 7, 100, Timestamp.now(), Timestamp.now(), Timestamp.now());
+        when(outbox.quotaService.getQuotaStatus("user1")).thenReturn(quota);
+
+        outbox.deliver(entry(1, false), true);
+
+        verify(outbox.trackingService).deliverConversion(new ConversionOutbox.Entry("entry-1", "user1", 2, 3, 500L,
+                "test.com", Instant.parse("2026-01-01T00:00:00Z")));
+        verify(outbox.notionQuotaService).upsertQuotaPage(eq("user1"), eq(7L), eq(PlanType.PRO), any());
+        verify(ref).update("done." + ConversionOutbox.STEP_TRACKING, true);
+        verify(ref).update("done." + ConversionOutbox.STEP_NOTION_QUOTA, true);
+        verify(ref).delete();
+    }
+
+    @Test
+    void deliver_skipsCompletedStepsAndReschedulesOnFailure() {
+        when(outbox.quotaService.getQuotaStatus("user1"))
+                .thenReturn(new UserQuota(PlanType.PRO, 7, 100, Timestamp.now(), Timestamp.now(), Timestamp.now()));
+        doThrow(new RuntimeException("Notion unavailable")).when(outbox.notionQuotaService)
+                .upsertQuotaPage(anyString(), anyLong(), any(), any());
+
+        outbox.deliver(entry(1, true), true);
+
+        verifyNoInteractions(outbox.trackingService);
+        verify(ref, never()).delete();
+        verify(ref).update(argThat((Map<String, Object> fields) -> fields.containsKey(ConversionOutbox.NEXT_ATTEMPT_FIELD)
+                && !fields.containsKey("status")));
+    }
+
+    @Test
+    void deliver_parksEntryAfterMaxAttempts() {
+        doThrow(new RuntimeException("Firestore unavailable")).when(outbox.trackingService).deliverConversion(any());
+
+        outbox.deliver(entry(2, false), true);
+
+        verify(ref).update(argThat((Map<String, Object> fields) ->
+                ConversionOutbox.STATUS_FAILED.equals(fields.get("status"))));
+        verify(ref, never()).delete();
+    }
+
+    @Test
+    void relay_pushesQuotaOncePerUserPerBatch() throws Exception {
+        UserQuota quota = new UserQuota(PlanType.PRO, 7, 100, Timestamp.now(), Timestamp.now(), Timestamp.now());
+        when(outbox.quotaService.getQuotaStatus(anyString())).thenReturn(quota);
+        List<QueryDocumentSnapshot> due = List.of(
+                dueEntry("a1", "user1", "2026-01-01T00:00:01Z"),
+                dueEntry("a3", "user1", "2026-01-01T00:00:03Z"),
+                dueEntry("a2", "user1", "2026-01-01T00:00:02Z"),
+                dueEntry("b1", "user2", "2026-01-01T00:00:01Z"));
+        Firestore firestore = mock(Firestore.class);
+        CollectionReference collection = mock(CollectionReference.class);
+        Query query = mock(Query.class);
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(firestore.collection(ConversionOutbox.COLLECTION)).thenReturn(collection);
+        when(collection.whereLessThanOrEqualTo(eq(ConversionOutbox.NEXT_ATTEMPT_FIELD), any())).thenReturn(query);
+        when(query.limit(anyInt())).thenReturn(query);
+        when(query.get()).thenReturn(ApiFutures.immediateFuture(snapshot));
+        when(snapshot.getDocuments()).thenReturn(due);
+        ConversionOutbox relay = spy(outbox);
+        relay.firestore = firestore;
+        relay.workers = 4;
+        relay.batchSize = 20;
+        relay.shutdownTimeout = Duration.ofSeconds(5);
+        relay.init();
+        for (QueryDocumentSnapshot doc : due) {
+            doReturn(doc).when(relay).claim(doc.getReference());
+        }
+
+        relay.relay();
+        relay.onStop(null);
+
+        verify(outbox.trackingService, times(4)).deliverConversion(any());
+        verify(outbox.notionQuotaService, times(1)).upsertQuotaPage(eq("user1"), anyLong(), any(), any());
+        verify(outbox.notionQuotaService, times(1)).upsertQuotaPage(eq("user2"), anyLong(), any(), any());
+        for (QueryDocumentSnapshot doc : due) {
+            verify(doc.getReference()).update("done." + ConversionOutbox.STEP_NOTION_QUOTA, true);
+            verify(doc.getReference()).delete();
+        }
+        assertEquals(Set.of("a3", "b1"), ConversionOutbox.newestPerUser(List.copyOf(due)));
+    }
+
+    private QueryDocumentSnapshot dueEntry(String id, String userId, String createdAt) {
+        DocumentReference entryRef = mock(DocumentReference.class);
+        when(entryRef.getId()).thenReturn(id);
+        when(entryRef.update(anyString(), any())).thenReturn(ApiFutures.immediateFuture(null));
+        when(entryRef.delete()).thenReturn(ApiFutures.immediateFuture(null));
+        QueryDocumentSnapshot doc = mock(QueryDocumentSnapshot.class);
+        when(doc.getReference()).thenReturn(entryRef);
+        when(doc.getId()).thenReturn(id);
+        when(doc.getString("userId")).thenReturn(userId);
+        when(doc.getTimestamp("createdAt")).thenReturn(Timestamp.parseTimestamp(createdAt));
+        return doc;
+    }
+
+    @Test
+    void backoff_growsExponentiallyUpToCap() {
+        assertEquals(Duration.ofSeconds(5), ConversionOutbox.backoff(1));
+        assertEquals(Duration.ofSeconds(10), ConversionOutbox.backoff(2));
+        assertEquals(Duration.ofSeconds(40), ConversionOutbox.backoff(4));
+        assertEquals(Duration.ofMinutes(10), ConversionOutbox.backoff(30));
+    }
+
+    @Test
+    void toDocument_isDueImmediatelyWithNoStepDone() {
+        Map<String, Object> doc = ConversionOutbox.toDocument(
+                ConversionOutbox.Entry.conversion("user1", 1, 2, 100L, "test.com"));
+
+        assertEquals(ConversionOutbox.STATUS_PENDING, doc.get("status"));
+        assertNotNull(doc.get(ConversionOutbox.NEXT_ATTEMPT_FIELD));
+        assertEquals(Map.of(ConversionOutbox.STEP_TRACKING, false, ConversionOutbox.STEP_NOTION_QUOTA, false),
+                doc.get("done"));
+    }
+}
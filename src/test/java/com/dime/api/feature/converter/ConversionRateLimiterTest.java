@@ -0,0 +1,86 @@
+package com.dime.api.feature.converter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversionRateLimiterTest {
+
+    ConversionRateLimiter limiter;
+    long now;
+
+    @BeforeEach
+    void setup() {
+        limiter = new ConversionRateLimiter();
+        limiter.freeBurst = 2;
+        limiter.freePerMinute = 6;
+        limiter.proBurst = 5;
+        limiter.proPerMinute = 60;
+        limiter.businessBurst = 10;
+        limiter.businessPerMinute = 120;
+        limiter.unlimitedBurst = 50;
+        limiter.unlimitedPerMinute = 600;
+        limiter.maxConcurrent = 1;
+        limiter.maxEntries = 100;
+        limiter.idleEviction = Duration.ofMinutes(10);
+        limiter.clock = () -> now;
+        limiter.init();
+    }
+
+    private ConversionRateLimiter.Decision acquireAndRelease(String key) {
+        ConversionRateLimiter.Decision decision = limiter.acquire(key);
+        if (decision.allowed()) {
+            limiter.release(key);
+        }
+        return decision;
+    }
+
+    @Test
+    void burstIsConsumedThenRefilledOverTime() {
+        assertTrue(acquireAndRelease("ip:1").allowed());
+        assertTrue(acquireAndRelease("ip:1").allowed());
+
+        ConversionRateLimiter.Decision denied = acquireAndRelease("ip:1");
+        assertFalse(denied.allowed());
+        assertEquals(ConversionRateLimiter.Reason.RATE, denied.reason());
+        assertEquals(10, denied.resetSeconds());
+
+        now += TimeUnit.SECONDS.toNanos(11);
+        assertTrue(acquireAndRelease("ip:1").allowed());
+    }
+
+    @Test
+    void clientsHaveIndependentBuckets() {
+        acquireAndRelease("ip:1");
+        acquireAndRelease("ip:1");
+        assertFalse(acquireAndRelease("ip:1").allowed());
+        assertTrue(acquireAndRelease("ip:2").allowed());
+    }
+
+    @Test
+    void applyPlan_raisesBurstForLaterRequests() {
+        acquireAndRelease("uid:a");
+        limiter.applyPlan("uid:a", PlanType.PRO);
+
+        ConversionRateLimiter.Decision decision = acquireAndRelease("uid:a");
+        assertTrue(decision.allowed());
+        assertEquals(5, decision.limit());
+        assertEquals(60, decision.perMinute());
+    }
+
+    @Test
+    void concurrentRequestsAreCappedPerClient() {
+        assertTrue(limiter.acquire("uid:a").allowed());
+
+        ConversionRateLimiter.Decision second = limiter.acquire("uid:a");
+        assertFalse(second.allowed());
+        assertEquals(ConversionRateLimiter.Reason.CONCURRENCY, second.reason());
+
+        limiter.release("uid:a");
+        assertTrue(limiter.acquire("uid:a").allowed());
+    }
+}
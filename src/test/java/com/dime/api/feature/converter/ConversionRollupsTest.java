@@ -0,0 +1,107 @@
+package com.dime.api.feature.converter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversionRollupsTest {
+
+    private static final long T0 = Instant.parse("2026-03-01T10:00:00Z").toEpochMilli();
+
+    ConversionRollups rollups;
+    AtomicLong now;
+
+    @BeforeEach
+    void setup() {
+        rollups = new ConversionRollups();
+        rollups.maxCells = 200;
+        now = new AtomicLong(T0);
+        rollups.clock = now::get;
+    }
+
+    @Test
+    void query_countsConversionsAndErrorsPerBucket() {
+        rollups.record("claude", "FREE", "a.com", true, 1_000);
+        rollups.record("claude", "FREE", "a.com", false, 2_000);
+        now.addAndGet(60_000);
+        rollups.record("gemini", "PRO", "b.com", true, 3_000);
+
+        ConversionRollups.Timeseries series = rollups.query(ConversionRollups.Resolution.MINUTE,
+                Instant.ofEpochMilli(T0), Instant.ofEpochMilli(T0 + 120_000), null, null, null);
+
+        assertEquals(2, series.points().size());
+        assertEquals(2, series.points().get(0).conversions());
+        assertEquals(1, series.points().get(0).errors());
+        assertEquals(1, series.points().get(1).conversions());
+        assertEquals(0, series.points().get(1).errors());
+    }
+
+    @Test
+    void query_filtersByProviderPlanAndDomain() {
+        rollups.record("claude", "FREE", "a.com", true, 1_000);
+        rollups.record("gemini", "PRO", "b.com", true, 3_000);
+        rollups.record("gemini", "PRO", null, true, 3_000);
+
+        Instant from = Instant.ofEpochMilli(T0);
+        Instant to = Instant.ofEpochMilli(T0 + 3_600_000);
+        assertEquals(2, rollups.query(ConversionRollups.Resolution.HOUR, from, to, "gemini", null, null)
+                .points().get(0).conversions());
+        assertEquals(1, rollups.query(ConversionRollups.Resolution.HOUR, from, to, null, "free", null)
+                .points().get(0).conversions());
+        assertEquals(1, rollups.query(ConversionRollups.Resolution.HOUR, from, to, null, null,
+                ConversionRollups.UNKNOWN).points().get(0).conversions());
+    }
+
+    @Test
+    void query_reportsLatencyPercentiles() {
+        for (int i = 1; i <= 100; i++) {
+            rollups.record("claude", "FREE", "a.com", true, i * 100L);
+        }
+
+        ConversionRollups.TimeseriesPoint point = rollups.query(ConversionRollups.Resolution.DAY,
+                Instant.ofEpochMilli(T0), Instant.ofEpochMilli(T0 + 1), null, null, null).points().get(0);
+
+        assertEquals(5_000, point.p50Ms(), 5_000 * 0.07);
+        assertEquals(9_500, point.p95Ms(), 9_500 * 0.07);
+        assertTrue(point.p99Ms() >= point.p95Ms());
+    }
+
+    @Test
+    void ring_dropsBucketsOlderThanItsSlots() {
+        rollups.record("claude", "FREE", "a.com", true, 1_000);
+        now.addAndGet(ConversionRollups.Resolution.MINUTE.slots * 60_000L);
+        rollups.record("claude", "FREE", "a.com", true, 1_000);
+
+        ConversionRollups.Timeseries series = rollups.query(ConversionRollups.Resolution.MINUTE,
+                Instant.ofEpochMilli(T0), Instant.ofEpochMilli(now.get() + 60_000), null, null, null);
+
+        assertEquals(ConversionRollups.Resolution.MINUTE.slots, series.points().size());
+        assertEquals(1, series.points().stream().mapToLong(ConversionRollups.TimeseriesPoint::conversions).sum());
+    }
+
+    @Test
+    void record_capsDistinctDomainsPerBucket() {
+        rollups.maxCells = 2;
+        rollups.record("claude", "FREE", "a.com", true, 1_000);
+        rollups.record("claude", "FREE", "b.com", true, 1_000);
+        rollups.record("claude", "FREE", "c.com", true, 1_000);
+
+        Instant from = Instant.ofEpochMilli(T0);
+        Instant to = Instant.ofEpochMilli(T0 + 60_000);
+        assertEquals(0, rollups.query(ConversionRollups.Resolution.MINUTE, from, to, null, null, "c.com")
+                .points().get(0).conversions());
+        assertEquals(1, rollups.query(ConversionRollups.Resolution.MINUTE, from, to, null, null,
+                ConversionRollups.OTHER).points().get(0).conversions());
+    }
+
+    @Test
+    void documentId_isReadableAndStable() {
+        assertEquals("hour-2026-03-01T10:00:00Z", ConversionRollups.documentId(ConversionRollups.Resolution.HOUR, T0));
+        assertEquals(ConversionRollups.cellId(new ConversionRollups.Key("claude", "FREE", "a.com")),
+                ConversionRollups.cellId(new ConversionRollups.Key("claude", "FREE", "a.com")));
+    }
+}
@@ -0,0 +1,160 @@
+package com.dime.api.feature.converter;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ConversionStatisticsTest {
+
+    ConversionStatistics statistics;
+    Firestore firestoreMock;
+    DocumentReference docMock;
+    DocumentSnapshot snapshotMock;
+    CollectionReference shardsMock;
+    QuerySnapshot shardSnapshotsMock;
+
+    @BeforeEach
+    void setup() {
+        statistics = new ConversionStatistics();
+        firestoreMock = mock(Firestore.class, RETURNS_DEEP_STUBS);
+        docMock = mock(DocumentReference.class);
+        snapshotMock = mock(DocumentSnapshot.class);
+        when(firestoreMock.collection(ConversionStatistics.COLLECTION).document(ConversionStatistics.DOCUMENT))
+                .thenReturn(docMock);
+        when(docMock.get()).thenReturn(ApiFutures.immediateFuture(snapshotMock));
+        shardsMock = mock(CollectionReference.class);
+        shardSnapshotsMock = mock(QuerySnapshot.class);
+        when(docMock.collection(ConversionStatistics.SHARDS_COLLECTION)).thenReturn(shardsMock);
+        when(shardsMock.get()).thenReturn(ApiFutures.immediateFuture(shardSnapshotsMock));
+        when(shardSnapshotsMock.getDocuments()).thenReturn(List.of());
+        statistics.firestore = firestoreMock;
+        statistics.shards = 4;
+    }
+
+    @Test
+    void current_includesCountsNotYetMerged() {
+        statistics.record(2, 3);
+        statistics.record(1, 1);
+
+        TrackingService.Statistics stats = statistics.current();
+
+        assertEquals(3, stats.fileCount());
+        assertEquals(4, stats.eventCount());
+        verifyNoInteractions(docMock);
+    }
+
+    @Test
+    void merge_adoptsFirestoreTotalsIncludingOtherInstances() {
+        when(docMock.set(anyMap(), any(SetOptions.class))).thenReturn(ApiFutures.immediateFuture(null));
+        when(snapshotMock.exists()).thenReturn(true);
+        when(snapshotMock.getLong(ConversionStatistics.FILE_COUNT_FIELD)).thenReturn(10L);
+        when(snapshotMock.getLong(ConversionStatistics.EVENT_COUNT_FIELD)).thenReturn(20L);
+        statistics.record(2, 3);
+
+        statistics.merge();
+
+        verify(docMock).set(anyMap(), any(SetOptions.class));
+        assertEquals(new TrackingService.Statistics(10, 20), statistics.current());
+    }
+
+    @Test
+    void merge_whenWriteFails_keepsCountsPending() {
+        when(docMock.set(anyMap(), any(SetOptions.class)))
+                .thenReturn(ApiFutures.immediateFailedFuture(new RuntimeException("Firestore unavailable")));
+        statistics.record(2, 3);
+
+        statistics.merge();
+
+        assertEquals(new TrackingService.Statistics(2, 3), statistics.current());
+        verify(docMock, never()).get();
+    }
+
+    @Test
+    void merge_withNothingRecorded_onlyRefreshesTotals() {
+        when(snapshotMock.exists()).thenReturn(true);
+        when(snapshotMock.getLong(ConversionStatistics.FILE_COUNT_FIELD)).thenReturn(5L);
+        when(snapshotMock.getLong(ConversionStatistics.EVENT_COUNT_FIELD)).thenReturn(7L);
+
+        statistics.merge();
+
+        verify(docMock, never()).set(any(Map.class), any(SetOptions.class));
+        assertEquals(new TrackingService.Statistics(5, 7), statistics.current());
+    }
+
+    @Test
+    void merge_addsShardTotalsToDocumentTotals() {
+        when(snapshotMock.exists()).thenReturn(true);
+        when(snapshotMock.getLong(ConversionStatistics.FILE_COUNT_FIELD)).thenReturn(5L);
+        when(snapshotMock.getLong(ConversionStatistics.EVENT_COUNT_FIELD)).thenReturn(7L);
+        QueryDocumentSnapshot shard = mock(QueryDocumentSnapshot.class);
+        when(shard.exists()).thenReturn(true);
+        when(shard.getLong(ConversionStatistics.FILE_COUNT_FIELD)).thenReturn(2L);
+        when(shard.getLong(ConversionStatistics.EVENT_COUNT_FIELD)).thenReturn(3L);
+        when(shardSnapshotsMock.getDocuments()).thenReturn(List.of(shard));
+
+        statistics.merge();
+
+        assertEquals(new TrackingService.Statistics(7, 10), statistics.current());
+    }
+
+    @Test
+    void increment_sameKeyAlwaysLandsOnSameShard() {
+        Transaction transaction = mock(Transaction.class);
+        DocumentReference shardDoc = mock(DocumentReference.class);
+        when(shardsMock.document(anyString())).thenReturn(shardDoc);
+
+        statistics.increment(transaction, "outbox-1", 2, 3);
+        statistics.increment(transaction, "outbox-1", 2, 3);
+        statistics.recordStored(2, 3);
+
+        ArgumentCaptor<String> shardIds = ArgumentCaptor.forClass(String.class);
+        verify(shardsMock, times(2)).document(shardIds.capture());
+        assertEquals(shardIds.getAllValues().get(0), shardIds.getAllValues().get(1));
+        verify(transaction, times(2)).set(eq(shardDoc), anyMap(), any(SetOptions.class));
+        assertEquals(new TrackingService.Statistics(2, 3), statistics.current());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcile_addsNotionShortfallAndRecordsItAsCorrection() {
+        Transaction transaction = mock(Transaction.class);
+        when(firestoreMock.runTransaction(any())).thenAnswer(invocation -> ApiFutures.immediateFuture(
+                ((Transaction.Function<?>) invocation.getArgument(0)).updateCallback(transaction)));
+        when(transaction.get(docMock)).thenReturn(ApiFutures.immediateFuture(snapshotMock));
+        when(transaction.get(shardsMock)).thenReturn(ApiFutures.immediateFuture(shardSnapshotsMock));
+        when(snapshotMock.exists()).thenReturn(true);
+        when(snapshotMock.getLong(ConversionStatistics.FILE_COUNT_FIELD)).thenReturn(10L);
+        when(snapshotMock.getLong(ConversionStatistics.EVENT_COUNT_FIELD)).thenReturn(20L);
+        when(snapshotMock.getLong(ConversionStatistics.CORRECTED_FILES_FIELD)).thenReturn(2L);
+
+        statistics.reconcile(15, 18);
+
+        ArgumentCaptor<Map<String, Object>> fields = ArgumentCaptor.forClass(Map.class);
+        verify(transaction).set(eq(docMock), fields.capture(), any(SetOptions.class));
+        assertEquals(15L, fields.getValue().get(ConversionStatistics.FILE_COUNT_FIELD));
+        assertEquals(20L, fields.getValue().get(ConversionStatistics.EVENT_COUNT_FIELD));
+        assertEquals(7L, fields.getValue().get(ConversionStatistics.CORRECTED_FILES_FIELD));
+        assertEquals(0L, fields.getValue().get(ConversionStatistics.CORRECTED_EVENTS_FIELD));
+        assertEquals(5L, ((Map<String, Object>) fields.getValue().get("lastCorrection"))
+                .get(ConversionStatistics.FILE_COUNT_FIELD));
+    }
+}
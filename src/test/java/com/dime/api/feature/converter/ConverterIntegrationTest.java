@@ -102,4 +102,26 @@ public class ConverterIntegrationTest {
             .then()
                 .statusCode(400); // Bad Request due to empty required parameter
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStatisticsTimeseriesReturnsOnePointPerBucket() {
+        given()
+            .param("resolution", "minute")
+            .param("from", "2020-01-01T00:00:00Z")
+            .when().get("/v1/converter/statistics/timeseries")
+            .then()
+                .statusCode(200)
+                .body("resolution", is("MINUTE"))
+                .body("points.size()", is(180));
+    }
+
+    @Test
+    public void testStatisticsTimeseriesWithUnknownResolution() {
+        given()
+            .param("resolution", "week")
+            .when().get("/v1/converter/statistics/timeseries")
+            .then()
+                .statusCode(400)
+                .body("errorCode", is("VALIDATION_ERROR"));
+    }
+}
@@ -0,0 +1,58 @@
+package com.dime.api.feature.converter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencySketchTest {
+
+    @Test
+    void indexOf_isExactBelowSixteenAndLogLinearAbove() {
+        assertEquals(0, LatencySketch.indexOf(-5));
+        assertEquals(15, LatencySketch.indexOf(15));
+        assertEquals(16, LatencySketch.indexOf(16));
+        assertEquals(16, LatencySketch.indexOf(17));
+        assertEquals(23, LatencySketch.indexOf(31));
+        assertEquals(24, LatencySketch.indexOf(32));
+    }
+
+    @Test
+    void lowerBound_isInverseOfIndexOf() {
+        for (long value : new long[] { 0, 7, 16, 31, 32, 1_000, 65_432, 3_600_000 }) {
+            int index = LatencySketch.indexOf(value);
+            assertTrue(LatencySketch.lowerBound(index) <= value);
+            assertTrue(LatencySketch.lowerBound(index + 1) > value);
+        }
+    }
+
+    @Test
+    void percentile_isWithinBucketPrecision() {
+        LatencySketch sketch = new LatencySketch();
+        for (int i = 1; i <= 1000; i++) {
+            sketch.record(i * 10L);
+        }
+
+        assertEquals(1000, sketch.count());
+        assertEquals(5_000, sketch.percentile(0.50), 5_000 * 0.07);
+        assertEquals(9_500, sketch.percentile(0.95), 9_500 * 0.07);
+    }
+
+    @Test
+    void addAll_mergesCounts() {
+        LatencySketch first = new LatencySketch();
+        first.record(100);
+        LatencySketch second = new LatencySketch();
+        second.record(100);
+        second.record(5_000);
+
+        first.addAll(second);
+
+        assertEquals(3, first.count());
+        assertEquals(first.percentile(0.1), first.percentile(0.5));
+    }
+
+    @Test
+    void percentile_ofEmptySketchIsZero() {
+        assertEquals(0, new LatencySketch().percentile(0.99));
+    }
+}
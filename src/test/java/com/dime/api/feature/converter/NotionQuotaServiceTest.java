@@ -3,16 +3,23 @@ package com.dime.api.feature.converter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.dime.api.feature.notion.NotionClient;
+import com.dime.api.feature.notion.NotionDatabaseReader;
 import io.quarkus.test.junit.QuarkusTest;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @QuarkusTest
@@ -31,6 +38,8 @@ public class NotionQuotaServiceTest {
         notionQuotaService.token = "dummy-token";
         notionQuotaService.version = "2022-06-28";
         notionQuotaService.quotaDbId = Optional.of("dummy-db-id");
+        notionQuotaService.pageIndex = new NotionPageIndex();
+        notionQuotaService.notionDatabaseReader = new NotionDatabaseReader(notionClient);
     }
 
     @Test
@@ -52,6 +61,33 @@ public class NotionQuotaServiceTest {
         assertDoesNotThrow(() -> notionQuotaService.deleteFromNotion("user1"));
     }
 
+    @Test
+    public void testFetchFromNotion_queriesOnlyRequestedUsers() {
+        ObjectNode row = objectMapper.createObjectNode();
+        ObjectNode props = row.putObject("properties");
+        notionQuotaService.addTitleProperty(props, "User ID", "user1");
+        notionQuotaService.addNumberProperty(props, "Usage Count", 4);
+        notionQuotaService.addSelectProperty(props, "Plan", "PRO");
+        ObjectNode response = objectMapper.createObjectNode();
+        response.putArray("results").add(row);
+        when(notionClient.queryDatabase(any(), any(), any(), any())).thenReturn(response);
+
+        List<NotionQuotaService.QuotaData> results = notionQuotaService.fetchFromNotion(List.of("user1", "user2"));
+
+        assertEquals(1, results.size());
+        assertEquals("user1", results.get(0).userId());
+        assertEquals(4, results.get(0).usageCount());
+        assertEquals(PlanType.PRO, results.get(0).plan());
+        verify(notionClient, times(1)).queryDatabase(any(), any(), eq("dummy-db-id"), any());
+    }
+
+    @Test
+    public void testBuildUserIdFilter_multipleUsers_usesOrFilter() {
+        ObjectNode query = notionQuotaService.buildUserIdFilter(List.of("user1", "user2"));
+        assertEquals(2, query.at("/filter/or").size());
+        assertEquals("user2", query.at("/filter/or/1/title/equals").asText());
+    }
+
     @Test
     public void testAddTitleProperty() {
         ObjectNode node = objectMapper.createObjectNode();
@@ -59,5 +95,89 @@ public class NotionQuotaServiceTest {
         assertTrue(node.has("User ID"));
     }
 
-}
+    @Test
+    public void testSyncToNotion_indexedUser_singleUpdateCall() {
+        notionQuotaService.pageIndex.put("user1", "page-1");
+
+        notionQuotaService.syncToNotion("user1", 5, PlanType.FREE, Instant.now());
+
+        verify(notionClient).updatePage(any(), any(), eq("page-1"), any());
+        verify(notionClient, never()).queryDatabase(any(), any(), any(), any());
+        verify(notionClient, never()).createPage(any(), any(), any());
+    }
+
+    @Test
+    public void testSyncToNotion_newUserWithCompleteIndex_createsAndIndexesPage() {
+        notionQuotaService.pageIndex.load(Map.of());
+        ObjectNode created = objectMapper.createObjectNode().put("id", "page-new");
+        when(notionClient.createPage(any(), any(), any())).thenReturn(created);
+
+        notionQuotaService.syncToNotion("user1", 1, PlanType.FREE, Instant.now());
+
+        verify(notionClient, never()).queryDatabase(any(), any(), any(), any());
+        assertEquals("page-new", notionQuotaService.pageIndex.get("user1"));
+    }
+
+    @Test
+    public void testSyncToNotion_indexedPageGone_recreatesPage() {
+        notionQuotaService.pageIndex.load(Map.of("user1", "page-old"));
+        when(notionClient.updatePage(any(), any(), eq("page-old"), any())).thenThrow(new NotFoundException());
+        when(notionClient.createPage(any(), any(), any()))
+                .thenReturn(objectMapper.createObjectNode().put("id", "page-new"));
 
+        notionQuotaService.syncToNotion("user1", 2, PlanType.FREE, Instant.now());
+
+        verify(notionClient).createPage(any(), any(), any());
+        assertEquals("page-new", notionQuotaService.pageIndex.get("user1"));
+    }
+
+    @Test
+    public void testSyncToNotion_indexedPageArchived_recreatesPage() {
+        notionQuotaService.pageIndex.load(Map.of("user1", "page-old"));
+        when(notionClient.updatePage(any(), any(), eq("page-old"), any())).thenThrow(new WebApplicationException(
+                Response.status(400).entity("{\"code\":\"validation_error\",\"message\":"
+                        + "\"Can't edit block that is archived.\"}").build()));
+        when(notionClient.createPage(any(), any(), any()))
+                .thenReturn(objectMapper.createObjectNode().put("id", "page-new"));
+
+        notionQuotaService.syncToNotion("user1", 2, PlanType.FREE, Instant.now());
+
+        verify(notionClient).createPage(any(), any(), any());
+        assertEquals("page-new", notionQuotaService.pageIndex.get("user1"));
+    }
+
+    @Test
+    public void testUpsertQuotaPage_pageBeingCreatedElsewhere_failsWithoutCreating() throws Exception {
+        notionQuotaService.pageIndex = spy(new NotionPageIndex());
+        notionQuotaService.pageIndex.load(Map.of());
+        doReturn(new NotionPageIndex.Claim(null, false)).when(notionQuotaService.pageIndex)
+                .claimCreation("user1", null);
+
+        assertThrows(IllegalStateException.class,
+                () -> notionQuotaService.upsertQuotaPage("user1", 1, PlanType.FREE, Instant.now()));
+
+        verify(notionClient, never()).createPage(any(), any(), any());
+    }
+
+    @Test
+    public void testScanPageIds_followsCursor() {
+        ObjectNode first = objectMapper.createObjectNode();
+        first.putArray("results").add(pageRow("page-1", "user1"));
+        first.put("has_more", true).put("next_cursor", "cursor-2");
+        ObjectNode second = objectMapper.createObjectNode();
+        second.putArray("results").add(pageRow("page-2", "user2"));
+        second.put("has_more", false);
+        when(notionClient.queryDatabase(any(), any(), any(), any())).thenReturn(first, second);
+
+        Map<String, String> scanned = notionQuotaService.scanPageIds();
+
+        assertEquals(Map.of("user1", "page-1", "user2", "page-2"), scanned);
+        verify(notionClient, times(2)).queryDatabase(any(), any(), any(), any());
+    }
+
+    private ObjectNode pageRow(String pageId, String userId) {
+        ObjectNode row = objectMapper.createObjectNode().put("id", pageId);
+        notionQuotaService.addTitleProperty(row.putObject("properties"), "User ID", userId);
+        return row;
+    }
+}
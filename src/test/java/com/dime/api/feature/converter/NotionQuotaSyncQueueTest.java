@@ -0,0 +1,137 @@
+package com.dime.api.feature.converter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NotionQuotaSyncQueueTest {
+
+    NotionQuotaSyncQueue queue;
+    NotionQuotaService notionQuotaServiceMock;
+    long now = 1_000_000;
+
+    @BeforeEach
+    void setup() {
+        queue = new NotionQuotaSyncQueue();
+        notionQuotaServiceMock = mock(NotionQuotaService.class);
+        queue.notionQuotaService = notionQuotaServiceMock;
+        queue.retryBackoff = Duration.ofSeconds(2);
+        queue.maxAttempts = 3;
+        queue.clock = () -> now;
+    }
+
+    @Test
+    void testEnqueue_coalescesToLatestStatePerUser() {
+        Instant period = Instant.parse("2026-10-01T00:00:00Z");
+        queue.enqueue("user1", 1, PlanType.FREE, period);
+        queue.enqueue("user1", 2, PlanType.FREE, period);
+        queue.enqueue("user1", 3, PlanType.PRO, period);
+
+        assertEquals(1, queue.depth());
+        assertTrue(queue.drainOne());
+        assertFalse(queue.drainOne());
+
+        verify(notionQuotaServiceMock).upsertQuotaPage("user1", 3, PlanType.PRO, period);
+        verifyNoMoreInteractions(notionQuotaServiceMock);
+    }
+
+    @Test
+    void testDrain_preservesFirstEnqueueOrderAcrossUsers() {
+        Instant period = Instant.now();
+        queue.enqueue("user1", 1, PlanType.FREE, period);
+        queue.enqueue("user2", 1, PlanType.FREE, period);
+        queue.enqueue("user1", 2, PlanType.FREE, period);
+
+        queue.flush(Duration.ofSeconds(1));
+
+        InOrder inOrder = inOrder(notionQuotaServiceMock);
+        inOrder.verify(notionQuotaServiceMock).upsertQuotaPage(eq("user1"), eq(2L), any(), any());
+        inOrder.verify(notionQuotaServiceMock).upsertQuotaPage(eq("user2"), eq(1L), any(), any());
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    void testEnqueueArchive_supersedesPendingUpdate() {
+        queue.enqueue("user1", 5, PlanType.FREE, Instant.now());
+        queue.enqueueArchive("user1");
+
+        queue.flush(Duration.ofSeconds(1));
+
+        verify(notionQuotaServiceMock).archiveQuotaPage("user1");
+        verify(notionQuotaServiceMock, never()).upsertQuotaPage(anyString(), anyLong(), any(), any());
+    }
+
+    @Test
+    void testDrain_failureIsNonBlocking() {
+        doThrow(new RuntimeException("Notion down"))
+                .when(notionQuotaServiceMock).upsertQuotaPage(eq("user1"), anyLong(), any(), any());
+        queue.enqueue("user1", 1, PlanType.FREE, Instant.now());
+        queue.enqueue("user2", 1, PlanType.FREE, Instant.now());
+
+        assertDoesNotThrow(() -> queue.flush(Duration.ofSeconds(1)));
+
+        verify(notionQuotaServiceMock).upsertQuotaPage(eq("user2"), eq(1L), any(), any());
+        // user1 waits for its retry backoff
+        assertEquals(1, queue.depth());
+    }
+
+    @Test
+    void testDrain_failureIsRetriedAfterBackoff() {
+        Instant period = Instant.now();
+        doThrow(new RuntimeException("Notion down")).doNothing()
+                .when(notionQuotaServiceMock).upsertQuotaPage(eq("user1"), anyLong(), any(), any());
+        queue.enqueue("user1", 1, PlanType.FREE, period);
+
+        assertTrue(queue.drainOne());
+        assertFalse(queue.drainOne());
+        now += 2_000;
+        assertTrue(queue.drainOne());
+
+        verify(notionQuotaServiceMock, times(2)).upsertQuotaPage("user1", 1, PlanType.FREE, period);
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    void testDrain_failedRetryDoesNotOverwriteNewerState() {
+        Instant period = Instant.now();
+        doAnswer(invocation -> {
+            // A conversion lands while the write is in flight
+            queue.enqueue("user1", 2, PlanType.FREE, period);
+            throw new RuntimeException("Notion down");
+        }).when(notionQuotaServiceMock).upsertQuotaPage(eq("user1"), eq(1L), any(), any());
+        queue.enqueue("user1", 1, PlanType.FREE, period);
+
+        assertTrue(queue.drainOne());
+        // The newer state is due immediately, without the failed write's backoff
+        assertTrue(queue.drainOne());
+
+        verify(notionQuotaServiceMock).upsertQuotaPage("user1", 2, PlanType.FREE, period);
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    void testDrain_givesUpAfterMaxAttempts() {
+        doThrow(new RuntimeException("Notion down"))
+                .when(notionQuotaServiceMock).upsertQuotaPage(eq("user1"), anyLong(), any(), any());
+        queue.enqueue("user1", 1, PlanType.FREE, Instant.now());
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            assertTrue(queue.drainOne());
+            now += 60_000;
+        }
+
+        assertFalse(queue.drainOne());
+        verify(notionQuotaServiceMock, times(3)).upsertQuotaPage(eq("user1"), anyLong(), any(), any());
+        assertEquals(0, queue.depth());
+    }
+}
@@ -1,11 +1,28 @@
 package com.dime.api.feature.converter;
 
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.Transaction;
+import com.google.cloud.firestore.WriteBatch;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class QuotaServiceTest {
@@ -13,6 +30,7 @@ class QuotaServiceTest {
     QuotaService quotaService;
     Firestore firestoreMock;
     NotionQuotaService notionQuotaServiceMock;
+    NotionQuotaSyncQueue syncQueueMock;
 
     @BeforeEach
     public void setup() {
@@ -26,12 +44,16 @@ class QuotaServiceTest {
         notionQuotaServiceMock = mock(NotionQuotaService.class);
         quotaService.firestore = firestoreMock;
         quotaService.notionQuotaService = notionQuotaServiceMock;
+        quotaService.shardedQuotaCounter = mock(ShardedQuotaCounter.class);
+        syncQueueMock = mock(NotionQuotaSyncQueue.class);
+        quotaService.notionQuotaSyncQueue = syncQueueMock;
     }
 
     @Test
     public void testIncrementUsageHandlesException() {
         when(firestoreMock.collection(any())).thenThrow(new RuntimeException("Firestore error"));
-        assertDoesNotThrow(() -> quotaService.incrementUsage("user1"));
+        ConversionOutbox.Entry entry = ConversionOutbox.Entry.conversion("user1", 1, 2, 100L, "test.com");
+        assertDoesNotThrow(() -> quotaService.incrementUsage("user1", entry));
     }
 
     @Test
@@ -67,4 +89,145 @@ class QuotaServiceTest {
         UserQuota quota = new UserQuota();
         assertDoesNotThrow(() -> quotaService.updateQuota("non-existent-user-update", quota));
     }
+
+    @Test
+    public void testSyncToNotion_singleUser_usesBatchedLookupInsteadOfScan() {
+        CollectionReference users = mock(CollectionReference.class);
+        DocumentReference docRef = mock(DocumentReference.class);
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        UserQuota quota = new UserQuota(PlanType.PRO, 7, 100, Timestamp.now(), Timestamp.now(), Timestamp.now());
+
+        when(firestoreMock.collection("users")).thenReturn(users);
+        when(users.document("user1")).thenReturn(docRef);
+        when(snapshot.exists()).thenReturn(true);
+        when(snapshot.getId()).thenReturn("user1");
+        when(snapshot.toObject(UserQuota.class)).thenReturn(quota);
+        when(firestoreMock.getAll(any(DocumentReference[].class)))
+                .thenReturn(ApiFutures.immediateFuture(List.of(snapshot)));
+
+        quotaService.syncToNotion(List.of("user1"));
+
+        verify(users, never()).get();
+        verify(syncQueueMock).enqueue(eq("user1"), eq(7L), eq(PlanType.PRO), any(Instant.class));
+        verifyNoInteractions(notionQuotaServiceMock);
+    }
+
+    @Test
+    public void testSyncToNotion_blankUserId_syncsNobody() {
+        quotaService.syncToNotion(List.of(" "));
+
+        verify(firestoreMock, never()).collection(any());
+        verify(syncQueueMock, never()).enqueue(anyString(), anyLong(), any(), any());
+    }
+
+    @Test
+    public void testSyncFromNotion_singleUser_usesFilteredQuery() {
+        when(notionQuotaServiceMock.fetchFromNotion(anyCollection())).thenReturn(List.of());
+
+        quotaService.syncFromNotion(List.of("user1", "user1"));
+
+        verify(notionQuotaServiceMock).fetchFromNotion(Set.of("user1"));
+        verify(notionQuotaServiceMock, never()).fetchAllFromNotion();
+    }
+
+    @Test
+    public void testIncrementUsage_shardedUser_skipsUserDocumentTransaction() throws Exception {
+        CollectionReference users = mock(CollectionReference.class);
+        CollectionReference outbox = mock(CollectionReference.class);
+        DocumentReference docRef = mock(DocumentReference.class);
+        DocumentReference outboxRef = mock(DocumentReference.class);
+        WriteBatch batch = mock(WriteBatch.class);
+        when(firestoreMock.collection("users")).thenReturn(users);
+        when(firestoreMock.collection(ConversionOutbox.COLLECTION)).thenReturn(outbox);
+        when(firestoreMock.batch()).thenReturn(batch);
+        when(users.document("hot-user")).thenReturn(docRef);
+        when(outbox.document("entry-1")).thenReturn(outboxRef);
+        when(quotaService.shardedQuotaCounter.knownShardCount("hot-user")).thenReturn(10);
+        ConversionOutbox.Entry entry = new ConversionOutbox.Entry("entry-1", "hot-user", 1, 2, 100L, "test.com",
+                Instant.now());
+
+        assertTrue(quotaService.incrementUsage("hot-user", entry));
+
+        verify(batch).create(eq(outboxRef), anyMap());
+        verify(quotaService.shardedQuotaCounter).increment(docRef, 10, batch);
+        verify(firestoreMock, never()).runTransaction(any());
+    }
+
+    @Test
+    public void testIncrementUsage_withOutboxEntry_writesEntryInSameTransaction() throws Exception {
+        CollectionReference users = mock(CollectionReference.class);
+        CollectionReference outbox = mock(CollectionReference.class);
+        DocumentReference docRef = mock(DocumentReference.class);
+        DocumentReference outboxRef = mock(DocumentReference.class);
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        Transaction transaction = mock(Transaction.class);
+        when(firestoreMock.collection("users")).thenReturn(users);
+        when(firestoreMock.collection(ConversionOutbox.COLLECTION)).thenReturn(outbox);
+        when(users.document("user1")).thenReturn(docRef);
+        when(outbox.document("entry-1")).thenReturn(outboxRef);
+        when(transaction.get(docRef)).thenReturn(ApiFutures.immediateFuture(snapshot));
+        when(snapshot.exists()).thenReturn(true);
+        when(snapshot.toObject(UserQuota.class))
+                .thenReturn(new UserQuota(PlanType.PRO, 7, 100, Timestamp.now(), Timestamp.now(), Timestamp.now()));
+        when(firestoreMock.runTransaction(any())).thenAnswer(invocation -> {
+            Transaction.Function<?> function = invocation.getArgument(0);
+            return ApiFutures.immediateFuture(function.updateCallback(transaction));
+        });
+        ConversionOutbox.Entry entry = new ConversionOutbox.Entry("entry-1", "user1", 1, 2, 100L, "test.com",
+                Instant.now());
+
+        assertTrue(quotaService.incrementUsage("user1", entry));
+
+        verify(transaction).create(eq(outboxRef), anyMap());
+        verify(transaction).update(eq(docRef), eq("quotaUsed"), any());
+        // The outbox relay syncs Notion instead of the write-behind queue
+        verifyNoInteractions(syncQueueMock);
+    }
+
+    @Test
+    public void testIncrementUsage_withOutboxEntry_reportsFailure() {
+        when(firestoreMock.collection(any())).thenThrow(new RuntimeException("Firestore error"));
+        ConversionOutbox.Entry entry = ConversionOutbox.Entry.conversion("user1", 1, 2, 100L, "test.com");
+
+        assertFalse(quotaService.incrementUsage("user1", entry));
+    }
+
+    @Test
+    public void testDeleteQuota_queuesNotionArchive() {
+        CollectionReference users = mock(CollectionReference.class);
+        DocumentReference docRef = mock(DocumentReference.class);
+        when(firestoreMock.collection("users")).thenReturn(users);
+        when(users.document("user1")).thenReturn(docRef);
+        when(docRef.delete()).thenReturn(ApiFutures.immediateFuture(null));
+
+        quotaService.deleteQuota("user1");
+
+        verify(syncQueueMock).enqueueArchive("user1");
+        verifyNoInteractions(notionQuotaServiceMock);
+    }
+
+    @Test
+    public void testUpdateQuota_shardedUser_resetsShardsInSameTransaction() throws Exception {
+        CollectionReference users = mock(CollectionReference.class);
+        DocumentReference docRef = mock(DocumentReference.class);
+        DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
+        Transaction transaction = mock(Transaction.class);
+        when(firestoreMock.collection("users")).thenReturn(users);
+        when(users.document("hot-user")).thenReturn(docRef);
+        when(transaction.get(docRef)).thenReturn(ApiFutures.immediateFuture(snapshot));
+        when(snapshot.exists()).thenReturn(true);
+        when(snapshot.getLong("shardCount")).thenReturn(10L);
+        when(firestoreMock.runTransaction(any())).thenAnswer(invocation -> {
+            Transaction.Function<?> function = invocation.getArgument(0);
+            return ApiFutures.immediateFuture(function.updateCallback(transaction));
+        });
+        UserQuota quota = new UserQuota(PlanType.PRO, 42, 100, Timestamp.now(), Timestamp.now(), Timestamp.now());
+
+        quotaService.updateQuota("hot-user", quota);
+
+        verify(quotaService.shardedQuotaCounter).reset(transaction, docRef, 10);
+        verify(transaction).set(eq(docRef), eq(quota), any(SetOptions.class));
+        verify(quotaService.shardedQuotaCounter).afterReset(docRef, 10);
+        verify(docRef, never()).set(any(), any(SetOptions.class));
+    }
 }
@@ -0,0 +1,148 @@
+package com.dime.api.feature.converter;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Firestore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class QuotaSyncServiceTest {
+
+    QuotaSyncService syncService;
+    QuotaService quotaServiceMock;
+    NotionQuotaService notionQuotaServiceMock;
+
+    @BeforeEach
+    void setup() {
+        syncService = new QuotaSyncService();
+        syncService.firestore = mock(Firestore.class, RETURNS_DEEP_STUBS);
+        quotaServiceMock = mock(QuotaService.class);
+        notionQuotaServiceMock = mock(NotionQuotaService.class);
+        syncService.quotaService = quotaServiceMock;
+        syncService.notionQuotaService = notionQuotaServiceMock;
+        syncService.pageIndex = new NotionPageIndex();
+        syncService.parallelism = 2;
+        syncService.watermarkOverlap = Duration.ofMinutes(2);
+        syncService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        syncService.shutdown();
+    }
+
+    @Test
+    void testSyncToNotion_skipsUsersWhoseHashIsUnchanged() {
+        Timestamp period = Timestamp.ofTimeSecondsAndNanos(1_790_000_000L, 0);
+        UserQuota unchanged = new UserQuota(PlanType.FREE, 1, 3, period, period, period);
+        UserQuota changed = new UserQuota(PlanType.PRO, 5, 100, period, period, period);
+        syncService.pageIndex.recordSyncedHash("same",
+                NotionPageIndex.quotaHash(1, PlanType.FREE, period.toDate().toInstant()));
+        when(quotaServiceMock.findAll()).thenReturn(List.of(
+                new QuotaService.UserQuotaWrapper("same", unchanged),
+                new QuotaService.UserQuotaWrapper("other", changed)));
+
+        QuotaSyncService.SyncReport report = syncService.syncToNotion(true);
+
+        assertEquals(1, report.changed());
+        assertEquals(1, report.skipped());
+        assertEquals(0, report.failed());
+        verify(notionQuotaServiceMock).upsertQuotaPage(eq("other"), eq(5L), eq(PlanType.PRO), any());
+        verify(notionQuotaServiceMock, never()).upsertQuotaPage(eq("same"), anyLong(), any(), any());
+    }
+
+    @Test
+    void testSyncToNotion_failureKeepsPreviousWatermark() {
+        Timestamp period = Timestamp.now();
+        when(quotaServiceMock.findAll()).thenReturn(List.of(
+                new QuotaService.UserQuotaWrapper("user1", new UserQuota(PlanType.FREE, 2, 3, period, period, period))));
+        doThrow(new RuntimeException("429")).when(notionQuotaServiceMock)
+                .upsertQuotaPage(anyString(), anyLong(), any(), any());
+
+        QuotaSyncService.SyncReport report = syncService.syncToNotion(true);
+
+        assertEquals(1, report.failed());
+        assertNull(report.watermark());
+    }
+
+    @Test
+    void testSyncToNotion_newerNotionEditIsNotOverwritten() {
+        Timestamp period = Timestamp.ofTimeSecondsAndNanos(1_790_000_000L, 0);
+        Instant notionEdit = Instant.parse("2026-10-01T10:00:00Z");
+        // Within the minute Notion truncated its edit time to, so Firestore is not provably newer
+        Timestamp firestoreEdit = Timestamp.ofTimeSecondsAndNanos(notionEdit.plusSeconds(30).getEpochSecond(), 0);
+        when(quotaServiceMock.findAll()).thenReturn(List.of(new QuotaService.UserQuotaWrapper("user1",
+                new UserQuota(PlanType.FREE, 2, 3, period, period, firestoreEdit))));
+        when(notionQuotaServiceMock.fetchFromNotionOrFail(List.of("user1"))).thenReturn(List.of(
+                new NotionQuotaService.QuotaData("user1", 9, period.toDate().toInstant(), PlanType.FREE, notionEdit)));
+
+        QuotaSyncService.SyncReport report = syncService.syncToNotion(false);
+
+        assertEquals(0, report.changed());
+        assertEquals(1, report.skipped());
+        verify(notionQuotaServiceMock, never()).upsertQuotaPage(anyString(), anyLong(), any(), any());
+    }
+
+    @Test
+    void testSyncToNotion_pushesOverNotionRowUnchangedSinceLastSync() {
+        Timestamp period = Timestamp.ofTimeSecondsAndNanos(1_790_000_000L, 0);
+        Instant notionEdit = Instant.now();
+        syncService.pageIndex.recordSyncedHash("user1",
+                NotionPageIndex.quotaHash(1, PlanType.FREE, period.toDate().toInstant()));
+        when(quotaServiceMock.findAll()).thenReturn(List.of(new QuotaService.UserQuotaWrapper("user1",
+                new UserQuota(PlanType.FREE, 2, 3, period, period, period))));
+        when(notionQuotaServiceMock.fetchFromNotionOrFail(List.of("user1"))).thenReturn(List.of(
+                new NotionQuotaService.QuotaData("user1", 1, period.toDate().toInstant(), PlanType.FREE, notionEdit)));
+
+        QuotaSyncService.SyncReport report = syncService.syncToNotion(false);
+
+        assertEquals(1, report.changed());
+        verify(notionQuotaServiceMock).upsertQuotaPage(eq("user1"), eq(2L), eq(PlanType.FREE), any());
+    }
+
+    @Test
+    void testSyncFromNotion_firestoreNewerWinsConflict() throws Exception {
+        Timestamp period = Timestamp.ofTimeSecondsAndNanos(1_790_000_000L, 0);
+        Instant notionEdit = Instant.parse("2026-10-01T10:00:00Z");
+        Timestamp firestoreEdit = Timestamp.ofTimeSecondsAndNanos(notionEdit.plusSeconds(60).getEpochSecond(), 0);
+        NotionQuotaService.QuotaData row = new NotionQuotaService.QuotaData("user1", 9, period.toDate().toInstant(),
+                PlanType.FREE, notionEdit);
+        when(notionQuotaServiceMock.fetchEditedSince(any())).thenReturn(List.of(row));
+        when(quotaServiceMock.findByIds(any())).thenReturn(List.of(new QuotaService.UserQuotaWrapper("user1",
+                new UserQuota(PlanType.FREE, 2, 3, period, period, firestoreEdit))));
+
+        QuotaSyncService.SyncReport report = syncService.syncFromNotion(false);
+
+        assertEquals(0, report.changed());
+        assertEquals(1, report.skipped());
+        verify(quotaServiceMock, never()).applyFromNotion(any());
+    }
+
+    @Test
+    void testSyncFromNotion_appliesNewerNotionEdit() throws Exception {
+        Timestamp period = Timestamp.ofTimeSecondsAndNanos(1_790_000_000L, 0);
+        NotionQuotaService.QuotaData row = new NotionQuotaService.QuotaData("user1", 9, period.toDate().toInstant(),
+                PlanType.PRO, Instant.now());
+        when(notionQuotaServiceMock.fetchEditedSince(any())).thenReturn(List.of(row));
+        when(quotaServiceMock.findByIds(any())).thenReturn(List.of(new QuotaService.UserQuotaWrapper("user1",
+                new UserQuota(PlanType.FREE, 2, 3, period, period, period))));
+
+        QuotaSyncService.SyncReport report = syncService.syncFromNotion(false);
+
+        assertEquals(1, report.changed());
+        verify(quotaServiceMock).applyFromNotion(row);
+        assertEquals(NotionPageIndex.quotaHash(9, PlanType.PRO, period.toDate().toInstant()),
+                syncService.pageIndex.syncedHash("user1"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.dime.api.feature.converter;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.Transaction;
+import com.google.cloud.firestore.WriteBatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ShardedQuotaCounterTest {
+
+    ShardedQuotaCounter counter;
+    DocumentReference userDoc;
+    CollectionReference shards;
+
+    @BeforeEach
+    void setup() {
+        counter = new ShardedQuotaCounter();
+        counter.firestore = mock(Firestore.class);
+        counter.shardCount = 4;
+        counter.thresholdPerMinute = 3;
+        counter.aggregateTtl = Duration.ofSeconds(10);
+        counter.init();
+
+        userDoc = mock(DocumentReference.class);
+        shards = mock(CollectionReference.class);
+        when(userDoc.getId()).thenReturn("user1");
+        when(userDoc.collection(ShardedQuotaCounter.SHARDS_COLLECTION)).thenReturn(shards);
+    }
+
+    @Test
+    void recordWrite_crossesThresholdAfterConfiguredRate() {
+        assertFalse(counter.recordWrite("user1"));
+        assertFalse(counter.recordWrite("user1"));
+        assertFalse(counter.recordWrite("user1"));
+        assertTrue(counter.recordWrite("user1"));
+        assertFalse(counter.recordWrite("user2"));
+    }
+
+    @Test
+    void knownShardCount_defaultsToZero() {
+        assertEquals(0, counter.knownShardCount("unknown"));
+        counter.remember("user1", 4);
+        assertEquals(4, counter.knownShardCount("user1"));
+    }
+
+    @Test
+    void sum_isCachedAndAdjustedByLocalIncrements() throws Exception {
+        DocumentSnapshot shard0 = mock(DocumentSnapshot.class);
+        DocumentSnapshot shard1 = mock(DocumentSnapshot.class);
+        when(shard0.getLong(ShardedQuotaCounter.COUNT_FIELD)).thenReturn(2L);
+        when(shard1.getLong(ShardedQuotaCounter.COUNT_FIELD)).thenReturn(3L);
+        QuerySnapshot query = mock(QuerySnapshot.class);
+        when(query.getDocuments()).thenReturn(List.of(shard0, shard1));
+        when(shards.get()).thenReturn(ApiFutures.immediateFuture(query));
+
+        DocumentReference shardDoc = mock(DocumentReference.class);
+        when(shards.document(anyString())).thenReturn(shardDoc);
+        WriteBatch batch = mock(WriteBatch.class);
+        when(batch.commit()).thenReturn(ApiFutures.immediateFuture(List.of()));
+
+        assertEquals(5, counter.sum(userDoc));
+        counter.increment(userDoc, 4, batch);
+        assertEquals(6, counter.sum(userDoc));
+
+        verify(shards, times(1)).get();
+    }
+
+    @Test
+    void reset_readsEveryShardBeforeZeroingItInTheTransaction() throws Exception {
+        DocumentReference shardDoc = mock(DocumentReference.class);
+        when(shards.document(anyString())).thenReturn(shardDoc);
+        Transaction transaction = mock(Transaction.class);
+        when(transaction.getAll(any(DocumentReference[].class))).thenReturn(ApiFutures.immediateFuture(List.of()));
+
+        counter.reset(transaction, userDoc, 4);
+
+        InOrder order = inOrder(transaction);
+        order.verify(transaction).getAll(any(DocumentReference[].class));
+        order.verify(transaction, times(4)).set(eq(shardDoc), anyMap());
+        verify(shardDoc, never()).set(any(), any(SetOptions.class));
+    }
+}
@@ -1,18 +1,32 @@
 package com.dime.api.feature.converter;
 
 import com.dime.api.feature.notion.NotionClient;
+import com.dime.api.feature.notion.NotionDatabaseReader;
+import com.dime.api.feature.shared.cache.TieredCacheManager;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.cloud.firestore.DocumentReference;
 import io.quarkus.test.junit.QuarkusTest;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @QuarkusTest
@@ -79,17 +93,26 @@ public class TrackingServiceTest {
             service = new TrackingService();
             mockNotionClient = mock(NotionClient.class);
             service.notionClient = mockNotionClient;
+            service.notionDatabaseReader = new NotionDatabaseReader(mockNotionClient);
             service.objectMapper = new ObjectMapper();
             service.notionToken = Optional.of("test-token");
             service.trackingDbId = Optional.of("test-db-id");
             service.notionVersion = "2022-02-22";
             service.assignedUserId = Optional.empty();
-            service.initCaches();
+            service.bufferCapacity = 100;
+            service.bufferOverflow = "drop-oldest";
+            service.spillFile = "tracking-test.spill.jsonl";
+            service.batchSize = 25;
+            service.exportBatchSize = 50;
+            service.maxBuckets = 500;
+            service.conversionStatistics = new ConversionStatistics();
+            service.initBuffer();
         }
 
         @Test
         void logConversion_whenEnabled_callsNotionClient() {
             service.logConversion("user1", 2, "test.com", 3, 500L);
+            service.flush(Duration.ofSeconds(5));
             verify(mockNotionClient, times(1)).createPage(any(), any(), any());
         }
 
@@ -97,6 +120,7 @@ public class TrackingServiceTest {
         void logConversion_whenDisabled_neverCallsNotionClient() {
             service.notionToken = Optional.empty();
             service.logConversion("user1", 2, "test.com", 3, 500L);
+            service.flush(Duration.ofSeconds(5));
             verify(mockNotionClient, never()).createPage(any(), any(), any());
         }
 
@@ -104,30 +128,399 @@ public class TrackingServiceTest {
         void logConversionError_longMessage_isTruncatedAndDoesNotThrow() {
             String longMessage = "e".repeat(2001);
             assertDoesNotThrow(() -> service.logConversionError("user1", 1, longMessage, 100L, "test.com"));
+            service.flush(Duration.ofSeconds(5));
             verify(mockNotionClient, times(1)).createPage(any(), any(), any());
         }
 
         @Test
         void logQuotaExceeded_whenEnabled_callsNotionClient() {
             service.logQuotaExceeded("user1", 10, 10, "FREE", "test.com");
+            service.flush(Duration.ofSeconds(5));
             verify(mockNotionClient, times(1)).createPage(any(), any(), any());
         }
 
         @Test
-        void getStatistics_whenDisabled_returnsZeros() {
-            service.notionToken = Optional.empty();
+        void logConversion_doesNotCallNotionOnRequestPath() {
+            service.logConversion("user1", 2, "test.com", 3, 500L);
+            verify(mockNotionClient, never()).createPage(any(), any(), any());
+            assertEquals(1, service.eventBuffer.size());
+        }
+
+        @Test
+        void drainBatch_writesAtMostOneBatch() {
+            service.batchSize = 2;
+            for (int i = 0; i < 5; i++) {
+                service.logConversion("user" + i, 1, "test.com", 1, 10L);
+            }
+
+            assertEquals(2, service.drainBatch());
+            verify(mockNotionClient, times(2)).createPage(any(), any(), any());
+            assertEquals(3, service.eventBuffer.size());
+        }
+
+        @Test
+        void drainBatch_whenNotionFails_keepsEventsBufferedForNextPass() {
+            when(mockNotionClient.createPage(any(), any(), any()))
+                    .thenThrow(new RuntimeException("Notion unavailable"))
+                    .thenReturn(null);
+            service.logConversion("user1", 1, "test.com", 1, 10L);
+            service.logConversion("user2", 1, "test.com", 1, 10L);
+
+            assertEquals(0, service.drainBatch());
+            verify(mockNotionClient, times(1)).createPage(any(), any(), any());
+            assertEquals(2, service.eventBuffer.size());
+
+            assertEquals(2, service.drainBatch());
+            verify(mockNotionClient, times(3)).createPage(any(), any(), any());
+            assertEquals(0, service.eventBuffer.size());
+        }
+
+        @Test
+        void drainBatch_whenNotionRejectsEvent_continuesWithRestOfBatch() {
+            when(mockNotionClient.createPage(any(), any(), any()))
+                    .thenThrow(new WebApplicationException(Response.status(400).build()))
+                    .thenReturn(null);
+            service.logConversion("user1", 1, "test.com", 1, 10L);
+            service.logConversion("user2", 1, "test.com", 1, 10L);
+
+            assertEquals(2, service.drainBatch());
+            verify(mockNotionClient, times(2)).createPage(any(), any(), any());
+            assertEquals(0, service.eventBuffer.size());
+        }
+
+        @Test
+        void aggregatedMode_whenNotionFails_retriesSummaryOnNextRun() {
+            service.notionMode = "aggregated";
+            service.aggregationWindow = Duration.ofMinutes(5);
+            service.initBuffer();
+            when(mockNotionClient.createPage(any(), any(), any()))
+                    .thenThrow(new RuntimeException("Notion unavailable"))
+                    .thenReturn(null);
+            service.logQuotaExceeded("user1", 3, 3, "FREE", "test.com");
+            service.drainBatch();
+
+            service.flush(Duration.ofSeconds(5));
+            assertEquals(1, service.aggregator.openBuckets());
+
+            service.flush(Duration.ofSeconds(5));
+            verify(mockNotionClient, times(2)).createPage(any(), any(), any());
+            assertEquals(0, service.aggregator.openBuckets());
+        }
+
+        @Test
+        void spillPolicy_withEventStore_spillsOverflowToFirestore() {
+            UsageEventStore store = mock(UsageEventStore.class);
+            when(store.isAvailable()).thenReturn(true);
+            when(store.write(any())).thenReturn(List.of());
+            service.usageEventStore = store;
+            service.bufferCapacity = 1;
+            service.bufferOverflow = "spill";
+            service.initBuffer();
+
+            service.logConversion("user1", 1, "test.com", 1, 10L);
+            service.logConversion("user2", 1, "test.com", 1, 10L);
+
+            verify(store).write(argThat(batch -> batch.size() == 1 && "user2".equals(batch.get(0).userId())));
+            assertEquals(1, service.eventBuffer.size());
+            assertEquals(0, service.eventBuffer.dropped());
+        }
+
+        @Test
+        void aggregatedMode_writesOneSummaryPagePerBucket() {
+            service.notionMode = "aggregated";
+            service.aggregationWindow = Duration.ofMinutes(5);
+            service.initBuffer();
+            for (int i = 0; i < 5; i++) {
+                service.logQuotaExceeded("user1", 3, 3, "FREE", "test.com");
+            }
+            service.logQuotaExceeded("user2", 3, 3, "FREE", "test.com");
+
+            service.flush(Duration.ofSeconds(5));
+
+            ArgumentCaptor<Object> pages = ArgumentCaptor.forClass(Object.class);
+            verify(mockNotionClient, times(2)).createPage(any(), any(), pages.capture());
+            JsonNode first = (JsonNode) pages.getAllValues().get(0);
+            assertEquals(5, first.at("/properties/Occurrences/number").asInt());
+            assertEquals(15, first.at("/properties/File Count/number").asInt());
+        }
+
+        @Test
+        void drainBatch_withEventStore_storesInFirestoreInsteadOfNotion() {
+            UsageEventStore store = mock(UsageEventStore.class);
+            when(store.isAvailable()).thenReturn(true);
+            when(store.write(any())).thenReturn(List.of());
+            service.usageEventStore = store;
+            service.logConversion("user1", 2, "test.com", 3, 500L);
+
+            assertEquals(1, service.drainBatch());
+            verify(store).write(argThat(batch -> batch.size() == 1 && batch.get(0).id() != null));
+            verify(mockNotionClient, never()).createPage(any(), any(), any());
+        }
+
+        @Test
+        void drainBatch_whenFirestoreRejectsEvents_keepsThemBuffered() {
+            UsageEventStore store = mock(UsageEventStore.class);
+            when(store.isAvailable()).thenReturn(true);
+            when(store.write(any())).thenAnswer(invocation -> invocation.getArgument(0));
+            service.usageEventStore = store;
+            service.logConversion("user1", 2, "test.com", 3, 500L);
+
+            assertEquals(0, service.drainBatch());
+            assertEquals(1, service.eventBuffer.size());
+        }
+
+        @Test
+        void deliverConversion_storesEventUnderOutboxIdAndFailsWhenRejected() throws Exception {
+            UsageEventStore store = mock(UsageEventStore.class);
+            when(store.isAvailable()).thenReturn(true);
+            when(store.createOnce(any(), any())).thenReturn(true)
+                    .thenThrow(new ExecutionException(new RuntimeException("Firestore unavailable")));
+            service.usageEventStore = store;
+            ConversionOutbox.Entry entry = new ConversionOutbox.Entry("outbox-1", "user1", 2, 3, 500L, "test.com",
+                    Instant.parse("2026-01-01T00:00:00Z"));
+
+            service.deliverConversion(entry);
+            assertThrows(IllegalStateException.class, () -> service.deliverConversion(entry));
+
+            verify(store, times(2)).createOnce(argThat(event -> event.id().equals("outbox-1")), any());
+            assertEquals(0, service.eventBuffer.size());
+        }
+
+        @Test
+        void deliverConversion_redelivery_countsStatisticsOnce() throws Exception {
+            UsageEventStore store = mock(UsageEventStore.class);
+            when(store.isAvailable()).thenReturn(true);
+            // The event exists after the first delivery, so the redelivery's transaction is a no-op
+            when(store.createOnce(any(), any())).thenReturn(true).thenReturn(false);
+            service.usageEventStore = store;
+            ConversionOutbox.Entry entry = new ConversionOutbox.Entry("outbox-1", "user1", 2, 3, 500L, "test.com",
+                    Instant.parse("2026-01-01T00:00:00Z"));
+
+            service.deliverConversion(entry);
+            service.deliverConversion(entry);
+
+            assertEquals(new TrackingService.Statistics(2, 3), service.getStatistics());
+        }
+
+        @Test
+        void exportToNotion_writesPendingEventsAndMarksThemExported() throws Exception {
+            UsageEventStore store = mock(UsageEventStore.class);
+            when(store.isAvailable()).thenReturn(true);
+            DocumentReference first = mock(DocumentReference.class);
+            DocumentReference second = mock(DocumentReference.class);
+            when(store.pendingExport(anyInt())).thenReturn(List.of(
+                    new UsageEventStore.PendingExport(first, storedEvent("e1")),
+                    new UsageEventStore.PendingExport(second, storedEvent("e2"))));
+            when(store.claimForExport(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+            when(mockNotionClient.createPage(any(), any(), any()))
+                    .thenReturn(null)
+                    .thenThrow(new RuntimeException("Notion unavailable"));
+            service.usageEventStore = store;
+
+            service.exportToNotion();
+
+            verify(store).markExported(first);
+            verify(store, never()).markExported(second);
+            ArgumentCaptor<Object> page = ArgumentCaptor.forClass(Object.class);
+            verify(mockNotionClient, times(2)).createPage(any(), any(), page.capture());
+            assertEquals("e1", ((JsonNode) page.getAllValues().get(0))
+                    .at("/properties/Event ID/rich_text/0/text/content").asText());
+        }
+
+        @Test
+        void exportToNotion_rejectedEvent_isParkedAndDoesNotStopTheNextOnes() throws Exception {
+            UsageEventStore store = mock(UsageEventStore.class);
+            when(store.isAvailable()).thenReturn(true);
+            DocumentReference rejected = mock(DocumentReference.class);
+            DocumentReference lookupRejected = mock(DocumentReference.class);
+            DocumentReference next = mock(DocumentReference.class);
+            when(store.pendingExport(anyInt())).thenReturn(List.of(
+                    new UsageEventStore.PendingExport(rejected, storedEvent("e1")),
+                    new UsageEventStore.PendingExport(lookupRejected, storedEvent("e2"), true),
+                    new UsageEventStore.PendingExport(next, storedEvent("e3"))));
+            when(store.claimForExport(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+            when(mockNotionClient.createPage(any(), any(), any()))
+                    .thenThrow(new WebApplicationException(Response.status(400).build()))
+                    .thenReturn(null);
+            // The tracking database has no "Event ID" property to filter on
+            when(mockNotionClient.queryDatabase(any(), any(), any(), any()))
+                    .thenThrow(new WebApplicationException(Response.status(400).build()));
+            service.usageEventStore = store;
+
+            service.exportToNotion();
+
+            verify(store).markRejected(List.of(rejected), "Rejected by Notion");
+            verify(store).markRejected(List.of(lookupRejected), "Rejected by Notion");
+            verify(store).markExported(next);
+            verify(mockNotionClient, times(2)).createPage(any(), any(), any());
+        }
+
+        @Test
+        void exportToNotion_onlyRunsOnRefreshLeader() throws Exception {
+            UsageEventStore store = mock(UsageEventStore.class);
+            when(store.isAvailable()).thenReturn(true);
+            service.usageEventStore = store;
+            service.cacheManager = mock(TieredCacheManager.class);
+            when(service.cacheManager.isRefreshLeader()).thenReturn(false);
+
+            service.exportToNotion();
+
+            verify(store, never()).pendingExport(anyInt());
+        }
+
+        @Test
+        void exportToNotion_eventWithPageFromEarlierAttempt_isMarkedWithoutNewPage() throws Exception {
+            UsageEventStore store = mock(UsageEventStore.class);
+            when(store.isAvailable()).thenReturn(true);
+            DocumentReference ref = mock(DocumentReference.class);
+            UsageEventStore.PendingExport export = new UsageEventStore.PendingExport(ref, storedEvent("e1"), true);
+            when(store.pendingExport(anyInt())).thenReturn(List.of(export));
+            when(store.claimForExport(any(), any())).thenReturn(List.of(export));
+            ObjectNode found = JsonNodeFactory.instance.objectNode();
+            found.putArray("results").addObject().put("id", "page-1");
+            when(mockNotionClient.queryDatabase(any(), any(), any(), any())).thenReturn(found);
+            service.usageEventStore = store;
+
+            service.exportToNotion();
+
+            verify(store).markExported(ref);
+            verify(mockNotionClient, never()).createPage(any(), any(), any());
+        }
+
+        @Test
+        void exportToNotion_aggregated_foldsWholeClosedWindowIntoOnePagePerBucket() throws Exception {
+            service.notionMode = "aggregated";
+            service.aggregationWindow = Duration.ofMinutes(5);
+            service.initBuffer();
+            UsageEventStore store = mock(UsageEventStore.class);
+            when(store.isAvailable()).thenReturn(true);
+            List<UsageEventStore.PendingExport> window = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                window.add(new UsageEventStore.PendingExport(mock(DocumentReference.class), storedEvent("e" + i)));
+            }
+            when(store.pendingExport(anyInt())).thenReturn(List.of(window.get(0))).thenReturn(List.of());
+            when(store.pendingExport(any(Instant.class), any(Instant.class))).thenReturn(window);
+            when(store.claimForExport(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+            service.usageEventStore = store;
+
+            service.exportToNotion();
+
+            verify(store).pendingExport(Instant.parse("2026-01-01T00:00:00Z"), Instant.parse("2026-01-01T00:05:00Z"));
+            ArgumentCaptor<Object> page = ArgumentCaptor.forClass(Object.class);
+            verify(mockNotionClient, times(1)).createPage(any(), any(), page.capture());
+            assertEquals(60, ((JsonNode) page.getValue()).at("/properties/Occurrences/number").asInt());
+            verify(store).markExported(argThat((List<DocumentReference> refs) -> refs.size() == 60));
+        }
+
+        @Test
+        void exportToNotion_aggregated_rejectedBucketIsParkedAndLaterWindowsExported() throws Exception {
+            service.notionMode = "aggregated";
+            service.aggregationWindow = Duration.ofMinutes(5);
+            service.initBuffer();
+            UsageEventStore store = mock(UsageEventStore.class);
+            when(store.isAvailable()).thenReturn(true);
+            UsageEventStore.PendingExport rejected = new UsageEventStore.PendingExport(mock(DocumentReference.class),
+                    storedEvent("e1"));
+            UsageEventStore.PendingExport later = new UsageEventStore.PendingExport(mock(DocumentReference.class),
+                    new UsageEventBuffer.UsageEvent("e2", "conversion", "user1", "Success", 1, 2, 100L, null,
+                            "test.com", "2026-01-01T00:05:00Z"));
+            when(store.pendingExport(anyInt())).thenReturn(List.of(rejected), List.of(later), List.of());
+            when(store.pendingExport(Instant.parse("2026-01-01T00:00:00Z"), Instant.parse("2026-01-01T00:05:00Z")))
+                    .thenReturn(List.of(rejected));
+            when(store.pendingExport(Instant.parse("2026-01-01T00:05:00Z"), Instant.parse("2026-01-01T00:10:00Z")))
+                    .thenReturn(List.of(later));
+            when(store.claimForExport(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+            when(mockNotionClient.createPage(any(), any(), any()))
+                    .thenThrow(new WebApplicationException(Response.status(400).build()))
+                    .thenReturn(null);
+            service.usageEventStore = store;
+
+            service.exportToNotion();
+
+            verify(store).markRejected(List.of(rejected.reference()), "Rejected by Notion");
+            verify(store).markExported(List.of(later.reference()));
+            verify(mockNotionClient, times(2)).createPage(any(), any(), any());
+        }
+
+        private UsageEventBuffer.UsageEvent storedEvent(String id) {
+            return new UsageEventBuffer.UsageEvent(id, "conversion", "user1", "Success", 1, 2, 100L, null,
+                    "test.com", "2026-01-01T00:00:00Z");
+        }
+
+        @Test
+        void getStatistics_countsSuccessfulConversionsWithoutNotion() {
+            service.logConversion("user1", 2, "test.com", 3, 500L);
+            service.logConversion("user2", 1, "test.com", 4, 200L);
+            service.logConversionError("user3", 5, "boom", 100L, "test.com");
+
             TrackingService.Statistics stats = service.getStatistics();
-            assertEquals(0, stats.fileCount());
-            assertEquals(0, stats.eventCount());
+
+            assertEquals(3, stats.fileCount());
+            assertEquals(7, stats.eventCount());
+            verify(mockNotionClient, never()).queryDatabase(any(), any(), any(), any());
         }
 
         @Test
-        void getStatistics_whenNotionThrows_returnsZeros() {
+        void sumFromNotion_whenDisabled_returnsEmpty() {
+            service.notionToken = Optional.empty();
+            assertTrue(service.sumFromNotion().isEmpty());
+        }
+
+        @Test
+        void sumFromNotion_sumsAcrossAllPages() {
+            ObjectNode first = pageOf(2, 5);
+            first.put("has_more", true).put("next_cursor", "cursor-2");
+            when(mockNotionClient.queryDatabase(any(), any(), any(), any())).thenReturn(first, pageOf(1, 3));
+
+            TrackingService.Statistics stats = service.sumFromNotion().orElseThrow();
+
+            assertEquals(3, stats.fileCount());
+            assertEquals(8, stats.eventCount());
+            verify(mockNotionClient, times(2)).queryDatabase(any(), any(), any(), any());
+        }
+
+        private ObjectNode pageOf(int fileCount, int eventCount) {
+            ObjectNode page = JsonNodeFactory.instance.objectNode();
+            ObjectNode props = page.putArray("results").addObject().putObject("properties");
+            service.addNumberProperty(props, "File Count", fileCount);
+            service.addNumberProperty(props, "Event Count", eventCount);
+            return page;
+        }
+
+        @Test
+        void sumFromNotion_whenNotionThrows_returnsEmpty() {
             when(mockNotionClient.queryDatabase(any(), any(), any(), any()))
                     .thenThrow(new RuntimeException("Notion unavailable"));
-            TrackingService.Statistics stats = service.getStatistics();
-            assertEquals(0, stats.fileCount());
-            assertEquals(0, stats.eventCount());
+            assertTrue(service.sumFromNotion().isEmpty());
+        }
+
+        @Test
+        void reconcileStatistics_onlyRunsOnRefreshLeader() {
+            service.cacheManager = mock(TieredCacheManager.class);
+            when(service.cacheManager.isRefreshLeader()).thenReturn(false);
+
+            service.reconcileStatistics();
+
+            verify(mockNotionClient, never()).queryDatabase(any(), any(), any(), any());
+        }
+
+        @Test
+        void reconcileStatistics_sumsOnlyPagesCreatedBeforeTheSettlePeriod() {
+            service.cacheManager = mock(TieredCacheManager.class);
+            when(service.cacheManager.isRefreshLeader()).thenReturn(true);
+            service.reconcileSettle = Duration.ofMinutes(5);
+            when(mockNotionClient.queryDatabase(any(), any(), any(), any())).thenReturn(pageOf(1, 1));
+            Instant before = Instant.now().minus(Duration.ofMinutes(5));
+
+            service.reconcileStatistics();
+
+            ArgumentCaptor<Object> query = ArgumentCaptor.forClass(Object.class);
+            verify(mockNotionClient).queryDatabase(any(), any(), any(), query.capture());
+            JsonNode created = ((JsonNode) query.getValue()).at("/filter/and/2");
+            assertEquals("created_time", created.path("timestamp").asText());
+            Instant cutoff = Instant.parse(created.at("/created_time/on_or_before").asText());
+            assertFalse(cutoff.isBefore(before));
+            assertTrue(cutoff.isBefore(Instant.now().minus(Duration.ofMinutes(4))));
         }
     }
 }
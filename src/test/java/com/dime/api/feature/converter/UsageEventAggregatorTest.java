@@ -0,0 +1,88 @@
+package com.dime.api.feature.converter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsageEventAggregatorTest {
+
+    private final UsageEventAggregator aggregator = new UsageEventAggregator(Duration.ofMinutes(5), 100);
+
+    private static UsageEventBuffer.UsageEvent event(String userId, String status, String error, String timestamp) {
+        return new UsageEventBuffer.UsageEvent(null, "quota_exceeded", userId, status, 1, 2, 100L, error,
+                "test.com", timestamp);
+    }
+
+    @Test
+    void fold_groupsByUserActionStatusDomainAndWindow() {
+        List<UsageEventBuffer.UsageEvent> events = List.of(
+                event("u1", "Error", "Quota exceeded: 3/3", "2026-03-01T10:00:10Z"),
+                event("u1", "Error", "Quota exceeded: 3/3", "2026-03-01T10:04:59Z"),
+                event("u1", "Error", "Quota exceeded: 3/3", "2026-03-01T10:05:00Z"),
+                event("u2", "Error", "Quota exceeded: 3/3", "2026-03-01T10:01:00Z"));
+
+        List<UsageEventAggregator.Summary<UsageEventBuffer.UsageEvent>> summaries = aggregator.fold(events,
+                Function.identity());
+
+        assertEquals(3, summaries.size());
+        UsageEventAggregator.Summary<UsageEventBuffer.UsageEvent> first = summaries.get(0);
+        assertEquals(2, first.occurrences);
+        assertEquals(2, first.fileCount);
+        assertEquals(4, first.eventCount);
+        assertEquals(200, first.durationSum);
+        assertEquals(2, first.members.size());
+        assertEquals(List.of("Quota exceeded: 3/3"), first.sampleErrors);
+        assertEquals("2026-03-01T10:00:00Z", first.toEvent(null).timestamp());
+    }
+
+    @Test
+    void summary_keepsFewDistinctSampleErrors() {
+        UsageEventAggregator.Summary<Void> summary = new UsageEventAggregator.Summary<>(
+                new UsageEventAggregator.BucketKey("u1", "conversion", "Error", "test.com", 0));
+        for (int i = 0; i < 10; i++) {
+            summary.add(event("u1", "Error", "error " + (i % 5), "2026-03-01T10:00:00Z"), null);
+        }
+
+        assertEquals(10, summary.occurrences);
+        assertEquals(UsageEventAggregator.MAX_SAMPLE_ERRORS, summary.sampleErrors.size());
+        assertTrue(summary.members.isEmpty());
+        assertEquals("error 0\nerror 1\nerror 2", summary.toEvent(null).errorMessage());
+    }
+
+    @Test
+    void add_beyondMaxBuckets_countsNewUsersUnderOther() {
+        UsageEventAggregator bounded = new UsageEventAggregator(Duration.ofMinutes(5), 2);
+        for (int i = 0; i < 10; i++) {
+            bounded.add(event("u" + i, "Error", "e", "2026-03-01T10:00:10Z"));
+        }
+        bounded.add(event("u0", "Error", "e", "2026-03-01T10:00:20Z"));
+
+        List<UsageEventAggregator.Summary<Void>> summaries = bounded.drainAll();
+
+        assertEquals(3, summaries.size());
+        assertEquals(2, summaries.get(0).occurrences);
+        UsageEventAggregator.Summary<Void> other = summaries.get(2);
+        assertEquals(UsageEventAggregator.OTHER, other.key.userId());
+        assertEquals(UsageEventAggregator.OTHER, other.key.domain());
+        assertEquals(8, other.occurrences);
+    }
+
+    @Test
+    void drainClosed_returnsOnlyFinishedWindows() {
+        aggregator.add(event("u1", "Error", "e", "2026-03-01T10:00:10Z"));
+        aggregator.add(event("u1", "Error", "e", "2026-03-01T10:06:00Z"));
+
+        List<UsageEventAggregator.Summary<Void>> closed = aggregator
+                .drainClosed(Instant.parse("2026-03-01T10:07:00Z").toEpochMilli());
+
+        assertEquals(1, closed.size());
+        assertEquals(1, aggregator.openBuckets());
+        assertEquals(1, aggregator.drainAll().size());
+        assertEquals(0, aggregator.openBuckets());
+    }
+}
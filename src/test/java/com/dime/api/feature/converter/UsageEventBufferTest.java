@@ -0,0 +1,100 @@
+package com.dime.api.feature.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsageEventBufferTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static UsageEventBuffer.UsageEvent event(String userId) {
+        return new UsageEventBuffer.UsageEvent("id-" + userId, "conversion", userId, "Success", 1, 2, 100L, null,
+                "test.com", "2026-01-01T00:00:00Z");
+    }
+
+    @Test
+    void dropOldest_discardsOldestEventWhenFull() {
+        UsageEventBuffer buffer = new UsageEventBuffer(2, UsageEventBuffer.OverflowPolicy.DROP_OLDEST,
+                new UsageEventBuffer.FileSpill(tempDir.resolve("spill.jsonl"), objectMapper));
+
+        buffer.offer(event("a"));
+        buffer.offer(event("b"));
+        buffer.offer(event("c"));
+
+        List<UsageEventBuffer.UsageEvent> drained = buffer.drain(10);
+        assertEquals(List.of("b", "c"), drained.stream().map(UsageEventBuffer.UsageEvent::userId).toList());
+        assertEquals(1, buffer.dropped());
+        assertFalse(Files.exists(tempDir.resolve("spill.jsonl")));
+    }
+
+    @Test
+    void spill_writesOverflowToFileAndReplaysInOrder() {
+        Path spillFile = tempDir.resolve("spill.jsonl");
+        UsageEventBuffer buffer = new UsageEventBuffer(2, UsageEventBuffer.OverflowPolicy.SPILL,
+                new UsageEventBuffer.FileSpill(spillFile, objectMapper));
+
+        buffer.offer(event("a"));
+        buffer.offer(event("b"));
+        buffer.offer(event("c"));
+        buffer.offer(event("d"));
+        assertEquals(2, buffer.spilled());
+        assertTrue(Files.exists(spillFile));
+
+        assertEquals(List.of("a", "b"), buffer.drain(2).stream().map(UsageEventBuffer.UsageEvent::userId).toList());
+        assertEquals(List.of("c", "d"), buffer.drain(2).stream().map(UsageEventBuffer.UsageEvent::userId).toList());
+        assertEquals(0, buffer.spilled());
+        assertEquals(0, buffer.dropped());
+        assertFalse(Files.exists(spillFile));
+    }
+
+    @Test
+    void spillRemaining_keepsBufferedEventsForNextStart() {
+        Path spillFile = tempDir.resolve("spill.jsonl");
+        UsageEventBuffer buffer = new UsageEventBuffer(10, UsageEventBuffer.OverflowPolicy.SPILL,
+                new UsageEventBuffer.FileSpill(spillFile, objectMapper));
+        buffer.offer(event("a"));
+
+        assertEquals(0, buffer.spillRemaining());
+        assertEquals(0, buffer.size());
+
+        UsageEventBuffer restarted = new UsageEventBuffer(10, UsageEventBuffer.OverflowPolicy.SPILL,
+                new UsageEventBuffer.FileSpill(spillFile, objectMapper));
+        assertEquals(List.of("a"), restarted.drain(10).stream().map(UsageEventBuffer.UsageEvent::userId).toList());
+    }
+
+    @Test
+    void spill_withWriteThroughSpill_keepsNothingToReplay() {
+        List<UsageEventBuffer.UsageEvent> stored = new ArrayList<>();
+        UsageEventBuffer buffer = new UsageEventBuffer(1, UsageEventBuffer.OverflowPolicy.SPILL, stored::addAll);
+
+        buffer.offer(event("a"));
+        buffer.offer(event("b"));
+
+        assertEquals(List.of("b"), stored.stream().map(UsageEventBuffer.UsageEvent::userId).toList());
+        assertEquals(List.of("a"), buffer.drain(10).stream().map(UsageEventBuffer.UsageEvent::userId).toList());
+        assertEquals(0, buffer.spilled());
+        assertEquals(0, buffer.dropped());
+    }
+
+    @Test
+    void spillRemaining_withDropOldest_reportsLostEvents() {
+        UsageEventBuffer buffer = new UsageEventBuffer(10, UsageEventBuffer.OverflowPolicy.DROP_OLDEST,
+                new UsageEventBuffer.FileSpill(tempDir.resolve("spill.jsonl"), objectMapper));
+        buffer.offer(event("a"));
+        buffer.offer(event("b"));
+
+        assertEquals(2, buffer.spillRemaining());
+        assertEquals(2, buffer.dropped());
+    }
+}
@@ -0,0 +1,62 @@
+package com.dime.api.feature.github;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContributionCalendarTest {
+
+    private static final LocalDate START = LocalDate.of(2026, 1, 1);
+
+    private final ContributionCalendar calendar = new ContributionCalendar(START.toEpochDay(), new int[] { 1, 0, 3, 5, 2 });
+
+    @Test
+    void days_slicesInclusiveRangeClampedToCalendar() {
+        List<ContributionCalendar.Day> days = calendar.days(START.plusDays(2), START.plusDays(10));
+
+        assertEquals(3, days.size());
+        assertEquals(new ContributionCalendar.Day(START.plusDays(2).toEpochDay() * 86_400_000L, 3), days.get(0));
+        assertEquals(2, days.get(2).value());
+        assertEquals(List.of(), calendar.days(START.minusDays(5), START.minusDays(1)));
+    }
+
+    @Test
+    void total_usesPrefixSums() {
+        assertEquals(11, calendar.total(START.minusDays(3), START.plusDays(30)));
+        assertEquals(8, calendar.total(START.plusDays(2), START.plusDays(3)));
+        assertEquals(0, calendar.total(START.plusDays(3), START.plusDays(2)));
+    }
+
+    @Test
+    void lastMonths_endsAtLastDay() {
+        List<ContributionCalendar.Day> days = calendar.lastMonths(1);
+
+        assertEquals(5, days.size());
+        assertEquals(2, days.get(days.size() - 1).value());
+    }
+
+    @Test
+    void merge_placesPartsByStartDay() {
+        ContributionCalendar older = new ContributionCalendar(START.toEpochDay(), new int[] { 1, 2 });
+        ContributionCalendar newer = new ContributionCalendar(START.plusDays(3).toEpochDay(), new int[] { 4, 5 });
+
+        ContributionCalendar merged = ContributionCalendar.merge(START, START.plusDays(4), List.of(newer, older));
+
+        assertEquals(List.of(1, 2, 0, 4, 5),
+                merged.days(START, START.plusDays(4)).stream().map(ContributionCalendar.Day::value).toList());
+    }
+
+    @Test
+    void json_roundTripsStartAndCounts() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+
+        ContributionCalendar copy = mapper.readValue(mapper.writeValueAsString(calendar), ContributionCalendar.class);
+
+        assertEquals(START, copy.start());
+        assertEquals(11, copy.total(START, copy.end()));
+    }
+}
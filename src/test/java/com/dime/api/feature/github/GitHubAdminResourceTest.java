@@ -0,0 +1,35 @@
+package com.dime.api.feature.github;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.security.TestSecurity;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.anyOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+@QuarkusTest
+public class GitHubAdminResourceTest {
+
+    @Test
+    public void testRateLimitEndpoint_Unauthorized() {
+        given()
+                .redirects().follow(false)
+                .when().get("/v1/admin/github/rate-limit")
+                .then()
+                .statusCode(anyOf(is(401), is(302)));
+    }
+
+    @Test
+    @TestSecurity(user = "admin", roles = "admin")
+    public void testRateLimitEndpoint_ReturnsBudgetAndSchedule() {
+        given()
+                .when().get("/v1/admin/github/rate-limit")
+                .then()
+                .statusCode(200)
+                .body("budget", notNullValue())
+                .body("schedule.resource", notNullValue())
+                .body("schedule.intervalSeconds", notNullValue());
+    }
+}
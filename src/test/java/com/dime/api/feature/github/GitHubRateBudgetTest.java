@@ -0,0 +1,70 @@
+package com.dime.api.feature.github;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitHubRateBudgetTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-19T08:00:00Z");
+    private static final long RESET = NOW.plus(Duration.ofMinutes(30)).getEpochSecond();
+
+    private GitHubRateBudget budget;
+    private long now = NOW.toEpochMilli();
+
+    @BeforeEach
+    void setup() {
+        budget = new GitHubRateBudget();
+        budget.reserveRatio = 0.2;
+        budget.clock = () -> now;
+    }
+
+    @Test
+    void record_keepsLowestRemainingWithinWindowAndLatestWindow() {
+        budget.record("core", "60", "40", String.valueOf(RESET));
+        budget.record("core", "60", "45", String.valueOf(RESET));
+        assertEquals(40, budget.window("core").orElseThrow().remaining());
+
+        budget.record("core", "60", "59", String.valueOf(RESET + 3600));
+        assertEquals(59, budget.window("core").orElseThrow().remaining());
+    }
+
+    @Test
+    void record_ignoresIncompleteHeaders() {
+        budget.record("core", null, "40", String.valueOf(RESET));
+        budget.record("core", "60", "soon", String.valueOf(RESET));
+
+        assertTrue(budget.window("core").isEmpty());
+    }
+
+    @Test
+    void window_reportsFullBudgetOnceResetHasPassed() {
+        budget.record("core", 60, 0, RESET);
+        now = Instant.ofEpochSecond(RESET).toEpochMilli();
+
+        GitHubRateBudget.Window window = budget.window("core").orElseThrow();
+
+        assertEquals(60, window.remaining());
+        assertEquals(Instant.ofEpochSecond(RESET).plus(GitHubRateBudget.WINDOW), window.reset());
+        assertEquals(12, budget.reserve(window));
+    }
+
+    @Test
+    void record_readsEveryResourceOfRateLimitResponse() throws Exception {
+        budget.record(new ObjectMapper().readTree("""
+                {"resources": {
+                  "core": {"limit": 5000, "remaining": 4990, "reset": %1$d, "used": 10},
+                  "graphql": {"limit": 5000, "remaining": 5000, "reset": %1$d, "used": 0}
+                }}
+                """.formatted(RESET)));
+
+        assertEquals(List.of("core", "graphql"),
+                budget.windows().stream().map(GitHubRateBudget.Window::resource).toList());
+    }
+}
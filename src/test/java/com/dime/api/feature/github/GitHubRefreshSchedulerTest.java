@@ -0,0 +1,112 @@
+package com.dime.api.feature.github;
+
+import com.dime.api.feature.shared.cache.TieredCacheManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GitHubRefreshSchedulerTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-19T08:00:00Z");
+    private static final long RESET = NOW.plus(Duration.ofMinutes(30)).getEpochSecond();
+
+    private GitHubRefreshScheduler scheduler;
+    private GitHubRateBudget budget;
+    private GitHubService service;
+    private long now = NOW.toEpochMilli();
+
+    @BeforeEach
+    void setup() {
+        budget = new GitHubRateBudget();
+        budget.reserveRatio = 0.2;
+        budget.clock = () -> now;
+        service = mock(GitHubService.class);
+        when(service.usesGraphql()).thenReturn(false);
+        when(service.restCallsPerRefresh()).thenReturn(3);
+        when(service.snapshotLoadedAt()).thenReturn(Optional.of(NOW));
+
+        scheduler = new GitHubRefreshScheduler();
+        scheduler.gitHubService = service;
+        scheduler.rateBudget = budget;
+        scheduler.cacheManager = mock(TieredCacheManager.class);
+        when(scheduler.cacheManager.isRefreshLeader()).thenReturn(true);
+        scheduler.refreshInterval = Duration.ofMinutes(15);
+        scheduler.webhookRefreshInterval = Duration.ofHours(6);
+        scheduler.webhookSecret = Optional.empty();
+        scheduler.maxCompression = 3;
+        scheduler.targetUsage = 0.5;
+        scheduler.clock = () -> now;
+    }
+
+    @Test
+    void schedule_usesBaseIntervalUntilBudgetIsReported() {
+        GitHubRefreshScheduler.Schedule schedule = scheduler.schedule();
+
+        assertEquals("core", schedule.resource());
+        assertEquals(900, schedule.intervalSeconds());
+        assertEquals(NOW.plus(Duration.ofMinutes(15)), schedule.nextRefreshAt());
+        assertNull(schedule.reserve());
+    }
+
+    @Test
+    void schedule_compressesToFloorWithAbundantBudget() {
+        when(service.usesGraphql()).thenReturn(true);
+        budget.record("graphql", 5000, 4000, RESET);
+
+        GitHubRefreshScheduler.Schedule schedule = scheduler.schedule();
+
+        assertEquals("graphql", schedule.resource());
+        assertEquals(300, schedule.intervalSeconds());
+        assertEquals(1000, schedule.reserve());
+    }
+
+    @Test
+    void schedule_stretchesWhenBudgetIsShort() {
+        // 8 spare above the reserve of 12; half of it spent 3 requests at a time over 30 minutes
+        budget.record("core", 60, 20, RESET);
+
+        GitHubRefreshScheduler.Schedule schedule = scheduler.schedule();
+
+        assertEquals(1350, schedule.intervalSeconds());
+        assertTrue(schedule.reason().startsWith("Stretched"));
+    }
+
+    @Test
+    void tick_waitsForResetAtReserveSoForcedRefreshesKeepIt() {
+        budget.record("core", 60, 13, RESET);
+        now = NOW.plus(Duration.ofMinutes(20)).toEpochMilli();
+
+        scheduler.tick();
+
+        assertEquals(Instant.ofEpochSecond(RESET), scheduler.schedule().nextRefreshAt());
+        verify(service, never()).refreshInBackground();
+    }
+
+    @Test
+    void tick_refreshesWhenDueAndMeasuresCost() {
+        budget.record("core", 60, 50, RESET);
+        CompletableFuture<GitHubSnapshot> refresh = new CompletableFuture<>();
+        when(service.refreshInBackground()).thenReturn(refresh);
+        now = NOW.plus(Duration.ofMinutes(10)).toEpochMilli();
+
+        scheduler.tick();
+        scheduler.tick();
+        assertTrue(scheduler.schedule().refreshing());
+        now += 1000;
+        budget.record("core", 60, 49, RESET);
+        refresh.complete(null);
+
+        verify(service, times(1)).refreshInBackground();
+        GitHubRefreshScheduler.Schedule schedule = scheduler.schedule();
+        assertFalse(schedule.refreshing());
+        assertTrue(schedule.costMeasured());
+        assertEquals(1, schedule.costPerRefresh());
+    }
+}
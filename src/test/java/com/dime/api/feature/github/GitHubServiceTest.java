@@ -0,0 +1,225 @@
+package com.dime.api.feature.github;
+
+import com.dime.api.feature.shared.FirestoreCacheService;
+import com.dime.api.feature.shared.cache.TieredCacheManager;
+import com.dime.api.feature.shared.exception.ExternalServiceException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class GitHubServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private GitHubService service;
+    private GitHubClient client;
+
+    @BeforeEach
+    void setup() {
+        service = new GitHubService();
+        client = mock(GitHubClient.class);
+        service.gitHubClient = client;
+        service.username = "octocat";
+        service.token = Optional.empty();
+        service.releaseRepos = List.of("app", "docs");
+        service.fullRefreshInterval = Duration.ofHours(24);
+        service.objectMapper = objectMapper;
+        service.cacheManager = new TieredCacheManager();
+        service.initCaches();
+        service.updater = Runnable::run;
+    }
+
+    @Test
+    void graphql_buildsSnapshotFromOneQuery() {
+        service.token = Optional.of("token");
+        Response response = response(200);
+        when(response.readEntity(InputStream.class)).thenReturn(GitHubSnapshotReaderTest.stream(GitHubSnapshotReaderTest.RESPONSE));
+        when(client.postGraphql(eq("Bearer token"), any())).thenReturn(response);
+
+        assertEquals("octocat", service.getUserInfo().getLogin());
+        assertEquals("linkedin", service.getSocialAccounts().get(0).get("provider").asText());
+        assertEquals("v1.2.0", service.getLatestRelease().get("tag_name").asText());
+        assertThrows(ExternalServiceException.class, () -> service.getLatestRelease("docs"));
+        assertEquals(9, service.getContributions().total(service.getContributions().start(),
+                service.getContributions().end()));
+
+        verify(client, times(1)).postGraphql(any(), any());
+        verifyNoMoreInteractions(client);
+        verify(response).close();
+    }
+
+    @Test
+    void graphql_revalidationQueriesLatestYearAndKeepsOlderDays() {
+        service.token = Optional.of("token");
+        Response full = response(200);
+        when(full.readEntity(InputStream.class)).thenReturn(GitHubSnapshotReaderTest.stream("""
+                {"data": {"user": {"login": "octocat",
+                  "y2": {"contributionCalendar": {"weeks": [
+                    {"contributionDays": [{"contributionCount": 5, "date": "2024-03-01"}]}]}}}}}
+                """));
+        Response latest = response(200);
+        when(latest.readEntity(InputStream.class))
+                .thenReturn(GitHubSnapshotReaderTest.stream(GitHubSnapshotReaderTest.RESPONSE));
+        when(client.postGraphql(any(), any())).thenReturn(full, latest);
+
+        service.snapshotCache.get("default");
+        GitHubSnapshot refreshed = service.snapshotCache.refresh("default").join();
+
+        ArgumentCaptor<JsonNode> bodies = ArgumentCaptor.forClass(JsonNode.class);
+        verify(client, times(2)).postGraphql(any(), bodies.capture());
+        assertTrue(bodies.getAllValues().get(0).path("variables").has("y1From"));
+        assertFalse(bodies.getAllValues().get(1).path("variables").has("y1From"));
+        assertTrue(bodies.getAllValues().get(1).path("variables").has("y0From"));
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        assertEquals(5, refreshed.contributions().total(day, day));
+        assertEquals(9, refreshed.contributions().total(LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 3)));
+    }
+
+    @Test
+    void fetch_deletesLegacyFirestoreKeysOnce() {
+        FirestoreCacheService firestoreCacheService = mock(FirestoreCacheService.class);
+        service.firestoreCacheService = firestoreCacheService;
+        service.token = Optional.of("token");
+        when(client.postGraphql(any(), any())).thenAnswer(invocation -> {
+            Response response = response(200);
+            when(response.readEntity(InputStream.class))
+                    .thenReturn(GitHubSnapshotReaderTest.stream(GitHubSnapshotReaderTest.RESPONSE));
+            return response;
+        });
+
+        service.snapshotCache.get("default");
+        service.snapshotCache.refresh("default").join();
+
+        for (String key : GitHubService.LEGACY_KEYS) {
+            verify(firestoreCacheService).delete(key);
+        }
+        verifyNoMoreInteractions(firestoreCacheService);
+    }
+
+    @Test
+    void graphql_failsOnErrorsOutsideReleaseAliases() {
+        service.token = Optional.of("token");
+        Response response = response(200);
+        when(response.readEntity(InputStream.class)).thenReturn(GitHubSnapshotReaderTest.stream("""
+                {"data": null, "errors": [{"message": "Bad credentials"}]}
+                """));
+        when(client.postGraphql(any(), any())).thenReturn(response);
+
+        assertThrows(ExternalServiceException.class, () -> service.getUserInfo());
+    }
+
+    @Test
+    void snapshotQuery_aliasesYearsAndRepositories() {
+        String query = GitHubService.snapshotQuery(2, 1);
+
+        assertTrue(query.contains("y1: contributionsCollection(from: $y1From, to: $y1To)"));
+        assertTrue(query.contains("r0: repository(owner: $login, name: $r0)"));
+        assertTrue(query.startsWith("query($login: String!, $y0From: DateTime!"));
+        assertTrue(query.contains("releaseAssets(first: " + GitHubService.MAX_RELEASE_ASSETS + ")"));
+    }
+
+    @Test
+    void rest_sendsCachedEtagsAndKeepsPartsOnNotModified() {
+        GitHubUser user = new GitHubUser();
+        user.setLogin("octocat");
+        JsonNode social = objectMapper.createArrayNode();
+        Response userOk = response(200);
+        when(userOk.readEntity(GitHubUser.class)).thenReturn(user);
+        when(userOk.getHeaderString(HttpHeaders.ETAG)).thenReturn("\"user\"");
+        when(userOk.getHeaderString(HttpHeaders.LAST_MODIFIED)).thenReturn("Mon, 19 Oct 2026 08:00:00 GMT");
+        Response socialOk = response(200);
+        when(socialOk.readEntity(JsonNode.class)).thenReturn(social);
+        when(socialOk.getHeaderString(HttpHeaders.ETAG)).thenReturn("\"social\"");
+        Response userNotModified = response(304);
+        Response socialNotModified = response(304);
+        when(client.getUser(null, "octocat", null, null)).thenReturn(userOk);
+        when(client.getUser(null, "octocat", "\"user\"", "Mon, 19 Oct 2026 08:00:00 GMT")).thenReturn(userNotModified);
+        when(client.getSocialAccounts(null, "octocat", null, null)).thenReturn(socialOk);
+        when(client.getSocialAccounts(null, "octocat", "\"social\"", null)).thenReturn(socialNotModified);
+        WebApplicationException notFound = notFound();
+        when(client.getLatestRelease(eq(null), eq("octocat"), any(), eq(null), eq(null))).thenThrow(notFound);
+
+        GitHubSnapshot first = service.snapshotCache.get("default");
+        GitHubSnapshot refreshed = service.snapshotCache.refresh("default").join();
+
+        assertSame(first.user(), refreshed.user());
+        assertSame(first.social(), refreshed.social());
+        assertSame(user, service.getUserInfo());
+        assertTrue(refreshed.releases().isEmpty());
+        verify(userNotModified, never()).readEntity(GitHubUser.class);
+        verify(userNotModified).close();
+        verify(client, never()).postGraphql(any(), any());
+    }
+
+    @Test
+    void releaseChanged_fetchesOnlyThatReleaseWithoutToken() {
+        GitHubUser user = new GitHubUser();
+        user.setLogin("octocat");
+        Response userOk = response(200);
+        when(userOk.readEntity(GitHubUser.class)).thenReturn(user);
+        Response socialOk = response(200);
+        when(socialOk.readEntity(JsonNode.class)).thenReturn(objectMapper.createArrayNode());
+        when(client.getUser(null, "octocat", null, null)).thenReturn(userOk);
+        when(client.getSocialAccounts(null, "octocat", null, null)).thenReturn(socialOk);
+        WebApplicationException notFound = notFound();
+        when(client.getLatestRelease(eq(null), eq("octocat"), any(), eq(null), eq(null))).thenThrow(notFound);
+        GitHubSnapshot first = service.snapshotCache.get("default");
+        Response published = response(200);
+        when(published.readEntity(JsonNode.class)).thenReturn(objectMapper.createObjectNode().put("tag_name", "v2.0.0"));
+        reset(client);
+        when(client.getLatestRelease(null, "octocat", "docs", null, null)).thenReturn(published);
+
+        assertFalse(service.releaseChanged("someone-else", "docs"));
+        assertFalse(service.releaseChanged("octocat", "unknown"));
+        assertTrue(service.releaseChanged("Octocat", "docs"));
+
+        assertEquals("v2.0.0", service.getLatestRelease("docs").get("tag_name").asText());
+        assertSame(first.user(), service.snapshotCache.get("default").user());
+        verify(client).getLatestRelease(null, "octocat", "docs", null, null);
+        verifyNoMoreInteractions(client);
+    }
+
+    @Test
+    void contributionsChanged_refetchesSnapshotWithToken() {
+        service.token = Optional.of("token");
+        when(client.postGraphql(any(), any())).thenAnswer(invocation -> {
+            Response response = response(200);
+            when(response.readEntity(InputStream.class))
+                    .thenReturn(GitHubSnapshotReaderTest.stream(GitHubSnapshotReaderTest.RESPONSE));
+            return response;
+        });
+        GitHubSnapshot first = service.snapshotCache.get("default");
+
+        service.contributionsChanged();
+
+        assertNotSame(first, service.snapshotCache.get("default"));
+        verify(client, times(2)).postGraphql(any(), any());
+    }
+
+    private static Response response(int status) {
+        Response response = mock(Response.class);
+        when(response.getStatus()).thenReturn(status);
+        return response;
+    }
+
+    private static WebApplicationException notFound() {
+        Response response = response(404);
+        when(response.getStatusInfo()).thenReturn(Response.Status.NOT_FOUND);
+        return new WebApplicationException(response);
+    }
+}
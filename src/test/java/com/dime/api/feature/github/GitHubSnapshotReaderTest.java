@@ -0,0 +1,86 @@
+package com.dime.api.feature.github;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitHubSnapshotReaderTest {
+
+    static final String RESPONSE = """
+            {"data": {
+              "user": {
+                "login": "octocat", "databaseId": 583231, "name": "The Octocat", "email": null,
+                "websiteUrl": "https://github.blog", "url": "https://github.com/octocat",
+                "repositories": {"totalCount": 8}, "followers": {"totalCount": 20},
+                "socialAccounts": {"nodes": [{"provider": "LINKEDIN", "url": "https://linkedin.com/in/octocat"}]},
+                "y0": {"contributionCalendar": {"weeks": [
+                  {"contributionDays": [{"contributionCount": 2, "date": "2026-01-01"},
+                                        {"contributionCount": 0, "date": "2026-01-02"}]},
+                  {"contributionDays": [{"contributionCount": 7, "date": "2026-01-03"}]}]}},
+                "y1": {"contributionCalendar": {"weeks": []}}
+              },
+              "r0": {"latestRelease": {"id": "RE_kwDO", "databaseId": 1001, "tagName": "v1.2.0",
+                                       "url": "https://github.com/octocat/app/releases/tag/v1.2.0",
+                                       "publishedAt": "2026-01-02T10:00:00Z", "isDraft": false, "isPrerelease": false,
+                                       "author": {"login": "octocat", "databaseId": 583231},
+                                       "releaseAssets": {"nodes": [{"name": "app.zip", "size": 2048, "downloadCount": 3,
+                                         "downloadUrl": "https://github.com/octocat/app/releases/download/v1.2.0/app.zip"}]}}},
+              "r1": {"latestRelease": null}
+            }}
+            """;
+
+    private final GitHubSnapshotReader reader = new GitHubSnapshotReader(new ObjectMapper());
+
+    @Test
+    void read_extractsEveryPartInOnePass() throws Exception {
+        GitHubSnapshotReader.Result result = reader.read(stream(RESPONSE));
+
+        assertNull(result.errors());
+        assertEquals("octocat", result.user().getLogin());
+        assertEquals(583231L, result.user().getId());
+        assertNull(result.user().getEmail());
+        assertEquals("https://github.blog", result.user().getBlog());
+        assertEquals(8, result.user().getPublicRepos());
+        assertEquals(20, result.user().getFollowers());
+        assertEquals("linkedin", result.social().get(0).get("provider").asText());
+        assertEquals("v1.2.0", result.releases().get(0).get("tag_name").asText());
+        assertFalse(result.releases().containsKey(1));
+
+        JsonNode release = result.releases().get(0);
+        assertEquals(1001, release.get("id").asLong());
+        assertEquals("https://api.github.com/repos/octocat/app/releases/1001", release.get("url").asText());
+        assertEquals("https://api.github.com/repos/octocat/app/tarball/v1.2.0", release.get("tarball_url").asText());
+        assertEquals("octocat", release.get("author").get("login").asText());
+        assertFalse(release.get("draft").asBoolean());
+        assertEquals("app.zip", release.get("assets").get(0).get("name").asText());
+        assertEquals(2048, release.get("assets").get(0).get("size").asLong());
+        assertEquals("https://github.com/octocat/app/releases/download/v1.2.0/app.zip",
+                release.get("assets").get(0).get("browser_download_url").asText());
+
+        assertEquals(1, result.contributions().size());
+        ContributionCalendar calendar = result.contributions().get(0);
+        assertEquals(LocalDate.of(2026, 1, 1), calendar.start());
+        assertEquals(LocalDate.of(2026, 1, 3), calendar.end());
+        assertEquals(9, calendar.total(calendar.start(), calendar.end()));
+    }
+
+    @Test
+    void read_returnsErrors() throws Exception {
+        GitHubSnapshotReader.Result result = reader.read(stream("""
+                {"data": null, "errors": [{"message": "Bad credentials"}]}
+                """));
+
+        assertNull(result.user());
+        assertEquals("Bad credentials", result.errors().get(0).get("message").asText());
+    }
+
+    static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
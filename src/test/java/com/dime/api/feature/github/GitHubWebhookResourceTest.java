@@ -0,0 +1,73 @@
+package com.dime.api.feature.github;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+public class GitHubWebhookResourceTest {
+
+    private static final String SECRET = "test-github-webhook-secret";
+    private static final String PING = "{\"zen\":\"Keep it logically awesome.\",\"hook_id\":1}";
+
+    @Test
+    public void signatureMatches_acceptsOnlyTheHmacOfThePayload() throws Exception {
+        byte[] payload = PING.getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(GitHubWebhookResource.signatureMatches(SECRET, payload, sign(SECRET, PING)));
+        assertFalse(GitHubWebhookResource.signatureMatches("other-secret", payload, sign(SECRET, PING)));
+        assertFalse(GitHubWebhookResource.signatureMatches(SECRET, payload, sign(SECRET, PING).substring(7)));
+        assertFalse(GitHubWebhookResource.signatureMatches(SECRET, payload, "sha256=not-hex"));
+    }
+
+    @Test
+    public void testPingWithValidSignatureIsAcknowledged() throws Exception {
+        given()
+                .contentType("application/json")
+                .header("X-GitHub-Event", "ping")
+                .header("X-Hub-Signature-256", sign(SECRET, PING))
+                .body(PING)
+                .when().post("/v1/webhooks/github")
+                .then()
+                .statusCode(200)
+                .body("received", is(true));
+    }
+
+    @Test
+    public void testMissingSignatureIsRejected() {
+        given()
+                .contentType("application/json")
+                .header("X-GitHub-Event", "ping")
+                .body(PING)
+                .when().post("/v1/webhooks/github")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    public void testInvalidSignatureIsRejected() throws Exception {
+        given()
+                .contentType("application/json")
+                .header("X-GitHub-Event", "release")
+                .header("X-Hub-Signature-256", sign("wrong-secret", PING))
+                .body(PING)
+                .when().post("/v1/webhooks/github")
+                .then()
+                .statusCode(401);
+    }
+
+    private static String sign(String secret, String body) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return "sha256=" + HexFormat.of().formatHex(mac.doFinal(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
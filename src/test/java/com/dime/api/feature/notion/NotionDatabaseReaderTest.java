@@ -0,0 +1,92 @@
+package com.dime.api.feature.notion;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NotionDatabaseReaderTest {
+
+    NotionClient notionClient;
+    NotionDatabaseReader reader;
+
+    @BeforeEach
+    void setup() {
+        notionClient = mock(NotionClient.class);
+        reader = new NotionDatabaseReader(notionClient);
+    }
+
+    @Test
+    void testQuery_followsCursorAcrossPages() {
+        when(notionClient.queryDatabase(any(), any(), eq("db"), any()))
+                .thenReturn(page(List.of("a", "b"), "cursor-2"), page(List.of("c"), null));
+
+        List<String> ids;
+        try (Stream<JsonNode> rows = reader.query("token", "v", "db", JsonNodeFactory.instance.objectNode())) {
+            ids = rows.map(row -> row.get("id").asText()).toList();
+        }
+
+        assertEquals(List.of("a", "b", "c"), ids);
+        ArgumentCaptor<Object> queries = ArgumentCaptor.forClass(Object.class);
+        verify(notionClient, times(2)).queryDatabase(any(), any(), eq("db"), queries.capture());
+        ObjectNode second = (ObjectNode) queries.getAllValues().get(1);
+        assertEquals("cursor-2", second.get("start_cursor").asText());
+        assertEquals(NotionDatabaseReader.PAGE_SIZE, second.get("page_size").asInt());
+    }
+
+    @Test
+    void testQuery_keepsCallerQueryUnchanged() {
+        ObjectNode query = JsonNodeFactory.instance.objectNode();
+        query.putObject("filter").put("property", "Name");
+        when(notionClient.queryDatabase(any(), any(), any(), any())).thenReturn(page(List.of("a"), null));
+
+        try (Stream<JsonNode> rows = reader.query("token", "v", "db", query)) {
+            assertEquals(1, rows.count());
+        }
+
+        assertFalse(query.has("page_size"));
+        assertFalse(query.has("start_cursor"));
+    }
+
+    @Test
+    void testQuery_isLazy() {
+        Stream<JsonNode> rows = reader.query("token", "v", "db", JsonNodeFactory.instance.objectNode());
+
+        verifyNoInteractions(notionClient);
+        rows.close();
+    }
+
+    @Test
+    void testQuery_rethrowsRequestFailure() {
+        when(notionClient.queryDatabase(any(), any(), any(), any()))
+                .thenReturn(page(List.of("a"), "cursor-2"))
+                .thenThrow(new IllegalArgumentException("boom"));
+
+        try (Stream<JsonNode> rows = reader.query("token", "v", "db", JsonNodeFactory.instance.objectNode())) {
+            assertThrows(IllegalArgumentException.class, () -> rows.forEach(row -> {
+            }));
+        }
+    }
+
+    private ObjectNode page(List<String> ids, String nextCursor) {
+        ObjectNode page = JsonNodeFactory.instance.objectNode();
+        ids.forEach(id -> page.withArray("results").addObject().put("id", id));
+        page.put("has_more", nextCursor != null);
+        if (nextCursor != null) {
+            page.put("next_cursor", nextCursor);
+        } else {
+            page.putNull("next_cursor");
+        }
+        return page;
+    }
+}
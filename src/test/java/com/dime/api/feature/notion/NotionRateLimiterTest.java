@@ -0,0 +1,85 @@
+package com.dime.api.feature.notion;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotionRateLimiterTest {
+
+    NotionRateLimiter limiter;
+    long now;
+
+    @BeforeEach
+    void setup() {
+        limiter = new NotionRateLimiter();
+        limiter.requestsPerSecond = 3;
+        limiter.burst = 3;
+        limiter.interactiveReserve = 1;
+        limiter.clock = () -> now;
+        limiter.init();
+    }
+
+    @Test
+    void testInteractive_canUseWholeBurst() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire(NotionRateLimiter.Priority.INTERACTIVE));
+        }
+        assertTrue(limiter.tryAcquire(NotionRateLimiter.Priority.INTERACTIVE) > 0);
+    }
+
+    @Test
+    void testBackground_leavesReserveForInteractive() {
+        assertEquals(0, limiter.tryAcquire(NotionRateLimiter.Priority.BACKGROUND));
+        assertEquals(0, limiter.tryAcquire(NotionRateLimiter.Priority.BACKGROUND));
+        assertTrue(limiter.tryAcquire(NotionRateLimiter.Priority.BACKGROUND) > 0);
+
+        assertEquals(0, limiter.tryAcquire(NotionRateLimiter.Priority.INTERACTIVE));
+    }
+
+    @Test
+    void testRefill_followsConfiguredRate() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(NotionRateLimiter.Priority.INTERACTIVE);
+        }
+        long wait = limiter.tryAcquire(NotionRateLimiter.Priority.INTERACTIVE);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(334), wait, TimeUnit.MILLISECONDS.toNanos(1));
+
+        now += wait;
+        assertEquals(0, limiter.tryAcquire(NotionRateLimiter.Priority.INTERACTIVE));
+    }
+
+    @Test
+    void testPause_blocksEveryPriorityForRetryAfter() {
+        limiter.pause(Duration.ofSeconds(2));
+
+        long wait = limiter.tryAcquire(NotionRateLimiter.Priority.INTERACTIVE);
+        assertTrue(wait >= TimeUnit.SECONDS.toNanos(2));
+        assertTrue(wait <= TimeUnit.MILLISECONDS.toNanos(2250));
+
+        now += wait;
+        assertTrue(limiter.tryAcquire(NotionRateLimiter.Priority.INTERACTIVE) > 0, "bucket restarts empty");
+        now += TimeUnit.SECONDS.toNanos(1);
+        assertEquals(0, limiter.tryAcquire(NotionRateLimiter.Priority.INTERACTIVE));
+    }
+
+    @Test
+    void testCall_restoresPreviousPriority() {
+        assertEquals(NotionRateLimiter.Priority.BACKGROUND, limiter.currentPriority());
+        NotionRateLimiter.Priority inside = limiter.call(NotionRateLimiter.Priority.INTERACTIVE,
+                limiter::currentPriority);
+
+        assertEquals(NotionRateLimiter.Priority.INTERACTIVE, inside);
+        assertEquals(NotionRateLimiter.Priority.BACKGROUND, limiter.currentPriority());
+    }
+
+    @Test
+    void testRetryAfterParsing() {
+        assertEquals(Duration.ofSeconds(5), NotionRateLimitFilter.retryAfter("5"));
+        assertEquals(Duration.ofSeconds(1), NotionRateLimitFilter.retryAfter(null));
+        assertEquals(Duration.ofSeconds(1), NotionRateLimitFilter.retryAfter("soon"));
+    }
+}
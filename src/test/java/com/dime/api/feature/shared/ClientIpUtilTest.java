@@ -0,0 +1,27 @@
+package com.dime.api.feature.shared;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClientIpUtilTest {
+
+    @Test
+    void resolve_usesTheHopAppendedByTheTrustedProxy() {
+        // The client sent "1.1.1.1"; Cloud Run appended the address it actually saw
+        assertEquals("203.0.113.7", ClientIpUtil.resolve("1.1.1.1, 203.0.113.7", "10.0.0.1", 1));
+        assertEquals("203.0.113.7", ClientIpUtil.resolve("203.0.113.7", "10.0.0.1", 1));
+    }
+
+    @Test
+    void resolve_skipsEveryTrustedProxy() {
+        assertEquals("203.0.113.7", ClientIpUtil.resolve("1.1.1.1, 203.0.113.7, 35.191.0.1", "10.0.0.1", 2));
+    }
+
+    @Test
+    void resolve_fallsBackToTheRemoteAddressWithoutProxyHeader() {
+        assertEquals("10.0.0.1", ClientIpUtil.resolve(null, "10.0.0.1", 1));
+        assertEquals("10.0.0.1", ClientIpUtil.resolve(" ", "10.0.0.1", 1));
+        assertEquals(ClientIpUtil.UNKNOWN, ClientIpUtil.resolve(null, null, 1));
+    }
+}
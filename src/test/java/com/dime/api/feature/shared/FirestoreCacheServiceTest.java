@@ -0,0 +1,237 @@
+package com.dime.api.feature.shared;
+
+import com.dime.api.feature.shared.cache.JsonCodec;
+import com.dime.api.feature.shared.cache.SmileGzipCodec;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.Blob;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldMask;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FirestoreCacheServiceTest {
+
+    private static final TypeReference<Map<String, String>> MAP = new TypeReference<>() {
+    };
+
+    private FirestoreCacheService service;
+    private DocumentReference ref;
+    private DocumentSnapshot doc;
+    private CollectionReference chunks;
+    private final Map<String, DocumentReference> chunkRefs = new HashMap<>();
+    private WriteBatch batch;
+
+    @BeforeEach
+    void setup() {
+        service = new FirestoreCacheService();
+        service.firestore = mock(Firestore.class);
+        service.objectMapper = new ObjectMapper();
+        service.codecName = SmileGzipCodec.NAME;
+        service.writeThreads = 1;
+        service.writeQueue = 1;
+
+        CollectionReference collection = mock(CollectionReference.class);
+        ref = mock(DocumentReference.class);
+        doc = mock(DocumentSnapshot.class);
+        chunks = mock(CollectionReference.class);
+        batch = mock(WriteBatch.class);
+        when(service.firestore.collection("cache")).thenReturn(collection);
+        when(collection.document("github-user")).thenReturn(ref);
+        when(ref.get()).thenReturn(ApiFutures.immediateFuture(doc));
+        when(ref.collection("chunks")).thenReturn(chunks);
+        when(chunks.document(anyString()))
+                .thenAnswer(invocation -> chunkRefs.computeIfAbsent(invocation.getArgument(0), id -> mock(DocumentReference.class)));
+        when(doc.getId()).thenReturn("github-user");
+        when(doc.getReference()).thenReturn(ref);
+        when(service.firestore.batch()).thenReturn(batch);
+        when(batch.commit()).thenReturn(ApiFutures.immediateFuture(List.of()));
+    }
+
+    @AfterEach
+    void teardown() {
+        service.shutdown();
+    }
+
+    @Test
+    void store_writesBinaryEnvelopeAndSkipsUnchangedValues() throws Exception {
+        service.init();
+        when(doc.exists()).thenReturn(false);
+        Map<String, String> user = Map.of("login", "octocat", "name", "The Octocat");
+
+        service.store("github-user", user);
+        service.store("github-user", user);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> envelope = ArgumentCaptor.forClass(Map.class);
+        verify(batch).set(eq(ref), envelope.capture());
+        verify(batch, times(1)).commit();
+        verify(ref, times(1)).get();
+        assertEquals(SmileGzipCodec.NAME, envelope.getValue().get("codec"));
+        assertEquals(0, envelope.getValue().get(FirestoreCacheService.CHUNKS_FIELD));
+        byte[] bytes = ((Blob) envelope.getValue().get(FirestoreCacheService.PAYLOAD_FIELD)).toBytes();
+        assertEquals(Optional.of(user),
+                service.parse("github-user", new FirestoreCacheService.Payload(SmileGzipCodec.NAME, bytes), MAP));
+    }
+
+    @Test
+    void store_skipsValueAlreadyInFirestore() throws Exception {
+        service.init();
+        service.store("github-user", Map.of("login", "octocat"));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> envelope = ArgumentCaptor.forClass(Map.class);
+        verify(batch).set(eq(ref), envelope.capture());
+
+        // A fresh instance learns the stored hash from Firestore
+        FirestoreCacheService restarted = new FirestoreCacheService();
+        restarted.firestore = service.firestore;
+        restarted.objectMapper = service.objectMapper;
+        restarted.codecName = SmileGzipCodec.NAME;
+        restarted.writeThreads = 1;
+        restarted.writeQueue = 1;
+        restarted.init();
+        when(doc.exists()).thenReturn(true);
+        when(doc.getString(FirestoreCacheService.HASH_FIELD))
+                .thenReturn((String) envelope.getValue().get(FirestoreCacheService.HASH_FIELD));
+        when(doc.getLong(FirestoreCacheService.CHUNKS_FIELD)).thenReturn(0L);
+
+        restarted.store("github-user", Map.of("login", "octocat"));
+        restarted.shutdown();
+
+        verify(batch, times(1)).commit();
+    }
+
+    @Test
+    void store_splitsLargeValuesIntoChunksAndDeletesStaleOnes() throws Exception {
+        service.codecName = JsonCodec.NAME;
+        service.init();
+        when(doc.exists()).thenReturn(true);
+        when(doc.getString(FirestoreCacheService.HASH_FIELD)).thenReturn("previous");
+        when(doc.getLong(FirestoreCacheService.CHUNKS_FIELD)).thenReturn(4L);
+
+        service.store("github-user", Map.of("bio", "a".repeat(2 * FirestoreCacheService.CHUNK_BYTES)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> envelope = ArgumentCaptor.forClass(Map.class);
+        verify(batch).set(eq(ref), envelope.capture());
+        assertEquals(3, envelope.getValue().get(FirestoreCacheService.CHUNKS_FIELD));
+        assertFalse(envelope.getValue().containsKey(FirestoreCacheService.PAYLOAD_FIELD));
+        for (String id : List.of("0", "1", "2")) {
+            verify(batch).set(eq(chunkRefs.get(id)), anyMap());
+        }
+        verify(batch).delete(chunkRefs.get("3"));
+        verify(batch, times(1)).commit();
+    }
+
+    @Test
+    void read_reassemblesChunksInOrder() throws Exception {
+        service.init();
+        byte[] bytes = "{\"login\":\"octocat\"}".getBytes(StandardCharsets.UTF_8);
+        when(doc.exists()).thenReturn(true);
+        when(doc.getString("codec")).thenReturn(JsonCodec.NAME);
+        when(doc.getLong(FirestoreCacheService.CHUNKS_FIELD)).thenReturn(2L);
+        QueryDocumentSnapshot second = chunk("1", Arrays.copyOfRange(bytes, 8, bytes.length));
+        QueryDocumentSnapshot first = chunk("0", Arrays.copyOfRange(bytes, 0, 8));
+        QuerySnapshot query = mock(QuerySnapshot.class);
+        when(query.getDocuments()).thenReturn(List.of(second, first));
+        when(chunks.get()).thenReturn(ApiFutures.immediateFuture(query));
+
+        assertEquals(Optional.of(Map.of("login", "octocat")), service.read("github-user", MAP));
+    }
+
+    @Test
+    void read_decodesLegacyJsonDocuments() {
+        service.init();
+        when(doc.exists()).thenReturn(true);
+        when(doc.getString("data")).thenReturn("{\"login\":\"octocat\"}");
+
+        assertEquals(Optional.of(Map.of("login", "octocat")), service.read("github-user", MAP));
+    }
+
+    @Test
+    void readIfChanged_readsPayloadOnlyWhenAnotherInstanceWroteIt() throws Exception {
+        service.init();
+        when(doc.exists()).thenReturn(false);
+        service.store("github-user", Map.of("login", "octocat"));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> envelope = ArgumentCaptor.forClass(Map.class);
+        verify(batch).set(eq(ref), envelope.capture());
+        DocumentSnapshot head = mock(DocumentSnapshot.class);
+        when(head.exists()).thenReturn(true);
+        when(head.getString(FirestoreCacheService.HASH_FIELD))
+                .thenReturn((String) envelope.getValue().get(FirestoreCacheService.HASH_FIELD), "written-elsewhere");
+        when(ref.get(any(FieldMask.class))).thenReturn(ApiFutures.immediateFuture(head));
+        when(doc.exists()).thenReturn(true);
+        when(doc.getString("codec")).thenReturn(JsonCodec.NAME);
+        when(doc.getLong(FirestoreCacheService.CHUNKS_FIELD)).thenReturn(0L);
+        when(doc.getBlob(FirestoreCacheService.PAYLOAD_FIELD))
+                .thenReturn(Blob.fromBytes("{\"login\":\"hubot\"}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(Optional.empty(), service.readIfChanged("github-user", MAP));
+        assertEquals(Optional.of(Map.of("login", "hubot")), service.readIfChanged("github-user", MAP));
+        verify(ref, times(2)).get();
+    }
+
+    @Test
+    void remove_deletesDocumentAndEveryChunk() throws Exception {
+        service.init();
+        when(doc.exists()).thenReturn(false);
+        service.store("github-user", Map.of("login", "octocat"));
+
+        service.remove("github-user");
+        service.store("github-user", Map.of("login", "octocat"));
+
+        verify(batch).delete(ref);
+        for (int i = 0; i < FirestoreCacheService.MAX_CHUNKS; i++) {
+            verify(batch).delete(chunkRefs.get(String.valueOf(i)));
+        }
+        // The hash of the deleted value is forgotten, so the same value is written again
+        verify(batch, times(2)).set(eq(ref), anyMap());
+    }
+
+    @Test
+    void write_dropsWhenQueueIsFull() {
+        service.init();
+        when(doc.exists()).thenReturn(false);
+        when(ref.get()).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return ApiFutures.immediateFuture(doc);
+        });
+
+        assertDoesNotThrow(() -> {
+            for (int i = 0; i < 5; i++) {
+                service.write("github-user", Map.of("n", String.valueOf(i)));
+            }
+        });
+    }
+
+    private static QueryDocumentSnapshot chunk(String id, byte[] bytes) {
+        QueryDocumentSnapshot chunk = mock(QueryDocumentSnapshot.class);
+        when(chunk.getId()).thenReturn(id);
+        when(chunk.getBlob(FirestoreCacheService.PAYLOAD_FIELD)).thenReturn(Blob.fromBytes(bytes));
+        return chunk;
+    }
+}
@@ -0,0 +1,42 @@
+package com.dime.api.feature.shared.cache;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.security.TestSecurity;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.anyOf;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
+
+@QuarkusTest
+public class CacheAdminResourceTest {
+
+    @Test
+    public void testList_Unauthorized() {
+        given()
+                .redirects().follow(false)
+                .when().get("/v1/admin/caches")
+                .then()
+                .statusCode(anyOf(is(401), is(302)));
+    }
+
+    @Test
+    @TestSecurity(user = "admin", roles = "admin")
+    public void testList_ReturnsRegisteredCaches() {
+        given()
+                .when().get("/v1/admin/caches")
+                .then()
+                .statusCode(200)
+                .body("name", hasItems("github", "notion-cms"));
+    }
+
+    @Test
+    @TestSecurity(user = "admin", roles = "admin")
+    public void testInvalidate_UnknownCache_Returns404() {
+        given()
+                .when().delete("/v1/admin/caches/unknown")
+                .then()
+                .statusCode(404);
+    }
+}
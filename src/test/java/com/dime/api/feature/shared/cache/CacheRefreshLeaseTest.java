@@ -0,0 +1,87 @@
+package com.dime.api.feature.shared.cache;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CacheRefreshLeaseTest {
+
+    private CacheRefreshLease lease;
+    private DocumentReference ref;
+    private DocumentSnapshot doc;
+    private Transaction transaction;
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @BeforeEach
+    void setup() {
+        lease = new CacheRefreshLease();
+        lease.ttl = Duration.ofSeconds(30);
+        lease.clock = now::get;
+        lease.firestore = mock(Firestore.class, RETURNS_DEEP_STUBS);
+        ref = mock(DocumentReference.class);
+        doc = mock(DocumentSnapshot.class);
+        transaction = mock(Transaction.class);
+        when(lease.firestore.collection(CacheRefreshLease.COLLECTION).document(CacheRefreshLease.DOCUMENT))
+                .thenReturn(ref);
+        when(transaction.get(ref)).thenReturn(ApiFutures.immediateFuture(doc));
+        when(lease.firestore.runTransaction(any())).thenAnswer(invocation -> {
+            Transaction.Function<?> function = invocation.getArgument(0);
+            return ApiFutures.immediateFuture(function.updateCallback(transaction));
+        });
+    }
+
+    @Test
+    void renew_acquiresFreeLeaseUntilTtl() {
+        when(doc.exists()).thenReturn(false);
+
+        lease.renew();
+
+        assertTrue(lease.isLeader());
+        verify(transaction).set(eq(ref), anyMap());
+        now.addAndGet(Duration.ofSeconds(31).toMillis());
+        assertFalse(lease.isLeader());
+    }
+
+    @Test
+    void renew_leavesLeaseHeldByAnotherInstance() {
+        when(doc.exists()).thenReturn(true);
+        when(doc.getString("holder")).thenReturn("other-instance");
+        when(doc.getTimestamp("expiresAt")).thenReturn(Timestamp.ofTimeMicroseconds((now.get() + 10_000) * 1000));
+
+        lease.renew();
+
+        assertFalse(lease.isLeader());
+        verify(transaction, never()).set(any(DocumentReference.class), anyMap());
+    }
+
+    @Test
+    void renew_takesOverExpiredLease() {
+        when(doc.exists()).thenReturn(true);
+        when(doc.getString("holder")).thenReturn("crashed-instance");
+        when(doc.getTimestamp("expiresAt")).thenReturn(Timestamp.ofTimeMicroseconds((now.get() - 1) * 1000));
+
+        lease.renew();
+
+        assertTrue(lease.isLeader());
+    }
+
+    @Test
+    void withoutFirestore_alwaysLeads() {
+        lease.firestore = null;
+        assertTrue(lease.isLeader());
+    }
+}
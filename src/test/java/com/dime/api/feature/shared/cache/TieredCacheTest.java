@@ -0,0 +1,211 @@
+package com.dime.api.feature.shared.cache;
+
+import com.dime.api.feature.shared.FirestoreCacheService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TieredCacheTest {
+
+    private TieredCacheManager manager;
+    private FirestoreCacheService l2;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setup() {
+        manager = new TieredCacheManager();
+        l2 = mock(FirestoreCacheService.class);
+        manager.firestoreCacheService = l2;
+    }
+
+    private CacheSpec<Integer, String> spec(String name) {
+        return CacheSpec.<Integer, String>of(name, key -> "value-" + key + "-" + loads.incrementAndGet())
+                .persistent(key -> name + "-" + key, new TypeReference<>() {})
+                .warm(10, List.of(12));
+    }
+
+    @Test
+    void get_loadsOnceAndWritesBehindToFirestore() {
+        TieredCache<Integer, String> cache = manager.register(spec("numbers"));
+
+        assertEquals("value-12-1", cache.get(12));
+        assertEquals("value-12-1", cache.get(12));
+
+        assertEquals(1, loads.get());
+        verify(l2).write("numbers-12", "value-12-1");
+        TieredCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertTrue(stats.persistent());
+    }
+
+    @Test
+    void warmFromL2_restoresAllCachesInOneReadWithoutLoadingOrRewriting() {
+        FirestoreCacheService.Payload payload = new FirestoreCacheService.Payload("json", "\"persisted\"".getBytes());
+        when(l2.readAll(any(), any())).thenReturn(Map.of("numbers-12", payload));
+        when(l2.parse(eq("numbers-12"), eq(payload), any(TypeReference.class)))
+                .thenReturn(Optional.of("persisted"));
+        TieredCache<Integer, String> cache = manager.register(spec("numbers"));
+        manager.register(spec("letters"));
+
+        manager.warmFromL2(Duration.ofSeconds(1));
+
+        verify(l2).readAll(eq(Set.of("numbers-12", "letters-12")), eq(Duration.ofSeconds(1)));
+        assertEquals("persisted", cache.get(12));
+        assertEquals(0, loads.get());
+        verify(l2, never()).write(anyString(), any());
+    }
+
+    @Test
+    void warmAll_loadsMissingKeysAndSurvivesLoaderFailures() {
+        manager.register(CacheSpec.<Integer, String>of("broken", key -> {
+            throw new IllegalStateException("upstream down");
+        }).warm(1, List.of(1)));
+        TieredCache<Integer, String> cache = manager.register(spec("numbers"));
+
+        assertFalse(manager.isWarmupCompleted());
+        manager.warmAll(Runnable::run).join();
+
+        assertTrue(manager.isWarmupCompleted());
+        assertEquals(List.of("12"), cache.keys());
+        assertEquals(List.of("broken", "numbers"), manager.caches().stream().map(TieredCache::name).toList());
+    }
+
+    @Test
+    void reload_bypassesMemoryAndInvalidateKeyMatchesRenderedKey() {
+        TieredCache<Integer, String> cache = manager.register(spec("numbers"));
+        cache.get(12);
+
+        assertEquals("value-12-2", cache.reload(12));
+        assertTrue(cache.invalidateKey("12"));
+        assertFalse(cache.invalidateKey("12"));
+        assertEquals(List.of(), cache.keys());
+    }
+
+    @Test
+    void withoutRefreshLease_loadsFromFirestoreAndSyncsFromIt() {
+        manager.refreshLease = mock(CacheRefreshLease.class);
+        when(manager.refreshLease.isLeader()).thenReturn(false);
+        when(l2.read(eq("numbers-12"), any(TypeReference.class))).thenReturn(Optional.of("shared-1"));
+        when(l2.readIfChanged(eq("numbers-12"), any(TypeReference.class))).thenReturn(Optional.of("shared-2"));
+        TieredCache<Integer, String> cache = manager.register(spec("numbers"));
+
+        assertEquals("shared-1", cache.get(12));
+        manager.refreshTick();
+
+        assertEquals("shared-2", cache.get(12));
+        assertEquals(0, loads.get());
+        verify(l2, never()).write(anyString(), any());
+    }
+
+    @Test
+    void refreshTick_adoptsValuesWrittenByAnotherInstance() {
+        when(l2.readIfChanged(eq("numbers-12"), any(TypeReference.class)))
+                .thenReturn(Optional.empty(), Optional.of("pushed"));
+        TieredCache<Integer, String> cache = manager.register(spec("numbers"));
+
+        assertEquals("value-12-1", cache.get(12));
+        manager.refreshTick();
+        assertEquals("value-12-1", cache.get(12));
+        manager.refreshTick();
+
+        assertEquals("pushed", cache.get(12));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void withoutRefreshLease_loadsFromSourceWhenFirestoreHasNoCopy() {
+        manager.refreshLease = mock(CacheRefreshLease.class);
+        when(manager.refreshLease.isLeader()).thenReturn(false);
+        when(l2.read(anyString(), any(TypeReference.class))).thenReturn(Optional.empty());
+        TieredCache<Integer, String> cache = manager.register(spec("numbers"));
+
+        assertEquals("value-12-1", cache.get(12));
+    }
+
+    @Test
+    void get_servesFirestoreCopyWhileSourceFailsAfterExpiry() {
+        AtomicBoolean down = new AtomicBoolean();
+        TieredCache<Integer, String> cache = manager.register(CacheSpec.<Integer, String>of("numbers", key -> {
+            loads.incrementAndGet();
+            if (down.get()) {
+                throw new IllegalStateException("upstream down");
+            }
+            return "value-" + key;
+        }).persistent(key -> "numbers-" + key, new TypeReference<>() {}));
+        AtomicLong now = new AtomicLong(1_000_000);
+        cache.clock = now::get;
+        cache.get(12);
+
+        // Expired from memory while the source is down
+        cache.invalidate(12);
+        down.set(true);
+        when(l2.read(eq("numbers-12"), any(TypeReference.class))).thenReturn(Optional.of("value-12"));
+
+        assertEquals("value-12", cache.get(12));
+        assertEquals("value-12", cache.get(12));
+        assertTrue(cache.isStale(12));
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.stats().staleServed());
+        assertEquals(1, cache.stats().failingKeys());
+
+        down.set(false);
+        now.addAndGet(Duration.ofSeconds(30).toMillis());
+        assertEquals("value-12", cache.reload(12));
+        assertFalse(cache.isStale(12));
+    }
+
+    @Test
+    void get_rethrowsWithoutCallingSourceUntilBackoffEnds() {
+        TieredCache<Integer, String> cache = manager.register(CacheSpec.<Integer, String>of("numbers", key -> {
+            loads.incrementAndGet();
+            throw new IllegalStateException("upstream down");
+        }).retryBackoff(Duration.ofSeconds(10), Duration.ofMinutes(1)));
+        AtomicLong now = new AtomicLong(1_000_000);
+        cache.clock = now::get;
+
+        assertThrows(IllegalStateException.class, () -> cache.get(1));
+        assertThrows(IllegalStateException.class, () -> cache.get(1));
+        assertEquals(1, loads.get());
+
+        now.addAndGet(Duration.ofSeconds(10).toMillis());
+        assertThrows(IllegalStateException.class, () -> cache.get(1));
+        assertEquals(2, loads.get());
+
+        // Second failure doubles the backoff to 20 seconds
+        now.addAndGet(Duration.ofSeconds(10).toMillis());
+        assertThrows(IllegalStateException.class, () -> cache.get(1));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void unpopulatedCriticalCaches_listsCriticalCachesMissingWarmKeys() {
+        TieredCache<Integer, String> critical = manager.register(spec("numbers").critical());
+        manager.register(spec("letters"));
+
+        assertEquals(List.of("numbers"), manager.unpopulatedCriticalCaches());
+        critical.get(12);
+        assertEquals(List.of(), manager.unpopulatedCriticalCaches());
+    }
+
+    @Test
+    void register_rejectsDuplicateNames() {
+        manager.register(spec("numbers"));
+        assertThrows(IllegalStateException.class, () -> manager.register(spec("numbers")));
+    }
+}
@@ -0,0 +1,51 @@
+package com.dime.api.feature.shared.health;
+
+import com.dime.api.feature.shared.cache.TieredCacheManager;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CacheReadinessCheckTest {
+
+    CacheReadinessCheck check;
+
+    @BeforeEach
+    void setup() {
+        check = new CacheReadinessCheck();
+        check.cacheManager = mock(TieredCacheManager.class);
+    }
+
+    @Test
+    void testDownWhileCriticalCacheMissingDuringWarmup() {
+        when(check.cacheManager.unpopulatedCriticalCaches()).thenReturn(List.of("github-user"));
+        when(check.cacheManager.isWarmupCompleted()).thenReturn(false);
+
+        HealthCheckResponse response = check.call();
+
+        assertEquals(HealthCheckResponse.Status.DOWN, response.getStatus());
+        assertEquals("github-user", response.getData().orElseThrow().get("missing"));
+    }
+
+    @Test
+    void testUpOnceCriticalCachesPopulated() {
+        when(check.cacheManager.unpopulatedCriticalCaches()).thenReturn(List.of());
+
+        assertEquals(HealthCheckResponse.Status.UP, check.call().getStatus());
+    }
+
+    @Test
+    void testUpAfterWarmupEvenIfCacheCouldNotBeFilled() {
+        when(check.cacheManager.unpopulatedCriticalCaches()).thenReturn(List.of("notion-cms"));
+        when(check.cacheManager.isWarmupCompleted()).thenReturn(true);
+
+        HealthCheckResponse response = check.call();
+
+        assertEquals(HealthCheckResponse.Status.UP, response.getStatus());
+        assertEquals("notion-cms", response.getData().orElseThrow().get("missing"));
+    }
+}
@@ -1,6 +1,8 @@
 package com.dime.api.feature.shared.health;
 
 import com.dime.api.feature.github.GitHubClient;
+import com.dime.api.feature.github.GitHubRateBudget;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import org.eclipse.microprofile.health.HealthCheckResponse;
 import org.junit.jupiter.api.BeforeEach;
@@ -65,6 +67,18 @@ class GitHubHealthCheckTest {
         verify(check.gitHubClient).getRateLimit("Bearer my-token");
     }
 
+    @Test
+    void testRecordsRateLimitBudget() {
+        check.rateBudget = mock(GitHubRateBudget.class);
+        JsonNode rateLimit = JsonNodeFactory.instance.objectNode().set("resources",
+                JsonNodeFactory.instance.objectNode());
+        when(check.gitHubClient.getRateLimit(any())).thenReturn(rateLimit);
+
+        check.doCheck();
+
+        verify(check.rateBudget).record(rateLimit);
+    }
+
     @Test
     void testCacheReturnsCachedResponse() {
         when(check.gitHubClient.getRateLimit(any()))
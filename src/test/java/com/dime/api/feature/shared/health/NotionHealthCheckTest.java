@@ -1,11 +1,15 @@
 package com.dime.api.feature.shared.health;
 
 import com.dime.api.feature.notion.NotionClient;
+import com.dime.api.feature.notion.NotionRateLimiter;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import org.eclipse.microprofile.health.HealthCheckResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -18,6 +22,7 @@ class NotionHealthCheckTest {
     void setup() {
         check = new NotionHealthCheck();
         check.notionClient = mock(NotionClient.class);
+        check.rateLimiter = new NotionRateLimiter();
         check.token = "test-token";
         check.version = "2022-02-22";
         check.cachedResponse = null;
@@ -52,6 +57,31 @@ class NotionHealthCheckTest {
         assertEquals("timeout", response.getData().get().get("error"));
     }
 
+    @Test
+    void testProbeRunsAtBackgroundPriority() {
+        AtomicReference<NotionRateLimiter.Priority> priority = new AtomicReference<>();
+        when(check.notionClient.getMe(any(), any())).thenAnswer(invocation -> {
+            priority.set(check.rateLimiter.currentPriority());
+            return JsonNodeFactory.instance.objectNode();
+        });
+
+        check.doCheck();
+
+        assertEquals(NotionRateLimiter.Priority.BACKGROUND, priority.get());
+    }
+
+    @Test
+    void testThrottled_skipsProbeWhileLimiterIsPaused() {
+        check.rateLimiter.pause(Duration.ofSeconds(30));
+
+        HealthCheckResponse response = check.doCheck();
+
+        assertEquals(HealthCheckResponse.Status.UP, response.getStatus());
+        assertEquals("THROTTLED", response.getData().get().get("status"));
+        assertTrue((Long) response.getData().get().get("retryAfterMs") > 0);
+        verifyNoInteractions(check.notionClient);
+    }
+
     @Test
     void testCacheReturnsCachedResponse() {
         when(check.notionClient.getMe(any(), any()))